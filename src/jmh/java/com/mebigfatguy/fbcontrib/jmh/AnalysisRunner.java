@@ -0,0 +1,160 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+import edu.umd.cs.findbugs.DetectorFactory;
+import edu.umd.cs.findbugs.DetectorFactoryCollection;
+import edu.umd.cs.findbugs.FindBugs2;
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.PluginException;
+import edu.umd.cs.findbugs.Project;
+import edu.umd.cs.findbugs.config.UserPreferences;
+
+/**
+ * runs a complete FindBugs analysis over a corpus with only one fb-contrib detector (plus the collectors it depends on) enabled
+ */
+public class AnalysisRunner {
+
+    /** the pseudo detector name that runs only the collectors, used as the baseline to subtract */
+    public static final String NO_DETECTOR = "none";
+
+    private static final String PLUGIN_ID = "com.mebigfatguy.fbcontrib";
+    private static final Set<String> COLLECTORS = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList("CollectStatistics", "CollectMethodsReturningImmutableCollections", "CollectNullableMethodStatus", "DetectorProfilerInstaller")));
+
+    private final File pluginLocation;
+    private final List<File> classpath;
+
+    /**
+     * constructs a runner for the plugin built into the given location
+     *
+     * @param pluginLocation
+     *            the directory or jar holding the compiled plugin along with findbugs.xml and messages.xml
+     * @param classpath
+     *            the auxiliary classpath used to resolve types the corpus references
+     * @throws PluginException
+     *             if the plugin can not be loaded
+     */
+    public AnalysisRunner(File pluginLocation, List<File> classpath) throws PluginException {
+        this.pluginLocation = pluginLocation;
+        this.classpath = classpath;
+        loadPlugin(pluginLocation);
+    }
+
+    /**
+     * registers the plugin with FindBugs, if it hasn't been already. The plugin is loaded through the benchmark's class loader so that the detector
+     * classes aren't loaded twice.
+     *
+     * @param pluginLocation
+     *            the directory or jar holding the compiled plugin along with findbugs.xml and messages.xml
+     * @return the plugin
+     * @throws PluginException
+     *             if the plugin can not be loaded
+     */
+    public static Plugin loadPlugin(File pluginLocation) throws PluginException {
+        Plugin plugin = Plugin.getByPluginId(PLUGIN_ID);
+        if (plugin == null) {
+            plugin = Plugin.addCustomPlugin(pluginLocation.toURI(), AnalysisRunner.class.getClassLoader());
+        }
+        return plugin;
+    }
+
+    /**
+     * returns all the detectors the plugin defines, excluding the collectors, in the order they are declared
+     *
+     * @param plugin
+     *            the loaded fb-contrib plugin
+     * @return a list of detector factories
+     */
+    public static List<DetectorFactory> getReportingDetectors(Plugin plugin) {
+        List<DetectorFactory> detectors = new ArrayList<>();
+        for (DetectorFactory factory : plugin.getDetectorFactories()) {
+            if (!COLLECTORS.contains(factory.getShortName())) {
+                detectors.add(factory);
+            }
+        }
+        return detectors;
+    }
+
+    /**
+     * analyzes the corpus with just the given detector enabled
+     *
+     * @param detectorName
+     *            the short name of the detector to run, or {@link #NO_DETECTOR}
+     * @param corpus
+     *            the directory or jar of classes to analyze
+     * @return the bug reporter, which holds the number of classes analyzed and bugs found
+     *
+     * @throws IOException
+     *             if the corpus can not be read
+     * @throws InterruptedException
+     *             if the analysis is interrupted
+     */
+    public CountingBugReporter analyze(String detectorName, File corpus) throws IOException, InterruptedException {
+        Project project = new Project();
+        project.addFile(corpus.getAbsolutePath());
+        for (File entry : classpath) {
+            project.addAuxClasspathEntry(entry.getAbsolutePath());
+        }
+
+        DetectorFactoryCollection dfc = DetectorFactoryCollection.instance();
+        UserPreferences prefs = UserPreferences.createDefaultUserPreferences();
+        prefs.setEffort(UserPreferences.EFFORT_MAX);
+        Iterator<DetectorFactory> it = dfc.factoryIterator();
+        while (it.hasNext()) {
+            DetectorFactory factory = it.next();
+            if (PLUGIN_ID.equals(factory.getPlugin().getPluginId())) {
+                String name = factory.getShortName();
+                prefs.enableDetector(factory, COLLECTORS.contains(name) || name.equals(detectorName));
+            } else {
+                // keep the infrastructure detectors other detectors rely on, but nothing that reports
+                prefs.enableDetector(factory, !factory.isReportingDetector());
+            }
+        }
+
+        CountingBugReporter reporter = new CountingBugReporter();
+        reporter.setPriorityThreshold(5);
+
+        FindBugs2 findBugs = new FindBugs2();
+        findBugs.setDetectorFactoryCollection(dfc);
+        findBugs.setBugReporter(reporter);
+        findBugs.setProject(project);
+        findBugs.setUserPreferences(prefs);
+        findBugs.setNoClassOk(true);
+        findBugs.execute();
+        return reporter;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.jmh;
+
+import edu.umd.cs.findbugs.AbstractBugReporter;
+import edu.umd.cs.findbugs.AnalysisError;
+import edu.umd.cs.findbugs.BugCollection;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+
+/**
+ * a bug reporter that just counts what is reported, so that reporting costs as little as possible while benchmarking
+ */
+public class CountingBugReporter extends AbstractBugReporter {
+
+    private int numBugs;
+
+    @Override
+    protected void doReportBug(BugInstance bugInstance) {
+        numBugs++;
+    }
+
+    @Override
+    public void reportAnalysisError(AnalysisError error) {
+        // ignored while benchmarking
+    }
+
+    @Override
+    public void reportMissingClass(String string) {
+        // ignored while benchmarking
+    }
+
+    @Override
+    public void observeClass(ClassDescriptor classDescriptor) {
+        // nothing to track
+    }
+
+    @Override
+    public void finish() {
+        // nothing to flush
+    }
+
+    @Override
+    public BugCollection getBugCollection() {
+        return null;
+    }
+
+    public int getNumClasses() {
+        return getProjectStats().getNumClasses();
+    }
+
+    public int getNumBugs() {
+        return numBugs;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * measures a single detector over a corpus, by running a full analysis with only that detector and the collectors enabled. Run it with
+ * {@link DetectorBenchmarks} to cover every detector, or directly with a {@code -p detector=...} parameter to look at one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DetectorBenchmark {
+
+    /** where the compiled plugin, along with findbugs.xml and messages.xml, lives */
+    public static final String PLUGIN_PROPERTY = "fb-contrib.jmh.plugin";
+    /** where the compiled sample classes live */
+    public static final String SAMPLES_PROPERTY = "fb-contrib.jmh.samples";
+    /** how many classes the synthetic corpus holds */
+    public static final String SYNTHETIC_SIZE_PROPERTY = "fb-contrib.jmh.synthetic.size";
+
+    public static final String SAMPLES_CORPUS = "samples";
+    public static final String SYNTHETIC_CORPUS = "synthetic";
+
+    private static final int SYNTHETIC_METHODS_PER_CLASS = 12;
+
+    @Param(AnalysisRunner.NO_DETECTOR)
+    public String detector;
+
+    @Param({ SAMPLES_CORPUS, SYNTHETIC_CORPUS })
+    public String corpus;
+
+    private AnalysisRunner runner;
+    private File corpusLocation;
+
+    /**
+     * counts the classes analyzed, so that jmh reports classes per second next to the analyses per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ClassCounter {
+        public long classes;
+        public long bugs;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            classes = 0;
+            bugs = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        runner = new AnalysisRunner(new File(System.getProperty(PLUGIN_PROPERTY, "target/classes/main")), getAuxClasspath());
+
+        if (SYNTHETIC_CORPUS.equals(corpus)) {
+            corpusLocation = SyntheticCorpus.generate(Integer.getInteger(SYNTHETIC_SIZE_PROPERTY, 200).intValue(), SYNTHETIC_METHODS_PER_CLASS);
+        } else {
+            corpusLocation = new File(System.getProperty(SAMPLES_PROPERTY, "target/test-classes/ex"));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (SYNTHETIC_CORPUS.equals(corpus)) {
+            SyntheticCorpus.delete(corpusLocation);
+        }
+    }
+
+    @Benchmark
+    public CountingBugReporter analyze(ClassCounter counter) throws Exception {
+        CountingBugReporter reporter = runner.analyze(detector, corpusLocation);
+        counter.classes += reporter.getNumClasses();
+        counter.bugs += reporter.getNumBugs();
+        return reporter;
+    }
+
+    /**
+     * builds the auxiliary classpath from the benchmark's own classpath, plus the runtime jar on jdks that still have one, so that the samples'
+     * references to the jdk and their third party dependencies resolve
+     *
+     * @return the classpath entries
+     */
+    private static List<File> getAuxClasspath() {
+        List<File> classpath = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                classpath.add(new File(entry));
+            }
+        }
+
+        File rtJar = new File(System.getProperty("java.home"), "lib/rt.jar");
+        if (rtJar.isFile()) {
+            classpath.add(rtJar);
+        }
+        return classpath;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.jmh;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import edu.umd.cs.findbugs.DetectorFactory;
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.PluginException;
+
+/**
+ * runs {@link DetectorBenchmark} for every detector declared in findbugs.xml (or just the ones named on the command line), along with a baseline
+ * that only runs the collectors, and then compares what each detector costs with the speed it declares. A detector's cost is the extra time per class
+ * it adds over the baseline, as a fraction of the baseline's time per class:
+ * <ul>
+ * <li>fast: less than 10%</li>
+ * <li>moderate: less than 50%</li>
+ * <li>slow: anything more</li>
+ * </ul>
+ * Detectors whose measured speed does not match the declared one are flagged, so that the speed attributes, and thus the pass ordering, can be kept
+ * honest.
+ */
+public final class DetectorBenchmarks {
+
+    private static final double FAST_LIMIT = 0.10;
+    private static final double MODERATE_LIMIT = 0.50;
+    private static final String ALLOC_RATE_NORM = "gc.alloc.rate.norm";
+
+    private DetectorBenchmarks() {
+    }
+
+    /**
+     * the main entry point
+     *
+     * @param args
+     *            the short names of the detectors to benchmark, or nothing to benchmark them all
+     *
+     * @throws PluginException
+     *             if the plugin can not be loaded
+     * @throws RunnerException
+     *             if jmh fails
+     */
+    @SuppressWarnings("deprecation")
+    public static void main(String[] args) throws PluginException, RunnerException {
+        Plugin plugin = AnalysisRunner.loadPlugin(new File(System.getProperty(DetectorBenchmark.PLUGIN_PROPERTY, "target/classes/main")));
+
+        Set<String> requested = new HashSet<>(Arrays.asList(args));
+        Map<String, String> declaredSpeeds = new HashMap<>();
+        List<String> detectors = new ArrayList<>();
+        detectors.add(AnalysisRunner.NO_DETECTOR);
+        for (DetectorFactory factory : AnalysisRunner.getReportingDetectors(plugin)) {
+            if (requested.isEmpty() || requested.contains(factory.getShortName())) {
+                detectors.add(factory.getShortName());
+                declaredSpeeds.put(factory.getShortName(), factory.getSpeed());
+            }
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().include(DetectorBenchmark.class.getName())
+                .param("detector", detectors.toArray(new String[detectors.size()])).addProfiler(GCProfiler.class).shouldFailOnError(true);
+        for (String property : new String[] { DetectorBenchmark.PLUGIN_PROPERTY, DetectorBenchmark.SAMPLES_PROPERTY,
+                DetectorBenchmark.SYNTHETIC_SIZE_PROPERTY }) {
+            String value = System.getProperty(property);
+            if (value != null) {
+                options.jvmArgsAppend("-D" + property + '=' + value);
+            }
+        }
+
+        Collection<RunResult> results = new Runner(options.build()).run();
+        report(results, declaredSpeeds);
+    }
+
+    private static void report(Collection<RunResult> results, Map<String, String> declaredSpeeds) {
+        Map<String, Double> baselines = new HashMap<>();
+        for (RunResult result : results) {
+            if (AnalysisRunner.NO_DETECTOR.equals(result.getParams().getParam("detector"))) {
+                baselines.put(result.getParams().getParam("corpus"), Double.valueOf(classesPerSecond(result)));
+            }
+        }
+
+        System.out.println();
+        System.out.println(String.format(Locale.ENGLISH, "%-45s %-10s %12s %14s %8s %-9s %-9s", "Detector", "Corpus", "classes/s", "bytes/op", "cost",
+                "measured", "declared"));
+        int mismatches = 0;
+        for (RunResult result : results) {
+            String detector = result.getParams().getParam("detector");
+            if (AnalysisRunner.NO_DETECTOR.equals(detector)) {
+                continue;
+            }
+            String corpus = result.getParams().getParam("corpus");
+            double rate = classesPerSecond(result);
+            Double baseline = baselines.get(corpus);
+            double cost = ((baseline == null) || (rate <= 0.0)) ? Double.NaN : (baseline.doubleValue() / rate) - 1.0;
+
+            String measured = classify(cost);
+            String declared = declaredSpeeds.get(detector);
+            boolean mismatch = (measured != null) && !measured.equals(declared);
+            if (mismatch) {
+                mismatches++;
+            }
+
+            System.out.println(String.format(Locale.ENGLISH, "%-45s %-10s %12.1f %14.0f %7.0f%% %-9s %-9s%s", detector, corpus, rate,
+                    allocationPerOp(result), cost * 100.0, (measured == null) ? "?" : measured, declared, mismatch ? " <-- MISMATCH" : ""));
+        }
+        System.out.println();
+        System.out.println(mismatches + " detector/corpus combinations do not match their declared speed");
+    }
+
+    private static double classesPerSecond(RunResult result) {
+        Result<?> classes = result.getSecondaryResults().get("classes");
+        return (classes == null) ? 0.0 : classes.getScore();
+    }
+
+    private static double allocationPerOp(RunResult result) {
+        for (String name : result.getSecondaryResults().keySet()) {
+            if (name.endsWith(ALLOC_RATE_NORM)) {
+                Result<?> allocation = result.getSecondaryResults().get(name);
+                return allocation.getScore();
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static String classify(double cost) {
+        if (Double.isNaN(cost)) {
+            return null;
+        }
+        if (cost < FAST_LIMIT) {
+            return "fast";
+        }
+        if (cost < MODERATE_LIMIT) {
+            return "moderate";
+        }
+        return "slow";
+    }
+}
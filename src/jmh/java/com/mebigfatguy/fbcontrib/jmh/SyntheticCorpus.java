@@ -0,0 +1,230 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * generates and compiles a corpus of classes of a controllable size, so that detectors can be measured on more than the handful of sample classes. The
+ * classes are built from a fixed seed, so every run sees the same bytecode.
+ */
+public final class SyntheticCorpus {
+
+    private static final long SEED = 0x46424353L;
+    private static final String PACKAGE = "fbcontrib.synthetic";
+
+    private SyntheticCorpus() {
+    }
+
+    /**
+     * generates the given number of classes into a fresh directory and compiles them
+     *
+     * @param numClasses
+     *            the number of classes to generate
+     * @param methodsPerClass
+     *            the number of methods in each class
+     * @return the directory holding the compiled classes
+     *
+     * @throws IOException
+     *             if the sources can not be written or do not compile
+     */
+    public static File generate(int numClasses, int methodsPerClass) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IOException("No system java compiler available, run the benchmarks with a JDK");
+        }
+
+        File root = Files.createTempDirectory("fbc-corpus").toFile();
+        File srcDir = new File(root, "src/" + PACKAGE.replace('.', '/'));
+        File classesDir = new File(root, "classes");
+        if (!srcDir.mkdirs() || !classesDir.mkdirs()) {
+            throw new IOException("Failed to create corpus directories in " + root);
+        }
+
+        Random random = new Random(SEED);
+        List<String> args = new ArrayList<>();
+        args.add("-nowarn");
+        args.add("-g");
+        args.add("-d");
+        args.add(classesDir.getPath());
+        for (int c = 0; c < numClasses; c++) {
+            File src = new File(srcDir, className(c) + ".java");
+            try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(src.toPath(), StandardCharsets.UTF_8))) {
+                writeClass(pw, c, numClasses, methodsPerClass, random);
+            }
+            args.add(src.getPath());
+        }
+
+        if (compiler.run(null, null, null, args.toArray(new String[args.size()])) != 0) {
+            throw new IOException("Failed to compile the synthetic corpus in " + srcDir);
+        }
+        return classesDir;
+    }
+
+    /**
+     * removes a corpus made by {@link #generate(int, int)}, sources and all
+     *
+     * @param classesDir
+     *            the directory returned by generate
+     *
+     * @throws IOException
+     *             if a file of the corpus can not be removed
+     */
+    public static void delete(File classesDir) throws IOException {
+        Files.walkFileTree(classesDir.getParentFile().toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static String className(int c) {
+        return "Synthetic" + c;
+    }
+
+    private static void writeClass(PrintWriter pw, int c, int numClasses, int methodsPerClass, Random random) {
+        String name = className(c);
+        String peer = className((c + 1) % numClasses);
+
+        pw.println("package " + PACKAGE + ';');
+        pw.println();
+        pw.println("import java.util.*;");
+        pw.println();
+        pw.println("public class " + name + " {");
+        pw.println("    final List<String> names = new ArrayList<>();");
+        pw.println("    final Map<String, Integer> counts = new HashMap<>();");
+        pw.println("    private " + peer + " peer;");
+        pw.println("    private int state;");
+        pw.println();
+
+        for (int m = 0; m < methodsPerClass; m++) {
+            switch (random.nextInt(5)) {
+                case 0:
+                    writeLoopMethod(pw, m, random);
+                break;
+                case 1:
+                    writeBranchMethod(pw, m, random);
+                break;
+                case 2:
+                    writeCollectionMethod(pw, m);
+                break;
+                case 3:
+                    writeExceptionMethod(pw, m);
+                break;
+                default:
+                    writePeerMethod(pw, m);
+                break;
+            }
+        }
+        pw.println("}");
+    }
+
+    private static void writeLoopMethod(PrintWriter pw, int m, Random random) {
+        pw.println("    public String method" + m + "(int limit) {");
+        pw.println("        StringBuilder sb = new StringBuilder();");
+        pw.println("        for (int i = 0; i < limit; i++) {");
+        pw.println("            String s = names.size() > i ? names.get(i) : \"" + random.nextInt(1000) + "\";");
+        pw.println("            sb.append(s.trim()).append(i % " + (random.nextInt(7) + 2) + ");");
+        pw.println("        }");
+        pw.println("        return sb.toString();");
+        pw.println("    }");
+        pw.println();
+    }
+
+    private static void writeBranchMethod(PrintWriter pw, int m, Random random) {
+        pw.println("    public int method" + m + "(int a, int b) {");
+        pw.println("        int result = " + random.nextInt(100) + ';');
+        pw.println("        if (a > b) {");
+        pw.println("            result += a * " + (random.nextInt(9) + 1) + ';');
+        pw.println("        } else if (a == b) {");
+        pw.println("            result = state;");
+        pw.println("        } else {");
+        pw.println("            state = b - a;");
+        pw.println("        }");
+        pw.println("        switch (result & 3) {");
+        pw.println("            case 0: return result;");
+        pw.println("            case 1: return -result;");
+        pw.println("            default: return result > 0 ? result : state;");
+        pw.println("        }");
+        pw.println("    }");
+        pw.println();
+    }
+
+    private static void writeCollectionMethod(PrintWriter pw, int m) {
+        pw.println("    public Set<String> method" + m + "(Collection<String> in) {");
+        pw.println("        Set<String> out = new HashSet<>();");
+        pw.println("        for (String s : in) {");
+        pw.println("            Integer count = counts.get(s);");
+        pw.println("            counts.put(s, count == null ? 1 : count + 1);");
+        pw.println("            if (names.contains(s)) {");
+        pw.println("                out.add(s.toLowerCase());");
+        pw.println("            }");
+        pw.println("        }");
+        pw.println("        return out;");
+        pw.println("    }");
+        pw.println();
+    }
+
+    private static void writeExceptionMethod(PrintWriter pw, int m) {
+        pw.println("    public Integer method" + m + "(String value) {");
+        pw.println("        try {");
+        pw.println("            return Integer.valueOf(value);");
+        pw.println("        } catch (NumberFormatException e) {");
+        pw.println("            names.add(value);");
+        pw.println("            return null;");
+        pw.println("        }");
+        pw.println("    }");
+        pw.println();
+    }
+
+    private static void writePeerMethod(PrintWriter pw, int m) {
+        pw.println("    public int method" + m + "() {");
+        pw.println("        if (peer == null) {");
+        pw.println("            return state;");
+        pw.println("        }");
+        pw.println("        return peer.names.size() + peer.counts.size() + state;");
+        pw.println("    }");
+        pw.println();
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.cache;
+
+import edu.umd.cs.findbugs.Detector;
+
+/**
+ * marks a detector whose bugs for a class depend only on that class's bytes, the libraries it is analyzed against, and fb-contrib's settings. Such a
+ * detector reads nothing collected from other application classes, such as {@link com.mebigfatguy.fbcontrib.collect.Statistics}, and reports nothing from
+ * report(), where it only saves its results, so the bugs it reported for a class can be replayed by {@link ClassResultCache} when the class has not
+ * changed.
+ * <p>
+ * Detectors that aggregate over the whole program, read the first pass databases, look up other application classes through the Repository, or keep
+ * state across classes, must not implement this interface.
+ * </p>
+ */
+public interface ClassLocalDetector extends Detector {
+}
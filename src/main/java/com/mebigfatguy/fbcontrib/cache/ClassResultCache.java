@@ -0,0 +1,282 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+import edu.umd.cs.findbugs.classfile.analysis.ClassData;
+
+/**
+ * an opt-in cache of the bugs each {@link ClassLocalDetector} reported for each class, keyed by a digest of the class file. It is enabled by setting the
+ * system property fb-contrib.resultcache.dir to a directory, where one file per detector is kept. A detector's results are only reused while its
+ * fingerprint is unchanged: the fb-contrib build, the detector, the fb-contrib.* system properties other than those of the cache and the profiler, and the
+ * libraries being analyzed against.
+ * <p>
+ * A detector takes part by reporting through the reporter returned by {@link #record(ClassLocalDetector, BugReporter)}, by bracketing its class
+ * visit with {@link #replay(ClassContext, BugReporter)} and {@link #recorded(BugReporter)}, and by saving its results with
+ * {@link #save(BugReporter)} once its pass is over:
+ * </p>
+ *
+ * <pre>
+ * public void visitClassContext(ClassContext classContext) {
+ *     if (ClassResultCache.replay(classContext, bugReporter)) {
+ *         return;
+ *     }
+ *     ... scan the class ...
+ *     ClassResultCache.recorded(bugReporter);
+ * }
+ *
+ * public void report() {
+ *     ClassResultCache.save(bugReporter);
+ * }
+ * </pre>
+ */
+public final class ClassResultCache {
+
+    public static final String RESULT_CACHE_DIR = "fb-contrib.resultcache.dir";
+
+    private static final String CACHE_DIR = System.getProperty(RESULT_CACHE_DIR);
+    private static final String FB_CONTRIB_PROPERTY_PREFIX = "fb-contrib.";
+    private static final String PROFILE_PROPERTY_PREFIX = "fb-contrib.profile.";
+    private static final String FB_CONTRIB_PLUGIN_ID = "com.mebigfatguy.fbcontrib";
+    private static final String RESULTS_SUFFIX = ".results";
+    private static final ConcurrentMap<String, DetectorResults> RESULTS = new ConcurrentHashMap<>();
+
+    private static Reference<IAnalysisCache> lastAnalysisCache = new WeakReference<>(null);
+    private static ClassDescriptor lastClass;
+    private static String lastClassKey;
+
+    private ClassResultCache() {
+    }
+
+    /**
+     * returns whether the result cache was requested for this run
+     *
+     * @return whether the fb-contrib.resultcache.dir property is set
+     */
+    public static boolean isEnabled() {
+        return CACHE_DIR != null;
+    }
+
+    /**
+     * returns the bug reporter a class-local detector should report through, which records its bugs when the cache is enabled
+     *
+     * @param detector
+     *            the detector being constructed
+     * @param bugReporter
+     *            the reporter the detector was constructed with
+     * @return a recording reporter, or the given reporter if the cache is not enabled
+     */
+    public static BugReporter record(ClassLocalDetector detector, BugReporter bugReporter) {
+        if (CACHE_DIR == null) {
+            return bugReporter;
+        }
+
+        String detectorName = detector.getClass().getName();
+        String fingerprint = getFingerprint(detector.getClass());
+        DetectorResults results = RESULTS.get(detectorName);
+        if ((results == null) || !results.getFingerprint().equals(fingerprint)) {
+            File cacheDir = new File(CACHE_DIR);
+            if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+                bugReporter.logError("Failed to create the fb-contrib result cache directory " + cacheDir);
+                return bugReporter;
+            }
+            results = new DetectorResults(new File(cacheDir, detectorName + RESULTS_SUFFIX), fingerprint);
+            RESULTS.put(detectorName, results);
+        }
+        return new RecordingBugReporter(detector, bugReporter, results);
+    }
+
+    /**
+     * reports the bugs recorded for a class on an earlier run, if the class has not changed, and otherwise starts recording its bugs
+     *
+     * @param classContext
+     *            the class about to be visited
+     * @param bugReporter
+     *            the reporter returned by {@link #record(ClassLocalDetector, BugReporter)}
+     * @return whether the recorded bugs were reported, and the detector should skip the class
+     */
+    public static boolean replay(ClassContext classContext, BugReporter bugReporter) {
+        if (!(bugReporter instanceof RecordingBugReporter)) {
+            return false;
+        }
+
+        RecordingBugReporter recorder = (RecordingBugReporter) bugReporter;
+        String classKey = getClassKey(classContext.getClassDescriptor());
+        if (classKey == null) {
+            recorder.begin(null);
+            return false;
+        }
+
+        DetectorResults results = recorder.getResults();
+        byte[] data = results.get(classKey);
+        if (data != null) {
+            try {
+                recorder.replay(data);
+                recorder.begin(null);
+                return true;
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                results.remove(classKey);
+            }
+        }
+
+        recorder.begin(classKey);
+        return false;
+    }
+
+    /**
+     * marks the visit of the class being recorded as having completed normally, so its bugs can be cached
+     *
+     * @param bugReporter
+     *            the reporter returned by {@link #record(ClassLocalDetector, BugReporter)}
+     */
+    public static void recorded(BugReporter bugReporter) {
+        if (bugReporter instanceof RecordingBugReporter) {
+            ((RecordingBugReporter) bugReporter).end();
+        }
+    }
+
+    /**
+     * writes the results of a detector to the cache directory, which a detector does from report(), once it has visited all classes
+     *
+     * @param bugReporter
+     *            the reporter returned by {@link #record(ClassLocalDetector, BugReporter)}
+     */
+    public static void save(BugReporter bugReporter) {
+        if (bugReporter instanceof RecordingBugReporter) {
+            DetectorResults results = ((RecordingBugReporter) bugReporter).getResults();
+            try {
+                results.save();
+            } catch (IOException e) {
+                bugReporter.logError("Failed to write the fb-contrib result cache " + results.getResultsFile(), e);
+            }
+        }
+    }
+
+    /**
+     * returns a digest of the bytes of a class file, remembering the last one as every detector in the pass asks for the same class in turn. The digest is
+     * only reused within one analysis, as a long lived host may analyze the class again after it has changed.
+     *
+     * @param classDescriptor
+     *            the class being visited
+     * @return the digest as hex, or null if the class bytes are not available
+     */
+    @Nullable
+    private static synchronized String getClassKey(ClassDescriptor classDescriptor) {
+        IAnalysisCache analysisCache = Global.getAnalysisCache();
+        if (!classDescriptor.equals(lastClass) || (analysisCache != lastAnalysisCache.get())) {
+            lastAnalysisCache = new WeakReference<>(analysisCache);
+            lastClass = classDescriptor;
+            try {
+                ClassData classData = analysisCache.getClassAnalysis(ClassData.class, classDescriptor);
+                MessageDigest md = MessageDigest.getInstance("SHA-1");
+                lastClassKey = toHex(md.digest(classData.getData()));
+            } catch (CheckedAnalysisException | NoSuchAlgorithmException e) {
+                lastClassKey = null;
+            }
+        }
+        return lastClassKey;
+    }
+
+    /**
+     * builds the fingerprint a detector's cached results must match to be reused
+     *
+     * @param detectorClass
+     *            the class of the detector
+     * @return the fingerprint
+     */
+    private static String getFingerprint(Class<?> detectorClass) {
+        StringBuilder sb = new StringBuilder();
+        Plugin plugin = Plugin.getByPluginId(FB_CONTRIB_PLUGIN_ID);
+        sb.append(plugin == null ? "" : plugin.getVersion()).append('\n');
+        sb.append(detectorClass.getName()).append('\n');
+
+        CodeSource codeSource = detectorClass.getProtectionDomain().getCodeSource();
+        if (codeSource != null) {
+            appendFile(sb, codeSource.getLocation());
+        }
+
+        Map<String, String> settings = new TreeMap<>();
+        Properties systemProperties = System.getProperties();
+        for (String name : systemProperties.stringPropertyNames()) {
+            if (name.startsWith(FB_CONTRIB_PROPERTY_PREFIX) && !name.startsWith(RESULT_CACHE_DIR) && !name.startsWith(PROFILE_PROPERTY_PREFIX)) {
+                settings.put(name, systemProperties.getProperty(name));
+            }
+        }
+        sb.append(settings).append('\n');
+
+        IAnalysisCache analysisCache = Global.getAnalysisCache();
+        if (analysisCache != null) {
+            Iterator<? extends ICodeBase> it = analysisCache.getClassPath().auxCodeBaseIterator();
+            while (it.hasNext()) {
+                ICodeBase codeBase = it.next();
+                sb.append(codeBase.getPathName()).append(' ').append(codeBase.getLastModifiedTime()).append('\n');
+            }
+        }
+
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            return toHex(md.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            return sb.toString();
+        }
+    }
+
+    private static void appendFile(StringBuilder sb, URL location) {
+        try {
+            File f = new File(location.toURI());
+            sb.append(f.getPath()).append(' ').append(f.length()).append(' ').append(f.lastModified()).append('\n');
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            sb.append(location).append('\n');
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0x0F, 16)).append(Character.forDigit(b & 0x0F, 16));
+        }
+        return sb.toString();
+    }
+}
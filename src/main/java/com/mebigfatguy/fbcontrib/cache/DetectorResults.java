@@ -0,0 +1,156 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+/**
+ * the recorded bugs of one detector, by class content key, along with the fingerprint of the detector and settings they were recorded with. Entries
+ * loaded from disk that are not used again by the current run are dropped when saving, so the file tracks the classes being analyzed.
+ * <p>
+ * The file holds a magic number, the fingerprint, the entry count, and then each entry's key and recorded bytes.
+ * </p>
+ */
+final class DetectorResults {
+
+    private static final int MAGIC = 0x46425243;
+
+    private final File resultsFile;
+    private final String fingerprint;
+    private final Map<String, byte[]> previousResults = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> currentResults = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    /**
+     * creates the results of a detector, loading those of an earlier run if they were recorded with the same fingerprint
+     *
+     * @param resultsFile
+     *            the file the results are kept in
+     * @param fingerprint
+     *            the fingerprint of the detector and settings of this run
+     */
+    DetectorResults(File resultsFile, String fingerprint) {
+        this.resultsFile = resultsFile;
+        this.fingerprint = fingerprint;
+        if (resultsFile.isFile()) {
+            try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(resultsFile)))) {
+                if ((dis.readInt() == MAGIC) && fingerprint.equals(dis.readUTF())) {
+                    int count = dis.readInt();
+                    for (int i = 0; i < count; i++) {
+                        String key = dis.readUTF();
+                        byte[] data = new byte[dis.readInt()];
+                        dis.readFully(data);
+                        previousResults.put(key, data);
+                    }
+                }
+            } catch (IOException e) {
+                previousResults.clear();
+            }
+        }
+        dirty = previousResults.isEmpty() && resultsFile.exists();
+    }
+
+    String getFingerprint() {
+        return fingerprint;
+    }
+
+    File getResultsFile() {
+        return resultsFile;
+    }
+
+    /**
+     * returns the recorded bugs of a class
+     *
+     * @param key
+     *            the key of the class's contents
+     * @return the recorded bugs, or null if the class has not been recorded
+     */
+    byte[] get(String key) {
+        byte[] data = currentResults.get(key);
+        if (data == null) {
+            data = previousResults.remove(key);
+            if (data != null) {
+                currentResults.put(key, data);
+            }
+        }
+        return data;
+    }
+
+    void put(String key, byte[] data) {
+        currentResults.put(key, data);
+        dirty = true;
+    }
+
+    void remove(String key) {
+        currentResults.remove(key);
+        previousResults.remove(key);
+        dirty = true;
+    }
+
+    /**
+     * writes the results used or recorded by this run, if they differ from what was loaded. The results are written to a temporary file first, and then
+     * moved into place, so that an interrupted run never leaves a corrupt results file behind.
+     *
+     * @throws IOException
+     *             if the results file can not be written
+     */
+    synchronized void save() throws IOException {
+        if (!dirty && previousResults.isEmpty()) {
+            return;
+        }
+
+        Path target = resultsFile.toPath();
+        Path tmpFile = Files.createTempFile(target.toAbsolutePath().getParent(), resultsFile.getName(), ".tmp");
+        try {
+            try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                dos.writeInt(MAGIC);
+                dos.writeUTF(fingerprint);
+                dos.writeInt(currentResults.size());
+                for (Map.Entry<String, byte[]> entry : currentResults.entrySet()) {
+                    dos.writeUTF(entry.getKey());
+                    dos.writeInt(entry.getValue().length);
+                    dos.write(entry.getValue());
+                }
+            }
+            Files.move(tmpFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            previousResults.clear();
+            dirty = false;
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
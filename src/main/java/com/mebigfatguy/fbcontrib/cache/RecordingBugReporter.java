@@ -0,0 +1,208 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+import edu.umd.cs.findbugs.BugAnnotation;
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.BugProperty;
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.DelegatingBugReporter;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+
+/**
+ * the bug reporter a class-local detector reports through when the result cache is enabled. While a class is being recorded, each bug is serialized as it
+ * is reported, before being passed on; any error or missing class while recording marks the class's results as incomplete, so they are not cached.
+ */
+final class RecordingBugReporter extends DelegatingBugReporter {
+
+    private static final byte[] NO_BUGS = new byte[0];
+
+    private final ClassLocalDetector detector;
+    private final DetectorResults results;
+    private String classKey;
+    private ByteArrayOutputStream recording;
+    private ObjectOutputStream recordingStream;
+    private int recordedBugs;
+    private boolean incomplete;
+
+    RecordingBugReporter(ClassLocalDetector detector, BugReporter delegate, DetectorResults results) {
+        super(delegate);
+        this.detector = detector;
+        this.results = results;
+    }
+
+    DetectorResults getResults() {
+        return results;
+    }
+
+    /**
+     * starts recording the bugs of a class, discarding any recording that was not finished, such as when the detector threw an exception
+     *
+     * @param key
+     *            the key of the class's contents
+     */
+    void begin(String key) {
+        classKey = key;
+        recordedBugs = 0;
+        incomplete = false;
+        try {
+            recording = new ByteArrayOutputStream();
+            recordingStream = new ObjectOutputStream(recording);
+        } catch (IOException e) {
+            incomplete = true;
+        }
+    }
+
+    /**
+     * finishes recording the current class, and stores its bugs unless something went wrong while recording
+     */
+    void end() {
+        if (classKey == null) {
+            return;
+        }
+
+        try {
+            if (!incomplete) {
+                if (recordedBugs == 0) {
+                    results.put(classKey, NO_BUGS);
+                } else {
+                    recordingStream.writeObject(null);
+                    recordingStream.close();
+                    results.put(classKey, recording.toByteArray());
+                }
+            }
+        } catch (IOException e) {
+            // not cached, the class is simply scanned again next time
+        } finally {
+            classKey = null;
+            recording = null;
+            recordingStream = null;
+        }
+    }
+
+    /**
+     * reports the bugs recorded for a class on an earlier run. The bugs are all read before any are reported, so a damaged entry reports nothing.
+     *
+     * @param data
+     *            the recorded bugs
+     * @throws IOException
+     *             if the recorded bugs can not be read
+     * @throws ClassNotFoundException
+     *             if a recorded annotation type no longer exists
+     */
+    void replay(byte[] data) throws IOException, ClassNotFoundException {
+        if (data.length == 0) {
+            return;
+        }
+
+        List<BugInstance> bugs = new ArrayList<>();
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            String type = (String) ois.readObject();
+            while (type != null) {
+                int priority = ois.readInt();
+                BugInstance bug = new BugInstance(detector, type, priority);
+                // the detector constructor may adjust the priority, but the recorded one is already final
+                bug.setPriority(priority);
+
+                @SuppressWarnings("unchecked")
+                List<BugAnnotation> annotations = (List<BugAnnotation>) ois.readObject();
+                for (BugAnnotation annotation : annotations) {
+                    bug.add(annotation);
+                }
+
+                String[] properties = (String[]) ois.readObject();
+                for (int i = 0; i < properties.length; i += 2) {
+                    bug.setProperty(properties[i], properties[i + 1]);
+                }
+
+                bugs.add(bug);
+                type = (String) ois.readObject();
+            }
+        }
+
+        BugReporter delegate = getDelegate();
+        for (BugInstance bug : bugs) {
+            delegate.reportBug(bug);
+        }
+    }
+
+    @Override
+    public void reportBug(BugInstance bugInstance) {
+        if ((classKey != null) && !incomplete) {
+            try {
+                recordingStream.writeObject(bugInstance.getType());
+                recordingStream.writeInt(bugInstance.getPriority());
+                recordingStream.writeObject(new ArrayList<>(bugInstance.getAnnotations()));
+
+                List<String> properties = new ArrayList<>();
+                Iterator<BugProperty> it = bugInstance.propertyIterator();
+                while (it.hasNext()) {
+                    BugProperty property = it.next();
+                    properties.add(property.getName());
+                    properties.add(property.getValue());
+                }
+                recordingStream.writeObject(properties.toArray(new String[0]));
+                recordedBugs++;
+            } catch (IOException e) {
+                incomplete = true;
+            }
+        }
+        super.reportBug(bugInstance);
+    }
+
+    @Override
+    public void logError(String message) {
+        incomplete = true;
+        super.logError(message);
+    }
+
+    @Override
+    public void logError(String message, Throwable e) {
+        incomplete = true;
+        super.logError(message, e);
+    }
+
+    @Override
+    public void reportMissingClass(ClassNotFoundException ex) {
+        incomplete = true;
+        super.reportMissingClass(ex);
+    }
+
+    @Override
+    public void reportMissingClass(ClassDescriptor classDescriptor) {
+        incomplete = true;
+        super.reportMissingClass(classDescriptor);
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
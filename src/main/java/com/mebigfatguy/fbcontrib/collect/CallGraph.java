@@ -0,0 +1,333 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.collect;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.mebigfatguy.fbcontrib.utils.FQMethod;
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+import edu.umd.cs.findbugs.internalAnnotations.SlashedClassName;
+
+/**
+ * holds every method call seen by CollectStatistics in the first pass, so that second pass detectors can find the callers or callees of a method without
+ * scanning bytecode. Methods are interned into dense int ids, and each call is held as its caller id, callee id, invoke opcode and pc in parallel arrays,
+ * along with whether it is made on this, which is what {@link ModifiesStateClosure} follows at the end of the first pass.
+ * The first query after calls are added indexes them, by sorting them into compressed adjacency arrays (an offsets array per method, into a list of calls) for
+ * both directions, so that the calls from or to a method are found in time proportional to their number.
+ * <p>
+ * Calls are recorded as written in the bytecode, to the class named by the invoke instruction, whether or not that class declares the method. Invokedynamic
+ * calls have no static target and aren't recorded.
+ */
+public final class CallGraph {
+
+    public static final int NOT_FOUND = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static CallGraph callGraph = new CallGraph();
+
+    private final StringPool stringPool = new StringPool();
+
+    private int[] methodSlots;
+    private int[] classIds;
+    private int[] nameIds;
+    private int[] sigIds;
+    private int numMethods;
+
+    private int[] callers;
+    private int[] callees;
+    private byte[] kinds;
+    private int[] pcs;
+    private BitSet callsOnThis;
+    private int numCalls;
+
+    private int indexedCalls;
+    private int[] fromOffsets;
+    private int[] fromCalls;
+    private int[] toOffsets;
+    private int[] toCalls;
+
+    private CallGraph() {
+        clear();
+    }
+
+    public static CallGraph getCallGraph() {
+        return callGraph;
+    }
+
+    public synchronized void clear() {
+        stringPool.clear();
+        methodSlots = new int[INITIAL_CAPACITY << 1];
+        classIds = new int[INITIAL_CAPACITY];
+        nameIds = new int[INITIAL_CAPACITY];
+        sigIds = new int[INITIAL_CAPACITY];
+        numMethods = 0;
+        callers = new int[INITIAL_CAPACITY];
+        callees = new int[INITIAL_CAPACITY];
+        kinds = new byte[INITIAL_CAPACITY];
+        pcs = new int[INITIAL_CAPACITY];
+        callsOnThis = new BitSet();
+        numCalls = 0;
+        indexedCalls = -1;
+        fromOffsets = null;
+        fromCalls = null;
+        toOffsets = null;
+        toCalls = null;
+    }
+
+    /**
+     * returns the id of a method, adding it to the graph if it hasn't been seen before
+     *
+     * @param className
+     *            the slashed class name of the method
+     * @param methodName
+     *            the name of the method
+     * @param signature
+     *            the signature of the method
+     * @return the id of the method
+     */
+    synchronized int addMethod(@SlashedClassName String className, String methodName, String signature) {
+        int classId = stringPool.intern(className);
+        int nameId = stringPool.intern(methodName);
+        int sigId = stringPool.intern(signature);
+
+        int mask = methodSlots.length - 1;
+        int slot = MethodTable.hash(classId, nameId, sigId) & mask;
+        while (methodSlots[slot] != 0) {
+            int method = methodSlots[slot] - 1;
+            if ((classIds[method] == classId) && (nameIds[method] == nameId) && (sigIds[method] == sigId)) {
+                return method;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (numMethods == classIds.length) {
+            int capacity = numMethods << 1;
+            classIds = Arrays.copyOf(classIds, capacity);
+            nameIds = Arrays.copyOf(nameIds, capacity);
+            sigIds = Arrays.copyOf(sigIds, capacity);
+        }
+        int method = numMethods++;
+        classIds[method] = classId;
+        nameIds[method] = nameId;
+        sigIds[method] = sigId;
+        methodSlots[slot] = method + 1;
+
+        if ((numMethods << 1) > methodSlots.length) {
+            rehash();
+        }
+        return method;
+    }
+
+    /**
+     * records a call from one method to another
+     *
+     * @param caller
+     *            the id of the calling method
+     * @param callee
+     *            the id of the called method
+     * @param kind
+     *            the invoke opcode of the call
+     * @param pc
+     *            the pc of the invoke instruction in the calling method
+     * @param onThis
+     *            whether the call is made on this, the object the calling method was invoked on
+     */
+    synchronized void addCall(int caller, int callee, int kind, int pc, boolean onThis) {
+        if (numCalls == callers.length) {
+            int capacity = numCalls << 1;
+            callers = Arrays.copyOf(callers, capacity);
+            callees = Arrays.copyOf(callees, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            pcs = Arrays.copyOf(pcs, capacity);
+        }
+        callers[numCalls] = caller;
+        callees[numCalls] = callee;
+        kinds[numCalls] = (byte) kind;
+        pcs[numCalls] = pc;
+        if (onThis) {
+            callsOnThis.set(numCalls);
+        }
+        numCalls++;
+    }
+
+    /**
+     * finds the id of a method that calls, or is called by, a collected method
+     *
+     * @param className
+     *            the slashed class name of the method
+     * @param methodName
+     *            the name of the method
+     * @param signature
+     *            the signature of the method
+     * @return the id of the method, or NOT_FOUND
+     */
+    public synchronized int findMethod(@SlashedClassName String className, String methodName, String signature) {
+        int classId = stringPool.find(className);
+        int nameId = stringPool.find(methodName);
+        int sigId = stringPool.find(signature);
+        if ((classId == StringPool.NOT_FOUND) || (nameId == StringPool.NOT_FOUND) || (sigId == StringPool.NOT_FOUND)) {
+            return NOT_FOUND;
+        }
+
+        int mask = methodSlots.length - 1;
+        int slot = MethodTable.hash(classId, nameId, sigId) & mask;
+        while (methodSlots[slot] != 0) {
+            int method = methodSlots[slot] - 1;
+            if ((classIds[method] == classId) && (nameIds[method] == nameId) && (sigIds[method] == sigId)) {
+                return method;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    public synchronized int getNumMethods() {
+        return numMethods;
+    }
+
+    public synchronized FQMethod getMethod(int method) {
+        return new FQMethod(stringPool.get(classIds[method]), stringPool.get(nameIds[method]), stringPool.get(sigIds[method]));
+    }
+
+    public synchronized int getNumCalls() {
+        return numCalls;
+    }
+
+    /**
+     * returns the calls made on this, the object the calling method was invoked on, in the order they were collected
+     *
+     * @return the ids of the calls
+     */
+    public synchronized int[] getCallsOnThis() {
+        int[] calls = new int[callsOnThis.cardinality()];
+        int i = 0;
+        for (int call = callsOnThis.nextSetBit(0); call >= 0; call = callsOnThis.nextSetBit(call + 1)) {
+            calls[i++] = call;
+        }
+        return calls;
+    }
+
+    /**
+     * returns the calls made by a method, in the order they were collected
+     *
+     * @param method
+     *            the id of the calling method
+     * @return the ids of the calls, for use with {@link #getCallee(int)}, {@link #getInvokeKind(int)} and {@link #getPC(int)}
+     */
+    public synchronized int[] getCallsFrom(int method) {
+        index();
+        return Arrays.copyOfRange(fromCalls, fromOffsets[method], fromOffsets[method + 1]);
+    }
+
+    /**
+     * returns the calls made to a method
+     *
+     * @param method
+     *            the id of the called method
+     * @return the ids of the calls, for use with {@link #getCaller(int)}, {@link #getInvokeKind(int)} and {@link #getPC(int)}
+     */
+    public synchronized int[] getCallsTo(int method) {
+        index();
+        return Arrays.copyOfRange(toCalls, toOffsets[method], toOffsets[method + 1]);
+    }
+
+    public synchronized int getCaller(int call) {
+        return callers[call];
+    }
+
+    public synchronized int getCallee(int call) {
+        return callees[call];
+    }
+
+    /**
+     * returns how a call is made
+     *
+     * @param call
+     *            the id of the call
+     * @return the opcode of the call, INVOKEVIRTUAL, INVOKESPECIAL, INVOKESTATIC or INVOKEINTERFACE
+     */
+    public synchronized int getInvokeKind(int call) {
+        return kinds[call] & 0xFF;
+    }
+
+    public synchronized int getPC(int call) {
+        return pcs[call];
+    }
+
+    public synchronized boolean isCallOnThis(int call) {
+        return callsOnThis.get(call);
+    }
+
+    /**
+     * builds the adjacency arrays of both directions, if calls or methods have been added since they were last built
+     */
+    private void index() {
+        if ((indexedCalls == numCalls) && (fromOffsets.length == (numMethods + 1))) {
+            return;
+        }
+
+        fromOffsets = new int[numMethods + 1];
+        fromCalls = new int[numCalls];
+        toOffsets = new int[numMethods + 1];
+        toCalls = new int[numCalls];
+        sort(callers, fromOffsets, fromCalls);
+        sort(callees, toOffsets, toCalls);
+        indexedCalls = numCalls;
+    }
+
+    /**
+     * a counting sort of the calls by one of their ends, which keeps calls with the same end in the order they were added
+     */
+    private void sort(int[] ends, int[] offsets, int[] sorted) {
+        for (int c = 0; c < numCalls; c++) {
+            offsets[ends[c] + 1]++;
+        }
+        for (int m = 0; m < numMethods; m++) {
+            offsets[m + 1] += offsets[m];
+        }
+        int[] next = Arrays.copyOf(offsets, numMethods);
+        for (int c = 0; c < numCalls; c++) {
+            sorted[next[ends[c]]++] = c;
+        }
+    }
+
+    private void rehash() {
+        int[] newSlots = new int[methodSlots.length << 1];
+        int mask = newSlots.length - 1;
+        for (int slot : methodSlots) {
+            if (slot != 0) {
+                int method = slot - 1;
+                int newSlot = MethodTable.hash(classIds[method], nameIds[method], sigIds[method]) & mask;
+                while (newSlots[newSlot] != 0) {
+                    newSlot = (newSlot + 1) & mask;
+                }
+                newSlots[newSlot] = slot;
+            }
+        }
+        methodSlots = newSlots;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
@@ -18,6 +18,10 @@
  */
 package com.mebigfatguy.fbcontrib.collect;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.bcel.Const;
@@ -59,6 +63,8 @@ public class CollectMethodsReturningImmutableCollections extends BytecodeScannin
     );
 
     private BugReporter bugReporter;
+    private StatisticsCache cache;
+    private List<StatisticsCache.ImmutabilityRecord> immutabilities;
     private OpcodeStack stack;
     private String clsName;
     private ImmutabilityType imType;
@@ -71,16 +77,42 @@ public class CollectMethodsReturningImmutableCollections extends BytecodeScannin
      */
     public CollectMethodsReturningImmutableCollections(BugReporter reporter) {
         bugReporter = reporter;
+        try {
+            cache = StatisticsCache.getCache();
+        } catch (IOException e) {
+            bugReporter.logError("Failed to read the fb-contrib statistics cache, all classes will be collected", e);
+        }
     }
 
     @Override
     public void visitClassContext(ClassContext context) {
         try {
+            ByteBuffer cacheKey = null;
+            if (cache != null) {
+                cacheKey = cache.getClassKey(context);
+                if (cacheKey != null) {
+                    List<StatisticsCache.ImmutabilityRecord> cachedImmutabilities = cache.getImmutabilities(cacheKey);
+                    if (cachedImmutabilities != null) {
+                        Statistics statistics = Statistics.getStatistics();
+                        for (StatisticsCache.ImmutabilityRecord immutability : cachedImmutabilities) {
+                            immutability.replay(statistics);
+                        }
+                        return;
+                    }
+                    immutabilities = new ArrayList<>();
+                }
+            }
+
             stack = new OpcodeStack();
             clsName = context.getJavaClass().getClassName();
             super.visitClassContext(context);
+
+            if (immutabilities != null) {
+                cache.putImmutabilities(cacheKey, immutabilities);
+            }
         } finally {
             stack = null;
+            immutabilities = null;
         }
     }
 
@@ -103,6 +135,9 @@ public class CollectMethodsReturningImmutableCollections extends BytecodeScannin
                 if ((imType == ImmutabilityType.IMMUTABLE) || (imType == ImmutabilityType.POSSIBLY_IMMUTABLE)) {
                     Method m = getMethod();
                     Statistics.getStatistics().addImmutabilityStatus(clsName, m.getName(), m.getSignature(), imType);
+                    if (immutabilities != null) {
+                        immutabilities.add(new StatisticsCache.ImmutabilityRecord(clsName, m.getName(), m.getSignature(), imType));
+                    }
                 }
             }
         } catch (ClassNotFoundException cnfe) {
@@ -18,10 +18,10 @@
  */
 package com.mebigfatguy.fbcontrib.collect;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Map;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.bcel.Const;
@@ -31,10 +31,10 @@ import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.engine.MethodMetrics;
 import com.mebigfatguy.fbcontrib.utils.CollectionUtils;
-import com.mebigfatguy.fbcontrib.utils.QMethod;
+import com.mebigfatguy.fbcontrib.utils.ParsedSignature;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
-import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
@@ -66,23 +66,37 @@ public class CollectStatistics extends BytecodeScanningDetector implements NonRe
 	// @formatter:on
     );
 
+    private final BugReporter bugReporter;
+    private StatisticsCache cache;
     private int numMethodCalls;
     private boolean modifiesState;
     private boolean classHasAnnotation;
     private OpcodeStack stack;
-    private Map<QMethod, Set<CalledMethod>> selfCallTree;
-    private QMethod curMethod;
+    private int curMethodId;
+    private int curCallerId;
+    private boolean curMethodIsStatic;
+    private boolean isAutowiredBean;
+    private List<StatisticsCache.MethodRecord> methodRecords;
+    private List<StatisticsCache.CallRecord> callRecords;
 
     /**
      * constructs a CollectStatistics detector which clears the singleton that holds the statistics for all classes parsed in the first pass.
      *
      * @param bugReporter
-     *            unused, but required by reflection contract
+     *            the sync of errors reading or writing the statistics cache
      */
-    // required for reflection
-    @SuppressWarnings("PMD.UnusedFormalParameter")
     public CollectStatistics(BugReporter bugReporter) {
+        this.bugReporter = bugReporter;
         Statistics.getStatistics().clear();
+        CallGraph.getCallGraph().clear();
+        try {
+            cache = StatisticsCache.getCache();
+            if (cache != null) {
+                cache.startRun();
+            }
+        } catch (IOException e) {
+            bugReporter.logError("Failed to read the fb-contrib statistics cache, all classes will be collected", e);
+        }
     }
 
     /**
@@ -93,20 +107,53 @@ public class CollectStatistics extends BytecodeScanningDetector implements NonRe
      */
     @Override
     public void visitClassContext(ClassContext classContext) {
+        ByteBuffer cacheKey = null;
         try {
+            if (cache != null) {
+                cacheKey = cache.getClassKey(classContext);
+                if (cacheKey != null) {
+                    StatisticsCache.ClassStatistics classStats = cache.getClassStatistics(cacheKey);
+                    if (classStats != null) {
+                        classStats.replay(Statistics.getStatistics());
+                        return;
+                    }
+                    methodRecords = new ArrayList<>();
+                    callRecords = new ArrayList<>();
+                }
+            }
+
             JavaClass cls = classContext.getJavaClass();
             AnnotationEntry[] annotations = cls.getAnnotationEntries();
             classHasAnnotation = !CollectionUtils.isEmpty(annotations);
+            isAutowiredBean = false;
             stack = new OpcodeStack();
-            selfCallTree = new HashMap<>();
             super.visitClassContext(classContext);
 
-            performModifyStateClosure(classContext.getJavaClass());
+            if (methodRecords != null) {
+                cache.putClassStatistics(cacheKey, new StatisticsCache.ClassStatistics(getClassName(), isAutowiredBean, methodRecords, callRecords));
+            }
 
         } finally {
             stack = null;
-            selfCallTree = null;
-            curMethod = null;
+            methodRecords = null;
+            callRecords = null;
+        }
+    }
+
+    /**
+     * marks the methods that modify state through the calls they make on this, and writes out the statistics cache, if it is enabled, now that all classes have been collected.
+     * This is the only place the cache is saved, for both this collector and CollectMethodsReturningImmutableCollections, which run in the same pass.
+     */
+    @Override
+    public void report() {
+        ModifiesStateClosure.close(Statistics.getStatistics(), CallGraph.getCallGraph(), bugReporter);
+
+        if (cache != null) {
+            try {
+                cache.save();
+            } catch (IOException e) {
+                bugReporter.logError("Failed to write the fb-contrib statistics cache", e);
+            }
         }
     }
 
@@ -116,6 +163,7 @@ public class CollectStatistics extends BytecodeScanningDetector implements NonRe
             String annotationType = entry.getAnnotationType();
             if (BEAN_ANNOTATIONS.contains(annotationType)) {
                 Statistics.getStatistics().addAutowiredBean(getDottedClassName());
+                isAutowiredBean = true;
             }
         }
     }
@@ -131,10 +179,12 @@ public class CollectStatistics extends BytecodeScanningDetector implements NonRe
             return;
         }
         stack.resetForMethodEntry(this);
-        curMethod = null;
+        Method method = getMethod();
+        curMethodId = (methodRecords == null) ? 0 : methodRecords.size();
+        curMethodIsStatic = method.isStatic();
+        curCallerId = CallGraph.getCallGraph().addMethod(getClassName(), getMethodName(), getMethodSig());
         super.visitCode(obj);
         String clsName = getClassName();
-        Method method = getMethod();
         int accessFlags = method.getAccessFlags();
         MethodInfo mi = Statistics.getStatistics().addMethodStatistics(clsName, getMethodName(), getMethodSig(), accessFlags, obj.getLength(), numMethodCalls);
         if ((clsName.indexOf(Values.INNER_CLASS_SEPARATOR) >= 0) || ((accessFlags & (Const.ACC_ABSTRACT | Const.ACC_INTERFACE | Const.ACC_ANNOTATION)) != 0)) {
@@ -154,6 +204,11 @@ public class CollectStatistics extends BytecodeScanningDetector implements NonRe
         }
 
         mi.setModifiesState(modifiesState);
+        mi.setMethodMetrics(MethodMetrics.compute(obj));
+
+        if (methodRecords != null) {
+            methodRecords.add(new StatisticsCache.MethodRecord(getMethodName(), getMethodSig(), accessFlags, mi));
+        }
     }
 
     @Override
@@ -166,26 +221,8 @@ public class CollectStatistics extends BytecodeScanningDetector implements NonRe
                 case Const.INVOKESTATIC:
                 case Const.INVOKEDYNAMIC:
                     numMethodCalls++;
-
-                    if (seen != Const.INVOKESTATIC) {
-                        int numParms = SignatureUtils.getNumParameters(getSigConstantOperand());
-                        if (stack.getStackDepth() > numParms) {
-                            OpcodeStack.Item itm = stack.getStackItem(numParms);
-                            if (itm.getRegisterNumber() == 0) {
-                                Set<CalledMethod> calledMethods;
-
-                                if (curMethod == null) {
-                                    curMethod = new QMethod(getMethodName(), getMethodSig());
-                                    calledMethods = new HashSet<>();
-                                    selfCallTree.put(curMethod, calledMethods);
-                                } else {
-                                    calledMethods = selfCallTree.get(curMethod);
-                                }
-
-                                calledMethods
-                                        .add(new CalledMethod(new QMethod(getNameConstantOperand(), getSigConstantOperand()), seen == Const.INVOKESPECIAL));
-                            }
-                        }
+                    if (seen != Const.INVOKEDYNAMIC) {
+                        addCall(seen);
                     }
                 break;
 
@@ -202,94 +239,54 @@ public class CollectStatistics extends BytecodeScanningDetector implements NonRe
         }
     }
 
-    private void performModifyStateClosure(JavaClass cls) {
-        boolean foundNewCall = true;
-        Statistics statistics = Statistics.getStatistics();
-
-        String clsName = cls.getClassName();
-        while (foundNewCall && !selfCallTree.isEmpty()) {
-            foundNewCall = false;
-
-            Iterator<Map.Entry<QMethod, Set<CalledMethod>>> callerIt = selfCallTree.entrySet().iterator();
-            while (callerIt.hasNext()) {
-                Map.Entry<QMethod, Set<CalledMethod>> callerEntry = callerIt.next();
-                QMethod caller = callerEntry.getKey();
-
-                MethodInfo callerMi = statistics.getMethodStatistics(clsName, caller.getMethodName(), caller.getSignature());
-                if (callerMi == null) {
-                    // odd, shouldn't happen
-                    foundNewCall = true;
-                } else if (callerMi.getModifiesState()) {
-                    foundNewCall = true;
-                } else {
-
-                    for (CalledMethod calledMethod : callerEntry.getValue()) {
-
-                        if (calledMethod.isSuper) {
-                            callerMi.setModifiesState(true);
-                            foundNewCall = true;
-                            break;
-                        }
-                        MethodInfo calleeMi = statistics.getMethodStatistics(clsName, calledMethod.callee.getMethodName(), calledMethod.callee.getSignature());
-                        if (calleeMi == null) {
-                            // a super or sub class probably implements this method so just assume it
-                            // modifies state
-                            callerMi.setModifiesState(true);
-                            foundNewCall = true;
-                            break;
-                        }
-
-                        if (calleeMi.getModifiesState()) {
-                            callerMi.setModifiesState(true);
-                            foundNewCall = true;
-                            break;
-                        }
-                    }
-                }
-
-                if (foundNewCall) {
-                    callerIt.remove();
-                }
-            }
+    /**
+     * adds the current call to the call graph, and to the records of the class if it is being cached
+     *
+     * @param seen
+     *            the invoke opcode of the call
+     */
+    private void addCall(int seen) {
+        String owner = getClassConstantOperand();
+        String methodName = getNameConstantOperand();
+        String signature = getSigConstantOperand();
+        boolean onThis = isCallOnThis(seen);
+        CallGraph callGraph = CallGraph.getCallGraph();
+        callGraph.addCall(curCallerId, callGraph.addMethod(owner, methodName, signature), seen, getPC(), onThis);
+        if (callRecords != null) {
+            callRecords.add(new StatisticsCache.CallRecord(curMethodId, owner, methodName, signature, seen, getPC(), onThis));
         }
-
-        selfCallTree.clear();
     }
 
-    private boolean isAssociationedWithAnnotations(Method m) {
-        if (classHasAnnotation) {
-            return true;
+    /**
+     * returns whether the current call is made on this, other than to the constructor of java.lang.Object, which does nothing
+     *
+     * @param seen
+     *            the invoke opcode of the call
+     * @return if the call is made on this
+     */
+    private boolean isCallOnThis(int seen) {
+        if (curMethodIsStatic || (seen == Const.INVOKESTATIC) || isObjectConstructor()) {
+            return false;
         }
 
-        return !CollectionUtils.isEmpty(m.getAnnotationEntries());
+        int numParms = ParsedSignature.of(getSigConstantOperand()).getNumParameters();
+        return (stack.getStackDepth() > numParms) && (stack.getStackItem(numParms).getRegisterNumber() == 0);
     }
 
     /**
-     * represents a method that is called, and whether it is in the super class
+     * returns whether the current call is to the constructor of java.lang.Object, which does nothing
+     *
+     * @return if the call is to Object's constructor
      */
-    static class CalledMethod {
-        private QMethod callee;
-        private boolean isSuper;
-
-        public CalledMethod(QMethod c, boolean s) {
-            callee = c;
-            isSuper = s;
-        }
+    private boolean isObjectConstructor() {
+        return Values.CONSTRUCTOR.equals(getNameConstantOperand()) && Values.SLASHED_JAVA_LANG_OBJECT.equals(getClassConstantOperand());
+    }
 
-        @Override
-        public int hashCode() {
-            return callee.hashCode() & (isSuper ? 0 : 1);
+    private boolean isAssociationedWithAnnotations(Method m) {
+        if (classHasAnnotation) {
+            return true;
         }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (!(obj instanceof CalledMethod)) {
-                return false;
-            }
-
-            CalledMethod that = (CalledMethod) obj;
-
-            return (isSuper == that.isSuper) && callee.equals(that.callee);
-        }
+        return !CollectionUtils.isEmpty(m.getAnnotationEntries());
     }
 }
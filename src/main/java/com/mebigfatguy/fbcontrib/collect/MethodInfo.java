@@ -18,12 +18,12 @@
  */
 package com.mebigfatguy.fbcontrib.collect;
 
-import org.apache.bcel.Const;
-
-import com.mebigfatguy.fbcontrib.utils.ToString;
+import com.mebigfatguy.fbcontrib.engine.MethodMetrics;
 
 /**
- * represents statistics including attributes, mutability and sizes of a method
+ * represents statistics including attributes, mutability and sizes of a method. A MethodInfo is a lightweight view onto a record of a MethodTable, so that
+ * the statistics themselves are stored compactly, and updates made through any view of a method are seen by all others. All access is synchronized by the
+ * underlying table, as a method's statistics may be updated from different analysis threads.
  */
 public class MethodInfo {
 
@@ -32,92 +32,119 @@ public class MethodInfo {
     public static final int PROTECTED_USE = 4;
     public static final int PACKAGE_USE = 8;
 
-    private short numMethodBytes;
-    private byte numMethodCalls;
-    private byte immutabilityOrdinal;
-    private byte declaredAccess;
-    private byte isCalledType;
-    private boolean modifiesState;
-    private boolean canReturnNull;
+    private final MethodTable table;
+    private final int record;
+
+    /**
+     * creates a MethodInfo that is not stored in the Statistics store
+     */
+    public MethodInfo() {
+        table = new MethodTable(1);
+        record = table.addRecord();
+    }
+
+    MethodInfo(MethodTable table, int record) {
+        this.table = table;
+        this.record = record;
+    }
 
     public int getNumBytes() {
-        return 0x0000FFFF & numMethodBytes;
+        return table.getNumBytes(record);
     }
 
     public void setNumBytes(int numBytes) {
-        numMethodBytes = (short) numBytes;
+        table.setNumBytes(record, numBytes);
     }
 
     public int getNumMethodCalls() {
-        return 0x000000FF & numMethodCalls;
+        return table.getNumMethodCalls(record);
     }
 
     public void setNumMethodCalls(int numCalls) {
-        numMethodCalls = numCalls > 255 ? Byte.MAX_VALUE : (byte) numCalls;
+        table.setNumMethodCalls(record, numCalls);
+    }
+
+    /**
+     * sets the sizes and access of the method in one atomic step
+     *
+     * @param access
+     *            the declared access flags of the method
+     * @param numBytes
+     *            the length of the method's bytecode
+     * @param numCalls
+     *            the number of method calls made by the method
+     */
+    public void setMethodStatistics(int access, int numBytes, int numCalls) {
+        table.setMethodStatistics(record, access, numBytes, numCalls);
     }
 
     public void setDeclaredAccess(int access) {
-        declaredAccess = (byte) access;
+        table.setDeclaredAccess(record, access);
     }
 
     public int getDeclaredAccess() {
-        return declaredAccess;
+        return table.getDeclaredAccess(record);
     }
 
     public void addCallingAccess(int access) {
-        if ((access & Const.ACC_PUBLIC) != 0) {
-            isCalledType |= PUBLIC_USE;
-        } else if ((access & Const.ACC_PROTECTED) != 0) {
-            isCalledType |= PROTECTED_USE;
-        } else if ((access & Const.ACC_PRIVATE) != 0) {
-            isCalledType |= PRIVATE_USE;
-        } else {
-            isCalledType |= PACKAGE_USE;
-        }
+        table.addCallingAccess(record, access);
     }
 
     public boolean wasCalled() {
-        return (isCalledType & (PUBLIC_USE | PROTECTED_USE | PACKAGE_USE | PRIVATE_USE)) != 0;
+        return (table.getCalledType(record) & (PUBLIC_USE | PROTECTED_USE | PACKAGE_USE | PRIVATE_USE)) != 0;
     }
 
     public boolean wasCalledPublicly() {
-        return (isCalledType & PUBLIC_USE) != 0;
+        return (table.getCalledType(record) & PUBLIC_USE) != 0;
     }
 
     public boolean wasCalledProtectedly() {
-        return (isCalledType & PROTECTED_USE) != 0;
+        return (table.getCalledType(record) & PROTECTED_USE) != 0;
     }
 
     public boolean wasCalledPackagely() {
-        return (isCalledType & PACKAGE_USE) != 0;
+        return (table.getCalledType(record) & PACKAGE_USE) != 0;
     }
 
     public boolean wasCalledPrivately() {
-        return (isCalledType & PRIVATE_USE) != 0;
+        return (table.getCalledType(record) & PRIVATE_USE) != 0;
     }
 
     public ImmutabilityType getImmutabilityType() {
-        return ImmutabilityType.values()[immutabilityOrdinal];
+        return ImmutabilityType.values()[table.getImmutabilityOrdinal(record)];
     }
 
     public void setImmutabilityType(ImmutabilityType imType) {
-        immutabilityOrdinal = (byte) imType.ordinal();
+        table.setImmutabilityOrdinal(record, imType.ordinal());
     }
 
     public boolean getModifiesState() {
-        return modifiesState;
+        return table.getModifiesState(record);
     }
 
     public void setModifiesState(boolean modifiesState) {
-        this.modifiesState = modifiesState;
+        table.setModifiesState(record, modifiesState);
     }
 
     public boolean getCanReturnNull() {
-        return canReturnNull;
+        return table.getCanReturnNull(record);
     }
 
     public void setCanReturnNull(boolean canReturnNull) {
-        this.canReturnNull = canReturnNull;
+        table.setCanReturnNull(record, canReturnNull);
+    }
+
+    /**
+     * returns the control flow metrics of the method, as computed when the method's code was collected
+     *
+     * @return the metrics of the method, or null if the method has no code or wasn't collected
+     */
+    public MethodMetrics getMethodMetrics() {
+        return table.getMethodMetrics(record);
+    }
+
+    public void setMethodMetrics(MethodMetrics methodMetrics) {
+        table.setMethodMetrics(record, methodMetrics);
     }
 
     @Override
@@ -128,17 +155,24 @@ public class MethodInfo {
 
         MethodInfo mi = (MethodInfo) o;
 
-        return (numMethodBytes == mi.numMethodBytes) && (numMethodCalls == mi.numMethodCalls) && (immutabilityOrdinal == mi.immutabilityOrdinal)
-                && (declaredAccess == mi.declaredAccess) && (isCalledType == mi.isCalledType) && (modifiesState == mi.modifiesState);
+        return (getNumBytes() == mi.getNumBytes()) && (getNumMethodCalls() == mi.getNumMethodCalls())
+                && (table.getImmutabilityOrdinal(record) == mi.table.getImmutabilityOrdinal(mi.record)) && (getDeclaredAccess() == mi.getDeclaredAccess())
+                && (table.getCalledType(record) == mi.table.getCalledType(mi.record)) && (getModifiesState() == mi.getModifiesState());
     }
 
     @Override
     public int hashCode() {
-        return numMethodBytes ^ numMethodCalls ^ immutabilityOrdinal ^ declaredAccess ^ isCalledType ^ (modifiesState ? 1 : -1);
+        return table.getNumBytes(record) ^ table.getNumMethodCalls(record) ^ table.getImmutabilityOrdinal(record) ^ table.getDeclaredAccess(record)
+                ^ table.getCalledType(record) ^ (table.getModifiesState(record) ? 1 : -1);
     }
 
+    /**
+     * builds the string from the record's values, rather than reflectively, as the underlying table may hold the statistics of every method in the program
+     */
     @Override
     public String toString() {
-        return ToString.build(this);
+        return "MethodInfo{numBytes=" + getNumBytes() + ", numMethodCalls=" + getNumMethodCalls() + ", immutabilityType=" + getImmutabilityType()
+                + ", declaredAccess=" + getDeclaredAccess() + ", calledType=" + table.getCalledType(record) + ", modifiesState=" + getModifiesState()
+                + ", canReturnNull=" + getCanReturnNull() + '}';
     }
 }
@@ -0,0 +1,340 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.collect;
+
+import java.util.Arrays;
+
+import org.apache.bcel.Const;
+
+import com.mebigfatguy.fbcontrib.engine.MethodMetrics;
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+/**
+ * a compact, open addressing table of method statistics, keyed by the pooled ids of the class name, method name and signature. The statistics themselves are
+ * stored as parallel primitive arrays indexed by a dense record number, so that a method costs a handful of bytes rather than an FQMethod and MethodInfo
+ * object, and the same goes for its {@link MethodMetrics}, which are only materialized when asked for. Counts that don't fit their column saturate. All access is synchronized on the table, as Statistics uses several tables as lock stripes.
+ */
+final class MethodTable {
+
+    static final int NOT_FOUND = -1;
+
+    private static final int MODIFIES_STATE = 0x01;
+    private static final int CAN_RETURN_NULL = 0x02;
+    private static final int HAS_METRICS = 0x04;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] slots;
+    private int[] classIds;
+    private int[] nameIds;
+    private int[] sigIds;
+    private short[] numBytes;
+    private byte[] numCalls;
+    private byte[] immutabilityOrdinals;
+    private byte[] declaredAccess;
+    private byte[] calledTypes;
+    private byte[] flags;
+    private short[] cyclomaticComplexities;
+    private byte[] nestingDepths;
+    private short[] loopCounts;
+    private short[] handlerCounts;
+    private long[] npaths;
+    private int size;
+
+    MethodTable() {
+        this(INITIAL_CAPACITY);
+    }
+
+    MethodTable(int capacity) {
+        slots = new int[Integer.highestOneBit(Math.max(capacity, 1)) << 1];
+        allocateRecords(capacity);
+    }
+
+    /**
+     * finds the record of a method
+     *
+     * @param classId
+     *            the pooled id of the class name
+     * @param nameId
+     *            the pooled id of the method name
+     * @param sigId
+     *            the pooled id of the signature
+     * @param hash
+     *            the hash of the three ids
+     * @return the record number, or NOT_FOUND
+     */
+    synchronized int find(int classId, int nameId, int sigId, int hash) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            int record = slots[slot] - 1;
+            if ((classIds[record] == classId) && (nameIds[record] == nameId) && (sigIds[record] == sigId)) {
+                return record;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * finds the record of a method, adding an empty record for it if it doesn't exist yet
+     *
+     * @param classId
+     *            the pooled id of the class name
+     * @param nameId
+     *            the pooled id of the method name
+     * @param sigId
+     *            the pooled id of the signature
+     * @param hash
+     *            the hash of the three ids
+     * @return the record number
+     */
+    synchronized int findOrCreate(int classId, int nameId, int sigId, int hash) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            int record = slots[slot] - 1;
+            if ((classIds[record] == classId) && (nameIds[record] == nameId) && (sigIds[record] == sigId)) {
+                return record;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int record = addRecord();
+        classIds[record] = classId;
+        nameIds[record] = nameId;
+        sigIds[record] = sigId;
+        slots[slot] = record + 1;
+
+        if ((size << 1) > slots.length) {
+            rehash();
+        }
+        return record;
+    }
+
+    /**
+     * adds a record that isn't reachable by key, used for detached MethodInfo instances
+     *
+     * @return the record number
+     */
+    synchronized int addRecord() {
+        if (size == flags.length) {
+            growRecords(size << 1);
+        }
+        return size++;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized int getClassId(int record) {
+        return classIds[record];
+    }
+
+    synchronized int getNameId(int record) {
+        return nameIds[record];
+    }
+
+    synchronized int getSigId(int record) {
+        return sigIds[record];
+    }
+
+    synchronized int getNumBytes(int record) {
+        return 0x0000FFFF & numBytes[record];
+    }
+
+    synchronized void setNumBytes(int record, int bytes) {
+        numBytes[record] = (short) bytes;
+    }
+
+    synchronized int getNumMethodCalls(int record) {
+        return 0x000000FF & numCalls[record];
+    }
+
+    synchronized void setNumMethodCalls(int record, int calls) {
+        numCalls[record] = calls > 255 ? Byte.MAX_VALUE : (byte) calls;
+    }
+
+    synchronized int getDeclaredAccess(int record) {
+        return declaredAccess[record];
+    }
+
+    synchronized void setDeclaredAccess(int record, int access) {
+        declaredAccess[record] = (byte) access;
+    }
+
+    synchronized void setMethodStatistics(int record, int access, int bytes, int calls) {
+        setDeclaredAccess(record, access);
+        setNumBytes(record, bytes);
+        setNumMethodCalls(record, calls);
+    }
+
+    synchronized int getCalledType(int record) {
+        return calledTypes[record];
+    }
+
+    synchronized void addCallingAccess(int record, int access) {
+        int calledType;
+        if ((access & Const.ACC_PUBLIC) != 0) {
+            calledType = MethodInfo.PUBLIC_USE;
+        } else if ((access & Const.ACC_PROTECTED) != 0) {
+            calledType = MethodInfo.PROTECTED_USE;
+        } else if ((access & Const.ACC_PRIVATE) != 0) {
+            calledType = MethodInfo.PRIVATE_USE;
+        } else {
+            calledType = MethodInfo.PACKAGE_USE;
+        }
+        calledTypes[record] |= calledType;
+    }
+
+    synchronized int getImmutabilityOrdinal(int record) {
+        return immutabilityOrdinals[record];
+    }
+
+    synchronized void setImmutabilityOrdinal(int record, int ordinal) {
+        immutabilityOrdinals[record] = (byte) ordinal;
+    }
+
+    synchronized boolean getModifiesState(int record) {
+        return (flags[record] & MODIFIES_STATE) != 0;
+    }
+
+    synchronized void setModifiesState(int record, boolean modifiesState) {
+        setFlag(record, MODIFIES_STATE, modifiesState);
+    }
+
+    synchronized boolean getCanReturnNull(int record) {
+        return (flags[record] & CAN_RETURN_NULL) != 0;
+    }
+
+    synchronized void setCanReturnNull(int record, boolean canReturnNull) {
+        setFlag(record, CAN_RETURN_NULL, canReturnNull);
+    }
+
+    /**
+     * returns the cyclomatic complexity of a method, without materializing its metrics
+     *
+     * @param record
+     *            the record of the method
+     * @return the cyclomatic complexity, or 0 if the method has no metrics
+     */
+    synchronized int getCyclomaticComplexity(int record) {
+        return 0x0000FFFF & cyclomaticComplexities[record];
+    }
+
+    synchronized MethodMetrics getMethodMetrics(int record) {
+        if ((flags[record] & HAS_METRICS) == 0) {
+            return null;
+        }
+        return new MethodMetrics(0x0000FFFF & cyclomaticComplexities[record], 0x000000FF & nestingDepths[record], 0x0000FFFF & loopCounts[record],
+                npaths[record], 0x0000FFFF & handlerCounts[record]);
+    }
+
+    synchronized void setMethodMetrics(int record, MethodMetrics methodMetrics) {
+        if (methodMetrics == null) {
+            setFlag(record, HAS_METRICS, false);
+            cyclomaticComplexities[record] = 0;
+            nestingDepths[record] = 0;
+            loopCounts[record] = 0;
+            handlerCounts[record] = 0;
+            npaths[record] = 0;
+        } else {
+            setFlag(record, HAS_METRICS, true);
+            cyclomaticComplexities[record] = (short) Math.min(methodMetrics.getCyclomaticComplexity(), 0xFFFF);
+            nestingDepths[record] = (byte) Math.min(methodMetrics.getMaxNestingDepth(), 0xFF);
+            loopCounts[record] = (short) Math.min(methodMetrics.getLoopCount(), 0xFFFF);
+            handlerCounts[record] = (short) Math.min(methodMetrics.getExceptionHandlerCount(), 0xFFFF);
+            npaths[record] = methodMetrics.getNPath();
+        }
+    }
+
+    synchronized void clear() {
+        slots = new int[INITIAL_CAPACITY << 1];
+        allocateRecords(INITIAL_CAPACITY);
+        size = 0;
+    }
+
+    static int hash(int classId, int nameId, int sigId) {
+        return StringPool.spread((((classId * 31) + nameId) * 31) + sigId);
+    }
+
+    private void setFlag(int record, int flag, boolean value) {
+        if (value) {
+            flags[record] |= flag;
+        } else {
+            flags[record] &= ~flag;
+        }
+    }
+
+    private void allocateRecords(int capacity) {
+        classIds = new int[capacity];
+        nameIds = new int[capacity];
+        sigIds = new int[capacity];
+        numBytes = new short[capacity];
+        numCalls = new byte[capacity];
+        immutabilityOrdinals = new byte[capacity];
+        declaredAccess = new byte[capacity];
+        calledTypes = new byte[capacity];
+        flags = new byte[capacity];
+        cyclomaticComplexities = new short[capacity];
+        nestingDepths = new byte[capacity];
+        loopCounts = new short[capacity];
+        handlerCounts = new short[capacity];
+        npaths = new long[capacity];
+    }
+
+    private void growRecords(int capacity) {
+        classIds = Arrays.copyOf(classIds, capacity);
+        nameIds = Arrays.copyOf(nameIds, capacity);
+        sigIds = Arrays.copyOf(sigIds, capacity);
+        numBytes = Arrays.copyOf(numBytes, capacity);
+        numCalls = Arrays.copyOf(numCalls, capacity);
+        immutabilityOrdinals = Arrays.copyOf(immutabilityOrdinals, capacity);
+        declaredAccess = Arrays.copyOf(declaredAccess, capacity);
+        calledTypes = Arrays.copyOf(calledTypes, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        cyclomaticComplexities = Arrays.copyOf(cyclomaticComplexities, capacity);
+        nestingDepths = Arrays.copyOf(nestingDepths, capacity);
+        loopCounts = Arrays.copyOf(loopCounts, capacity);
+        handlerCounts = Arrays.copyOf(handlerCounts, capacity);
+        npaths = Arrays.copyOf(npaths, capacity);
+    }
+
+    private void rehash() {
+        int[] newSlots = new int[slots.length << 1];
+        int mask = newSlots.length - 1;
+        for (int slot : slots) {
+            if (slot != 0) {
+                int record = slot - 1;
+                int newSlot = hash(classIds[record], nameIds[record], sigIds[record]) & mask;
+                while (newSlots[newSlot] != 0) {
+                    newSlot = (newSlot + 1) & mask;
+                }
+                newSlots[newSlot] = slot;
+            }
+        }
+        slots = newSlots;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.collect;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.JavaClass;
+
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
+import com.mebigfatguy.fbcontrib.utils.FQMethod;
+
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.internalAnnotations.SlashedClassName;
+
+/**
+ * marks the methods that modify state through the calls they make on this, once the first pass has collected every class. CollectStatistics marks the
+ * methods that write a field themselves, and records the calls they make on this in the {@link CallGraph}. Each such call is resolved to the
+ * implementation the calling class sees, the nearest collected declaration from the calling class up, or from the named class for a super call. Overrides
+ * in sub classes aren't followed, and a call whose implementation wasn't collected, such as a native method, leaves the caller as it is.
+ * <p>
+ * The closure is a worklist propagation over the reverse of the resolved calls, so each call is followed at most once.
+ */
+final class ModifiesStateClosure {
+
+    private ModifiesStateClosure() {
+    }
+
+    /**
+     * resolves the calls on this in the call graph and marks every caller that may reach a state modifying method
+     *
+     * @param statistics
+     *            the statistics of all collected methods
+     * @param callGraph
+     *            the calls of all collected methods
+     * @param bugReporter
+     *            the reporter of classes that can't be found while resolving calls
+     */
+    static void close(Statistics statistics, CallGraph callGraph, BugReporter bugReporter) {
+        int[] calls = callGraph.getCallsOnThis();
+        if (calls.length == 0) {
+            return;
+        }
+
+        Map<Long, Integer> nodeIds = new HashMap<>();
+        List<Long> nodes = new ArrayList<>();
+        int[] callers = new int[calls.length];
+        int[] callees = new int[calls.length];
+        int numEdges = 0;
+        BitSet modifies = new BitSet();
+        ClassHierarchy hierarchy = ClassHierarchy.getInstance();
+
+        for (int call : calls) {
+            FQMethod caller = callGraph.getMethod(callGraph.getCaller(call));
+            long callerHandle = statistics.findMethod(caller.getClassName(), caller.getMethodName(), caller.getSignature());
+            if (callerHandle == Statistics.NOT_FOUND) {
+                continue;
+            }
+
+            FQMethod callee = callGraph.getMethod(callGraph.getCallee(call));
+            String clsName = (callGraph.getInvokeKind(call) == Const.INVOKESPECIAL) ? callee.getClassName() : caller.getClassName();
+            long calleeHandle;
+            try {
+                calleeHandle = resolve(clsName, callee, statistics, hierarchy);
+            } catch (ClassNotFoundException e) {
+                bugReporter.reportMissingClass(e);
+                calleeHandle = Statistics.NOT_FOUND;
+            }
+
+            if (calleeHandle != Statistics.NOT_FOUND) {
+                callers[numEdges] = getNodeId(callerHandle, nodeIds, nodes);
+                callees[numEdges++] = getNodeId(calleeHandle, nodeIds, nodes);
+            }
+        }
+
+        int numNodes = nodes.size();
+        for (int i = 0; i < numNodes; i++) {
+            if (statistics.getModifiesState(nodes.get(i).longValue())) {
+                modifies.set(i);
+            }
+        }
+
+        propagate(numNodes, callers, callees, numEdges, modifies);
+
+        for (int i = modifies.nextSetBit(0); i >= 0; i = modifies.nextSetBit(i + 1)) {
+            statistics.setModifiesState(nodes.get(i).longValue(), true);
+        }
+    }
+
+    /**
+     * marks every method that calls, directly or indirectly, a method already marked, by a breadth first walk of the reversed call graph
+     *
+     * @param numNodes
+     *            the number of methods, which are numbered from 0
+     * @param callers
+     *            the calling method of each call
+     * @param callees
+     *            the called method of each call
+     * @param numEdges
+     *            the number of calls in the callers and callees arrays
+     * @param modifies
+     *            the methods known to modify state, which is updated with their callers
+     */
+    static void propagate(int numNodes, int[] callers, int[] callees, int numEdges, BitSet modifies) {
+        if ((numEdges == 0) || modifies.isEmpty()) {
+            return;
+        }
+
+        int[] offsets = new int[numNodes + 1];
+        for (int e = 0; e < numEdges; e++) {
+            offsets[callees[e] + 1]++;
+        }
+        for (int n = 0; n < numNodes; n++) {
+            offsets[n + 1] += offsets[n];
+        }
+        int[] next = offsets.clone();
+        int[] callersOf = new int[numEdges];
+        for (int e = 0; e < numEdges; e++) {
+            callersOf[next[callees[e]]++] = callers[e];
+        }
+
+        int[] worklist = new int[numNodes];
+        int tail = 0;
+        for (int n = modifies.nextSetBit(0); n >= 0; n = modifies.nextSetBit(n + 1)) {
+            worklist[tail++] = n;
+        }
+        for (int head = 0; head < tail; head++) {
+            int callee = worklist[head];
+            for (int e = offsets[callee]; e < offsets[callee + 1]; e++) {
+                int caller = callersOf[e];
+                if (!modifies.get(caller)) {
+                    modifies.set(caller);
+                    worklist[tail++] = caller;
+                }
+            }
+        }
+    }
+
+    private static int getNodeId(long handle, Map<Long, Integer> nodeIds, List<Long> nodes) {
+        Long key = Long.valueOf(handle);
+        Integer id = nodeIds.get(key);
+        if (id == null) {
+            id = Integer.valueOf(nodes.size());
+            nodeIds.put(key, id);
+            nodes.add(key);
+        }
+        return id.intValue();
+    }
+
+    /**
+     * finds the collected method that a call invokes, as seen from a class
+     *
+     * @return the handle of the nearest collected declaration of the method, or NOT_FOUND if there is none
+     */
+    private static long resolve(@SlashedClassName String clsName, FQMethod callee, Statistics statistics, ClassHierarchy hierarchy)
+            throws ClassNotFoundException {
+        long handle = statistics.findMethod(clsName, callee.getMethodName(), callee.getSignature());
+        if (handle != Statistics.NOT_FOUND) {
+            return handle;
+        }
+
+        for (JavaClass cls : hierarchy.getSuperClasses(clsName)) {
+            handle = statistics.findMethod(cls.getClassName().replace('.', '/'), callee.getMethodName(), callee.getSignature());
+            if (handle != Statistics.NOT_FOUND) {
+                return handle;
+            }
+        }
+        return Statistics.NOT_FOUND;
+    }
+}
@@ -18,12 +18,15 @@
  */
 package com.mebigfatguy.fbcontrib.collect;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.AbstractMap;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.mebigfatguy.fbcontrib.engine.MethodMetrics;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 import com.mebigfatguy.fbcontrib.utils.ToString;
 
@@ -31,18 +34,32 @@ import edu.umd.cs.findbugs.internalAnnotations.DottedClassName;
 import edu.umd.cs.findbugs.internalAnnotations.SlashedClassName;
 
 /**
- * holds statistics about classes and methods collected in the first pass.
+ * holds statistics about classes and methods collected in the first pass. This store is safe to use from multiple analysis threads, as both the collecting
+ * detectors and the reporting detectors that consume it may be run concurrently on different classes.
+ * <p>
+ * Method names are interned into a shared StringPool, and the statistics are held in lock-striped MethodTables, keyed by the pooled ids. Besides the
+ * MethodInfo views used by most detectors, methods can be looked up as long handles with {@link #findMethod}, and the handle accessors read the statistics
+ * without allocating anything, for use on hot paths such as per opcode checks.
  */
 public final class Statistics implements Iterable<Map.Entry<FQMethod, MethodInfo>> {
 
+    public static final long NOT_FOUND = -1L;
+
+    private static final int STRIPE_BITS = 4;
+
     private static Statistics statistics = new Statistics();
-    private static final MethodInfo NOT_FOUND_METHOD_INFO = new MethodInfo();
+    private static final MethodInfo NOT_FOUND_METHOD_INFO = new NotFoundMethodInfo();
 
-    private final Map<FQMethod, MethodInfo> methodStatistics = new HashMap<>();
+    private final StringPool stringPool = new StringPool();
+    private final MethodTable[] methodTables;
 
-    private final Set<String> autowiredBeans = new HashSet<>();
+    private final Set<String> autowiredBeans = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
     private Statistics() {
+        methodTables = new MethodTable[1 << STRIPE_BITS];
+        for (int i = 0; i < methodTables.length; i++) {
+            methodTables[i] = new MethodTable();
+        }
     }
 
     public static Statistics getStatistics() {
@@ -50,45 +67,113 @@ public final class Statistics implements Iterable<Map.Entry<FQMethod, MethodInfo
     }
 
     public void clear() {
-        methodStatistics.clear();
+        for (MethodTable table : methodTables) {
+            table.clear();
+        }
+        stringPool.clear();
+        autowiredBeans.clear();
     }
 
     public MethodInfo addMethodStatistics(String className, String methodName, String signature, int access, int numBytes, int numMethodCalls) {
-        FQMethod key = new FQMethod(className, methodName, signature);
-        MethodInfo mi = methodStatistics.get(key);
-        if (mi == null) {
-            mi = new MethodInfo();
-            methodStatistics.put(key, mi);
-        }
-
-        mi.setNumBytes(numBytes);
-        mi.setNumMethodCalls(numMethodCalls);
-        mi.setDeclaredAccess(access);
+        MethodInfo mi = findOrCreateMethodInfo(className, methodName, signature);
+        mi.setMethodStatistics(access, numBytes, numMethodCalls);
         return mi;
     }
 
     public MethodInfo getMethodStatistics(@SlashedClassName String className, String methodName, String signature) {
-        MethodInfo mi = methodStatistics.get(new FQMethod(className, methodName, signature));
-        if (mi == null) {
+        long handle = findMethod(className, methodName, signature);
+        if (handle == NOT_FOUND) {
             return NOT_FOUND_METHOD_INFO;
         }
-        return mi;
+        return new MethodInfo(methodTables[stripeOf(handle)], recordOf(handle));
+    }
+
+    /**
+     * finds a method in the store without allocating any objects
+     *
+     * @param className
+     *            the slashed class name of the method
+     * @param methodName
+     *            the name of the method
+     * @param signature
+     *            the signature of the method
+     * @return a handle to the method for use with the handle accessors, or NOT_FOUND
+     */
+    public long findMethod(@SlashedClassName String className, String methodName, String signature) {
+        int classId = stringPool.find(className);
+        if (classId == StringPool.NOT_FOUND) {
+            return NOT_FOUND;
+        }
+        int nameId = stringPool.find(methodName);
+        if (nameId == StringPool.NOT_FOUND) {
+            return NOT_FOUND;
+        }
+        int sigId = stringPool.find(signature);
+        if (sigId == StringPool.NOT_FOUND) {
+            return NOT_FOUND;
+        }
+
+        int hash = MethodTable.hash(classId, nameId, sigId);
+        int stripe = hash >>> (Integer.SIZE - STRIPE_BITS);
+        int record = methodTables[stripe].find(classId, nameId, sigId, hash);
+        if (record == MethodTable.NOT_FOUND) {
+            return NOT_FOUND;
+        }
+        return toHandle(stripe, record);
+    }
+
+    public int getNumBytes(long handle) {
+        return (handle == NOT_FOUND) ? NOT_FOUND_METHOD_INFO.getNumBytes() : methodTables[stripeOf(handle)].getNumBytes(recordOf(handle));
+    }
+
+    public int getNumMethodCalls(long handle) {
+        return (handle == NOT_FOUND) ? NOT_FOUND_METHOD_INFO.getNumMethodCalls() : methodTables[stripeOf(handle)].getNumMethodCalls(recordOf(handle));
+    }
+
+    public boolean getModifiesState(long handle) {
+        return (handle == NOT_FOUND) ? NOT_FOUND_METHOD_INFO.getModifiesState() : methodTables[stripeOf(handle)].getModifiesState(recordOf(handle));
+    }
+
+    public void setModifiesState(long handle, boolean modifiesState) {
+        if (handle != NOT_FOUND) {
+            methodTables[stripeOf(handle)].setModifiesState(recordOf(handle), modifiesState);
+        }
+    }
+
+    /**
+     * returns the control flow metrics of a method, as computed by the first pass
+     *
+     * @param handle
+     *            the handle of the method as returned by findMethod
+     * @return the metrics of the method, or null if the method isn't known or has no code
+     */
+    public MethodMetrics getMethodMetrics(long handle) {
+        return (handle == NOT_FOUND) ? null : methodTables[stripeOf(handle)].getMethodMetrics(recordOf(handle));
+    }
+
+    /**
+     * returns the cyclomatic complexity of a method, as computed by the first pass, without materializing its other metrics
+     *
+     * @param handle
+     *            the handle of the method as returned by findMethod
+     * @return the cyclomatic complexity of the method, or 0 if the method isn't known or has no code
+     */
+    public int getCyclomaticComplexity(long handle) {
+        return (handle == NOT_FOUND) ? 0 : methodTables[stripeOf(handle)].getCyclomaticComplexity(recordOf(handle));
+    }
+
+    public ImmutabilityType getImmutabilityType(long handle) {
+        return (handle == NOT_FOUND) ? NOT_FOUND_METHOD_INFO.getImmutabilityType()
+                : ImmutabilityType.values()[methodTables[stripeOf(handle)].getImmutabilityOrdinal(recordOf(handle))];
     }
 
     @Override
     public Iterator<Map.Entry<FQMethod, MethodInfo>> iterator() {
-        return methodStatistics.entrySet().iterator();
+        return new MethodIterator();
     }
 
     public void addImmutabilityStatus(String className, String methodName, String signature, ImmutabilityType imType) {
-        FQMethod key = new FQMethod(className, methodName, signature);
-        MethodInfo mi = methodStatistics.get(key);
-        if (mi == null) {
-            mi = new MethodInfo();
-            methodStatistics.put(key, mi);
-        }
-
-        mi.setImmutabilityType(imType);
+        findOrCreateMethodInfo(className, methodName, signature).setImmutabilityType(imType);
     }
 
     public void addAutowiredBean(@DottedClassName String beanClass) {
@@ -99,8 +184,139 @@ public final class Statistics implements Iterable<Map.Entry<FQMethod, MethodInfo
         return autowiredBeans.contains(beanClass);
     }
 
+    /**
+     * atomically finds the MethodInfo for the specified method, or adds a record for it if none exists yet, so that two threads collecting the same method
+     * always share the same record.
+     *
+     * @param className
+     *            the slashed class name of the method
+     * @param methodName
+     *            the name of the method
+     * @param signature
+     *            the signature of the method
+     * @return a view of the shared record for this method
+     */
+    private MethodInfo findOrCreateMethodInfo(@SlashedClassName String className, String methodName, String signature) {
+        int classId = stringPool.intern(className);
+        int nameId = stringPool.intern(methodName);
+        int sigId = stringPool.intern(signature);
+
+        int hash = MethodTable.hash(classId, nameId, sigId);
+        MethodTable table = methodTables[hash >>> (Integer.SIZE - STRIPE_BITS)];
+        return new MethodInfo(table, table.findOrCreate(classId, nameId, sigId, hash));
+    }
+
+    private static long toHandle(int stripe, int record) {
+        return ((long) stripe << Integer.SIZE) | record;
+    }
+
+    private static int stripeOf(long handle) {
+        return (int) (handle >>> Integer.SIZE);
+    }
+
+    private static int recordOf(long handle) {
+        return (int) handle;
+    }
+
     @Override
     public String toString() {
         return ToString.build(this);
     }
+
+    /**
+     * the shared MethodInfo returned for methods that weren't collected. Methods that weren't collected are implemented elsewhere, so they are assumed to
+     * modify state. Updates are ignored, so that what one detector does to an unknown method can't leak into the results of unrelated methods, which would
+     * make the results depend on the order classes were visited in.
+     */
+    private static final class NotFoundMethodInfo extends MethodInfo {
+
+        NotFoundMethodInfo() {
+            super.setModifiesState(true);
+        }
+
+        @Override
+        public void setNumBytes(int numBytes) {
+            // not found methods are immutable
+        }
+
+        @Override
+        public void setNumMethodCalls(int numCalls) {
+            // not found methods are immutable
+        }
+
+        @Override
+        public void setMethodStatistics(int access, int numBytes, int numCalls) {
+            // not found methods are immutable
+        }
+
+        @Override
+        public void setDeclaredAccess(int access) {
+            // not found methods are immutable
+        }
+
+        @Override
+        public void addCallingAccess(int access) {
+            // not found methods are immutable
+        }
+
+        @Override
+        public void setImmutabilityType(ImmutabilityType imType) {
+            // not found methods are immutable
+        }
+
+        @Override
+        public void setModifiesState(boolean modifiesState) {
+            // not found methods are immutable
+        }
+
+        @Override
+        public void setCanReturnNull(boolean canReturnNull) {
+            // not found methods are immutable
+        }
+
+        @Override
+        public void setMethodMetrics(MethodMetrics methodMetrics) {
+            // not found methods are immutable
+        }
+    }
+
+    /**
+     * walks the records of each stripe in turn, materializing an FQMethod key and MethodInfo view for each method. Records added to a stripe after it has been
+     * walked are not seen.
+     */
+    private final class MethodIterator implements Iterator<Map.Entry<FQMethod, MethodInfo>> {
+        private int stripe;
+        private int record;
+
+        @Override
+        public boolean hasNext() {
+            while (stripe < methodTables.length) {
+                if (record < methodTables[stripe].size()) {
+                    return true;
+                }
+                stripe++;
+                record = 0;
+            }
+            return false;
+        }
+
+        @Override
+        public Map.Entry<FQMethod, MethodInfo> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            MethodTable table = methodTables[stripe];
+            FQMethod key = new FQMethod(stringPool.get(table.getClassId(record)), stringPool.get(table.getNameId(record)),
+                    stringPool.get(table.getSigId(record)));
+            Map.Entry<FQMethod, MethodInfo> entry = new AbstractMap.SimpleImmutableEntry<>(key, new MethodInfo(table, record));
+            record++;
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
@@ -0,0 +1,521 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.collect;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nullable;
+
+import org.apache.bcel.Const;
+
+import com.mebigfatguy.fbcontrib.engine.MethodMetrics;
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.analysis.ClassData;
+import edu.umd.cs.findbugs.internalAnnotations.SlashedClassName;
+
+/**
+ * an optional, persistent cache of the first pass statistics, so that classes whose bytes haven't changed since the last run can skip the collect pass. The
+ * cache is enabled by setting the system property fb-contrib.stats.cache to the path of the cache file. Entries are keyed by the SHA-1 of the class file,
+ * and the file only retains the classes seen in the latest run.
+ */
+final class StatisticsCache {
+
+    static final String CACHE_FILE_PROPERTY = "fb-contrib.stats.cache";
+
+    private static final int MAGIC = 0x46424353;
+    private static final int FORMAT_VERSION = 5;
+    private static final String DIGEST_ALGORITHM = "SHA-1";
+
+    private static StatisticsCache cache;
+    private static boolean initialized;
+
+    private final Path cacheFile;
+    private final Map<ByteBuffer, ClassStatistics> previousClasses = new ConcurrentHashMap<>();
+    private final Map<ByteBuffer, List<ImmutabilityRecord>> previousImmutabilities = new ConcurrentHashMap<>();
+    private final Map<ByteBuffer, ClassStatistics> currentClasses = new ConcurrentHashMap<>();
+    private final Map<ByteBuffer, List<ImmutabilityRecord>> currentImmutabilities = new ConcurrentHashMap<>();
+    private final Map<String, ByteBuffer> classKeys = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    private StatisticsCache(Path cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * returns the cache for this run, loading it from disk the first time it is asked for
+     *
+     * @return the cache, or null if caching isn't enabled
+     * @throws IOException
+     *             if the cache file exists but can't be read
+     */
+    @Nullable
+    static synchronized StatisticsCache getCache() throws IOException {
+        if (!initialized) {
+            initialized = true;
+            String fileName = System.getProperty(CACHE_FILE_PROPERTY);
+            if (fileName != null) {
+                cache = new StatisticsCache(Paths.get(fileName));
+                cache.load();
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * starts another run in a host that analyzes more than once, such as the analysis daemon. The classes seen in the last run become the ones that may be
+     * reused, just as if the cache file had been read again, and the keys of classes are forgotten, as a class may have changed since.
+     */
+    synchronized void startRun() {
+        classKeys.clear();
+        if (!currentClasses.isEmpty() || !currentImmutabilities.isEmpty()) {
+            previousClasses.clear();
+            previousClasses.putAll(currentClasses);
+            previousImmutabilities.clear();
+            previousImmutabilities.putAll(currentImmutabilities);
+            currentClasses.clear();
+            currentImmutabilities.clear();
+        }
+    }
+
+    /**
+     * returns the key of the class, the SHA-1 of its class file bytes
+     *
+     * @param classContext
+     *            the context of the class
+     * @return the key, or null if the class file bytes aren't available
+     */
+    @Nullable
+    ByteBuffer getClassKey(ClassContext classContext) {
+        String clsName = classContext.getJavaClass().getClassName();
+        ByteBuffer key = classKeys.get(clsName);
+        if (key == null) {
+            try {
+                ClassData data = Global.getAnalysisCache().getClassAnalysis(ClassData.class, classContext.getClassDescriptor());
+                key = ByteBuffer.wrap(MessageDigest.getInstance(DIGEST_ALGORITHM).digest(data.getData()));
+                classKeys.put(clsName, key);
+            } catch (CheckedAnalysisException | NoSuchAlgorithmException e) {
+                return null;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * finds the statistics of an unchanged class, and if found, retains them for the next run
+     *
+     * @param key
+     *            the key of the class
+     * @return the statistics collected in the last run, or null if the class is new or changed
+     */
+    @Nullable
+    ClassStatistics getClassStatistics(ByteBuffer key) {
+        ClassStatistics classStats = previousClasses.get(key);
+        if (classStats != null) {
+            currentClasses.put(key, classStats);
+        }
+        return classStats;
+    }
+
+    void putClassStatistics(ByteBuffer key, ClassStatistics classStats) {
+        currentClasses.put(key, classStats);
+        dirty = true;
+    }
+
+    /**
+     * finds the methods returning immutable collections of an unchanged class, and if found, retains them for the next run
+     *
+     * @param key
+     *            the key of the class
+     * @return the methods found in the last run, or null if the class is new or changed
+     */
+    @Nullable
+    List<ImmutabilityRecord> getImmutabilities(ByteBuffer key) {
+        List<ImmutabilityRecord> immutabilities = previousImmutabilities.get(key);
+        if (immutabilities != null) {
+            currentImmutabilities.put(key, immutabilities);
+        }
+        return immutabilities;
+    }
+
+    void putImmutabilities(ByteBuffer key, List<ImmutabilityRecord> immutabilities) {
+        currentImmutabilities.put(key, immutabilities);
+        dirty = true;
+    }
+
+    /**
+     * writes the classes seen in this run to the cache file, if anything has changed. The file is written to a temporary file first, and then moved into
+     * place, so that an interrupted run never leaves a corrupt cache behind.
+     *
+     * @throws IOException
+     *             if the file can't be written
+     */
+    synchronized void save() throws IOException {
+        if (!dirty && (currentClasses.size() == previousClasses.size()) && (currentImmutabilities.size() == previousImmutabilities.size())) {
+            return;
+        }
+
+        Path parent = cacheFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmpFile = Files.createTempFile(parent, cacheFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream dos = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile))))) {
+                dos.writeInt(MAGIC);
+                dos.writeInt(FORMAT_VERSION);
+
+                dos.writeInt(currentClasses.size());
+                for (Map.Entry<ByteBuffer, ClassStatistics> entry : currentClasses.entrySet()) {
+                    writeKey(dos, entry.getKey());
+                    entry.getValue().write(dos);
+                }
+
+                dos.writeInt(currentImmutabilities.size());
+                for (Map.Entry<ByteBuffer, List<ImmutabilityRecord>> entry : currentImmutabilities.entrySet()) {
+                    writeKey(dos, entry.getKey());
+                    List<ImmutabilityRecord> immutabilities = entry.getValue();
+                    dos.writeInt(immutabilities.size());
+                    for (ImmutabilityRecord immutability : immutabilities) {
+                        immutability.write(dos);
+                    }
+                }
+            }
+            Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            previousClasses.putAll(currentClasses);
+            previousImmutabilities.putAll(currentImmutabilities);
+            dirty = false;
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    private void load() throws IOException {
+        if (!Files.isRegularFile(cacheFile)) {
+            return;
+        }
+
+        try (DataInputStream dis = new DataInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(cacheFile))))) {
+            if ((dis.readInt() != MAGIC) || (dis.readInt() != FORMAT_VERSION)) {
+                // written by a different version of fb-contrib, so just start over
+                return;
+            }
+
+            int numClasses = dis.readInt();
+            for (int i = 0; i < numClasses; i++) {
+                ByteBuffer key = readKey(dis);
+                previousClasses.put(key, ClassStatistics.read(dis));
+            }
+
+            int numImmutabilityClasses = dis.readInt();
+            for (int i = 0; i < numImmutabilityClasses; i++) {
+                ByteBuffer key = readKey(dis);
+                int numImmutabilities = dis.readInt();
+                List<ImmutabilityRecord> immutabilities = new ArrayList<>(numImmutabilities);
+                for (int j = 0; j < numImmutabilities; j++) {
+                    immutabilities.add(ImmutabilityRecord.read(dis));
+                }
+                previousImmutabilities.put(key, immutabilities);
+            }
+        } catch (IOException e) {
+            previousClasses.clear();
+            previousImmutabilities.clear();
+            throw e;
+        }
+    }
+
+    private static void writeKey(DataOutputStream dos, ByteBuffer key) throws IOException {
+        byte[] digest = key.array();
+        dos.writeByte(digest.length);
+        dos.write(digest);
+    }
+
+    private static ByteBuffer readKey(DataInputStream dis) throws IOException {
+        byte[] digest = new byte[dis.readUnsignedByte()];
+        dis.readFully(digest);
+        return ByteBuffer.wrap(digest);
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+
+    /**
+     * the statistics that CollectStatistics gathered for one class
+     */
+    static final class ClassStatistics {
+        private final String className;
+        private final boolean autowiredBean;
+        private final List<MethodRecord> methods;
+        private final List<CallRecord> calls;
+
+        ClassStatistics(@SlashedClassName String className, boolean autowiredBean, List<MethodRecord> methods, List<CallRecord> calls) {
+            this.className = className;
+            this.autowiredBean = autowiredBean;
+            this.methods = Collections.unmodifiableList(methods);
+            this.calls = Collections.unmodifiableList(calls);
+        }
+
+        /**
+         * adds the statistics of this class to the global Statistics store and CallGraph, as if the class had been collected
+         *
+         * @param statistics
+         *            the store to add to
+         */
+        void replay(Statistics statistics) {
+            if (autowiredBean) {
+                statistics.addAutowiredBean(className.replace('/', '.'));
+            }
+
+            for (MethodRecord method : methods) {
+                MethodInfo mi = statistics.addMethodStatistics(className, method.methodName, method.signature, method.access, method.numBytes,
+                        method.numMethodCalls);
+                if (method.calledPublicly) {
+                    mi.addCallingAccess(Const.ACC_PUBLIC);
+                }
+                mi.setModifiesState(method.modifiesState);
+                mi.setMethodMetrics(method.metrics);
+            }
+
+            CallGraph callGraph = CallGraph.getCallGraph();
+            for (CallRecord call : calls) {
+                MethodRecord caller = methods.get(call.caller);
+                callGraph.addCall(callGraph.addMethod(className, caller.methodName, caller.signature),
+                        callGraph.addMethod(call.owner, call.methodName, call.signature), call.kind, call.pc, call.onThis);
+            }
+        }
+
+        void write(DataOutputStream dos) throws IOException {
+            dos.writeUTF(className);
+            dos.writeBoolean(autowiredBean);
+            dos.writeInt(methods.size());
+            for (MethodRecord method : methods) {
+                method.write(dos);
+            }
+            dos.writeInt(calls.size());
+            for (CallRecord call : calls) {
+                call.write(dos);
+            }
+        }
+
+        static ClassStatistics read(DataInputStream dis) throws IOException {
+            String className = dis.readUTF();
+            boolean autowiredBean = dis.readBoolean();
+            int numMethods = dis.readInt();
+            List<MethodRecord> methods = new ArrayList<>(numMethods);
+            for (int i = 0; i < numMethods; i++) {
+                methods.add(MethodRecord.read(dis));
+            }
+            int numCalls = dis.readInt();
+            List<CallRecord> calls = new ArrayList<>(numCalls);
+            for (int i = 0; i < numCalls; i++) {
+                calls.add(CallRecord.read(dis));
+            }
+            return new ClassStatistics(className, autowiredBean, methods, calls);
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+
+    /**
+     * the statistics of one method, as collected, before the modifies state closure follows the calls it makes on this
+     */
+    static final class MethodRecord {
+        final String methodName;
+        final String signature;
+        final int access;
+        final int numBytes;
+        final int numMethodCalls;
+        final boolean calledPublicly;
+        final boolean modifiesState;
+        @Nullable
+        final MethodMetrics metrics;
+
+        MethodRecord(String methodName, String signature, int access, MethodInfo mi) {
+            this(methodName, signature, access, mi.getNumBytes(), mi.getNumMethodCalls(), mi.wasCalledPublicly(), mi.getModifiesState(),
+                    mi.getMethodMetrics());
+        }
+
+        private MethodRecord(String methodName, String signature, int access, int numBytes, int numMethodCalls, boolean calledPublicly,
+                boolean modifiesState, @Nullable MethodMetrics metrics) {
+            this.methodName = methodName;
+            this.signature = signature;
+            this.access = access;
+            this.numBytes = numBytes;
+            this.numMethodCalls = numMethodCalls;
+            this.calledPublicly = calledPublicly;
+            this.modifiesState = modifiesState;
+            this.metrics = metrics;
+        }
+
+        void write(DataOutputStream dos) throws IOException {
+            dos.writeUTF(methodName);
+            dos.writeUTF(signature);
+            dos.writeShort(access);
+            dos.writeShort(numBytes);
+            dos.writeByte(numMethodCalls);
+            dos.writeByte((calledPublicly ? 0x01 : 0) | (modifiesState ? 0x02 : 0) | (metrics != null ? 0x04 : 0));
+            if (metrics != null) {
+                dos.writeInt(metrics.getCyclomaticComplexity());
+                dos.writeInt(metrics.getMaxNestingDepth());
+                dos.writeInt(metrics.getLoopCount());
+                dos.writeLong(metrics.getNPath());
+                dos.writeInt(metrics.getExceptionHandlerCount());
+            }
+        }
+
+        static MethodRecord read(DataInputStream dis) throws IOException {
+            String methodName = dis.readUTF();
+            String signature = dis.readUTF();
+            int access = dis.readUnsignedShort();
+            int numBytes = dis.readUnsignedShort();
+            int numMethodCalls = dis.readUnsignedByte();
+            int flags = dis.readUnsignedByte();
+            MethodMetrics metrics = null;
+            if ((flags & 0x04) != 0) {
+                metrics = new MethodMetrics(dis.readInt(), dis.readInt(), dis.readInt(), dis.readLong(), dis.readInt());
+            }
+            return new MethodRecord(methodName, signature, access, numBytes, numMethodCalls, (flags & 0x01) != 0, (flags & 0x02) != 0, metrics);
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+
+    /**
+     * a call made by one method of a class, as added to the CallGraph
+     */
+    static final class CallRecord {
+        final int caller;
+        final String owner;
+        final String methodName;
+        final String signature;
+        final int kind;
+        final int pc;
+        final boolean onThis;
+
+        /**
+         * @param caller
+         *            the index of the calling method in the method records of its class
+         * @param owner
+         *            the class named by the invoke instruction
+         * @param methodName
+         *            the name of the called method
+         * @param signature
+         *            the signature of the called method
+         * @param kind
+         *            the invoke opcode
+         * @param pc
+         *            the pc of the invoke instruction
+         * @param onThis
+         *            whether the call is made on this
+         */
+        CallRecord(int caller, String owner, String methodName, String signature, int kind, int pc, boolean onThis) {
+            this.caller = caller;
+            this.owner = owner;
+            this.methodName = methodName;
+            this.signature = signature;
+            this.kind = kind;
+            this.pc = pc;
+            this.onThis = onThis;
+        }
+
+        void write(DataOutputStream dos) throws IOException {
+            dos.writeShort(caller);
+            dos.writeUTF(owner);
+            dos.writeUTF(methodName);
+            dos.writeUTF(signature);
+            dos.writeByte(kind);
+            dos.writeShort(pc);
+            dos.writeBoolean(onThis);
+        }
+
+        static CallRecord read(DataInputStream dis) throws IOException {
+            return new CallRecord(dis.readUnsignedShort(), dis.readUTF(), dis.readUTF(), dis.readUTF(), dis.readUnsignedByte(), dis.readUnsignedShort(),
+                    dis.readBoolean());
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+
+    /**
+     * a method that CollectMethodsReturningImmutableCollections found to return an immutable collection
+     */
+    static final class ImmutabilityRecord {
+        final String className;
+        final String methodName;
+        final String signature;
+        final ImmutabilityType imType;
+
+        ImmutabilityRecord(@SlashedClassName String className, String methodName, String signature, ImmutabilityType imType) {
+            this.className = className;
+            this.methodName = methodName;
+            this.signature = signature;
+            this.imType = imType;
+        }
+
+        void replay(Statistics statistics) {
+            statistics.addImmutabilityStatus(className, methodName, signature, imType);
+        }
+
+        void write(DataOutputStream dos) throws IOException {
+            dos.writeUTF(className);
+            dos.writeUTF(methodName);
+            dos.writeUTF(signature);
+            dos.writeByte(imType.ordinal());
+        }
+
+        static ImmutabilityRecord read(DataInputStream dis) throws IOException {
+            return new ImmutabilityRecord(dis.readUTF(), dis.readUTF(), dis.readUTF(), ImmutabilityType.values()[dis.readUnsignedByte()]);
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.collect;
+
+import java.util.Arrays;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+/**
+ * interns the class names, method names and signatures held by the Statistics store into int ids, so that a method can be keyed by three ints instead of
+ * three String references. The pool is split into lock-striped segments by string hash, so that threads interning different strings rarely contend.
+ */
+final class StringPool {
+
+    static final int NOT_FOUND = -1;
+
+    private static final int SEGMENT_BITS = 4;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+
+    private final Segment[] segments;
+
+    StringPool() {
+        segments = new Segment[1 << SEGMENT_BITS];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * returns the id of the string, adding it to the pool if it hasn't been seen before
+     *
+     * @param s
+     *            the string to intern
+     * @return the id of the string
+     */
+    int intern(String s) {
+        int hash = spread(s.hashCode());
+        int segment = hash & SEGMENT_MASK;
+        return (segments[segment].intern(s, hash >>> SEGMENT_BITS) << SEGMENT_BITS) | segment;
+    }
+
+    /**
+     * returns the id of the string without adding it to the pool
+     *
+     * @param s
+     *            the string to find
+     * @return the id of the string, or NOT_FOUND
+     */
+    int find(String s) {
+        int hash = spread(s.hashCode());
+        int segment = hash & SEGMENT_MASK;
+        int localId = segments[segment].find(s, hash >>> SEGMENT_BITS);
+        return localId == NOT_FOUND ? NOT_FOUND : ((localId << SEGMENT_BITS) | segment);
+    }
+
+    /**
+     * returns the string that was interned with the specified id
+     *
+     * @param id
+     *            the id returned by intern
+     * @return the interned string
+     */
+    String get(int id) {
+        return segments[id & SEGMENT_MASK].get(id >>> SEGMENT_BITS);
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    static int spread(int h) {
+        h ^= (h >>> 16);
+        h *= 0x85EBCA6B;
+        return h ^ (h >>> 13);
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+
+    /**
+     * one lock stripe of the pool, an open addressing table of local ids, that point into a dense array of strings
+     */
+    static final class Segment {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private int[] slots;
+        private String[] strings;
+        private int size;
+
+        Segment() {
+            clear();
+        }
+
+        synchronized int intern(String s, int hash) {
+            int mask = slots.length - 1;
+            int slot = hash & mask;
+            while (slots[slot] != 0) {
+                int localId = slots[slot] - 1;
+                if (strings[localId].equals(s)) {
+                    return localId;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            if (size == strings.length) {
+                strings = Arrays.copyOf(strings, size << 1);
+            }
+            strings[size] = s;
+            slots[slot] = ++size;
+
+            if ((size << 1) > slots.length) {
+                rehash();
+            }
+            return size - 1;
+        }
+
+        synchronized int find(String s, int hash) {
+            int mask = slots.length - 1;
+            int slot = hash & mask;
+            while (slots[slot] != 0) {
+                int localId = slots[slot] - 1;
+                if (strings[localId].equals(s)) {
+                    return localId;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return NOT_FOUND;
+        }
+
+        synchronized String get(int localId) {
+            return strings[localId];
+        }
+
+        synchronized void clear() {
+            slots = new int[INITIAL_CAPACITY];
+            strings = new String[INITIAL_CAPACITY >> 1];
+            size = 0;
+        }
+
+        private void rehash() {
+            int[] newSlots = new int[slots.length << 1];
+            int mask = newSlots.length - 1;
+            for (int localId = 0; localId < size; localId++) {
+                int slot = (spread(strings[localId].hashCode()) >>> SEGMENT_BITS) & mask;
+                while (newSlots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newSlots[slot] = localId + 1;
+            }
+            slots = newSlots;
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+}
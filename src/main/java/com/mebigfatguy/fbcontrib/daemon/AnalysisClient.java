@@ -0,0 +1,150 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Set;
+
+import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
+
+import edu.umd.cs.findbugs.ExitCodes;
+
+/**
+ * the thin client of the {@link AnalysisDaemon}, which takes the same arguments as the SpotBugs command line, has the daemon run the analysis, and prints
+ * its output and exits with its exit code. As the daemon may run in another directory, files named on the command line are made absolute first. Passing
+ * just -stopDaemon stops the daemon.
+ *
+ * <pre>
+ * java -cp fb-contrib.jar:spotbugs.jar com.mebigfatguy.fbcontrib.daemon.AnalysisClient -xml -output bugs.xml target/classes
+ * </pre>
+ */
+public final class AnalysisClient {
+
+    private static final Set<String> FILE_OPTIONS = UnmodifiableSet.create("-output", "-project", "-include", "-exclude", "-baseline", "-analyzeFromFile",
+            "-auxclasspathFromFile", "-userPrefs");
+    private static final Set<String> PATH_OPTIONS = UnmodifiableSet.create("-auxclasspath", "-sourcepath");
+
+    private AnalysisClient() {
+    }
+
+    /**
+     * runs an analysis in the daemon
+     *
+     * @param args
+     *            the SpotBugs command line
+     */
+    public static void main(String[] args) {
+        System.exit(analyze(args));
+    }
+
+    private static int analyze(String[] args) {
+        File daemonFile = DaemonProtocol.getDaemonFile();
+        DaemonProtocol.Endpoint endpoint;
+        try {
+            endpoint = DaemonProtocol.readEndpoint(daemonFile);
+        } catch (IOException e) {
+            System.err.println("fb-contrib: no analysis daemon is running, as " + daemonFile + " can't be read: " + e.getMessage());
+            return ExitCodes.ERROR_FLAG;
+        }
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), endpoint.getPort())) {
+            DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DaemonProtocol.writeString(dos, endpoint.getSecret());
+            dos.writeInt(args.length);
+            for (String arg : resolveFiles(args)) {
+                DaemonProtocol.writeString(dos, arg);
+            }
+            dos.flush();
+
+            DataInputStream dis = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            byte[] buffer = new byte[8192];
+            while (true) {
+                int channel = dis.readUnsignedByte();
+                if (channel == DaemonProtocol.EXIT_CHANNEL) {
+                    return dis.readInt();
+                }
+
+                int length = dis.readInt();
+                if ((length < 0) || (length > DaemonProtocol.MAX_STRING_LENGTH)) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+                if (length > buffer.length) {
+                    buffer = new byte[length];
+                }
+                dis.readFully(buffer, 0, length);
+                PrintStream ps = (channel == DaemonProtocol.ERR_CHANNEL) ? System.err : System.out;
+                ps.write(buffer, 0, length);
+                ps.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("fb-contrib: failed to talk to the analysis daemon: " + e.getMessage());
+            return ExitCodes.ERROR_FLAG;
+        }
+    }
+
+    /**
+     * makes the files of a command line absolute: the values of options that name files or class paths, the file of an output format option such as
+     * -xml=bugs.xml, and any other argument that names an existing file
+     *
+     * @param args
+     *            the command line
+     * @return the command line with absolute files
+     */
+    private static String[] resolveFiles(String[] args) {
+        String[] resolvedArgs = new String[args.length];
+        String option = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (FILE_OPTIONS.contains(option)) {
+                resolvedArgs[i] = new File(arg).getAbsolutePath();
+            } else if (PATH_OPTIONS.contains(option)) {
+                resolvedArgs[i] = resolvePath(arg);
+            } else if (arg.startsWith("-")) {
+                int equalsPos = arg.indexOf('=');
+                resolvedArgs[i] = (equalsPos < 0) ? arg : arg.substring(0, equalsPos + 1) + new File(arg.substring(equalsPos + 1)).getAbsolutePath();
+            } else {
+                File file = new File(arg);
+                resolvedArgs[i] = file.exists() ? file.getAbsolutePath() : arg;
+            }
+            option = arg;
+        }
+        return resolvedArgs;
+    }
+
+    private static String resolvePath(String path) {
+        StringBuilder sb = new StringBuilder(path.length() * 2);
+        for (String element : path.split(File.pathSeparator)) {
+            if (!element.isEmpty()) {
+                if (sb.length() > 0) {
+                    sb.append(File.pathSeparatorChar);
+                }
+                sb.append(new File(element).getAbsolutePath());
+            }
+        }
+        return sb.toString();
+    }
+}
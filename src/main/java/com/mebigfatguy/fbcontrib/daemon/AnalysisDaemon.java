@@ -0,0 +1,272 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+import edu.umd.cs.findbugs.ExitCodes;
+import edu.umd.cs.findbugs.FindBugs2;
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.PluginException;
+import edu.umd.cs.findbugs.TextUICommandLine;
+import edu.umd.cs.findbugs.Version;
+import edu.umd.cs.findbugs.filter.FilterException;
+
+/**
+ * a long lived process that runs SpotBugs analyses, with fb-contrib, for {@link AnalysisClient}s on the same machine. Starting a jvm, loading the plugins
+ * and warming up the jit is a large part of analyzing a small change, so the daemon does that once, and keeps what fb-contrib caches between runs resident:
+ * the first pass statistics of each class (when fb-contrib.stats.cache is set), the bugs of class-local detectors (when fb-contrib.resultcache.dir is set)
+ * and the JDK api indexes. Classes that haven't changed since the last run are then not collected or scanned again, although SpotBugs itself still reads
+ * every class, and detectors that look across classes still visit them all.
+ * <p>
+ * Analyses run one at a time, with System.out and System.err sent to the client that asked for them. The daemon must be started with SpotBugs and the
+ * fb-contrib jar on the classpath, and listens on the loopback address, on the port given by fb-contrib.daemon.port, or any free port.
+ * </p>
+ *
+ * <pre>
+ * java -cp spotbugs.jar:fb-contrib.jar -Dfb-contrib.stats.cache=... com.mebigfatguy.fbcontrib.daemon.AnalysisDaemon
+ * </pre>
+ */
+public final class AnalysisDaemon {
+
+    private final File daemonFile;
+    private final String secret;
+    private boolean stopped;
+
+    private AnalysisDaemon(File daemonFile) {
+        this.daemonFile = daemonFile;
+        secret = new BigInteger(160, new SecureRandom()).toString(Character.MAX_RADIX);
+    }
+
+    /**
+     * loads fb-contrib into SpotBugs and serves clients until one asks the daemon to stop
+     *
+     * @param args
+     *            unused
+     */
+    public static void main(String[] args) {
+        try {
+            loadPlugin();
+            new AnalysisDaemon(DaemonProtocol.getDaemonFile()).serve();
+        } catch (IOException | PluginException e) {
+            System.err.println("fb-contrib: the analysis daemon failed: " + e.getMessage());
+            System.exit(ExitCodes.ERROR_FLAG);
+        }
+    }
+
+    /**
+     * adds the fb-contrib jar this class was loaded from to the plugins of every analysis, loading its classes from the daemon's own class loader, so that
+     * the caches of the detectors are the ones the daemon saves
+     *
+     * @throws PluginException
+     *             if the jar isn't a SpotBugs plugin
+     */
+    private static void loadPlugin() throws PluginException {
+        URL pluginLocation = AnalysisDaemon.class.getProtectionDomain().getCodeSource().getLocation();
+        Plugin.addCustomPlugin(pluginLocation, AnalysisDaemon.class.getClassLoader());
+    }
+
+    private void serve() throws IOException {
+        int port = Integer.getInteger(DaemonProtocol.DAEMON_PORT_PROPERTY, 0).intValue();
+        try (ServerSocket server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+            DaemonProtocol.writeEndpoint(daemonFile, new DaemonProtocol.Endpoint(server.getLocalPort(), secret));
+            System.out.println("fb-contrib: the analysis daemon is listening on port " + server.getLocalPort());
+
+            try {
+                while (!stopped) {
+                    try (Socket socket = server.accept()) {
+                        // a client that connects but never sends its request would otherwise block every other client
+                        socket.setSoTimeout(DaemonProtocol.READ_TIMEOUT_MILLIS);
+                        serve(socket);
+                    } catch (IOException e) {
+                        System.err.println("fb-contrib: lost a client of the analysis daemon: " + e.getMessage());
+                    }
+                }
+            } finally {
+                if (!daemonFile.delete()) {
+                    System.err.println("fb-contrib: failed to remove " + daemonFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * runs the analysis a client asks for, once it has presented the secret
+     *
+     * @param socket
+     *            the connection to the client
+     * @throws IOException
+     *             if the client can't be read from or written to
+     */
+    private void serve(Socket socket) throws IOException {
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        byte[] clientSecret = DaemonProtocol.readString(dis).getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(clientSecret, secret.getBytes(StandardCharsets.UTF_8))) {
+            writeExit(dos, ExitCodes.ERROR_FLAG);
+            return;
+        }
+
+        int numArgs = dis.readInt();
+        if ((numArgs < 0) || (numArgs > DaemonProtocol.MAX_ARGS)) {
+            throw new IOException("Invalid argument count " + numArgs);
+        }
+        String[] args = new String[numArgs];
+        for (int i = 0; i < numArgs; i++) {
+            args[i] = DaemonProtocol.readString(dis);
+        }
+
+        if ((numArgs == 1) && DaemonProtocol.STOP_DAEMON.equals(args[0])) {
+            stopped = true;
+            writeExit(dos, 0);
+            return;
+        }
+
+        writeExit(dos, analyze(args, dos));
+    }
+
+    /**
+     * runs one SpotBugs analysis, as the SpotBugs command line would, but parsing its arguments with a {@link DaemonCommandLine}, so that a bad option or
+     * -help ends that one analysis rather than the daemon
+     *
+     * @param args
+     *            the SpotBugs command line
+     * @param dos
+     *            the stream to the client, to which the output of the analysis is written
+     * @return the exit code the command line would have exited with
+     * @throws UnsupportedEncodingException
+     *             never, as utf-8 is always supported
+     */
+    private int analyze(String[] args, DataOutputStream dos) throws UnsupportedEncodingException {
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        PrintStream clientOut = new PrintStream(new BufferedOutputStream(new DaemonProtocol.FrameOutputStream(dos, DaemonProtocol.OUT_CHANNEL)), true,
+                StandardCharsets.UTF_8.name());
+        PrintStream clientErr = new PrintStream(new BufferedOutputStream(new DaemonProtocol.FrameOutputStream(dos, DaemonProtocol.ERR_CHANNEL)), true,
+                StandardCharsets.UTF_8.name());
+        System.setOut(clientOut);
+        System.setErr(clientErr);
+
+        FindBugs2 engine = new FindBugs2();
+        try {
+            DaemonCommandLine commandLine = new DaemonCommandLine();
+            if (!commandLine.process(args, engine)) {
+                return DaemonCommandLine.USAGE_EXIT_CODE;
+            }
+            if (commandLine.justPrintConfiguration() || commandLine.justPrintVersion()) {
+                Version.printVersion(commandLine.justPrintConfiguration());
+                return 0;
+            }
+            engine.execute();
+            return getExitCode(engine, commandLine);
+        } catch (IOException | FilterException | IllegalArgumentException e) {
+            System.err.println("fb-contrib: the analysis failed: " + e.getMessage());
+            return ExitCodes.ERROR_FLAG;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ExitCodes.ERROR_FLAG;
+        } catch (RuntimeException e) {
+            System.err.println("fb-contrib: the analysis failed: " + e.getClass().getName() + ": " + e.getMessage());
+            return ExitCodes.ERROR_FLAG;
+        } finally {
+            engine.dispose();
+            clientOut.flush();
+            clientErr.flush();
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+    }
+
+    /**
+     * reports the totals of the analysis and builds its exit code, as the SpotBugs command line does
+     *
+     * @param engine
+     *            the engine that ran the analysis
+     * @param commandLine
+     *            the command line of the analysis
+     * @return the exit code, which is 0 unless -exitcode was given
+     */
+    private static int getExitCode(FindBugs2 engine, TextUICommandLine commandLine) {
+        int bugCount = engine.getBugCount();
+        int missingClassCount = engine.getMissingClassCount();
+        int errorCount = engine.getErrorCount();
+
+        if (!commandLine.quiet() || commandLine.setExitCode()) {
+            if (bugCount > 0) {
+                System.err.println("Warnings generated: " + bugCount);
+            }
+            if (missingClassCount > 0) {
+                System.err.println("Missing classes: " + missingClassCount);
+            }
+            if (errorCount > 0) {
+                System.err.println("Analysis errors: " + errorCount);
+            }
+        }
+
+        if (!commandLine.setExitCode()) {
+            return 0;
+        }
+
+        int exitCode = 0;
+        if (errorCount > 0) {
+            exitCode |= ExitCodes.ERROR_FLAG;
+        }
+        if (missingClassCount > 0) {
+            exitCode |= ExitCodes.MISSING_CLASS_FLAG;
+        }
+        if (bugCount > 0) {
+            exitCode |= ExitCodes.BUGS_FOUND_FLAG;
+        }
+        return exitCode;
+    }
+
+    private static void writeExit(DataOutputStream dos, int exitCode) throws IOException {
+        synchronized (dos) {
+            dos.writeByte(DaemonProtocol.EXIT_CHANNEL);
+            dos.writeInt(exitCode);
+            dos.flush();
+        }
+    }
+
+    /**
+     * leaves out the secret, so that it isn't logged
+     */
+    @Override
+    public String toString() {
+        return ToString.build(this, "secret");
+    }
+}
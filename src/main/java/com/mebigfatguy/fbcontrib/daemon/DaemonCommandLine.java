@@ -0,0 +1,138 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.daemon;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+import edu.umd.cs.findbugs.FindBugs;
+import edu.umd.cs.findbugs.IFindBugsEngine;
+import edu.umd.cs.findbugs.Project;
+import edu.umd.cs.findbugs.ShowHelp;
+import edu.umd.cs.findbugs.TextUICommandLine;
+import edu.umd.cs.findbugs.config.CommandLine;
+import edu.umd.cs.findbugs.filter.FilterException;
+
+/**
+ * the SpotBugs text ui command line, parsed as {@link FindBugs#processCommandLine(TextUICommandLine, String[], IFindBugsEngine)} does, but without the paths
+ * on which that, and the options it handles, call System.exit, as that would stop the daemon rather than the one analysis. Where the SpotBugs command line
+ * would show its help and exit, {@link #process(String[], IFindBugsEngine)} shows the help and returns false, and an -output file that can't be opened is
+ * reported as an IOException.
+ */
+final class DaemonCommandLine extends TextUICommandLine {
+
+    /**
+     * the exit code of an analysis whose command line was not understood, as FindBugs.showHelp exits with
+     */
+    static final int USAGE_EXIT_CODE = 1;
+
+    private static final String SHOW_PLUGINS = "-showPlugins";
+    private static final String OUTPUT = "-output";
+    private static final String OUTPUT_FILE = "-outputFile";
+
+    /**
+     * parses the command line of an analysis and configures the engine with it
+     *
+     * @param args
+     *            the SpotBugs command line
+     * @param engine
+     *            the engine to configure
+     * @return whether the command line could be used, if not the help has been shown
+     * @throws IOException
+     *             if an option file, project or output file can't be read or written
+     * @throws FilterException
+     *             if a filter file can't be parsed
+     */
+    boolean process(String[] args, IFindBugsEngine engine) throws IOException, FilterException {
+        String[] argv;
+        try {
+            argv = expandOptionFiles(args, true, true);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return showHelp();
+        } catch (CommandLine.HelpRequestedException e) {
+            return showHelp();
+        }
+
+        int argCount;
+        try {
+            argCount = parse(argv);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return showHelp();
+        } catch (CommandLine.HelpRequestedException e) {
+            return showHelp();
+        }
+
+        Project project = getProject();
+        for (int i = argCount; i < argv.length; ++i) {
+            project.addFile(argv[i]);
+        }
+        handleXArgs();
+
+        configureEngine(engine);
+        if ((getProject().getFileCount() == 0) && !justPrintConfiguration() && !justPrintVersion()) {
+            System.out.println("No files to be analyzed");
+            return showHelp();
+        }
+        return true;
+    }
+
+    /**
+     * rejects -showPlugins, which lists the plugins and exits, as the plugins of the daemon are fixed when it starts
+     */
+    @Override
+    protected void handleOption(String option, String optionExtraPart) {
+        if (SHOW_PLUGINS.equals(option)) {
+            throw new IllegalArgumentException(SHOW_PLUGINS + " is not supported by the analysis daemon");
+        }
+        super.handleOption(option, optionExtraPart);
+    }
+
+    /**
+     * opens the output file before SpotBugs does, so that a file that can't be written is reported, rather than exiting
+     */
+    @Override
+    protected void handleOptionWithArgument(String option, String argument) throws IOException {
+        if ((outputFile == null) && (OUTPUT.equals(option) || OUTPUT_FILE.equals(option))) {
+            File file = new File(argument);
+            try {
+                Files.newOutputStream(file.toPath()).close();
+            } catch (IOException e) {
+                throw new IOException("Couldn't open " + file + " for output: " + e.getMessage(), e);
+            }
+        }
+        super.handleOptionWithArgument(option, argument);
+    }
+
+    private boolean showHelp() {
+        FindBugs.showSynopsis();
+        ShowHelp.showGeneralOptions();
+        FindBugs.showCommandLineOptions(this);
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
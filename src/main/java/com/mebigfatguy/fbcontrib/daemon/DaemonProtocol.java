@@ -0,0 +1,243 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Properties;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+/**
+ * the conversation between the analysis client and daemon, over a socket bound to the loopback address. The daemon writes its port, and a secret the client
+ * must present, to a file only the user can read. The client sends the secret and the SpotBugs command line, and the daemon answers with frames of the
+ * output of the analysis, each a channel byte, a length and the bytes, ending with an exit frame holding the exit code.
+ */
+final class DaemonProtocol {
+
+    static final String DAEMON_FILE_PROPERTY = "fb-contrib.daemon.file";
+    static final String DAEMON_PORT_PROPERTY = "fb-contrib.daemon.port";
+    static final String STOP_DAEMON = "-stopDaemon";
+
+    static final int EXIT_CHANNEL = 0;
+    static final int OUT_CHANNEL = 1;
+    static final int ERR_CHANNEL = 2;
+
+    static final int MAX_STRING_LENGTH = 1 << 24;
+    static final int MAX_ARGS = 1 << 16;
+    static final int READ_TIMEOUT_MILLIS = 30000;
+
+    private static final String PORT_KEY = "port";
+    private static final String SECRET_KEY = "secret";
+
+    private DaemonProtocol() {
+    }
+
+    /**
+     * returns the file the daemon describes itself in, as named by fb-contrib.daemon.file, or .fb-contrib/daemon.properties in the user's home
+     *
+     * @return the daemon file
+     */
+    static File getDaemonFile() {
+        String fileName = System.getProperty(DAEMON_FILE_PROPERTY);
+        if (fileName != null) {
+            return new File(fileName);
+        }
+        return new File(System.getProperty("user.home"), ".fb-contrib" + File.separator + "daemon.properties");
+    }
+
+    /**
+     * writes the port and secret of a running daemon, readable by the user alone on posix file systems
+     *
+     * @param daemonFile
+     *            the file to write
+     * @param endpoint
+     *            the port and secret of the daemon
+     * @throws IOException
+     *             if the file can't be written
+     */
+    static void writeEndpoint(File daemonFile, Endpoint endpoint) throws IOException {
+        File dir = daemonFile.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create directory " + dir);
+        }
+
+        if (daemonFile.exists() && !daemonFile.delete()) {
+            throw new IOException("Failed to replace " + daemonFile);
+        }
+        if (!daemonFile.createNewFile()) {
+            throw new IOException("Failed to create " + daemonFile);
+        }
+        try {
+            Files.setPosixFilePermissions(daemonFile.toPath(), PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // not a posix file system, so the file is as private as the directory it is in
+        }
+
+        Properties props = new Properties();
+        props.setProperty(PORT_KEY, String.valueOf(endpoint.getPort()));
+        props.setProperty(SECRET_KEY, endpoint.getSecret());
+        try (OutputStream os = new FileOutputStream(daemonFile)) {
+            props.store(os, "fb-contrib analysis daemon");
+        }
+    }
+
+    /**
+     * reads the port and secret of a running daemon
+     *
+     * @param daemonFile
+     *            the file the daemon wrote
+     * @return the port and secret of the daemon
+     * @throws IOException
+     *             if the file doesn't exist or is malformed
+     */
+    static Endpoint readEndpoint(File daemonFile) throws IOException {
+        Properties props = new Properties();
+        try (InputStream is = new FileInputStream(daemonFile)) {
+            props.load(is);
+        }
+
+        String port = props.getProperty(PORT_KEY);
+        String secret = props.getProperty(SECRET_KEY);
+        if ((port == null) || (secret == null)) {
+            throw new IOException("Malformed daemon file " + daemonFile);
+        }
+        try {
+            return new Endpoint(Integer.parseInt(port), secret);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed daemon file " + daemonFile, e);
+        }
+    }
+
+    /**
+     * writes a string as its length and utf-8 bytes, as command lines can be longer than writeUTF allows
+     *
+     * @param dos
+     *            the stream to write to
+     * @param s
+     *            the string to write
+     * @throws IOException
+     *             if the stream can't be written
+     */
+    static void writeString(DataOutputStream dos, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        dos.writeInt(bytes.length);
+        dos.write(bytes);
+    }
+
+    /**
+     * reads a string written by {@link #writeString(DataOutputStream, String)}
+     *
+     * @param dis
+     *            the stream to read from
+     * @return the string
+     * @throws IOException
+     *             if the stream can't be read, or holds an unreasonable length
+     */
+    static String readString(DataInputStream dis) throws IOException {
+        int length = dis.readInt();
+        if ((length < 0) || (length > MAX_STRING_LENGTH)) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        dis.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * the address of a running daemon on the loopback interface, and the secret that a client must present to it
+     */
+    static final class Endpoint {
+        private final int port;
+        private final String secret;
+
+        Endpoint(int port, String secret) {
+            this.port = port;
+            this.secret = secret;
+        }
+
+        int getPort() {
+            return port;
+        }
+
+        String getSecret() {
+            return secret;
+        }
+
+        /**
+         * leaves out the secret, so that it isn't logged
+         */
+        @Override
+        public String toString() {
+            return ToString.build(this, "secret");
+        }
+    }
+
+    /**
+     * an output stream that writes each chunk of output as a frame of one channel. The frames of several channels share one socket stream, which serves as
+     * the lock.
+     */
+    static final class FrameOutputStream extends OutputStream {
+        private final DataOutputStream dos;
+        private final int channel;
+
+        FrameOutputStream(DataOutputStream dos, int channel) {
+            this.dos = dos;
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            synchronized (dos) {
+                dos.writeByte(channel);
+                dos.writeInt(len);
+                dos.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (dos) {
+                dos.flush();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+}
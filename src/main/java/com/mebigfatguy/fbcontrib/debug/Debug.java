@@ -27,6 +27,10 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 
+/**
+ * a scratch console, appended to fb-contrib.txt in the temp directory, for ad hoc debugging output. To find out where analysis time goes, use
+ * {@link DetectorProfiler} rather than printing timings here.
+ */
 public final class Debug {
 
     private static PrintStream out;
@@ -0,0 +1,51 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.debug;
+
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.ComponentPlugin;
+import edu.umd.cs.findbugs.bugReporter.BugReporterDecorator;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+
+/**
+ * a bug reporter decorator that, when fb-contrib.profile.output is set, writes the {@link DetectorProfiler} files when FindBugs finishes the analysis,
+ * which is after the last detector has reported, and before the analysis cache that measured them goes away.
+ */
+public class DetectorProfileWriter extends BugReporterDecorator {
+
+    public DetectorProfileWriter(ComponentPlugin<BugReporterDecorator> plugin, BugReporter delegate) {
+        super(plugin, delegate);
+    }
+
+    @Override
+    public void finish() {
+        try {
+            super.finish();
+        } finally {
+            if (DetectorProfiler.isEnabled()) {
+                IAnalysisCache cache = Global.getAnalysisCache();
+                if (cache instanceof ProfilingAnalysisCache) {
+                    ((ProfilingAnalysisCache) cache).finish();
+                }
+                DetectorProfiler.write(this);
+            }
+        }
+    }
+}
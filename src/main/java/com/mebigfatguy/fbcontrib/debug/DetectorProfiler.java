@@ -0,0 +1,373 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.debug;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.DetectorFactory;
+
+/**
+ * collects wall time, cpu time, allocated bytes, classes visited and bugs reported for each detector, both while visiting classes and while reporting.
+ * It is enabled by setting the system property fb-contrib.profile.output to a path prefix, and at the end of the analysis writes a summary, sorted by
+ * the time each detector took, to prefix.txt (and standard error), along with prefix.json and prefix.csv for further processing.
+ * <p>
+ * Class visits and reports are measured for every detector by {@link DetectorProfilerInstaller}, visits exactly and reports by sampling, and the
+ * files are written by {@link DetectorProfileWriter} when FindBugs finishes. Methods that a detector gave up on, because of an
+ * {@link com.mebigfatguy.fbcontrib.utils.AnalysisBudget}, are counted, and the first of them listed at the end of the summary.
+ */
+public final class DetectorProfiler {
+
+    public static final String PROFILE_OUTPUT = "fb-contrib.profile.output";
+
+    private static final String OUTPUT_PREFIX = System.getProperty(PROFILE_OUTPUT);
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+    private static final ConcurrentMap<String, DetectorProfile> PROFILES = new ConcurrentHashMap<>();
+    private static final int MAX_LISTED_SKIPS = 1000;
+    private static final Queue<String> SKIPS = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger SKIP_COUNT = new AtomicInteger();
+
+    private DetectorProfiler() {
+    }
+
+    /**
+     * returns whether profiling was requested for this run
+     *
+     * @return whether the fb-contrib.profile.output property is set
+     */
+    public static boolean isEnabled() {
+        return OUTPUT_PREFIX != null;
+    }
+
+    /**
+     * records the time and allocations of part of a detector's report() method
+     *
+     * @param detectorName
+     *            the class name of the detector
+     * @param start
+     *            the sample taken first
+     * @param end
+     *            the sample taken last
+     */
+    static void recordReport(String detectorName, Sample start, Sample end) {
+        getProfile(detectorName).addReport(start, end);
+    }
+
+    /**
+     * records the time and allocations of a detector visiting one class
+     *
+     * @param detectorClass
+     *            the class of the detector
+     * @param start
+     *            the sample taken before the visit
+     * @param end
+     *            the sample taken after the visit
+     */
+    static void recordVisit(Class<?> detectorClass, Sample start, Sample end) {
+        getProfile(detectorClass.getName()).addVisit(start, end);
+    }
+
+    /**
+     * records a bug against the detector that reported it
+     *
+     * @param bug
+     *            the bug that was reported
+     */
+    static void recordBug(BugInstance bug) {
+        DetectorFactory factory = bug.getDetectorFactory();
+        if (factory != null) {
+            getProfile(factory.getFullName()).addBug();
+        }
+    }
+
+    /**
+     * records that a detector did not analyze a method, or abandoned it part way through
+     *
+     * @param detector
+     *            the detector that skipped the method
+     * @param method
+     *            the fully qualified name and signature of the method
+     * @param reason
+     *            why the method was skipped
+     */
+    public static void recordSkip(Object detector, String method, String reason) {
+        if (OUTPUT_PREFIX == null) {
+            return;
+        }
+
+        getProfile(detector.getClass().getName()).addSkip();
+        if (SKIP_COUNT.getAndIncrement() < MAX_LISTED_SKIPS) {
+            SKIPS.add(detector.getClass().getSimpleName() + ": " + method + " (" + reason + ')');
+        }
+    }
+
+    private static DetectorProfile getProfile(String detectorName) {
+        DetectorProfile profile = PROFILES.get(detectorName);
+        if (profile == null) {
+            profile = new DetectorProfile(detectorName);
+            DetectorProfile existing = PROFILES.putIfAbsent(detectorName, profile);
+            if (existing != null) {
+                profile = existing;
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * writes the summary, json and csv files, if there is anything to write, and starts over, for the next analysis run in this jvm
+     *
+     * @param bugReporter
+     *            the reporter to log a failure to write the files to
+     */
+    static void write(BugReporter bugReporter) {
+        if (PROFILES.isEmpty()) {
+            return;
+        }
+
+        List<DetectorProfile> profiles = new ArrayList<>(PROFILES.values());
+        PROFILES.clear();
+        int skipCount = SKIP_COUNT.getAndSet(0);
+        List<String> skips = new ArrayList<>(SKIPS);
+        SKIPS.clear();
+        Collections.sort(profiles, new Comparator<DetectorProfile>() {
+            @Override
+            public int compare(DetectorProfile p1, DetectorProfile p2) {
+                int cmp = Long.compare(p2.getTotalWallNanos(), p1.getTotalWallNanos());
+                if (cmp != 0) {
+                    return cmp;
+                }
+                return p1.getName().compareTo(p2.getName());
+            }
+        });
+
+        try {
+            try (PrintWriter pw = new PrintWriter(newWriter(".txt"))) {
+                writeSummary(pw, profiles, skipCount, skips);
+            }
+            try (PrintWriter pw = new PrintWriter(newWriter(".json"))) {
+                writeJson(pw, profiles);
+            }
+            try (PrintWriter pw = new PrintWriter(newWriter(".csv"))) {
+                writeCsv(pw, profiles);
+            }
+
+            PrintWriter err = new PrintWriter(new OutputStreamWriter(System.err, StandardCharsets.UTF_8));
+            writeSummary(err, profiles, skipCount, skips);
+            err.flush();
+        } catch (IOException e) {
+            bugReporter.logError("Failed to write the fb-contrib detector profile to " + OUTPUT_PREFIX, e);
+        }
+    }
+
+    private static Writer newWriter(String extension) throws IOException {
+        return Files.newBufferedWriter(Paths.get(OUTPUT_PREFIX + extension), StandardCharsets.UTF_8);
+    }
+
+    private static void writeSummary(PrintWriter pw, List<DetectorProfile> profiles, int skipCount, List<String> skips) {
+        pw.println("===== fb-contrib detector profile =====");
+        pw.println(String.format(Locale.ENGLISH, "%-80s %8s %10s %10s %10s %10s %10s %6s %7s", "Detector", "Classes", "Wall ms", "CPU ms",
+                "Alloc MB", "Report ms", "Rpt Alc MB", "Bugs", "Skipped"));
+        for (DetectorProfile profile : profiles) {
+            Map<String, Long> values = profile.getValues();
+            pw.println(String.format(Locale.ENGLISH, "%-80s %8d %10.1f %10.1f %10.1f %10.1f %10.1f %6d %7d", profile.getName(),
+                    values.get("classesVisited"), millis(values.get("visitWallNanos")), millis(values.get("visitCpuNanos")),
+                    megabytes(values.get("visitAllocatedBytes")), millis(values.get("reportWallNanos")), megabytes(values.get("reportAllocatedBytes")),
+                    values.get("bugsReported"), values.get("methodsSkipped")));
+        }
+
+        if (skipCount > 0) {
+            pw.println();
+            pw.println("===== methods skipped by analysis budgets (" + skipCount + ") =====");
+            for (String skip : skips) {
+                pw.println(skip);
+            }
+            if (skipCount > MAX_LISTED_SKIPS) {
+                pw.println("... " + (skipCount - MAX_LISTED_SKIPS) + " more");
+            }
+        }
+    }
+
+    private static void writeJson(PrintWriter pw, List<DetectorProfile> profiles) {
+        pw.println('[');
+        for (int i = 0; i < profiles.size(); i++) {
+            DetectorProfile profile = profiles.get(i);
+            pw.print("  {\"detector\": \"" + profile.getName().replace("\\", "\\\\").replace("\"", "\\\"") + "\"");
+            for (Map.Entry<String, Long> value : profile.getValues().entrySet()) {
+                pw.print(", \"" + value.getKey() + "\": " + value.getValue());
+            }
+            pw.println((i < (profiles.size() - 1)) ? "}," : "}");
+        }
+        pw.println(']');
+    }
+
+    private static void writeCsv(PrintWriter pw, List<DetectorProfile> profiles) {
+        StringBuilder header = new StringBuilder("detector");
+        for (String key : DetectorProfile.KEYS) {
+            header.append(',').append(key);
+        }
+        pw.println(header);
+
+        for (DetectorProfile profile : profiles) {
+            StringBuilder line = new StringBuilder(profile.getName());
+            for (Long value : profile.getValues().values()) {
+                line.append(',').append(value);
+            }
+            pw.println(line);
+        }
+    }
+
+    private static double millis(Long nanos) {
+        return nanos.longValue() / 1000000.0;
+    }
+
+    private static double megabytes(Long bytes) {
+        return bytes.longValue() / (1024.0 * 1024.0);
+    }
+
+    /**
+     * a point in time measurement of the current thread's wall time, cpu time and allocated bytes. Values that the jvm can't measure are reported as 0.
+     */
+    static final class Sample {
+        final long wallNanos;
+        final long cpuNanos;
+        final long allocatedBytes;
+
+        private Sample(long wallNanos, long cpuNanos, long allocatedBytes) {
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        static Sample take() {
+            long cpu = THREAD_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_BEAN.getCurrentThreadCpuTime() : 0L;
+            return new Sample(System.nanoTime(), Math.max(cpu, 0L), getAllocatedBytes(Thread.currentThread().getId()));
+        }
+
+        static Sample take(long threadId) {
+            long cpu = THREAD_BEAN.isThreadCpuTimeSupported() ? THREAD_BEAN.getThreadCpuTime(threadId) : 0L;
+            return new Sample(System.nanoTime(), Math.max(cpu, 0L), getAllocatedBytes(threadId));
+        }
+
+        private static long getAllocatedBytes(long threadId) {
+            if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) THREAD_BEAN;
+                if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                    return Math.max(sunBean.getThreadAllocatedBytes(threadId), 0L);
+                }
+            }
+            return 0L;
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+
+    /**
+     * the accumulated measurements of one detector
+     */
+    static final class DetectorProfile {
+        static final List<String> KEYS = Collections.unmodifiableList(Arrays.asList("classesVisited", "visitWallNanos", "visitCpuNanos",
+                "visitAllocatedBytes", "reportWallNanos", "reportCpuNanos", "reportAllocatedBytes", "bugsReported", "methodsSkipped"));
+
+        private final String name;
+        private long classesVisited;
+        private long visitWallNanos;
+        private long visitCpuNanos;
+        private long visitAllocatedBytes;
+        private long reportWallNanos;
+        private long reportCpuNanos;
+        private long reportAllocatedBytes;
+        private long bugsReported;
+        private long methodsSkipped;
+
+        DetectorProfile(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        synchronized void addVisit(Sample start, Sample end) {
+            classesVisited++;
+            visitWallNanos += end.wallNanos - start.wallNanos;
+            visitCpuNanos += end.cpuNanos - start.cpuNanos;
+            visitAllocatedBytes += end.allocatedBytes - start.allocatedBytes;
+        }
+
+        synchronized void addReport(Sample start, Sample end) {
+            reportWallNanos += end.wallNanos - start.wallNanos;
+            reportCpuNanos += end.cpuNanos - start.cpuNanos;
+            reportAllocatedBytes += end.allocatedBytes - start.allocatedBytes;
+        }
+
+        synchronized void addBug() {
+            bugsReported++;
+        }
+
+        synchronized void addSkip() {
+            methodsSkipped++;
+        }
+
+        synchronized long getTotalWallNanos() {
+            return visitWallNanos + reportWallNanos;
+        }
+
+        synchronized Map<String, Long> getValues() {
+            Map<String, Long> values = new LinkedHashMap<>();
+            long[] counts = { classesVisited, visitWallNanos, visitCpuNanos, visitAllocatedBytes, reportWallNanos, reportCpuNanos, reportAllocatedBytes,
+                    bugsReported, methodsSkipped };
+            for (int i = 0; i < counts.length; i++) {
+                values.put(KEYS.get(i), Long.valueOf(counts[i]));
+            }
+            return values;
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.debug;
+
+import edu.umd.cs.findbugs.BugInstance;
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.BugReporterObserver;
+import edu.umd.cs.findbugs.Detector;
+import edu.umd.cs.findbugs.NonReportingDetector;
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+
+/**
+ * a first pass detector that does no analysis, but when fb-contrib.profile.output is set, hooks the analysis so that {@link DetectorProfiler} sees
+ * every detector's visit of every class, and report, and every bug that is reported. FindBugs times each visitClassContext call with the analysis
+ * cache's profiler, so installing a profiling cache as the analysis starts is enough to measure all detectors, of all plugins, without changing them.
+ */
+public class DetectorProfilerInstaller implements Detector, NonReportingDetector {
+
+    public DetectorProfilerInstaller(BugReporter bugReporter) {
+        if (DetectorProfiler.isEnabled()) {
+            IAnalysisCache cache = Global.getAnalysisCache();
+            if ((cache != null) && !(cache instanceof ProfilingAnalysisCache)) {
+                Global.setAnalysisCacheForCurrentThread(new ProfilingAnalysisCache(cache));
+                bugReporter.addObserver(new BugReporterObserver() {
+                    @Override
+                    public void reportBug(BugInstance bugInstance) {
+                        DetectorProfiler.recordBug(bugInstance);
+                    }
+                });
+            }
+        }
+    }
+
+    @Override
+    public void visitClassContext(ClassContext classContext) {
+        // nothing to do, the work is done by the profiling analysis cache
+    }
+
+    @Override
+    public void report() {
+        // nothing to do, the profile is written by the DetectorProfileWriter when the analysis finishes
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.debug;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+
+import edu.umd.cs.findbugs.Detector;
+import edu.umd.cs.findbugs.Detector2;
+import edu.umd.cs.findbugs.log.Profiler;
+import edu.umd.cs.findbugs.xml.XMLOutput;
+
+/**
+ * a profiler that FindBugs calls around every detector's visit of a class, that forwards to the real profiler but also samples the cost of detector
+ * visits for {@link DetectorProfiler}. Analysis engines run inside a detector's visit are charged to that detector, as that is the work the detector
+ * caused. FindBugs calls report() outside of any class, with no profiler around it, so while no class is being visited, a {@link ReportSampler}
+ * looks for reporting detectors instead.
+ */
+class DetectorTimingProfiler extends Profiler {
+
+    private final Profiler delegate;
+    private final Deque<DetectorProfiler.Sample> starts = new ArrayDeque<>();
+    private final ReportSampler reportSampler;
+
+    DetectorTimingProfiler(Profiler delegate) {
+        this.delegate = delegate;
+        reportSampler = new ReportSampler(Thread.currentThread());
+        reportSampler.start();
+    }
+
+    /**
+     * stops sampling reports, once the analysis is finished
+     */
+    void stopSampling() {
+        reportSampler.stop();
+    }
+
+    @Override
+    public void start(Class<?> c) {
+        delegate.start(c);
+        if (isDetector(c)) {
+            starts.push(DetectorProfiler.Sample.take());
+        }
+    }
+
+    @Override
+    public void end(Class<?> c) {
+        if (isDetector(c) && !starts.isEmpty()) {
+            DetectorProfiler.recordVisit(c, starts.pop(), DetectorProfiler.Sample.take());
+        }
+        delegate.end(c);
+    }
+
+    @Override
+    public void startContext(Object context) {
+        reportSampler.setBetweenClasses(false);
+        delegate.startContext(context);
+    }
+
+    @Override
+    public void endContext(Object context) {
+        delegate.endContext(context);
+        reportSampler.setBetweenClasses(true);
+    }
+
+    @Override
+    public void report() {
+        delegate.report();
+    }
+
+    @Override
+    public void report(Comparator<Class<?>> reportComparator, Filter filter, PrintStream stream) {
+        delegate.report(reportComparator, filter, stream);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public Profile getProfile(Class<?> c) {
+        return delegate.getProfile(c);
+    }
+
+    @Override
+    public void writeXML(XMLOutput xmlOutput) throws IOException {
+        delegate.writeXML(xmlOutput);
+    }
+
+    private static boolean isDetector(Class<?> c) {
+        return Detector.class.isAssignableFrom(c) || Detector2.class.isAssignableFrom(c);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.debug;
+
+import java.util.Map;
+
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.IClassAnalysisEngine;
+import edu.umd.cs.findbugs.classfile.IClassPath;
+import edu.umd.cs.findbugs.classfile.IDatabaseFactory;
+import edu.umd.cs.findbugs.classfile.IErrorLogger;
+import edu.umd.cs.findbugs.classfile.IMethodAnalysisEngine;
+import edu.umd.cs.findbugs.classfile.MethodDescriptor;
+import edu.umd.cs.findbugs.log.Profiler;
+
+/**
+ * an analysis cache that forwards everything to FindBugs' cache, except that it hands out a {@link DetectorTimingProfiler}, which is the profiler
+ * that wraps each detector's visitClassContext.
+ */
+class ProfilingAnalysisCache implements IAnalysisCache {
+
+    private final IAnalysisCache delegate;
+    private final DetectorTimingProfiler profiler;
+
+    ProfilingAnalysisCache(IAnalysisCache delegate) {
+        this.delegate = delegate;
+        profiler = new DetectorTimingProfiler(delegate.getProfiler());
+    }
+
+    /**
+     * stops measuring detectors, once the analysis is finished
+     */
+    void finish() {
+        profiler.stopSampling();
+    }
+
+    @Override
+    public <E> void registerClassAnalysisEngine(Class<E> analysisResultType, IClassAnalysisEngine<E> classAnalysisEngine) {
+        delegate.registerClassAnalysisEngine(analysisResultType, classAnalysisEngine);
+    }
+
+    @Override
+    public <E> void registerMethodAnalysisEngine(Class<E> analysisResultType, IMethodAnalysisEngine<E> methodAnalysisEngine) {
+        delegate.registerMethodAnalysisEngine(analysisResultType, methodAnalysisEngine);
+    }
+
+    @Override
+    public <E> E getClassAnalysis(Class<E> analysisClass, ClassDescriptor classDescriptor) throws CheckedAnalysisException {
+        return delegate.getClassAnalysis(analysisClass, classDescriptor);
+    }
+
+    @Override
+    public <E> E probeClassAnalysis(Class<E> analysisClass, ClassDescriptor classDescriptor) {
+        return delegate.probeClassAnalysis(analysisClass, classDescriptor);
+    }
+
+    @Override
+    public <E> E getMethodAnalysis(Class<E> analysisClass, MethodDescriptor methodDescriptor) throws CheckedAnalysisException {
+        return delegate.getMethodAnalysis(analysisClass, methodDescriptor);
+    }
+
+    @Override
+    public <E> void eagerlyPutMethodAnalysis(Class<E> analysisClass, MethodDescriptor methodDescriptor, E analysisObject) {
+        delegate.eagerlyPutMethodAnalysis(analysisClass, methodDescriptor, analysisObject);
+    }
+
+    @Override
+    public void purgeMethodAnalyses(MethodDescriptor methodDescriptor) {
+        delegate.purgeMethodAnalyses(methodDescriptor);
+    }
+
+    @Override
+    public void purgeAllMethodAnalysis() {
+        delegate.purgeAllMethodAnalysis();
+    }
+
+    @Override
+    public void purgeClassAnalysis(Class<?> analysisClass) {
+        delegate.purgeClassAnalysis(analysisClass);
+    }
+
+    @Override
+    public <E> void registerDatabaseFactory(Class<E> databaseClass, IDatabaseFactory<E> databaseFactory) {
+        delegate.registerDatabaseFactory(databaseClass, databaseFactory);
+    }
+
+    @Override
+    public <E> E getDatabase(Class<E> databaseClass) {
+        return delegate.getDatabase(databaseClass);
+    }
+
+    @Override
+    public <E> E getOptionalDatabase(Class<E> databaseClass) {
+        return delegate.getOptionalDatabase(databaseClass);
+    }
+
+    @Override
+    public <E> void eagerlyPutDatabase(Class<E> databaseClass, E database) {
+        delegate.eagerlyPutDatabase(databaseClass, database);
+    }
+
+    @Override
+    public IClassPath getClassPath() {
+        return delegate.getClassPath();
+    }
+
+    @Override
+    public IErrorLogger getErrorLogger() {
+        return delegate.getErrorLogger();
+    }
+
+    @Override
+    public Map<?, ?> getAnalysisLocals() {
+        return delegate.getAnalysisLocals();
+    }
+
+    @Override
+    public Profiler getProfiler() {
+        return profiler;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.debug;
+
+import edu.umd.cs.findbugs.DetectorToDetector2Adapter;
+import edu.umd.cs.findbugs.FindBugs2;
+
+/**
+ * samples the analysis thread while it is between classes, which is where FindBugs calls each detector's report() at the end of a pass, and charges
+ * the time, cpu time and allocations between two samples to the detector whose report() was running at both. FindBugs does not time report() with
+ * the profiler the way it does visitClassContext, so sampling the stack is what lets every detector's report() be measured without changing it.
+ * Reports shorter than the sampling interval are not seen.
+ */
+class ReportSampler implements Runnable {
+
+    private static final long INTERVAL_MILLIS = 2L;
+
+    private final Thread analysisThread;
+    private final Thread samplerThread;
+    private volatile boolean betweenClasses = true;
+    private volatile boolean stopped;
+    private String lastDetector;
+    private DetectorProfiler.Sample lastSample;
+
+    /**
+     * creates a sampler, but does not start it
+     *
+     * @param analysisThread
+     *            the thread that runs the detectors
+     */
+    ReportSampler(Thread analysisThread) {
+        this.analysisThread = analysisThread;
+        samplerThread = new Thread(this, "fb-contrib report sampler");
+        samplerThread.setDaemon(true);
+    }
+
+    void start() {
+        samplerThread.start();
+    }
+
+    /**
+     * stops sampling, and waits for the last sample to be recorded
+     */
+    void stop() {
+        stopped = true;
+        samplerThread.interrupt();
+        try {
+            samplerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * notes whether the analysis thread is visiting a class, as there is no report() to look for while it is
+     *
+     * @param between
+     *            whether the analysis thread is outside of any class
+     */
+    void setBetweenClasses(boolean between) {
+        betweenClasses = between;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!stopped) {
+                Thread.sleep(INTERVAL_MILLIS);
+                if (betweenClasses) {
+                    sample();
+                } else {
+                    lastDetector = null;
+                }
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        }
+    }
+
+    private void sample() {
+        String detector = getReportingDetector(analysisThread.getStackTrace());
+        DetectorProfiler.Sample sample = DetectorProfiler.Sample.take(analysisThread.getId());
+        if ((detector != null) && detector.equals(lastDetector)) {
+            DetectorProfiler.recordReport(detector, lastSample, sample);
+        }
+        lastDetector = detector;
+        lastSample = sample;
+    }
+
+    /**
+     * finds the detector whose report is running, which is the detector2 that FindBugs called finishPass on, or for old style detectors, the detector
+     * whose report() the adapter called.
+     *
+     * @param stack
+     *            the stack of the analysis thread
+     * @return the class name of the reporting detector, or null if no detector is reporting
+     */
+    static String getReportingDetector(StackTraceElement... stack) {
+        for (int i = 1; i < stack.length; i++) {
+            StackTraceElement caller = stack[i];
+            if (FindBugs2.class.getName().equals(caller.getClassName()) && "analyzeApplication".equals(caller.getMethodName())) {
+                StackTraceElement finishPass = stack[i - 1];
+                if (!"finishPass".equals(finishPass.getMethodName())) {
+                    return null;
+                }
+                if (DetectorToDetector2Adapter.class.getName().equals(finishPass.getClassName())) {
+                    return ((i >= 2) && "report".equals(stack[i - 2].getMethodName())) ? stack[i - 2].getClassName() : null;
+                }
+                return finishPass.getClassName();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.detect;
+
+import com.mebigfatguy.fbcontrib.engine.SharedStackParticipant;
+import com.mebigfatguy.fbcontrib.engine.SharedStackScanner;
+
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.ba.ClassContext;
+
+/**
+ * a base detector class for detectors that only read the OpcodeStack, which are driven by the {@link SharedStackScanner} of the analysis rather than
+ * simulating the stack themselves. By default the detector looks at every class and every method.
+ */
+public abstract class AbstractSharedStackDetector implements SharedStackParticipant {
+    protected final BugReporter bugReporter;
+    private final SharedStackScanner scanner;
+
+    AbstractSharedStackDetector(BugReporter bugReporter) {
+        this.bugReporter = bugReporter;
+        scanner = SharedStackScanner.getInstance();
+        scanner.register(this, bugReporter);
+    }
+
+    /**
+     * implements the detector to have the shared scanner scan the class, if no other participant has done so already
+     *
+     * @param classContext
+     *            the context object of the currently parsed class
+     */
+    @Override
+    public void visitClassContext(ClassContext classContext) {
+        scanner.scan(classContext);
+    }
+
+    @Override
+    public boolean beginClass(ClassContext classContext) {
+        return true;
+    }
+
+    @Override
+    public boolean beginMethod(BytecodeScanningDetector dbc) {
+        return true;
+    }
+
+    @Override
+    public void endClass(ClassContext classContext) {
+        // nothing to finish by default
+    }
+
+    @Override
+    public void report() {
+        // bugs are reported as they are found
+    }
+}
@@ -19,10 +19,10 @@
 package com.mebigfatguy.fbcontrib.detect;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -38,14 +38,16 @@ import org.apache.bcel.classfile.LocalVariable;
 import org.apache.bcel.classfile.LocalVariableTable;
 import org.apache.bcel.classfile.Method;
 
-import com.mebigfatguy.fbcontrib.collect.MethodInfo;
 import com.mebigfatguy.fbcontrib.collect.Statistics;
+import com.mebigfatguy.fbcontrib.utils.AnalysisBudget;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
+import com.mebigfatguy.fbcontrib.utils.IntIntMap;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
 import com.mebigfatguy.fbcontrib.utils.RegisterUtils;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
+import com.mebigfatguy.fbcontrib.utils.StopOpcodeParsingException;
 import com.mebigfatguy.fbcontrib.utils.TernaryPatcher;
 import com.mebigfatguy.fbcontrib.utils.ToString;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
@@ -97,6 +99,8 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
 
     BugReporter bugReporter;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
+    private final AnalysisBudget budget = new AnalysisBudget(this);
     private BitSet ignoreRegs;
     private ScopeBlock rootScopeBlock;
     private BitSet tryBlocks;
@@ -132,6 +136,7 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
             switchTargets = new BitSet();
             monitorSyncPCs = new ArrayList<>(5);
             stack = new OpcodeStack();
+            budget.startClass(classContext);
             super.visitClassContext(classContext);
         } finally {
             ignoreRegs = null;
@@ -151,6 +156,10 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
      */
     @Override
     public void visitCode(Code obj) {
+        if (!budget.startMethod(this, obj)) {
+            return;
+        }
+
         try {
 
             ignoreRegs.clear();
@@ -180,10 +189,15 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
             dontReport = false;
             sawDup = false;
             sawNull = false;
-            super.visitCode(obj);
+            try {
+                super.visitCode(obj);
+            } catch (StopOpcodeParsingException e) {
+                // over the analysis budget, so the scope blocks are incomplete
+                dontReport = true;
+            }
 
             if (!dontReport) {
-                rootScopeBlock.findBugs(new HashSet<Integer>());
+                rootScopeBlock.findBugs(new BitSet());
             }
 
         } finally {
@@ -199,6 +213,8 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
      */
     @Override
     public void sawOpcode(int seen) {
+        budget.sawOpcode(this);
+
         UserObject uo = null;
         try {
             stack.precomputation(this);
@@ -237,9 +253,9 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
             sawDup = seen == Const.DUP;
             sawNull = seen == Const.ACONST_NULL;
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if ((uo != null) && (stack.getStackDepth() > 0)) {
                 OpcodeStack.Item item = stack.getStackItem(0);
                 item.setUserValue(uo);
@@ -488,9 +504,10 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
             return null;
         }
 
-        MethodInfo mi = Statistics.getStatistics().getMethodStatistics(getClassConstantOperand(), name, signature);
+        Statistics statistics = Statistics.getStatistics();
+        boolean modifiesState = statistics.getModifiesState(statistics.findMethod(getClassConstantOperand(), name, signature));
 
-        UserObject uo = new UserObject(getCallingObject(), mi.getModifiesState() || isRiskyMethodCall());
+        UserObject uo = new UserObject(getCallingObject(), modifiesState || isRiskyMethodCall());
 
         if (uo.caller != null) {
             ScopeBlock sb = findScopeBlock(rootScopeBlock, pc);
@@ -632,15 +649,13 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
             return null;
         }
 
-        if (sb.children != null) {
-            for (ScopeBlock child : sb.children) {
-                ScopeBlock foundSb = findScopeBlock(child, pc);
-                if (foundSb != null) {
-                    return foundSb;
-                }
-            }
+        ScopeBlock found = sb;
+        ScopeBlock child = found.findChildContaining(pc);
+        while (child != null) {
+            found = child;
+            child = found.findChildContaining(pc);
         }
-        return sb;
+        return found;
     }
 
     /**
@@ -656,6 +671,11 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
      * @return the scope block found or null
      */
     private ScopeBlock findScopeBlockWithTarget(ScopeBlock sb, int start, int target) {
+        if ((sb.getSubtreeStart() >= start) || (sb.getSubtreeFinish() < start)) {
+            // no block of this subtree opens before start and is still open at it
+            return null;
+        }
+
         ScopeBlock parentBlock = null;
         if ((sb.startLocation < start) && (sb.finishLocation >= start) && ((sb.finishLocation <= target) || (sb.isGoto() && !sb.isLoop()))) {
             parentBlock = sb;
@@ -750,7 +770,9 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
     }
 
     /**
-     * holds the description of a scope { } block, be it a for, if, while block
+     * holds the description of a scope { } block, be it a for, if, while block. Children are kept sorted by start pc, and indexed by their starts and the
+     * running maximum of their finishes, so that the child holding a pc is found with binary searches rather than by walking the children. Each block also
+     * caches the range its whole subtree spans. Both are rebuilt lazily once a block's range, or its children, change.
      */
     private class ScopeBlock {
         private ScopeBlock parent;
@@ -761,10 +783,17 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
         private boolean isSync;
         private boolean isTry;
         private boolean isCase;
-        private Map<Integer, Integer> loads;
-        private Map<Integer, Integer> stores;
+        private IntIntMap loads;
+        private IntIntMap stores;
         private Map<UserObject, Integer> assocs;
         private List<ScopeBlock> children;
+        private int[] childStarts;
+        private int[] childMaxFinishes;
+        private boolean childrenSorted;
+        private boolean boundsValid;
+        private int subtreeStart;
+        private int subtreeFinish;
+        private BitSet subtreeRegs;
 
         /**
          * constructs a new scope block
@@ -796,7 +825,7 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
          */
         @Override
         public String toString() {
-            return ToString.build(this, "parent");
+            return ToString.build(this, "parent", "childStarts", "childMaxFinishes");
         }
 
         /**
@@ -842,7 +871,9 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
          *            the start pc
          */
         public void setStart(int start) {
+            int oldStart = startLocation;
             startLocation = start;
+            rangeChanged(oldStart);
         }
 
         /**
@@ -853,6 +884,221 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
          */
         public void setFinish(int finish) {
             finishLocation = finish;
+            rangeChanged(startLocation);
+        }
+
+        /**
+         * returns the lowest start pc of this block and all its descendants
+         *
+         * @return the start of the subtree
+         */
+        public int getSubtreeStart() {
+            computeBounds();
+            return subtreeStart;
+        }
+
+        /**
+         * returns the highest finish pc of this block and all its descendants
+         *
+         * @return the finish of the subtree
+         */
+        public int getSubtreeFinish() {
+            computeBounds();
+            return subtreeFinish;
+        }
+
+        /**
+         * returns the first child, in order, whose range strictly holds a pc. The children that start before the pc are found with a binary search of their
+         * starts, and the first of those still open at the pc with another of the running maximum of their finishes.
+         *
+         * @param pc
+         *            the pc to look for
+         * @return the child holding the pc, or null if there is none
+         */
+        @Nullable
+        public ScopeBlock findChildContaining(int pc) {
+            if (children == null) {
+                return null;
+            }
+            if (childStarts == null) {
+                indexChildren();
+            }
+
+            if (!childrenSorted) {
+                for (ScopeBlock child : children) {
+                    if ((pc > child.startLocation) && (pc < child.finishLocation)) {
+                        return child;
+                    }
+                }
+                return null;
+            }
+
+            int limit = Arrays.binarySearch(childStarts, 0, children.size(), pc);
+            if (limit < 0) {
+                limit = -limit - 1;
+            } else {
+                while ((limit > 0) && (childStarts[limit - 1] == pc)) {
+                    limit--;
+                }
+            }
+
+            int low = 0;
+            int high = limit;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (childMaxFinishes[mid] > pc) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return (low < limit) ? children.get(low) : null;
+        }
+
+        private void indexChildren() {
+            int numChildren = children.size();
+            childStarts = new int[numChildren << 1];
+            childMaxFinishes = new int[numChildren << 1];
+            childrenSorted = true;
+            int maxFinish = Integer.MIN_VALUE;
+            for (int i = 0; i < numChildren; i++) {
+                ScopeBlock child = children.get(i);
+                childStarts[i] = child.startLocation;
+                if ((i > 0) && (childStarts[i] < childStarts[i - 1])) {
+                    childrenSorted = false;
+                }
+                maxFinish = Math.max(maxFinish, child.finishLocation);
+                childMaxFinishes[i] = maxFinish;
+            }
+        }
+
+        /**
+         * returns where a new child starting at a pc goes, which is before the first child that starts after it
+         */
+        private int findInsertionIndex(int start) {
+            if (childStarts == null) {
+                indexChildren();
+            }
+
+            int numChildren = children.size();
+            if (!childrenSorted) {
+                for (int i = 0; i < numChildren; i++) {
+                    if (start < children.get(i).startLocation) {
+                        return i;
+                    }
+                }
+                return numChildren;
+            }
+
+            int pos = Arrays.binarySearch(childStarts, 0, numChildren, start);
+            if (pos < 0) {
+                return -pos - 1;
+            }
+            while ((pos < numChildren) && (childStarts[pos] == start)) {
+                pos++;
+            }
+            return pos;
+        }
+
+        /**
+         * inserts a child at its sorted position, shifting the index of the children in place, rather than rebuilding it, as blocks are added to the root one
+         * after another
+         */
+        private void insertChild(int pos, ScopeBlock newChild) {
+            children.add(pos, newChild);
+            if ((childStarts != null) && childrenSorted) {
+                int numChildren = children.size();
+                if (numChildren > childStarts.length) {
+                    childStarts = Arrays.copyOf(childStarts, numChildren << 1);
+                    childMaxFinishes = Arrays.copyOf(childMaxFinishes, numChildren << 1);
+                }
+                System.arraycopy(childStarts, pos, childStarts, pos + 1, numChildren - pos - 1);
+                childStarts[pos] = newChild.startLocation;
+                int maxFinish = (pos > 0) ? childMaxFinishes[pos - 1] : Integer.MIN_VALUE;
+                for (int i = pos; i < numChildren; i++) {
+                    maxFinish = Math.max(maxFinish, children.get(i).finishLocation);
+                    childMaxFinishes[i] = maxFinish;
+                }
+            } else {
+                childStarts = null;
+                childMaxFinishes = null;
+            }
+            invalidateBounds();
+        }
+
+        private void computeBounds() {
+            if (boundsValid) {
+                return;
+            }
+
+            subtreeStart = startLocation;
+            subtreeFinish = finishLocation;
+            if (children != null) {
+                for (ScopeBlock child : children) {
+                    child.computeBounds();
+                    subtreeStart = Math.min(subtreeStart, child.subtreeStart);
+                    subtreeFinish = Math.max(subtreeFinish, child.subtreeFinish);
+                }
+            }
+            boundsValid = true;
+        }
+
+        private void rangeChanged(int oldStart) {
+            if (parent != null) {
+                parent.reindexChild(this, oldStart);
+            }
+            invalidateBounds();
+        }
+
+        /**
+         * updates the index entry of a child whose range changed, or drops the index if the child can't be found by its old start, or no longer sorts in
+         * place
+         */
+        private void reindexChild(ScopeBlock child, int oldStart) {
+            if ((childStarts == null) || !childrenSorted) {
+                return;
+            }
+
+            int numChildren = children.size();
+            int pos = Arrays.binarySearch(childStarts, 0, numChildren, oldStart);
+            if (pos >= 0) {
+                while ((pos > 0) && (childStarts[pos - 1] == oldStart)) {
+                    pos--;
+                }
+                while ((pos < numChildren) && (childStarts[pos] == oldStart) && (children.get(pos) != child)) {
+                    pos++;
+                }
+            }
+
+            if ((pos < 0) || (pos >= numChildren) || (children.get(pos) != child) || ((pos > 0) && (childStarts[pos - 1] > child.startLocation))
+                    || ((pos < (numChildren - 1)) && (childStarts[pos + 1] < child.startLocation))) {
+                childStarts = null;
+                childMaxFinishes = null;
+                return;
+            }
+
+            childStarts[pos] = child.startLocation;
+            int maxFinish = (pos > 0) ? childMaxFinishes[pos - 1] : Integer.MIN_VALUE;
+            for (int i = pos; i < numChildren; i++) {
+                maxFinish = Math.max(maxFinish, children.get(i).finishLocation);
+                childMaxFinishes[i] = maxFinish;
+            }
+        }
+
+        private void childrenChanged() {
+            childStarts = null;
+            childMaxFinishes = null;
+            invalidateBounds();
+        }
+
+        /**
+         * marks the bounds of this block and its ancestors as stale. A block's bounds are only computed after those of its children, so once a stale block is
+         * reached, its ancestors are stale already.
+         */
+        private void invalidateBounds() {
+            for (ScopeBlock sb = this; (sb != null) && sb.boundsValid; sb = sb.parent) {
+                sb.boundsValid = false;
+            }
         }
 
         public boolean hasChildren() {
@@ -951,10 +1197,10 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
          */
         public void addStore(int reg, int pc, UserObject assocObject) {
             if (stores == null) {
-                stores = new HashMap<>(6);
+                stores = new IntIntMap();
             }
 
-            stores.put(Integer.valueOf(reg), Integer.valueOf(pc));
+            stores.put(reg, pc);
 
             if (assocObject != null) {
                 if (assocs == null) {
@@ -975,10 +1221,10 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
                 Integer reg = assocs.remove(assocObject);
                 if (reg != null) {
                     if (loads != null) {
-                        loads.remove(reg);
+                        loads.remove(reg.intValue());
                     }
                     if (stores != null) {
-                        stores.remove(reg);
+                        stores.remove(reg.intValue());
                     }
                 }
             }
@@ -994,10 +1240,10 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
          */
         public void addLoad(int reg, int pc) {
             if (loads == null) {
-                loads = new HashMap<>(10);
+                loads = new IntIntMap();
             }
 
-            loads.put(Integer.valueOf(reg), Integer.valueOf(pc));
+            loads.put(reg, pc);
         }
 
         /**
@@ -1010,28 +1256,20 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
             newChild.parent = this;
 
             if (children != null) {
-                for (ScopeBlock child : children) {
-                    if ((newChild.startLocation > child.startLocation) && (newChild.startLocation < child.finishLocation)) {
-                        if (newChild.finishLocation > child.finishLocation) {
-                            newChild.finishLocation = child.finishLocation;
-                        }
-                        child.addChild(newChild);
-                        return;
+                ScopeBlock child = findChildContaining(newChild.startLocation);
+                if (child != null) {
+                    if (newChild.finishLocation > child.finishLocation) {
+                        newChild.finishLocation = child.finishLocation;
                     }
+                    child.addChild(newChild);
+                    return;
                 }
-                int pos = 0;
-                for (ScopeBlock child : children) {
-                    if (newChild.startLocation < child.startLocation) {
-                        children.add(pos, newChild);
-                        return;
-                    }
-                    pos++;
-                }
+                insertChild(findInsertionIndex(newChild.startLocation), newChild);
+            } else {
+                children = new ArrayList<>();
                 children.add(newChild);
-                return;
+                childrenChanged();
             }
-            children = new ArrayList<>();
-            children.add(newChild);
         }
 
         /**
@@ -1041,8 +1279,8 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
          *            the child to remove
          */
         public void removeChild(ScopeBlock child) {
-            if (children != null) {
-                children.remove(child);
+            if ((children != null) && children.remove(child)) {
+                childrenChanged();
             }
         }
 
@@ -1053,7 +1291,7 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
                     if ((uo.registerSource == sourceReg) || ((uo.caller instanceof Integer) && (((Integer) uo.caller).intValue() == sourceReg))) {
                         Integer preWrittenFromField = entry.getValue();
                         if ((preWrittenFromField != null) && (stores != null)) {
-                            stores.remove(preWrittenFromField);
+                            stores.remove(preWrittenFromField.intValue());
                         }
                     }
                 }
@@ -1066,33 +1304,31 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
          * @param parentUsedRegs
          *            the set of registers that where used by the parent scope block
          */
-        public void findBugs(Set<Integer> parentUsedRegs) {
+        public void findBugs(BitSet parentUsedRegs) {
             if (isLoop) {
                 return;
             }
 
-            Set<Integer> usedRegs = new HashSet<>(parentUsedRegs);
+            BitSet usedRegs = (BitSet) parentUsedRegs.clone();
             if (stores != null) {
-                usedRegs.addAll(stores.keySet());
+                stores.addKeysTo(usedRegs);
             }
             if (loads != null) {
-                usedRegs.addAll(loads.keySet());
+                loads.addKeysTo(usedRegs);
             }
 
             if (stores != null) {
                 if (loads != null) {
-                    stores.keySet().removeAll(loads.keySet());
-                }
-                stores.keySet().removeAll(parentUsedRegs);
-                for (int r = ignoreRegs.nextSetBit(0); r >= 0; r = ignoreRegs.nextSetBit(r + 1)) {
-                    stores.remove(Integer.valueOf(r));
+                    stores.removeAll(loads);
                 }
+                stores.removeAll(parentUsedRegs);
+                stores.removeAll(ignoreRegs);
 
                 if ((children != null) && !stores.isEmpty()) {
-                    for (Map.Entry<Integer, Integer> entry : stores.entrySet()) {
+                    for (int i = 0; i < stores.size(); i++) {
                         int childUseCount = 0;
                         boolean inIgnoreSB = false;
-                        Integer reg = entry.getKey();
+                        int reg = stores.keyAt(i);
                         for (ScopeBlock child : children) {
                             if (child.usesReg(reg)) {
                                 if (child.isLoop || child.isSync() || child.isTry()) {
@@ -1106,7 +1342,7 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
                             if (appearsToBeUserRegister(reg)) {
                                 bugReporter.reportBug(new BugInstance(BloatedAssignmentScope.this, BugType.BAS_BLOATED_ASSIGNMENT_SCOPE.name(), NORMAL_PRIORITY)
                                         .addClass(BloatedAssignmentScope.this).addMethod(BloatedAssignmentScope.this)
-                                        .addSourceLine(BloatedAssignmentScope.this, entry.getValue().intValue()));
+                                        .addSourceLine(BloatedAssignmentScope.this, stores.valueAt(i)));
                             }
                         }
                     }
@@ -1140,30 +1376,34 @@ public class BloatedAssignmentScope extends BytecodeScanningDetector {
         }
 
         /**
-         * returns whether this block either loads or stores into the register in question
+         * returns whether this block, or any block within it, either loads or stores into the register in question. The registers of the subtree are gathered
+         * on first use, which is only once the tree is complete, and before findBugs has trimmed the stores of this subtree.
          *
          * @param reg
          *            the register to look for loads or stores
          *
          * @return whether the block uses the register
          */
-        public boolean usesReg(Integer reg) {
-            if ((loads != null) && loads.containsKey(reg)) {
-                return true;
-            }
-            if ((stores != null) && stores.containsKey(reg)) {
-                return true;
-            }
+        public boolean usesReg(int reg) {
+            return getSubtreeRegs().get(reg);
+        }
 
-            if (children != null) {
-                for (ScopeBlock child : children) {
-                    if (child.usesReg(reg)) {
-                        return true;
+        private BitSet getSubtreeRegs() {
+            if (subtreeRegs == null) {
+                subtreeRegs = new BitSet();
+                if (loads != null) {
+                    loads.addKeysTo(subtreeRegs);
+                }
+                if (stores != null) {
+                    stores.addKeysTo(subtreeRegs);
+                }
+                if (children != null) {
+                    for (ScopeBlock child : children) {
+                        subtreeRegs.or(child.getSubtreeRegs());
                     }
                 }
             }
-
-            return false;
+            return subtreeRegs;
         }
 
         /**
@@ -26,7 +26,6 @@ import org.apache.bcel.Const;
 import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.Method;
 
-import com.mebigfatguy.fbcontrib.collect.MethodInfo;
 import com.mebigfatguy.fbcontrib.collect.Statistics;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
@@ -138,8 +137,8 @@ public class BloatedSynchronizedBlock extends BytecodeScanningDetector {
             if ((seen == Const.INVOKEVIRTUAL) || (seen == Const.INVOKESPECIAL) || (seen == Const.INVOKEINTERFACE) || (seen == Const.INVOKEDYNAMIC)) {
                 String methodSig = getSigConstantOperand();
 
-                MethodInfo mi = Statistics.getStatistics().getMethodStatistics(getClassConstantOperand(), getNameConstantOperand(), methodSig);
-                if (mi.getModifiesState()) {
+                Statistics statistics = Statistics.getStatistics();
+                if (statistics.getModifiesState(statistics.findMethod(getClassConstantOperand(), getNameConstantOperand(), methodSig))) {
                     unsafeCallOccurred = true;
                 } else {
                     if (!Values.SIG_VOID.equals(SignatureUtils.getReturnSignature(methodSig))) {
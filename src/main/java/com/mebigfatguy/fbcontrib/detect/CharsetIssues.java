@@ -29,6 +29,8 @@ import java.util.Set;
 import org.apache.bcel.Const;
 import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.engine.MethodMatcher;
+import com.mebigfatguy.fbcontrib.engine.MethodTable;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 import com.mebigfatguy.fbcontrib.utils.PublicAPI;
@@ -42,6 +44,7 @@ import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
 import edu.umd.cs.findbugs.OpcodeStack;
 import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 
 /**
  * looks for issues related to manually specified charsets by using string literals.
@@ -52,6 +55,8 @@ public class CharsetIssues extends BytecodeScanningDetector {
 
     private static final Map<FQMethod, Integer> REPLACEABLE_ENCODING_METHODS;
     private static final Map<FQMethod, Integer> UNREPLACEABLE_ENCODING_METHODS;
+    private static final MethodTable<Integer> REPLACEABLE_ENCODING_TABLE;
+    private static final MethodTable<Integer> UNREPLACEABLE_ENCODING_TABLE;
     public static final Set<String> STANDARD_JDK7_ENCODINGS = UnmodifiableSet.create("US-ASCII", "ISO-8859-1", "UTF-8", "UTF-16BE", "UTF-16LE", "UTF-16");
 
     /*
@@ -152,10 +157,15 @@ public class CharsetIssues extends BytecodeScanningDetector {
                 Values.ZERO);
 
         UNREPLACEABLE_ENCODING_METHODS = Collections.unmodifiableMap(unreplaceable);
+
+        REPLACEABLE_ENCODING_TABLE = new MethodTable<>(REPLACEABLE_ENCODING_METHODS);
+        UNREPLACEABLE_ENCODING_TABLE = new MethodTable<>(UNREPLACEABLE_ENCODING_METHODS);
     }
 
     private final BugReporter bugReporter;
     private OpcodeStack stack;
+    private MethodMatcher<Integer> replaceableEncodingMethods;
+    private MethodMatcher<Integer> unreplaceableEncodingMethods;
     private int classVersion;
 
     /**
@@ -179,11 +189,17 @@ public class CharsetIssues extends BytecodeScanningDetector {
         try {
             classVersion = classContext.getJavaClass().getMajor();
             if (classVersion >= Const.MAJOR_1_4) {
+                replaceableEncodingMethods = REPLACEABLE_ENCODING_TABLE.resolve(classContext);
+                unreplaceableEncodingMethods = UNREPLACEABLE_ENCODING_TABLE.resolve(classContext);
                 stack = new OpcodeStack();
                 super.visitClassContext(classContext);
             }
+        } catch (CheckedAnalysisException e) {
+            bugReporter.logError("Failed to resolve encoding methods for " + classContext.getJavaClass().getClassName(), e);
         } finally {
             stack = null;
+            replaceableEncodingMethods = null;
+            unreplaceableEncodingMethods = null;
         }
     }
 
@@ -220,8 +236,7 @@ public class CharsetIssues extends BytecodeScanningDetector {
                     String className = getClassConstantOperand();
                     String methodName = getNameConstantOperand();
                     String methodSig = getSigConstantOperand();
-                    FQMethod methodInfo = new FQMethod(className, methodName, methodSig);
-                    Integer stackOffset = REPLACEABLE_ENCODING_METHODS.get(methodInfo);
+                    Integer stackOffset = replaceableEncodingMethods.get(this);
                     if (stackOffset != null) {
                         int offset = stackOffset.intValue();
                         if (stack.getStackDepth() > offset) {
@@ -240,7 +255,7 @@ public class CharsetIssues extends BytecodeScanningDetector {
                             }
                         }
                     } else {
-                        Integer offsetValue = UNREPLACEABLE_ENCODING_METHODS.get(methodInfo);
+                        Integer offsetValue = unreplaceableEncodingMethods.get(this);
                         if (offsetValue != null) {
                             int offset = offsetValue.intValue();
                             if (stack.getStackDepth() > offset) {
@@ -32,6 +32,7 @@ import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.LineNumberTable;
 import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
@@ -373,9 +374,8 @@ public class ClassEnvy extends BytecodeScanningDetector {
         }
 
         try {
-            JavaClass cls = Repository.lookupClass(className);
-            JavaClass[] infs = cls.getAllInterfaces();
-            for (JavaClass inf : infs) {
+            ClassHierarchy hierarchy = ClassHierarchy.getInstance();
+            for (JavaClass inf : hierarchy.getAllInterfaces(className)) {
                 String infName = inf.getClassName();
                 if ("java.io.Serializable".equals(infName) || "java.lang.Cloneable".equals(infName) || "java.lang.Comparable".equals(infName)
                         || "java.lang.Runnable".equals(infName)) {
@@ -385,8 +385,7 @@ public class ClassEnvy extends BytecodeScanningDetector {
                     return true;
                 }
             }
-            JavaClass[] sups = cls.getSuperClasses();
-            for (JavaClass sup : sups) {
+            for (JavaClass sup : hierarchy.getSuperClasses(className)) {
                 String supName = sup.getClassName();
                 if (Values.DOTTED_JAVA_LANG_OBJECT.equals(supName) || Values.DOTTED_JAVA_LANG_EXCEPTION.equals(supName)
                         || Values.DOTTED_JAVA_LANG_RUNTIMEEXCEPTION.equals(supName) || "java.lang.Throwable".equals(supName)) {
@@ -25,6 +25,8 @@ import java.util.Map;
 import org.apache.bcel.Const;
 import org.apache.bcel.classfile.Code;
 
+import com.mebigfatguy.fbcontrib.engine.MethodMatcher;
+import com.mebigfatguy.fbcontrib.engine.MethodTable;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
@@ -37,6 +39,7 @@ import edu.umd.cs.findbugs.BytecodeScanningDetector;
 import edu.umd.cs.findbugs.OpcodeStack;
 import edu.umd.cs.findbugs.OpcodeStack.CustomUserValue;
 import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 
 /**
  * looks for methods that perform arithmetic operations on values representing time where the time unit is incompatible, ie adding a millisecond value to a
@@ -49,7 +52,7 @@ public class ConflictingTimeUnits extends BytecodeScanningDetector {
         NANOS, MICROS, MILLIS, SECONDS, MINUTES, HOURS, DAYS, CALLER
     };
 
-    private static final Map<FQMethod, Units> TIME_UNIT_GENERATING_METHODS;
+    private static final MethodTable<Units> TIME_UNIT_GENERATING_METHODS;
 
     static {
         String voidToLong = new SignatureBuilder().withReturnType(Values.SIG_PRIMITIVE_LONG).toString();
@@ -115,7 +118,7 @@ public class ConflictingTimeUnits extends BytecodeScanningDetector {
         tugm.put(new FQMethod("java/time/LocalTime", "getSecond", SignatureBuilder.SIG_VOID_TO_INT), Units.SECONDS);
         tugm.put(new FQMethod("java/time/LocalTime", "toNanoOfDay", voidToLong), Units.NANOS);
         tugm.put(new FQMethod("java/time/LocalTime", "toSecondOfDay", SignatureBuilder.SIG_VOID_TO_INT), Units.SECONDS);
-        TIME_UNIT_GENERATING_METHODS = Collections.<FQMethod, Units> unmodifiableMap(tugm);
+        TIME_UNIT_GENERATING_METHODS = new MethodTable<>(tugm);
     }
 
     private static final Map<String, Units> TIMEUNIT_TO_UNITS;
@@ -134,6 +137,7 @@ public class ConflictingTimeUnits extends BytecodeScanningDetector {
 
     private BugReporter bugReporter;
     private OpcodeStack stack;
+    private MethodMatcher<Units> timeUnitGeneratingMethods;
 
     /**
      * constructs a CTU detector given the reporter to report bugs on
@@ -154,10 +158,14 @@ public class ConflictingTimeUnits extends BytecodeScanningDetector {
     @Override
     public void visitClassContext(ClassContext classContext) {
         try {
+            timeUnitGeneratingMethods = TIME_UNIT_GENERATING_METHODS.resolve(classContext);
             stack = new OpcodeStack();
             super.visitClassContext(classContext);
+        } catch (CheckedAnalysisException e) {
+            bugReporter.logError("Failed to resolve time unit methods for " + classContext.getJavaClass().getClassName(), e);
         } finally {
             stack = null;
+            timeUnitGeneratingMethods = null;
         }
     }
 
@@ -230,11 +238,9 @@ public class ConflictingTimeUnits extends BytecodeScanningDetector {
     }
 
     private Units processInvoke() {
-        String signature = getSigConstantOperand();
-        FQMethod methodCall = new FQMethod(getClassConstantOperand(), getNameConstantOperand(), signature);
-        Units unit = TIME_UNIT_GENERATING_METHODS.get(methodCall);
+        Units unit = timeUnitGeneratingMethods.get(this);
         if (unit == Units.CALLER) {
-            int offset = SignatureUtils.getNumParameters(signature);
+            int offset = SignatureUtils.getNumParameters(getSigConstantOperand());
             if (stack.getStackDepth() > offset) {
                 OpcodeStack.Item item = stack.getStackItem(offset);
                 unit = (Units) item.getUserValue();
@@ -20,7 +20,7 @@ package com.mebigfatguy.fbcontrib.detect;
 
 import java.util.Set;
 
-import org.apache.bcel.classfile.Code;
+import org.apache.bcel.Const;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
@@ -30,7 +30,6 @@ import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
 import edu.umd.cs.findbugs.OpcodeStack;
-import edu.umd.cs.findbugs.ba.ClassContext;
 
 /**
  *
@@ -38,7 +37,7 @@ import edu.umd.cs.findbugs.ba.ClassContext;
  * one item, the array itself.
  *
  */
-public class ConfusingArrayAsList extends BytecodeScanningDetector {
+public class ConfusingArrayAsList extends AbstractSharedStackDetector {
 
     private static final Set<String> PRIMITIVE_ARRAYS = UnmodifiableSet.create(Values.SIG_ARRAY_OF_ARRAYS_PREFIX + Values.SIG_PRIMITIVE_BYTE,
             Values.SIG_ARRAY_OF_ARRAYS_PREFIX + Values.SIG_PRIMITIVE_CHAR, Values.SIG_ARRAY_OF_ARRAYS_PREFIX + Values.SIG_PRIMITIVE_SHORT,
@@ -46,9 +45,6 @@ public class ConfusingArrayAsList extends BytecodeScanningDetector {
             Values.SIG_ARRAY_OF_ARRAYS_PREFIX + Values.SIG_PRIMITIVE_FLOAT, Values.SIG_ARRAY_OF_ARRAYS_PREFIX + Values.SIG_PRIMITIVE_DOUBLE,
             Values.SIG_ARRAY_OF_ARRAYS_PREFIX + Values.SIG_PRIMITIVE_BOOLEAN);
 
-    private BugReporter bugReporter;
-    private OpcodeStack stack;
-
     /**
      * constructs a CAAL detector given the reporter to report bugs on
      *
@@ -56,67 +52,37 @@ public class ConfusingArrayAsList extends BytecodeScanningDetector {
      *            the sync of bug reports
      */
     public ConfusingArrayAsList(BugReporter bugReporter) {
-        this.bugReporter = bugReporter;
-    }
-
-    /**
-     * implements the visitor to create and teardown the opcode stack
-     *
-     * @param classContext
-     *            the context object of the currently parsed class
-     */
-    @Override
-    public void visitClassContext(ClassContext classContext) {
-        try {
-            stack = new OpcodeStack();
-            super.visitClassContext(classContext);
-        } finally {
-            stack = null;
-        }
-    }
-
-    /**
-     * implements the visitor to clear the opcode stack
-     *
-     * @param obj
-     *            the currently code block
-     */
-    @Override
-    public void visitCode(Code obj) {
-        stack.resetForMethodEntry(this);
-        super.visitCode(obj);
+        super(bugReporter);
     }
 
     /**
      * implements the visitor to find calls to Arrays.asList with a primitive array
      *
+     * @param dbc
+     *            the shared visitor, positioned on the opcode
+     * @param stack
+     *            the shared stack, before the opcode executes
      * @param seen
      *            the currently visitor opcode
      */
     @Override
-    public void sawOpcode(int seen) {
-        try {
-            stack.precomputation(this);
-
-            if (seen == INVOKESTATIC) {
-                String clsName = getClassConstantOperand();
-                if ("java/util/Arrays".equals(clsName)) {
-                    String methodName = getNameConstantOperand();
-                    if ("asList".equals(methodName) && (stack.getStackDepth() >= 1)) {
-                        OpcodeStack.Item item = stack.getStackItem(0);
-                        String sig = item.getSignature();
-                        if (PRIMITIVE_ARRAYS.contains(sig)) {
-                            Object con = item.getConstant();
-                            if (!(con instanceof Integer) || (((Integer) con).intValue() <= 1)) {
-                                bugReporter.reportBug(new BugInstance(this, BugType.CAAL_CONFUSING_ARRAY_AS_LIST.name(), NORMAL_PRIORITY).addClass(this)
-                                        .addMethod(this).addSourceLine(this));
-                            }
+    public void sawOpcode(BytecodeScanningDetector dbc, OpcodeStack stack, int seen) {
+        if (seen == Const.INVOKESTATIC) {
+            String clsName = dbc.getClassConstantOperand();
+            if ("java/util/Arrays".equals(clsName)) {
+                String methodName = dbc.getNameConstantOperand();
+                if ("asList".equals(methodName) && (stack.getStackDepth() >= 1)) {
+                    OpcodeStack.Item item = stack.getStackItem(0);
+                    String sig = item.getSignature();
+                    if (PRIMITIVE_ARRAYS.contains(sig)) {
+                        Object con = item.getConstant();
+                        if (!(con instanceof Integer) || (((Integer) con).intValue() <= 1)) {
+                            bugReporter.reportBug(new BugInstance(this, BugType.CAAL_CONFUSING_ARRAY_AS_LIST.name(), NORMAL_PRIORITY).addClass(dbc)
+                                    .addMethod(dbc).addSourceLine(dbc));
                         }
                     }
                 }
             }
-        } finally {
-            stack.sawOpcode(this, seen);
         }
     }
 }
@@ -18,23 +18,17 @@
  */
 package com.mebigfatguy.fbcontrib.detect;
 
-import java.util.BitSet;
-import java.util.Iterator;
-
 import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.collect.Statistics;
+import com.mebigfatguy.fbcontrib.engine.MethodMetrics;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.Detector;
-import edu.umd.cs.findbugs.ba.BasicBlock;
-import edu.umd.cs.findbugs.ba.CFG;
-import edu.umd.cs.findbugs.ba.CFGBuilderException;
 import edu.umd.cs.findbugs.ba.ClassContext;
-import edu.umd.cs.findbugs.ba.Edge;
-import edu.umd.cs.findbugs.ba.EdgeTypes;
 import edu.umd.cs.findbugs.visitclass.PreorderVisitor;
 
 /**
@@ -86,75 +80,43 @@ public class CyclomaticComplexity extends PreorderVisitor implements Detector {
     }
 
     /**
-     * overrides the visitor to navigate the basic block list to count branches
+     * overrides the visitor to count the branches of the method, as measured by {@link MethodMetrics} in the first pass, or here for methods that weren't
+     * collected
      *
      * @param obj
      *            the method of the currently parsed method
      */
     @Override
     public void visitMethod(final Method obj) {
-        try {
-
-            if (obj.isSynthetic()) {
-                return;
-            }
-
-            Code code = obj.getCode();
-            if (code == null) {
-                return;
-            }
-
-            // There really is no valid relationship between reportLimit and
-            // code
-            // length, but it is good enough. If the method is small, don't
-            // bother
-            if (code.getCode().length < (2 * reportLimit)) {
-                return;
-            }
+        if (obj.isSynthetic()) {
+            return;
+        }
 
-            BitSet exceptionNodeTargets = new BitSet();
+        Code code = obj.getCode();
+        if (code == null) {
+            return;
+        }
 
-            CFG cfg = classContext.getCFG(obj);
-            int branches = 0;
-            Iterator<BasicBlock> bbi = cfg.blockIterator();
-            while (bbi.hasNext()) {
-                BasicBlock bb = bbi.next();
-                Iterator<Edge> iei = cfg.outgoingEdgeIterator(bb);
-                int lastSwitchTargetBlockLabel = Integer.MIN_VALUE;
-                while (iei.hasNext()) {
-                    Edge e = iei.next();
-                    int edgeType = e.getType();
-                    if ((edgeType != EdgeTypes.FALL_THROUGH_EDGE) && (edgeType != EdgeTypes.RETURN_EDGE) && (edgeType != EdgeTypes.UNKNOWN_EDGE)) {
-                        if ((edgeType == EdgeTypes.UNHANDLED_EXCEPTION_EDGE) || (edgeType == EdgeTypes.HANDLED_EXCEPTION_EDGE)) {
-                            int nodeTarget = e.getTarget().getLabel();
-                            if (!exceptionNodeTargets.get(nodeTarget)) {
-                                exceptionNodeTargets.set(nodeTarget);
-                                branches++;
-                            }
-                        } else if ((edgeType == EdgeTypes.SWITCH_EDGE) || (edgeType == EdgeTypes.SWITCH_DEFAULT_EDGE)) {
-                            int nodeTarget = e.getTarget().getLabel();
-                            if (nodeTarget != lastSwitchTargetBlockLabel) {
-                                branches++;
-                            }
-                            lastSwitchTargetBlockLabel = nodeTarget;
-                        } else {
-                            branches++;
-                        }
-                    }
-                }
-            }
+        // There really is no valid relationship between reportLimit and
+        // code
+        // length, but it is good enough. If the method is small, don't
+        // bother
+        if (code.getCode().length < (2 * reportLimit)) {
+            return;
+        }
 
-            if (branches > reportLimit) {
+        Statistics statistics = Statistics.getStatistics();
+        int branches = statistics.getCyclomaticComplexity(statistics.findMethod(getClassName(), obj.getName(), obj.getSignature()));
+        if (branches == 0) {
+            branches = MethodMetrics.compute(code).getCyclomaticComplexity();
+        }
+        if (branches > reportLimit) {
 
-                int priority = (branches > (reportLimit * 2) ? HIGH_PRIORITY : NORMAL_PRIORITY);
-                BugInstance bug = new BugInstance(this, BugType.CC_CYCLOMATIC_COMPLEXITY.name(), priority).addClass(this).addMethod(this)
-                        .addSourceLine(classContext, this, 0).addInt(branches);
+            int priority = (branches > (reportLimit * 2) ? HIGH_PRIORITY : NORMAL_PRIORITY);
+            BugInstance bug = new BugInstance(this, BugType.CC_CYCLOMATIC_COMPLEXITY.name(), priority).addClass(this).addMethod(this)
+                    .addSourceLine(classContext, this, 0).addInt(branches);
 
-                bugReporter.reportBug(bug);
-            }
-        } catch (CFGBuilderException cbe) {
-            bugReporter.logError("Failure examining basic blocks for method " + classContext.getJavaClass().getClassName() + '.' + obj.getName()
-                    + " in Cyclomatic Complexity detector", cbe);
+            bugReporter.reportBug(bug);
         }
     }
 }
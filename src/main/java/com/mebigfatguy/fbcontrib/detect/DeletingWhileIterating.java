@@ -35,6 +35,7 @@ import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.LocalVariable;
 import org.apache.bcel.classfile.LocalVariableTable;
 
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.CodeByteUtils;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
@@ -63,24 +64,9 @@ import edu.umd.cs.findbugs.internalAnnotations.SlashedClassName;
  */
 @CustomUserValue
 public class DeletingWhileIterating extends AbstractCollectionScanningDetector {
-    private static JavaClass iteratorClass;
-    private static Set<JavaClass> exceptionClasses;
-
-    static {
-        try {
-            iteratorClass = Repository.lookupClass("java/util/Iterator");
-        } catch (ClassNotFoundException cnfe) {
-            iteratorClass = null;
-        }
-
-        try {
-            exceptionClasses = new HashSet<>(2);
-            exceptionClasses.add(Repository.lookupClass("java/util/concurrent/CopyOnWriteArrayList"));
-            exceptionClasses.add(Repository.lookupClass("java/util/concurrent/CopyOnWriteArraySet"));
-        } catch (ClassNotFoundException cnfe) {
-            // don't have a bugReporter yet, so do nothing
-        }
-    }
+    private static final String ITERATOR_CLASS = "java/util/Iterator";
+    private static final Set<String> exceptionClasses = UnmodifiableSet.create("java.util.concurrent.CopyOnWriteArrayList",
+            "java.util.concurrent.CopyOnWriteArraySet");
 
     private static final Set<QMethod> collectionMethods = UnmodifiableSet.create(
             new QMethod("entrySet", new SignatureBuilder().withReturnType(Values.SLASHED_JAVA_UTIL_SET).toString()),
@@ -106,6 +92,7 @@ public class DeletingWhileIterating extends AbstractCollectionScanningDetector {
     private static final QMethod REMOVE = new QMethod("remove", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN);
     private static final QMethod HASNEXT = new QMethod("hasNext", SignatureBuilder.SIG_VOID_TO_BOOLEAN);
 
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private List<GroupPair> collectionGroups;
     private Map<Integer, Integer> groupToIterator;
     private Map<Integer, Loop> loops;
@@ -129,7 +116,7 @@ public class DeletingWhileIterating extends AbstractCollectionScanningDetector {
      */
     @Override
     public void visitClassContext(ClassContext classContext) {
-        if ((collectionClass == null) || (iteratorClass == null)) {
+        if (collectionClass == null) {
             return;
         }
 
@@ -262,7 +249,7 @@ public class DeletingWhileIterating extends AbstractCollectionScanningDetector {
 
                         try {
                             JavaClass cls = itm.getJavaClass();
-                            if ((cls != null) && cls.implementationOf(iteratorClass)) {
+                            if ((cls != null) && cls.implementationOf(ClassHierarchy.getInstance().lookupClass(ITERATOR_CLASS))) {
                                 Integer regIt = Integer.valueOf(reg);
                                 Iterator<Integer> curIt = groupToIterator.values().iterator();
                                 while (curIt.hasNext()) {
@@ -321,9 +308,9 @@ public class DeletingWhileIterating extends AbstractCollectionScanningDetector {
                 }
             }
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if ((groupId >= 0) && (stack.getStackDepth() > 0)) {
                 OpcodeStack.Item itm = stack.getStackItem(0);
                 itm.setUserValue(Integer.valueOf(groupId));
@@ -406,7 +393,7 @@ public class DeletingWhileIterating extends AbstractCollectionScanningDetector {
     private boolean isCollection(@SlashedClassName String className) {
         try {
             JavaClass cls = Repository.lookupClass(className);
-            return cls.implementationOf(collectionClass) && !exceptionClasses.contains(cls);
+            return cls.implementationOf(collectionClass) && !exceptionClasses.contains(cls.getClassName());
         } catch (ClassNotFoundException cnfe) {
             bugReporter.reportMissingClass(cnfe);
             return false;
@@ -20,9 +20,9 @@ package com.mebigfatguy.fbcontrib.detect;
 
 import org.apache.bcel.Const;
 import org.apache.bcel.Repository;
-import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.JavaClass;
 
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
 import com.mebigfatguy.fbcontrib.utils.Values;
@@ -31,31 +31,13 @@ import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
 import edu.umd.cs.findbugs.OpcodeStack;
-import edu.umd.cs.findbugs.ba.ClassContext;
 import edu.umd.cs.findbugs.internalAnnotations.SlashedClassName;
 
 /**
  * looks for uses of sets or keySets of maps that contain other collections. As collection typically implement hashCode, equals and compareTo by iterating the
  * contents of the collection this can be costly from a performance point of view.
  */
-public class DubiousSetOfCollections extends BytecodeScanningDetector {
-
-    private static JavaClass collectionCls;
-    private static JavaClass setCls;
-    private static JavaClass mapCls;
-
-    static {
-        try {
-            collectionCls = Repository.lookupClass(Values.SLASHED_JAVA_UTIL_COLLECTION);
-            setCls = Repository.lookupClass(Values.SLASHED_JAVA_UTIL_SET);
-            mapCls = Repository.lookupClass(Values.SLASHED_JAVA_UTIL_MAP);
-        } catch (ClassNotFoundException cnfe) {
-            // np bugReporter yet, so ignore
-        }
-    }
-
-    private final BugReporter bugReporter;
-    private OpcodeStack stack;
+public class DubiousSetOfCollections extends AbstractSharedStackDetector {
 
     /**
      * constructs a DSOC detector given the reporter to report bugs on
@@ -64,80 +46,48 @@ public class DubiousSetOfCollections extends BytecodeScanningDetector {
      *            the sync of bug reports
      */
     public DubiousSetOfCollections(final BugReporter bugReporter) {
-        this.bugReporter = bugReporter;
-    }
-
-    /**
-     * implement the visitor to set up the opcode stack, and make sure that collection, set and map classes could be loaded.
-     *
-     * @param clsContext
-     *            the context object of the currently parsed class
-     */
-    @Override
-    public void visitClassContext(ClassContext clsContext) {
-        try {
-            if ((collectionCls == null) || (setCls == null) || (mapCls == null)) {
-                return;
-            }
-
-            stack = new OpcodeStack();
-            super.visitClassContext(clsContext);
-        } finally {
-            stack = null;
-        }
-    }
-
-    /**
-     * implements the visitor to reset the opcode stack
-     *
-     * @param code
-     *            the context object of the currently parsed code block
-     */
-    @Override
-    public void visitCode(Code code) {
-        stack.resetForMethodEntry(this);
-        super.visitCode(code);
+        super(bugReporter);
     }
 
     /**
      * implements the visitor look for adds to sets or puts to maps where the element to be added is a collection.
      *
+     * @param dbc
+     *            the shared visitor, positioned on the opcode
+     * @param stack
+     *            the shared stack, before the opcode executes
      * @param seen
      *            the opcode of the currently parsed instruction
      */
     @Override
-    public void sawOpcode(int seen) {
+    public void sawOpcode(BytecodeScanningDetector dbc, OpcodeStack stack, int seen) {
         try {
-            stack.precomputation(this);
-
             if ((seen == Const.INVOKEVIRTUAL) || (seen == Const.INVOKEINTERFACE)) {
-                String clsName = getClassConstantOperand();
-                String methodName = getNameConstantOperand();
-                String signature = getSigConstantOperand();
+                String clsName = dbc.getClassConstantOperand();
+                String methodName = dbc.getNameConstantOperand();
+                String signature = dbc.getSigConstantOperand();
 
-                if ("add".equals(methodName) && SignatureBuilder.SIG_OBJECT_TO_BOOLEAN.equals(signature) && isImplementationOf(clsName, setCls)) {
+                if ("add".equals(methodName) && SignatureBuilder.SIG_OBJECT_TO_BOOLEAN.equals(signature) && isImplementationOf(clsName, Values.SLASHED_JAVA_UTIL_SET)) {
                     if (stack.getStackDepth() > 1) {
                         OpcodeStack.Item item = stack.getStackItem(0);
                         JavaClass entryCls = item.getJavaClass();
-                        if (isImplementationOf(entryCls, collectionCls)) {
-                            bugReporter.reportBug(new BugInstance(this, BugType.DSOC_DUBIOUS_SET_OF_COLLECTIONS.name(), NORMAL_PRIORITY).addClass(this)
-                                    .addMethod(this).addSourceLine(this));
+                        if (isImplementationOf(entryCls, Values.SLASHED_JAVA_UTIL_COLLECTION)) {
+                            bugReporter.reportBug(new BugInstance(this, BugType.DSOC_DUBIOUS_SET_OF_COLLECTIONS.name(), NORMAL_PRIORITY).addClass(dbc)
+                                    .addMethod(dbc).addSourceLine(dbc));
                         }
                     }
-                } else if ("put".equals(methodName) && SignatureBuilder.SIG_TWO_OBJECTS_TO_OBJECT.equals(signature) && isImplementationOf(clsName, setCls)
+                } else if ("put".equals(methodName) && SignatureBuilder.SIG_TWO_OBJECTS_TO_OBJECT.equals(signature) && isImplementationOf(clsName, Values.SLASHED_JAVA_UTIL_SET)
                         && (stack.getStackDepth() > 2)) {
                     OpcodeStack.Item item = stack.getStackItem(1);
                     JavaClass entryCls = item.getJavaClass();
-                    if (isImplementationOf(entryCls, collectionCls)) {
-                        bugReporter.reportBug(new BugInstance(this, BugType.DSOC_DUBIOUS_SET_OF_COLLECTIONS.name(), NORMAL_PRIORITY).addClass(this)
-                                .addMethod(this).addSourceLine(this));
+                    if (isImplementationOf(entryCls, Values.SLASHED_JAVA_UTIL_COLLECTION)) {
+                        bugReporter.reportBug(new BugInstance(this, BugType.DSOC_DUBIOUS_SET_OF_COLLECTIONS.name(), NORMAL_PRIORITY).addClass(dbc)
+                                .addMethod(dbc).addSourceLine(dbc));
                     }
                 }
             }
         } catch (ClassNotFoundException cnfe) {
             bugReporter.reportMissingClass(cnfe);
-        } finally {
-            stack.sawOpcode(this, seen);
         }
     }
 
@@ -146,11 +96,11 @@ public class DubiousSetOfCollections extends BytecodeScanningDetector {
      *
      * @param clsName
      *            the name of the class
-     * @param inf
-     *            the interface to check
+     * @param infName
+     *            the slashed name of the interface to check
      * @return if the class implements the interface
      */
-    private boolean isImplementationOf(@SlashedClassName String clsName, JavaClass inf) {
+    private boolean isImplementationOf(@SlashedClassName String clsName, @SlashedClassName String infName) {
 
         try {
             if (clsName.startsWith("java/lang/")) {
@@ -158,7 +108,7 @@ public class DubiousSetOfCollections extends BytecodeScanningDetector {
             }
 
             JavaClass cls = Repository.lookupClass(clsName);
-            return isImplementationOf(cls, inf);
+            return isImplementationOf(cls, infName);
         } catch (ClassNotFoundException cnfe) {
             bugReporter.reportMissingClass(cnfe);
         }
@@ -170,16 +120,16 @@ public class DubiousSetOfCollections extends BytecodeScanningDetector {
      *
      * @param cls
      *            the class
-     * @param inf
-     *            the interface to check
+     * @param infName
+     *            the slashed name of the interface to check
      * @return if the class implements the interface
      */
-    private boolean isImplementationOf(JavaClass cls, JavaClass inf) {
+    private boolean isImplementationOf(JavaClass cls, @SlashedClassName String infName) {
         try {
             if (cls == null) {
                 return false;
             }
-            if (cls.implementationOf(inf)) {
+            if (cls.implementationOf(ClassHierarchy.getInstance().lookupClass(infName))) {
                 return true;
             }
         } catch (ClassNotFoundException cnfe) {
@@ -18,12 +18,10 @@
  */
 package com.mebigfatguy.fbcontrib.detect;
 
-import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.BitSet;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -31,23 +29,21 @@ import java.util.Set;
 import org.apache.bcel.Const;
 import org.apache.bcel.classfile.AnnotationEntry;
 import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.Constant;
+import org.apache.bcel.classfile.ConstantCP;
+import org.apache.bcel.classfile.ConstantFieldref;
+import org.apache.bcel.classfile.ConstantInterfaceMethodref;
+import org.apache.bcel.classfile.ConstantMethodref;
+import org.apache.bcel.classfile.ConstantNameAndType;
 import org.apache.bcel.classfile.ConstantPool;
 import org.apache.bcel.classfile.ConstantUtf8;
 import org.apache.bcel.classfile.Field;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
-import org.apache.bcel.generic.ConstantPoolGen;
-import org.apache.bcel.generic.FieldInstruction;
-import org.apache.bcel.generic.GETFIELD;
-import org.apache.bcel.generic.INVOKESPECIAL;
-import org.apache.bcel.generic.INVOKEVIRTUAL;
-import org.apache.bcel.generic.Instruction;
-import org.apache.bcel.generic.InstructionHandle;
-import org.apache.bcel.generic.ObjectType;
-import org.apache.bcel.generic.ReferenceType;
 
+import com.mebigfatguy.fbcontrib.engine.BasicBlocks;
+import com.mebigfatguy.fbcontrib.engine.BitVectorDataflow;
 import com.mebigfatguy.fbcontrib.utils.BugType;
-import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
 import com.mebigfatguy.fbcontrib.utils.ToString;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
@@ -56,12 +52,7 @@ import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
 import edu.umd.cs.findbugs.FieldAnnotation;
 import edu.umd.cs.findbugs.SourceLineAnnotation;
-import edu.umd.cs.findbugs.ba.BasicBlock;
-import edu.umd.cs.findbugs.ba.BasicBlock.InstructionIterator;
-import edu.umd.cs.findbugs.ba.CFG;
-import edu.umd.cs.findbugs.ba.CFGBuilderException;
 import edu.umd.cs.findbugs.ba.ClassContext;
-import edu.umd.cs.findbugs.ba.Edge;
 import edu.umd.cs.findbugs.internalAnnotations.DottedClassName;
 
 /**
@@ -71,12 +62,12 @@ public class FieldCouldBeLocal extends BytecodeScanningDetector {
     private final BugReporter bugReporter;
     private ClassContext clsContext;
     private Map<String, FieldInfo> localizableFields;
-    private CFG cfg;
-    private ConstantPoolGen cpg;
-    private BitSet visitedBlocks;
     private Map<String, Set<String>> methodFieldModifiers;
-    private String clsName;
-    private String clsSig;
+    private String[] fieldNames;
+    private int[] cpFieldBits;
+    private BitSet specialClearsFields;
+    private Map<Integer, Set<String>> virtualModifiedFields;
+    private @DottedClassName String clsName;
 
     /**
      * constructs a FCBL detector given the reporter to report bugs on.
@@ -98,10 +89,8 @@ public class FieldCouldBeLocal extends BytecodeScanningDetector {
     public void visitClassContext(ClassContext classContext) {
         try {
             localizableFields = new HashMap<>();
-            visitedBlocks = new BitSet();
             clsContext = classContext;
             clsName = clsContext.getJavaClass().getClassName();
-            clsSig = SignatureUtils.classToSignature(clsName);
             JavaClass cls = classContext.getJavaClass();
             Field[] fields = cls.getFields();
             ConstantPool cp = classContext.getConstantPoolGen().getConstantPool();
@@ -123,6 +112,7 @@ public class FieldCouldBeLocal extends BytecodeScanningDetector {
 
             if (!localizableFields.isEmpty()) {
                 buildMethodFieldModifiers(classContext);
+                resolveConstantPool(cls);
                 super.visitClassContext(classContext);
                 for (FieldInfo fi : localizableFields.values()) {
                     FieldAnnotation fa = fi.getFieldAnnotation();
@@ -136,14 +126,18 @@ public class FieldCouldBeLocal extends BytecodeScanningDetector {
             }
         } finally {
             localizableFields = null;
-            visitedBlocks = null;
             clsContext = null;
             methodFieldModifiers = null;
+            fieldNames = null;
+            cpFieldBits = null;
+            specialClearsFields = null;
+            virtualModifiedFields = null;
         }
     }
 
     /**
-     * overrides the visitor to navigate basic blocks looking for all first usages of fields, removing those that are read from first.
+     * overrides the visitor to find, with a must-write-before-read dataflow over the method's basic blocks, the fields that may be read before they are
+     * written, removing those from the localizable fields.
      *
      * @param obj
      *            the context object of the currently parsed method
@@ -154,19 +148,43 @@ public class FieldCouldBeLocal extends BytecodeScanningDetector {
             return;
         }
 
-        try {
-
-            cfg = clsContext.getCFG(obj);
-            cpg = cfg.getMethodGen().getConstantPool();
-            BasicBlock bb = cfg.getEntry();
-            Set<String> uncheckedFields = new HashSet<>(localizableFields.keySet());
-            visitedBlocks.clear();
-            checkBlock(bb, uncheckedFields);
-        } catch (CFGBuilderException cbe) {
+        Code code = obj.getCode();
+        if (code == null) {
+            // methods without code, native ones especially, may use any field
             localizableFields.clear();
-        } finally {
-            cfg = null;
-            cpg = null;
+            return;
+        }
+
+        byte[] bytes = code.getCode();
+        BasicBlocks blocks = BasicBlocks.build(code);
+        BitVectorDataflow dataflow = new BitVectorDataflow(blocks, true);
+        for (int b = 0; b < blocks.getNumBlocks(); b++) {
+            BitSet gen = dataflow.getGen(b);
+            for (int pc = blocks.getStart(b); pc < blocks.getEnd(b); pc += BasicBlocks.length(bytes, pc, bytes[pc] & 0xFF)) {
+                int fieldBit = getFieldBit(bytes, pc);
+                if (fieldBit >= 0) {
+                    gen.set(fieldBit);
+                }
+            }
+        }
+        dataflow.solve(new BitSet());
+
+        BitSet unchecked = new BitSet(fieldNames.length);
+        for (int bit = 0; bit < fieldNames.length; bit++) {
+            if (localizableFields.containsKey(fieldNames[bit])) {
+                unchecked.set(bit);
+            }
+        }
+
+        BitSet accessed = new BitSet(fieldNames.length);
+        for (int b = 0; b < blocks.getNumBlocks(); b++) {
+            if (dataflow.isReachable(b)) {
+                accessed.clear();
+                accessed.or(dataflow.getIn(b));
+                if (!checkBlock(bytes, blocks.getStart(b), blocks.getEnd(b), unchecked, accessed)) {
+                    return;
+                }
+            }
         }
     }
 
@@ -219,89 +237,141 @@ public class FieldCouldBeLocal extends BytecodeScanningDetector {
     }
 
     /**
-     * looks in this basic block for the first access to the fields in uncheckedFields. Once found the item is removed from uncheckedFields, and removed from
-     * localizableFields if the access is a GETFIELD. If any unchecked fields remain, this method is recursively called on all outgoing edges of this basic
-     * block.
+     * looks in a basic block for accesses of the fields that haven't yet been accessed on every path to it. A GETFIELD of such a field means the field is
+     * read before it is written, so it is removed from localizableFields. Calls that may write fields behind our back remove those fields as well.
      *
-     * @param startBB
-     *            this basic block
-     * @param uncheckedFields
-     *            the list of fields to look for
+     * @param bytes
+     *            the bytecode of the method
+     * @param startPC
+     *            the first pc of the block
+     * @param endPC
+     *            the pc just past the block
+     * @param unchecked
+     *            the fields that were localizable when the method was started
+     * @param accessed
+     *            the fields accessed on every path to the start of the block, updated as the block is walked
+     * @return whether any localizable fields remain
      */
-    private void checkBlock(BasicBlock startBB, Set<String> uncheckedFields) {
-        Deque<BlockState> toBeProcessed = new ArrayDeque<>();
-        toBeProcessed.addLast(new BlockState(startBB, uncheckedFields));
-        visitedBlocks.set(startBB.getLabel());
-
-        while (!toBeProcessed.isEmpty()) {
-            if (localizableFields.isEmpty()) {
-                return;
-            }
-            BlockState bState = toBeProcessed.removeFirst();
-            BasicBlock bb = bState.getBasicBlock();
-
-            InstructionIterator ii = bb.instructionIterator();
-            while ((bState.getUncheckedFieldSize() > 0) && ii.hasNext()) {
-                InstructionHandle ih = ii.next();
-                Instruction ins = ih.getInstruction();
-                if (ins instanceof FieldInstruction) {
-                    FieldInstruction fi = (FieldInstruction) ins;
-                    if (fi.getReferenceType(cpg).getSignature().equals(clsSig)) {
-                        String fieldName = fi.getFieldName(cpg);
-                        FieldInfo finfo = localizableFields.get(fieldName);
-
-                        if ((finfo != null) && localizableFields.get(fieldName).hasAnnotation()) {
-                            localizableFields.remove(fieldName);
-                        } else {
-                            boolean justRemoved = bState.removeUncheckedField(fieldName);
-
-                            if (ins instanceof GETFIELD) {
-                                if (justRemoved) {
-                                    localizableFields.remove(fieldName);
-                                    if (localizableFields.isEmpty()) {
-                                        return;
-                                    }
+    private boolean checkBlock(byte[] bytes, int startPC, int endPC, BitSet unchecked, BitSet accessed) {
+        int pc = startPC;
+        while ((pc < endPC) && !isSubset(unchecked, accessed)) {
+            int opcode = bytes[pc] & 0xFF;
+            if ((opcode == Const.GETFIELD) || (opcode == Const.PUTFIELD) || (opcode == Const.GETSTATIC) || (opcode == Const.PUTSTATIC)) {
+                int fieldBit = getFieldBit(bytes, pc);
+                if (fieldBit >= 0) {
+                    String fieldName = fieldNames[fieldBit];
+                    FieldInfo finfo = localizableFields.get(fieldName);
+
+                    if ((finfo != null) && finfo.hasAnnotation()) {
+                        localizableFields.remove(fieldName);
+                    } else {
+                        boolean justRemoved = unchecked.get(fieldBit) && !accessed.get(fieldBit);
+                        accessed.set(fieldBit);
+
+                        if (opcode == Const.GETFIELD) {
+                            if (justRemoved) {
+                                localizableFields.remove(fieldName);
+                                if (localizableFields.isEmpty()) {
+                                    return false;
                                 }
-                            } else if (finfo != null) {
-                                finfo.setSrcLineAnnotation(SourceLineAnnotation.fromVisitedInstruction(clsContext, this, ih.getPosition()));
                             }
+                        } else if (finfo != null) {
+                            finfo.setSrcLineAnnotation(SourceLineAnnotation.fromVisitedInstruction(clsContext, this, pc));
                         }
                     }
-                } else if (ins instanceof INVOKESPECIAL) {
-                    INVOKESPECIAL is = (INVOKESPECIAL) ins;
-
-                    ReferenceType rt = is.getReferenceType(cpg);
-                    if (Values.CONSTRUCTOR.equals(is.getMethodName(cpg))) {
-                        if ((rt instanceof ObjectType)
-                                && ((ObjectType) rt).getClassName().startsWith(clsContext.getJavaClass().getClassName() + Values.INNER_CLASS_SEPARATOR)) {
-                            localizableFields.clear();
-                        }
-                    } else {
+                }
+            } else if ((opcode == Const.INVOKESPECIAL) || (opcode == Const.INVOKEVIRTUAL)) {
+                int cpIndex = ((bytes[pc + 1] & 0xFF) << 8) | (bytes[pc + 2] & 0xFF);
+                if (opcode == Const.INVOKESPECIAL) {
+                    if (specialClearsFields.get(cpIndex)) {
                         localizableFields.clear();
                     }
-                } else if (ins instanceof INVOKEVIRTUAL) {
-                    INVOKEVIRTUAL is = (INVOKEVIRTUAL) ins;
-
-                    ReferenceType rt = is.getReferenceType(cpg);
-                    if ((rt instanceof ObjectType) && ((ObjectType) rt).getClassName().equals(clsName)) {
-                        String methodDesc = is.getName(cpg) + is.getSignature(cpg);
-                        Set<String> fields = methodFieldModifiers.get(methodDesc);
-                        if (fields != null) {
-                            localizableFields.keySet().removeAll(fields);
-                        }
+                } else {
+                    Set<String> fields = virtualModifiedFields.get(Integer.valueOf(cpIndex));
+                    if (fields != null) {
+                        localizableFields.keySet().removeAll(fields);
                     }
                 }
             }
 
-            if (bState.getUncheckedFieldSize() > 0) {
-                Iterator<Edge> oei = cfg.outgoingEdgeIterator(bb);
-                while (oei.hasNext()) {
-                    Edge e = oei.next();
-                    BasicBlock cb = e.getTarget();
-                    int label = cb.getLabel();
-                    if (!visitedBlocks.get(label)) {
-                        toBeProcessed.addLast(new BlockState(cb, bState));
-                        visitedBlocks.set(label);
+            pc += BasicBlocks.length(bytes, pc, opcode);
+        }
+
+        return !localizableFields.isEmpty();
+    }
+
+    /**
+     * returns the bit of the candidate field that a field access at a pc refers to
+     *
+     * @param bytes
+     *            the bytecode of the method
+     * @param pc
+     *            the pc of the instruction
+     * @return the field bit, or -1 if the instruction isn't an access of a candidate field of this class
+     */
+    private int getFieldBit(byte[] bytes, int pc) {
+        int opcode = bytes[pc] & 0xFF;
+        if ((opcode != Const.GETFIELD) && (opcode != Const.PUTFIELD) && (opcode != Const.GETSTATIC) && (opcode != Const.PUTSTATIC)) {
+            return -1;
+        }
+        return cpFieldBits[((bytes[pc + 1] & 0xFF) << 8) | (bytes[pc + 2] & 0xFF)];
+    }
+
+    private static boolean isSubset(BitSet subset, BitSet set) {
+        for (int bit = subset.nextSetBit(0); bit >= 0; bit = subset.nextSetBit(bit + 1)) {
+            if (!set.get(bit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * numbers the candidate fields, and resolves the field references and calls of the constant pool once for the class, so that methods can be walked from
+     * the raw bytecode. A field reference is mapped to the bit of the candidate field it accesses, an invokespecial reference to whether it may write any
+     * field, and an invokevirtual reference of this class to the fields the called method writes.
+     *
+     * @param cls
+     *            the class being parsed
+     */
+    private void resolveConstantPool(JavaClass cls) {
+        fieldNames = localizableFields.keySet().toArray(new String[localizableFields.size()]);
+        Map<String, Integer> fieldBits = new HashMap<>();
+        for (int bit = 0; bit < fieldNames.length; bit++) {
+            fieldBits.put(fieldNames[bit], Integer.valueOf(bit));
+        }
+
+        ConstantPool cp = cls.getConstantPool();
+        cpFieldBits = new int[cp.getLength()];
+        Arrays.fill(cpFieldBits, -1);
+        specialClearsFields = new BitSet();
+        virtualModifiedFields = new HashMap<>();
+        String innerClassPrefix = clsName + Values.INNER_CLASS_SEPARATOR;
+
+        for (int i = 1; i < cp.getLength(); i++) {
+            Constant c = cp.getConstant(i);
+            if (!(c instanceof ConstantFieldref) && !(c instanceof ConstantMethodref) && !(c instanceof ConstantInterfaceMethodref)) {
+                continue;
+            }
+
+            ConstantCP ref = (ConstantCP) c;
+            String refClsName = cp.getConstantString(ref.getClassIndex(), Const.CONSTANT_Class).replace('/', '.');
+            ConstantNameAndType nameAndType = (ConstantNameAndType) cp.getConstant(ref.getNameAndTypeIndex());
+            String name = nameAndType.getName(cp);
+
+            if (c instanceof ConstantFieldref) {
+                Integer bit = fieldBits.get(name);
+                if ((bit != null) && refClsName.equals(clsName)) {
+                    cpFieldBits[i] = bit.intValue();
+                }
+            } else {
+                if (!Values.CONSTRUCTOR.equals(name) || refClsName.startsWith(innerClassPrefix)) {
+                    specialClearsFields.set(i);
+                }
+                if (refClsName.equals(clsName)) {
+                    Set<String> fields = methodFieldModifiers.get(name + nameAndType.getSignature(cp));
+                    if (fields != null) {
+                        virtualModifiedFields.put(Integer.valueOf(i), fields);
                     }
                 }
             }
@@ -388,97 +458,6 @@ public class FieldCouldBeLocal extends BytecodeScanningDetector {
         }
     }
 
-    /**
-     * holds the parse state of the current basic block, and what fields are left to be checked the fields that are left to be checked are a reference from the
-     * parent block and a new collection is created on first write to the set to reduce memory concerns.
-     */
-    private static class BlockState {
-        private final BasicBlock basicBlock;
-        private Set<String> uncheckedFields;
-        private boolean fieldsAreSharedWithParent;
-
-        /**
-         * creates a BlockState consisting of the next basic block to parse, and what fields are to be checked
-         *
-         * @param bb
-         *            the basic block to parse
-         * @param fields
-         *            the fields to look for first use
-         */
-        public BlockState(final BasicBlock bb, final Set<String> fields) {
-            basicBlock = bb;
-            uncheckedFields = fields;
-            fieldsAreSharedWithParent = true;
-        }
-
-        /**
-         * creates a BlockState consisting of the next basic block to parse, and what fields are to be checked
-         *
-         * @param bb
-         *            the basic block to parse
-         * @param parentBlockState
-         *            the basic block to copy from
-         */
-        public BlockState(final BasicBlock bb, BlockState parentBlockState) {
-            basicBlock = bb;
-            uncheckedFields = parentBlockState.uncheckedFields;
-            fieldsAreSharedWithParent = true;
-        }
-
-        /**
-         * get the basic block to parse
-         *
-         * @return the basic block
-         */
-        public BasicBlock getBasicBlock() {
-            return basicBlock;
-        }
-
-        /**
-         * returns the number of unchecked fields
-         *
-         * @return the number of unchecked fields
-         */
-        public int getUncheckedFieldSize() {
-            return (uncheckedFields == null) ? 0 : uncheckedFields.size();
-        }
-
-        /**
-         * return the field from the set of unchecked fields if this occurs make a copy of the set on write to reduce memory usage
-         *
-         * @param field
-         *            the field to be removed
-         *
-         * @return whether the object was removed.
-         */
-        public boolean removeUncheckedField(String field) {
-            if ((uncheckedFields == null) || !uncheckedFields.contains(field)) {
-                return false;
-            }
-
-            if (uncheckedFields.size() == 1) {
-                uncheckedFields = null;
-                fieldsAreSharedWithParent = false;
-                return true;
-            }
-
-            if (fieldsAreSharedWithParent) {
-                uncheckedFields = new HashSet<>(uncheckedFields);
-                fieldsAreSharedWithParent = false;
-                uncheckedFields.remove(field);
-            } else {
-                uncheckedFields.remove(field);
-            }
-
-            return true;
-        }
-
-        @Override
-        public String toString() {
-            return ToString.build(this);
-        }
-    }
-
     /**
      * a visitor that determines what methods write to what fields
      */
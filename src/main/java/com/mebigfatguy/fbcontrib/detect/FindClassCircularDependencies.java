@@ -18,10 +18,16 @@
  */
 package com.mebigfatguy.fbcontrib.detect;
 
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -29,31 +35,51 @@ import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
 
-import org.apache.bcel.classfile.Constant;
-import org.apache.bcel.classfile.ConstantClass;
+import org.apache.bcel.Const;
 import org.apache.bcel.classfile.ElementValue;
 import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.engine.ClassFacts;
+import com.mebigfatguy.fbcontrib.engine.MethodFacts;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
+import com.mebigfatguy.fbcontrib.utils.SpillingLongSorter;
 import com.mebigfatguy.fbcontrib.utils.ToString;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
-import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.Detector;
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 import edu.umd.cs.findbugs.internalAnnotations.DottedClassName;
+import edu.umd.cs.findbugs.visitclass.AnnotationVisitor;
 
 /**
  * looks for classes that have dependencies on each other in a circular way. Class initialization can be compromised in this scenario, and usually points to a
- * bad data model. Consider using interfaces to break this hard circular dependency.
+ * bad data model. Consider using interfaces to break this hard circular dependency. Method calls and class literals are taken from the shared class facts, while
+ * annotations are still found by visiting the class.
+ * <p>
+ * Classes are interned to int ids as they are seen, and each dependency is gathered as a pair of ids in a {@link SpillingLongSorter}, so that the edges of a
+ * large program are spilled to disk rather than held on the heap until the end of the run. At report time the sorted edges are read back into a compact
+ * adjacency array, which is mapped from disk if the edges were spilled, so that only a few ints per class are held on the heap. Loops are found by splitting
+ * the dependency graph into its strongly connected components, and a few short loops are reported from each component, until every class of the component
+ * has been reported or the limit is reached.
  */
-public class FindClassCircularDependencies extends BytecodeScanningDetector {
+public class FindClassCircularDependencies extends AnnotationVisitor implements Detector {
 
     private static final Pattern ARRAY_PATTERN = Pattern.compile("\\[+(L.*)");
-    private Map<String, Set<String>> dependencyGraph = null;
+    private static final int MAX_LOOPS_PER_COMPONENT = 5;
+
+    private final Map<String, Integer> classIds;
+    private final List<String> classNames;
+    private SpillingLongSorter dependencyEdges;
+    private int[] dependencyOffsets;
+    private IntBuffer dependencyTargets;
     private BugReporter bugReporter;
     private @DottedClassName String className;
+    private Set<Integer> classDependencies;
 
     /**
      * constructs a FCCD detector given the reporter to report bugs on
@@ -63,12 +89,53 @@ public class FindClassCircularDependencies extends BytecodeScanningDetector {
      */
     public FindClassCircularDependencies(BugReporter bugReporter) {
         this.bugReporter = bugReporter;
-        this.dependencyGraph = new HashMap<>();
+        classIds = new HashMap<>();
+        classNames = new ArrayList<>();
     }
 
+    /**
+     * implements the visitor to collect the dependencies of the class from its annotations, and the calls and class literals of its methods
+     *
+     * @param classContext
+     *            the context object of the currently parsed class
+     */
     @Override
-    public void visit(JavaClass obj) {
-        className = obj.getClassName();
+    public void visitClassContext(ClassContext classContext) {
+        JavaClass cls = classContext.getJavaClass();
+        className = cls.getClassName();
+        if (className.indexOf(Values.INNER_CLASS_SEPARATOR) >= 0) {
+            // inner classes are never part of a loop
+            return;
+        }
+
+        try {
+            classDependencies = new HashSet<>();
+            cls.accept(this);
+
+            ClassFacts classFacts = ClassFacts.getClassFacts(classContext);
+            for (Method m : cls.getMethods()) {
+                MethodFacts methodFacts = classFacts.getMethodFacts(m);
+                if (methodFacts != null) {
+                    processMethod(methodFacts);
+                }
+            }
+
+            if (!classDependencies.isEmpty()) {
+                if (dependencyEdges == null) {
+                    dependencyEdges = new SpillingLongSorter("fccd");
+                }
+                long classId = getClassId(className);
+                for (Integer dependency : classDependencies) {
+                    dependencyEdges.add((classId << 32) | dependency.intValue());
+                }
+            }
+        } catch (CheckedAnalysisException e) {
+            bugReporter.logError("Failed to get class facts for " + className, e);
+        } catch (IOException e) {
+            bugReporter.logError("Failed to record the dependencies of " + className, e);
+        } finally {
+            classDependencies = null;
+        }
     }
 
     @Override
@@ -80,25 +147,30 @@ public class FindClassCircularDependencies extends BytecodeScanningDetector {
         for (ElementValue v : map.values()) {
             if (v.getElementValueType() == ElementValue.CLASS) {
                 String annotationClsAttr = SignatureUtils.stripSignature(v.stringifyValue());
-
-                Set<String> dependencies = getDependenciesForClass(className);
-                dependencies.add(annotationClsAttr);
+                addDependency(annotationClsAttr);
             }
         }
     }
 
-    @Override
-    public void sawOpcode(int seen) {
-        if ((seen == INVOKESPECIAL) || (seen == INVOKESTATIC) || (seen == INVOKEVIRTUAL)) {
-            processInvoke();
+    private void processMethod(MethodFacts methodFacts) {
+        MethodFacts.ReferenceSites invokes = methodFacts.getInvokes();
+        for (int i = 0; i < invokes.size(); i++) {
+            int seen = invokes.getOpcode(i);
+            if ((seen == Const.INVOKESPECIAL) || (seen == Const.INVOKESTATIC) || (seen == Const.INVOKEVIRTUAL)) {
+                processInvoke(invokes.getClassName(i).replace('/', '.'));
+            }
+        }
 
-        } else if (seen == LDC) {
-            processLoadConstant();
+        MethodFacts.ReferenceSites classConstants = methodFacts.getClassConstants();
+        for (int i = 0; i < classConstants.size(); i++) {
+            if (classConstants.getOpcode(i) == Const.LDC) {
+                processLoadConstant(classConstants.getClassName(i).replace('/', '.'));
+            }
         }
     }
 
-    private void processInvoke() {
-        String refClsName = normalizeArrayClass(getDottedClassConstantOperand());
+    private void processInvoke(String dottedClsName) {
+        String refClsName = normalizeArrayClass(dottedClsName);
 
         if (refClsName == null) {
             return;
@@ -120,18 +192,13 @@ public class FindClassCircularDependencies extends BytecodeScanningDetector {
             return;
         }
 
-        Set<String> dependencies = getDependenciesForClass(className);
-        dependencies.add(refClsName);
+        addDependency(refClsName);
     }
 
-    private void processLoadConstant() {
-        Constant c = getConstantRefOperand();
-        if (c instanceof ConstantClass) {
-            String refClsName = normalizeArrayClass(getDottedClassConstantOperand());
-            if (!refClsName.equals(className)) {
-                Set<String> dependencies = getDependenciesForClass(className);
-                dependencies.add(refClsName);
-            }
+    private void processLoadConstant(String dottedClsName) {
+        String refClsName = normalizeArrayClass(dottedClsName);
+        if (!refClsName.equals(className)) {
+            addDependency(refClsName);
         }
     }
 
@@ -150,20 +217,32 @@ public class FindClassCircularDependencies extends BytecodeScanningDetector {
     }
 
     /**
-     * returns a set of dependent class names for a class, and if it doesn't exist create the set install it, and then return;
+     * records that the current class depends on another, ignoring inner classes, as they are never part of a loop
      *
-     * @param clsName
-     *            the class for which you are trying to get dependencies
-     * @return the active set of classes that are dependent on the specified class
+     * @param refClsName
+     *            the class that the current class depends on
      */
-    private Set<String> getDependenciesForClass(String clsName) {
-        Set<String> dependencies = dependencyGraph.get(clsName);
-        if (dependencies == null) {
-            dependencies = new HashSet<>();
-            dependencyGraph.put(clsName, dependencies);
+    private void addDependency(String refClsName) {
+        if (refClsName.indexOf(Values.INNER_CLASS_SEPARATOR) < 0) {
+            classDependencies.add(Integer.valueOf(getClassId(refClsName)));
         }
+    }
 
-        return dependencies;
+    /**
+     * returns the id of a class, assigning the next free one if the class hasn't been seen before
+     *
+     * @param clsName
+     *            the class to get the id of
+     * @return the id of the class
+     */
+    private int getClassId(String clsName) {
+        Integer id = classIds.get(clsName);
+        if (id == null) {
+            id = Integer.valueOf(classNames.size());
+            classIds.put(clsName, id);
+            classNames.add(clsName);
+        }
+        return id.intValue();
     }
 
     private boolean isEnclosingClassName(String outerClass, String innerClass) {
@@ -172,141 +251,273 @@ public class FindClassCircularDependencies extends BytecodeScanningDetector {
 
     @Override
     public void report() {
-        removeDependencyLeaves();
-
-        LoopFinder lf = new LoopFinder();
+        try {
+            // ids are only assigned while classes are visited
+            classIds.clear();
+            if ((dependencyEdges == null) || !buildDependencyGraph()) {
+                return;
+            }
 
-        while (!dependencyGraph.isEmpty()) {
-            String clsName = dependencyGraph.keySet().iterator().next();
-            Set<String> loop = lf.findLoop(dependencyGraph, clsName);
-            boolean pruneLeaves;
-            if (loop != null) {
-                BugInstance bug = new BugInstance(this, BugType.FCCD_FIND_CLASS_CIRCULAR_DEPENDENCY.name(), NORMAL_PRIORITY);
-                for (String loopCls : loop) {
-                    bug.addClass(loopCls);
+            int[] componentOf = new int[classNames.size()];
+            Arrays.fill(componentOf, -1);
+            List<int[]> components = findLoopingComponents();
+            for (int c = 0; c < components.size(); c++) {
+                for (int id : components.get(c)) {
+                    componentOf[id] = c;
                 }
-                bugReporter.reportBug(bug);
-                pruneLeaves = removeLoopLinks(loop);
-            } else {
-                dependencyGraph.remove(clsName);
-                pruneLeaves = true;
             }
-            if (pruneLeaves) {
-                removeDependencyLeaves();
+
+            LoopFinder lf = new LoopFinder(componentOf);
+            for (int c = 0; c < components.size(); c++) {
+                reportComponentLoops(components.get(c), c, lf);
+            }
+        } finally {
+            classNames.clear();
+            dependencyOffsets = null;
+            dependencyTargets = null;
+            if (dependencyEdges != null) {
+                try {
+                    dependencyEdges.close();
+                } catch (IOException e) {
+                    bugReporter.logError("Failed to remove the spilled class dependencies", e);
+                }
+                dependencyEdges = null;
             }
         }
-
-        dependencyGraph.clear();
     }
 
-    private boolean isStaticChild(String child, String parent) {
-        if (!child.startsWith(parent)) {
+    /**
+     * reads the sorted dependency edges back into an adjacency array, where the dependencies of class id are the ids in dependencyTargets from
+     * dependencyOffsets[id] up to dependencyOffsets[id + 1], in ascending order
+     *
+     * @return whether the edges could be read
+     */
+    private boolean buildDependencyGraph() {
+        dependencyOffsets = new int[classNames.size() + 1];
+        try {
+            dependencyTargets = dependencyEdges.toAdjacency(dependencyOffsets);
+            return true;
+        } catch (IOException e) {
+            bugReporter.logError("Failed to read the spilled class dependencies", e);
             return false;
         }
+    }
 
-        int parentLength = parent.length();
-        return ((child.charAt(parentLength) == '.') && (child.indexOf('.', parentLength + 1) < 0));
+    private boolean hasDependencies(int id) {
+        return dependencyOffsets[id] < dependencyOffsets[id + 1];
     }
 
-    private void removeDependencyLeaves() {
-        boolean changed = true;
-        while (changed) {
-            changed = false;
-            Iterator<Set<String>> it = dependencyGraph.values().iterator();
-            while (it.hasNext()) {
-                Set<String> dependencies = it.next();
-
-                boolean foundClass = false;
-                Iterator<String> dit = dependencies.iterator();
-                while (dit.hasNext()) {
-                    foundClass = dependencyGraph.containsKey(dit.next());
-                    if (!foundClass) {
-                        dit.remove();
-                        changed = true;
-                    }
-                }
-                if (dependencies.isEmpty()) {
-                    it.remove();
-                    changed = true;
-                }
+    private boolean dependsOn(int id, int dependency) {
+        int low = dependencyOffsets[id];
+        int high = dependencyOffsets[id + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int target = dependencyTargets.get(mid);
+            if (target < dependency) {
+                low = mid + 1;
+            } else if (target > dependency) {
+                high = mid - 1;
+            } else {
+                return true;
             }
         }
+        return false;
     }
 
-    private boolean removeLoopLinks(Set<String> loop) {
-        Set<String> dependencies = null;
-        for (String clsName : loop) {
-            if (dependencies != null) {
-                dependencies.remove(clsName);
-            }
-            dependencies = dependencyGraph.get(clsName);
-        }
-        if (dependencies != null) {
-            dependencies.remove(loop.iterator().next());
+    /**
+     * reports loops of one strongly connected component, starting from the class with the lowest name that isn't yet part of a reported loop
+     *
+     * @param component
+     *            the ids of the classes in the component
+     * @param componentId
+     *            the index of the component
+     * @param lf
+     *            the loop finder to search with
+     */
+    private void reportComponentLoops(int[] component, int componentId, LoopFinder lf) {
+        List<Integer> members = new ArrayList<>(component.length);
+        for (int id : component) {
+            members.add(Integer.valueOf(id));
         }
+        Collections.sort(members, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer id1, Integer id2) {
+                return classNames.get(id1.intValue()).compareTo(classNames.get(id2.intValue()));
+            }
+        });
 
-        boolean removedClass = false;
-        Iterator<String> cIt = loop.iterator();
-        while (cIt.hasNext()) {
-            String clsName = cIt.next();
-            dependencies = dependencyGraph.get(clsName);
-            if (dependencies.isEmpty()) {
-                cIt.remove();
-                removedClass = true;
+        BitSet reported = new BitSet();
+        int loopCount = 0;
+        for (Integer member : members) {
+            if (loopCount >= MAX_LOOPS_PER_COMPONENT) {
+                break;
+            }
+            if (reported.get(member.intValue())) {
+                continue;
+            }
+
+            int[] loop = lf.findLoop(member.intValue(), componentId);
+            if (loop != null) {
+                BugInstance bug = new BugInstance(this, BugType.FCCD_FIND_CLASS_CIRCULAR_DEPENDENCY.name(), NORMAL_PRIORITY);
+                for (int id : loop) {
+                    bug.addClass(classNames.get(id));
+                    reported.set(id);
+                }
+                bugReporter.reportBug(bug);
+                loopCount++;
             }
         }
-        return removedClass;
     }
 
     /**
-     * finds class dependency loops in a directed graph
+     * splits the dependency graph into strongly connected components using Tarjan's algorithm, run iteratively so that long dependency chains can't overflow
+     * the stack. Only components that contain a loop, that is more than one class, or one class that depends on itself, are returned.
+     *
+     * @return the ids of the classes of each component with a loop
      */
-    static class LoopFinder {
+    private List<int[]> findLoopingComponents() {
+        int numClasses = classNames.size();
+        int[] index = new int[numClasses];
+        Arrays.fill(index, -1);
+        int[] lowLink = new int[numClasses];
+        boolean[] onStack = new boolean[numClasses];
+        int[] componentStack = new int[numClasses];
+        int componentTop = 0;
+        int[] callStack = new int[numClasses];
+        int[] nextEdge = new int[numClasses];
+        int callTop = 0;
+        int nextIndex = 0;
+
+        List<int[]> components = new ArrayList<>();
+        for (int root = 0; root < numClasses; root++) {
+            if ((index[root] >= 0) || !hasDependencies(root)) {
+                continue;
+            }
 
-        private Map<String, Set<String>> dGraph = null;
-        private String startClass = null;
-        private Set<String> visited = null;
-        private Set<String> loop = null;
+            index[root] = lowLink[root] = nextIndex++;
+            componentStack[componentTop++] = root;
+            onStack[root] = true;
+            callStack[callTop++] = root;
+
+            while (callTop > 0) {
+                int node = callStack[callTop - 1];
+                int edge = dependencyOffsets[node] + nextEdge[node];
+                if (edge < dependencyOffsets[node + 1]) {
+                    nextEdge[node]++;
+                    int dependency = dependencyTargets.get(edge);
+                    if (index[dependency] < 0) {
+                        index[dependency] = lowLink[dependency] = nextIndex++;
+                        componentStack[componentTop++] = dependency;
+                        onStack[dependency] = true;
+                        callStack[callTop++] = dependency;
+                    } else if (onStack[dependency]) {
+                        lowLink[node] = Math.min(lowLink[node], index[dependency]);
+                    }
+                } else {
+                    callTop--;
+                    if (callTop > 0) {
+                        int parent = callStack[callTop - 1];
+                        lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                    }
 
-        @Nullable
-        public Set<String> findLoop(Map<String, Set<String>> dependencyGraph, String startCls) {
-            dGraph = dependencyGraph;
-            startClass = startCls;
-            visited = new HashSet<>();
-            loop = new LinkedHashSet<>();
-            if (findLoop(startClass)) {
-                return loop;
+                    if (lowLink[node] == index[node]) {
+                        int start = componentTop;
+                        do {
+                            onStack[componentStack[--start]] = false;
+                        } while (componentStack[start] != node);
+
+                        int[] component = Arrays.copyOfRange(componentStack, start, componentTop);
+                        componentTop = start;
+                        if ((component.length > 1) || dependsOn(node, node)) {
+                            components.add(component);
+                        }
+                    }
+                }
             }
-            return null;
         }
 
-        private boolean findLoop(String curClass) {
-            if (curClass.indexOf(Values.INNER_CLASS_SEPARATOR) >= 0) {
-                return false;
-            }
+        return components;
+    }
 
-            Set<String> dependencies = dGraph.get(curClass);
-            if (dependencies == null) {
-                return false;
-            }
+    private boolean isStaticChild(String child, String parent) {
+        if (!child.startsWith(parent)) {
+            return false;
+        }
 
-            visited.add(curClass);
-            loop.add(curClass);
-            for (String depClass : dependencies) {
-                if (depClass.equals(startClass)) {
-                    return true;
-                }
+        int parentLength = parent.length();
+        return ((child.charAt(parentLength) == '.') && (child.indexOf('.', parentLength + 1) < 0));
+    }
 
-                if (visited.contains(depClass)) {
-                    continue;
-                }
+    /**
+     * finds the shortest dependency loop through a class, within its strongly connected component, using a breadth first search
+     */
+    class LoopFinder {
+
+        private final int[] componentOf;
+        private final int[] parent;
+        private final int[] visitedMark;
+        private final int[] queue;
+        private int mark;
+
+        LoopFinder(int[] componentOf) {
+            this.componentOf = componentOf;
+            parent = new int[componentOf.length];
+            visitedMark = new int[componentOf.length];
+            queue = new int[componentOf.length];
+        }
+
+        /**
+         * finds the shortest loop from a class back to itself
+         *
+         * @param startId
+         *            the class the loop must start and end at
+         * @param componentId
+         *            the component the class belongs to
+         * @return the ids of the classes of the loop, starting with startId, or null if there is none
+         */
+        @Nullable
+        int[] findLoop(int startId, int componentId) {
+            mark++;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = startId;
+            visitedMark[startId] = mark;
+
+            while (head < tail) {
+                int node = queue[head++];
+                for (int edge = dependencyOffsets[node]; edge < dependencyOffsets[node + 1]; edge++) {
+                    int dependency = dependencyTargets.get(edge);
+                    if (componentOf[dependency] != componentId) {
+                        continue;
+                    }
+
+                    if (dependency == startId) {
+                        return buildLoop(startId, node);
+                    }
 
-                if (findLoop(depClass)) {
-                    return true;
+                    if (visitedMark[dependency] != mark) {
+                        visitedMark[dependency] = mark;
+                        parent[dependency] = node;
+                        queue[tail++] = dependency;
+                    }
                 }
             }
-            loop.remove(curClass);
-            return false;
+            return null;
+        }
+
+        private int[] buildLoop(int startId, int lastId) {
+            int length = 1;
+            for (int id = lastId; id != startId; id = parent[id]) {
+                length++;
+            }
+
+            int[] loop = new int[length];
+            int pos = length - 1;
+            for (int id = lastId; id != startId; id = parent[id]) {
+                loop[pos--] = id;
+            }
+            loop[0] = startId;
+            return loop;
         }
 
         @Override
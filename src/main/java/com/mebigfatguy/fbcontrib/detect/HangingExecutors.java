@@ -22,7 +22,6 @@ package com.mebigfatguy.fbcontrib.detect;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -34,7 +33,7 @@ import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
-import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
+import com.mebigfatguy.fbcontrib.utils.ParsedSignature;
 import com.mebigfatguy.fbcontrib.utils.ToString;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
 import com.mebigfatguy.fbcontrib.utils.Values;
@@ -197,8 +196,7 @@ public class HangingExecutors extends BytecodeScanningDetector {
     }
 
     private void processInvoke() {
-        String sig = getSigConstantOperand();
-        int argCount = SignatureUtils.getNumParameters(sig);
+        int argCount = ParsedSignature.of(getSigConstantOperand()).getNumParameters();
         if (stack.getStackDepth() > argCount) {
             OpcodeStack.Item invokeeItem = stack.getStackItem(argCount);
             XField fieldOnWhichMethodIsInvoked = invokeeItem.getXField();
@@ -222,8 +220,9 @@ public class HangingExecutors extends BytecodeScanningDetector {
                     // low
                     XMethod method = stack.getStackItem(0).getReturnValueOf();
                     if (method != null) {
-                        List<String> argumentTypes = SignatureUtils.getParameterSignatures(method.getSignature());
-                        if ((!argumentTypes.isEmpty()) && "Ljava/util/concurrent/ThreadFactory;".equals(argumentTypes.get(argumentTypes.size() - 1))) {
+                        ParsedSignature methodSig = ParsedSignature.of(method.getSignature());
+                        int numArgs = methodSig.getNumParameters();
+                        if ((numArgs > 0) && "Ljava/util/concurrent/ThreadFactory;".equals(methodSig.getParameterSignature(numArgs - 1))) {
                             AnnotationPriority ap = this.hangingFieldCandidates.get(f);
                             if (ap != null) {
                                 ap.priority = LOW_PRIORITY;
@@ -235,8 +234,8 @@ public class HangingExecutors extends BytecodeScanningDetector {
                         // close it
                         int reg = stack.getStackItem(0).getRegisterNumber();
                         if (reg >= 0) {
-                            Map<Integer, String> ctorParmInfo = SignatureUtils.getParameterSlotAndSignatures(false, getMethod().getSignature());
-                            if (ctorParmInfo.containsKey(Integer.valueOf(reg))) {
+                            // constructors are not static, so parameter slots start after 'this'
+                            if (ParsedSignature.of(getMethod().getSignature()).getParameterIndexAtSlot(reg - 1) >= 0) {
                                 hangingFieldCandidates.remove(f);
                             }
                         }
@@ -21,11 +21,13 @@ package com.mebigfatguy.fbcontrib.detect;
 
 import java.util.Set;
 
+import com.mebigfatguy.fbcontrib.engine.ReferenceFilter;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
 
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.ba.ClassContext;
 import edu.umd.cs.findbugs.internalAnnotations.DottedClassName;
 
 /**
@@ -37,6 +39,10 @@ public class HttpClientProblems extends MissingMethodsDetector {
     private static Set<String> httpRequestClasses = UnmodifiableSet.create("org.apache.http.client.methods.HttpGet", "org.apache.http.client.methods.HttpPut",
             "org.apache.http.client.methods.HttpDelete", "org.apache.http.client.methods.HttpPost", "org.apache.http.client.methods.HttpPatch");
 
+    private static final ReferenceFilter FILTER = new ReferenceFilter().withClasses("org/apache/http/client/methods/HttpGet",
+            "org/apache/http/client/methods/HttpPut", "org/apache/http/client/methods/HttpDelete", "org/apache/http/client/methods/HttpPost",
+            "org/apache/http/client/methods/HttpPatch");
+
     private static Set<String> resetMethods = UnmodifiableSet.create("reset", "releaseConnection");
 
     // Any methods that should not be treated as a "will call a reset method"
@@ -48,6 +54,19 @@ public class HttpClientProblems extends MissingMethodsDetector {
         super(bugReporter);
     }
 
+    /**
+     * overrides the visitor to skip classes that never refer to an http request class
+     *
+     * @param classContext
+     *            the context object of the currently parsed class
+     */
+    @Override
+    public void visitClassContext(ClassContext classContext) {
+        if (FILTER.accepts(classContext)) {
+            super.visitClassContext(classContext);
+        }
+    }
+
     @Override
     protected BugInstance makeFieldBugInstance() {
         return new BugInstance(this, BugType.HCP_HTTP_REQUEST_RESOURCES_NOT_FREED_FIELD.name(), NORMAL_PRIORITY);
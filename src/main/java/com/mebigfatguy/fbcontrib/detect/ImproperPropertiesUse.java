@@ -18,7 +18,7 @@
  */
 package com.mebigfatguy.fbcontrib.detect;
 
-import org.apache.bcel.classfile.Code;
+import org.apache.bcel.Const;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
@@ -28,17 +28,13 @@ import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
 import edu.umd.cs.findbugs.OpcodeStack;
-import edu.umd.cs.findbugs.ba.ClassContext;
 
 /**
  * looks for java.util.Properties use where values other than String are placed in the properties object. As the Properties object was intended to be a String
  * to String only collection, putting other types in the Properties object is incorrect, and takes advantage of a poor design decision by the original
  * Properties class designers to derive from Hashtable, rather than using aggregation.
  */
-public class ImproperPropertiesUse extends BytecodeScanningDetector {
-
-    private final BugReporter bugReporter;
-    private OpcodeStack stack;
+public class ImproperPropertiesUse extends AbstractSharedStackDetector {
 
     /**
      * constructs a IPU detector given the reporter to report bugs on
@@ -47,75 +43,44 @@ public class ImproperPropertiesUse extends BytecodeScanningDetector {
      *            the sync of bug reports
      */
     public ImproperPropertiesUse(BugReporter bugReporter) {
-        this.bugReporter = bugReporter;
-    }
-
-    /**
-     * implements the listener to set up and tear down the opcode stack
-     *
-     * @param classContext
-     *            the context object of the currently parsed class
-     */
-    @Override
-    public void visitClassContext(ClassContext classContext) {
-        try {
-            stack = new OpcodeStack();
-            super.visitClassContext(classContext);
-        } finally {
-            stack = null;
-        }
-    }
-
-    /**
-     * implements the visitor to reset the opcode stack
-     *
-     * @param obj
-     *            the context object for the currently parsed code block
-     */
-    @Override
-    public void visitCode(Code obj) {
-        stack.resetForMethodEntry(this);
-        super.visitCode(obj);
+        super(bugReporter);
     }
 
     /**
      * implements the visitor to look for calls to java.utils.Properties.put, where the value is a non String. Reports both cases, where if it is a string, at a
      * lower lever.
      *
+     * @param dbc
+     *            the shared visitor, positioned on the op code
+     * @param stack
+     *            the shared stack, before the op code executes
      * @param seen
      *            the currently parsed op code
      */
-
     @Override
-    public void sawOpcode(int seen) {
-        try {
-            stack.precomputation(this);
-
-            if (seen == INVOKEVIRTUAL) {
-                String clsName = getClassConstantOperand();
-                if ("java/util/Properties".equals(clsName)) {
-                    String methodName = getNameConstantOperand();
-                    if ("put".equals(methodName)) {
-                        String sig = getSigConstantOperand();
-                        if (SignatureBuilder.SIG_TWO_OBJECTS_TO_OBJECT.equals(sig) && (stack.getStackDepth() >= 3)) {
-                            OpcodeStack.Item valueItem = stack.getStackItem(0);
-                            String valueSig = valueItem.getSignature();
-                            if (Values.SIG_JAVA_LANG_STRING.equals(valueSig)) {
-                                bugReporter.reportBug(new BugInstance(this, BugType.IPU_IMPROPER_PROPERTIES_USE_SETPROPERTY.name(), LOW_PRIORITY).addClass(this)
-                                        .addMethod(this).addSourceLine(this));
-                            } else if (Values.SIG_JAVA_LANG_OBJECT.equals(valueSig)) {
-                                bugReporter.reportBug(new BugInstance(this, BugType.IPU_IMPROPER_PROPERTIES_USE_SETPROPERTY.name(), NORMAL_PRIORITY)
-                                        .addClass(this).addMethod(this).addSourceLine(this));
-                            } else {
-                                bugReporter.reportBug(new BugInstance(this, BugType.IPU_IMPROPER_PROPERTIES_USE.name(), NORMAL_PRIORITY).addClass(this)
-                                        .addMethod(this).addSourceLine(this));
-                            }
+    public void sawOpcode(BytecodeScanningDetector dbc, OpcodeStack stack, int seen) {
+        if (seen == Const.INVOKEVIRTUAL) {
+            String clsName = dbc.getClassConstantOperand();
+            if ("java/util/Properties".equals(clsName)) {
+                String methodName = dbc.getNameConstantOperand();
+                if ("put".equals(methodName)) {
+                    String sig = dbc.getSigConstantOperand();
+                    if (SignatureBuilder.SIG_TWO_OBJECTS_TO_OBJECT.equals(sig) && (stack.getStackDepth() >= 3)) {
+                        OpcodeStack.Item valueItem = stack.getStackItem(0);
+                        String valueSig = valueItem.getSignature();
+                        if (Values.SIG_JAVA_LANG_STRING.equals(valueSig)) {
+                            bugReporter.reportBug(new BugInstance(this, BugType.IPU_IMPROPER_PROPERTIES_USE_SETPROPERTY.name(), LOW_PRIORITY).addClass(dbc)
+                                    .addMethod(dbc).addSourceLine(dbc));
+                        } else if (Values.SIG_JAVA_LANG_OBJECT.equals(valueSig)) {
+                            bugReporter.reportBug(new BugInstance(this, BugType.IPU_IMPROPER_PROPERTIES_USE_SETPROPERTY.name(), NORMAL_PRIORITY)
+                                    .addClass(dbc).addMethod(dbc).addSourceLine(dbc));
+                        } else {
+                            bugReporter.reportBug(new BugInstance(this, BugType.IPU_IMPROPER_PROPERTIES_USE.name(), NORMAL_PRIORITY).addClass(dbc)
+                                    .addMethod(dbc).addSourceLine(dbc));
                         }
                     }
                 }
             }
-        } finally {
-            stack.sawOpcode(this, seen);
         }
     }
 }
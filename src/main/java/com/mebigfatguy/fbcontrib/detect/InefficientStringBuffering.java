@@ -25,6 +25,8 @@ import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.Constant;
 import org.apache.bcel.classfile.ConstantString;
 
+import com.mebigfatguy.fbcontrib.cache.ClassLocalDetector;
+import com.mebigfatguy.fbcontrib.cache.ClassResultCache;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
@@ -45,7 +47,7 @@ import edu.umd.cs.findbugs.ba.XMethod;
  * looks for appending strings inside of calls to StringBuffer or StringBuilder append.
  */
 @CustomUserValue
-public class InefficientStringBuffering extends BytecodeScanningDetector {
+public class InefficientStringBuffering extends BytecodeScanningDetector implements ClassLocalDetector {
 
     private enum AppendType {
         CLEAR, NESTED, TOSTRING
@@ -53,6 +55,7 @@ public class InefficientStringBuffering extends BytecodeScanningDetector {
 
     private BugReporter bugReporter;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private boolean sawLDCEmpty;
 
     /**
@@ -62,7 +65,7 @@ public class InefficientStringBuffering extends BytecodeScanningDetector {
      *            the sync of bug reports
      */
     public InefficientStringBuffering(final BugReporter bugReporter) {
-        this.bugReporter = bugReporter;
+        this.bugReporter = ClassResultCache.record(this, bugReporter);
     }
 
     /**
@@ -73,9 +76,14 @@ public class InefficientStringBuffering extends BytecodeScanningDetector {
      */
     @Override
     public void visitClassContext(ClassContext classContext) {
+        if (ClassResultCache.replay(classContext, bugReporter)) {
+            return;
+        }
+
         try {
             stack = new OpcodeStack();
             super.visitClassContext(classContext);
+            ClassResultCache.recorded(bugReporter);
         } finally {
             stack = null;
         }
@@ -138,9 +146,9 @@ public class InefficientStringBuffering extends BytecodeScanningDetector {
     }
 
     private void handleOpcode(final int seen) {
-        TernaryPatcher.pre(stack, seen);
+        ternaryPatcher.pre(stack, seen);
         stack.sawOpcode(this, seen);
-        TernaryPatcher.post(stack, seen);
+        ternaryPatcher.post(stack, seen);
     }
 
     private ISBUserValue sawInvokeVirtual() {
@@ -266,6 +274,14 @@ public class InefficientStringBuffering extends BytecodeScanningDetector {
         return null;
     }
 
+    /**
+     * implements the visitor to save the results of this run, as bugs are reported while classes are visited
+     */
+    @Override
+    public void report() {
+        ClassResultCache.save(bugReporter);
+    }
+
     static class ISBUserValue {
 
         private AppendType appendType;
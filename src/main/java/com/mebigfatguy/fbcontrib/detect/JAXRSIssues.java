@@ -29,6 +29,7 @@ import org.apache.bcel.classfile.Method;
 import org.apache.bcel.classfile.ParameterAnnotationEntry;
 import org.apache.bcel.generic.Type;
 
+import com.mebigfatguy.fbcontrib.engine.ReferenceFilter;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
@@ -103,6 +104,8 @@ public class JAXRSIssues extends PreorderVisitor implements Detector {
             //@formatter:on
     );
 
+    private static final ReferenceFilter FILTER = new ReferenceFilter().withPackages("javax/ws/rs/");
+
     private BugReporter bugReporter;
     private boolean hasClassConsumes;
     private String pathOnClass;
@@ -113,6 +116,10 @@ public class JAXRSIssues extends PreorderVisitor implements Detector {
 
     @Override
     public void visitClassContext(ClassContext classContext) {
+        if (!FILTER.accepts(classContext)) {
+            return;
+        }
+
         JavaClass cls = classContext.getJavaClass();
         pathOnClass = "";
         hasClassConsumes = false;
@@ -48,6 +48,7 @@ import edu.umd.cs.findbugs.internalAnnotations.SlashedClassName;
 public class JDBCVendorReliance extends BytecodeScanningDetector {
     private final BugReporter bugReporter;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private Map<Integer, Integer> jdbcLocals = new HashMap<>();
 
     /**
@@ -154,9 +155,9 @@ public class JDBCVendorReliance extends BytecodeScanningDetector {
                 }
             }
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if (tosIsJDBC && (stack.getStackDepth() > 0)) {
                 OpcodeStack.Item itm = stack.getStackItem(0);
                 itm.setUserValue(Boolean.TRUE);
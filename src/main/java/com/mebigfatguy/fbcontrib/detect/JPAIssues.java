@@ -38,6 +38,7 @@ import org.apache.bcel.classfile.FieldOrMethod;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.engine.ReferenceFilter;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
@@ -77,6 +78,9 @@ public class JPAIssues extends BytecodeScanningDetector {
         }
     }
 
+    private static final ReferenceFilter FILTER = new ReferenceFilter().withPackages("javax/persistence/")
+            .withClasses("org/springframework/transaction/annotation/Transactional");
+
     private static final Pattern annotationClassPattern = Pattern.compile("(L[^;]+;)");
 
     private BugReporter bugReporter;
@@ -120,6 +124,10 @@ public class JPAIssues extends BytecodeScanningDetector {
      */
     @Override
     public void visitClassContext(ClassContext clsContext) {
+        if (!FILTER.accepts(clsContext)) {
+            return;
+        }
+
         try {
             cls = clsContext.getJavaClass();
             catalogClass(cls);
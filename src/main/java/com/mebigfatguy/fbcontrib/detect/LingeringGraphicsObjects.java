@@ -18,7 +18,6 @@
  */
 package com.mebigfatguy.fbcontrib.detect;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -27,6 +26,9 @@ import java.util.Set;
 import org.apache.bcel.Const;
 import org.apache.bcel.classfile.Code;
 
+import com.mebigfatguy.fbcontrib.engine.MethodMatcher;
+import com.mebigfatguy.fbcontrib.engine.MethodTable;
+import com.mebigfatguy.fbcontrib.engine.ReferenceFilter;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 import com.mebigfatguy.fbcontrib.utils.RegisterUtils;
@@ -39,6 +41,7 @@ import edu.umd.cs.findbugs.BytecodeScanningDetector;
 import edu.umd.cs.findbugs.OpcodeStack;
 import edu.umd.cs.findbugs.OpcodeStack.CustomUserValue;
 import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 
 /**
  * looks for creation of java.awt.Graphics object that do not have the .dispose() method called on them when finished. These objects will be cleaned up by the
@@ -48,23 +51,28 @@ import edu.umd.cs.findbugs.ba.ClassContext;
 @CustomUserValue
 public class LingeringGraphicsObjects extends BytecodeScanningDetector {
 
-    private static final Set<FQMethod> GRAPHICS_PRODUCERS;
-    private static final Set<FQMethod> GRAPHICS_DISPOSERS;
+    private static final MethodTable<Boolean> GRAPHICS_PRODUCERS;
+    private static final MethodTable<Boolean> GRAPHICS_DISPOSERS;
 
     static {
         Set<FQMethod> gp = new HashSet<FQMethod>();
         gp.add(new FQMethod("java/awt/image/BufferedImage", "getGraphics", new SignatureBuilder().withReturnType("java/awt/Graphics").toString()));
         gp.add(new FQMethod("java/awt/Graphics", "create", new SignatureBuilder().withReturnType("java/awt/Graphics").toString()));
-        GRAPHICS_PRODUCERS = Collections.<FQMethod> unmodifiableSet(gp);
+        GRAPHICS_PRODUCERS = MethodTable.of(gp);
 
         Set<FQMethod> gd = new HashSet<FQMethod>();
         gd.add(new FQMethod("java/awt/Graphics", "dispose", SignatureBuilder.SIG_VOID_TO_VOID));
         gd.add(new FQMethod("java/awt/Graphics2D", "dispose", SignatureBuilder.SIG_VOID_TO_VOID));
-        GRAPHICS_DISPOSERS = Collections.<FQMethod> unmodifiableSet(gd);
+        GRAPHICS_DISPOSERS = MethodTable.of(gd);
     }
 
+    private static final ReferenceFilter FILTER = new ReferenceFilter().withClasses("java/awt/image/BufferedImage", "java/awt/Graphics");
+
     private final BugReporter bugReporter;
     private OpcodeStack stack;
+    private MethodMatcher<Boolean> graphicsProducers;
+    private MethodMatcher<Boolean> graphicsDisposers;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private Map<Integer, Integer> graphicsRegs; // reg->pc
 
     public LingeringGraphicsObjects(BugReporter bugReporter) {
@@ -79,12 +87,22 @@ public class LingeringGraphicsObjects extends BytecodeScanningDetector {
      */
     @Override
     public void visitClassContext(ClassContext classContext) {
+        if (!FILTER.accepts(classContext)) {
+            return;
+        }
+
         try {
+            graphicsProducers = GRAPHICS_PRODUCERS.resolve(classContext);
+            graphicsDisposers = GRAPHICS_DISPOSERS.resolve(classContext);
             stack = new OpcodeStack();
             graphicsRegs = new HashMap<Integer, Integer>(5);
             super.visitClassContext(classContext);
+        } catch (CheckedAnalysisException e) {
+            bugReporter.logError("Failed to resolve graphics methods for " + classContext.getJavaClass().getClassName(), e);
         } finally {
             stack = null;
+            graphicsProducers = null;
+            graphicsDisposers = null;
             graphicsRegs = null;
         }
     }
@@ -152,13 +170,9 @@ public class LingeringGraphicsObjects extends BytecodeScanningDetector {
                 break;
 
                 case Const.INVOKEVIRTUAL:
-                    String clsName = getClassConstantOperand();
-                    String methodName = getNameConstantOperand();
-                    String methodSig = getSigConstantOperand();
-                    FQMethod methodInfo = new FQMethod(clsName, methodName, methodSig);
-                    if (GRAPHICS_PRODUCERS.contains(methodInfo)) {
+                    if (graphicsProducers.matches(this)) {
                         sawNewGraphicsAt = Integer.valueOf(getPC());
-                    } else if (GRAPHICS_DISPOSERS.contains(methodInfo) && (stack.getStackDepth() > 0)) {
+                    } else if (graphicsDisposers.matches(this) && (stack.getStackDepth() > 0)) {
                         OpcodeStack.Item item = stack.getStackItem(0);
                         graphicsRegs.remove(Integer.valueOf(item.getRegisterNumber()));
                     }
@@ -167,9 +181,9 @@ public class LingeringGraphicsObjects extends BytecodeScanningDetector {
                 break;
             }
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if ((sawNewGraphicsAt != null) && (stack.getStackDepth() > 0)) {
                 OpcodeStack.Item item = stack.getStackItem(0);
                 item.setUserValue(sawNewGraphicsAt);
@@ -106,6 +106,7 @@ public class LoggerOddities extends BytecodeScanningDetector {
     private Set<String> formatterLoggers;
     private JavaClass throwableClass;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private String nameOfThisClass;
     private boolean isStaticInitializer;
 
@@ -299,9 +300,9 @@ public class LoggerOddities extends BytecodeScanningDetector {
         } catch (ClassNotFoundException cnfe) {
             bugReporter.reportMissingClass(cnfe);
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
 
             if (stack.getStackDepth() > 0) {
                 OpcodeStack.Item item = stack.getStackItem(0);
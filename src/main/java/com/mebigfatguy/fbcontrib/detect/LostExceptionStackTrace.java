@@ -36,6 +36,7 @@ import org.apache.bcel.classfile.LocalVariable;
 import org.apache.bcel.classfile.LocalVariableTable;
 import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.CollectionUtils;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
@@ -58,21 +59,12 @@ import edu.umd.cs.findbugs.ba.ClassContext;
  */
 @CustomUserValue
 public class LostExceptionStackTrace extends BytecodeScanningDetector {
-    private static JavaClass throwableClass;
-    private static JavaClass assertionClass;
-
-    static {
-        try {
-            throwableClass = Repository.lookupClass(Values.SLASHED_JAVA_LANG_THROWABLE);
-            assertionClass = Repository.lookupClass("java/lang/AssertionError");
-        } catch (ClassNotFoundException cnfe) {
-            throwableClass = null;
-            assertionClass = null;
-        }
-    }
+    private static final String ASSERTION_ERROR_CLASS = "java/lang/AssertionError";
 
     private final BugReporter bugReporter;
+    private ClassHierarchy hierarchy;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private CodeException[] exceptions;
     private Set<CatchInfo> catchInfos;
     private Map<Integer, Boolean> exReg;
@@ -97,13 +89,15 @@ public class LostExceptionStackTrace extends BytecodeScanningDetector {
     @Override
     public void visitClassContext(ClassContext classContext) {
         try {
-            if ((throwableClass != null) && !isPre14Class(classContext.getJavaClass())) {
+            if (!isPre14Class(classContext.getJavaClass())) {
+                hierarchy = ClassHierarchy.getInstance();
                 stack = new OpcodeStack();
                 catchInfos = new HashSet<>();
                 exReg = new HashMap<>();
                 super.visitClassContext(classContext);
             }
         } finally {
+            hierarchy = null;
             stack = null;
             catchInfos = null;
             exceptions = null;
@@ -211,13 +205,13 @@ public class LostExceptionStackTrace extends BytecodeScanningDetector {
                             if (Values.CONSTRUCTOR.equals(getNameConstantOperand())) {
                                 String className = getClassConstantOperand();
                                 JavaClass exClass = Repository.lookupClass(className);
-                                if (exClass.instanceOf(throwableClass)) {
+                                if (exClass.instanceOf(hierarchy.lookupClass(Values.SLASHED_JAVA_LANG_THROWABLE))) {
                                     String sig = getSigConstantOperand();
                                     if ((sig.indexOf("Exception") >= 0) || (sig.indexOf("Throwable") >= 0) || (sig.indexOf("Error") >= 0)) {
                                         markAsValid = true;
                                         break;
                                     }
-                                    if (exClass.instanceOf(assertionClass)) {
+                                    if (exClass.instanceOf(hierarchy.lookupClass(ASSERTION_ERROR_CLASS))) {
                                         // just ignore LEST for AssertionErrors
                                         markAsValid = true;
                                         break;
@@ -232,7 +226,7 @@ public class LostExceptionStackTrace extends BytecodeScanningDetector {
                                 if (stack.getStackDepth() > 1) {
                                     String className = getClassConstantOperand();
                                     JavaClass exClass = Repository.lookupClass(className);
-                                    if (exClass.instanceOf(throwableClass)) {
+                                    if (exClass.instanceOf(hierarchy.lookupClass(Values.SLASHED_JAVA_LANG_THROWABLE))) {
                                         OpcodeStack.Item itm = stack.getStackItem(1);
                                         int reg = itm.getRegisterNumber();
                                         if (reg >= 0) {
@@ -303,9 +297,9 @@ public class LostExceptionStackTrace extends BytecodeScanningDetector {
 
             lastWasExitPoint = (seen == Const.GOTO) || (seen == Const.GOTO_W) || (seen == Const.ATHROW) || OpcodeUtils.isReturn(seen);
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if (markAsValid && (stack.getStackDepth() > 0)) {
                 OpcodeStack.Item itm = stack.getStackItem(0);
                 itm.setUserValue(Boolean.TRUE);
@@ -330,7 +324,7 @@ public class LostExceptionStackTrace extends BytecodeScanningDetector {
         if (returnSig.startsWith(Values.SIG_QUALIFIED_CLASS_PREFIX)) {
             returnSig = SignatureUtils.trimSignature(returnSig);
             JavaClass retCls = Repository.lookupClass(returnSig);
-            if (retCls.instanceOf(throwableClass)) {
+            if (retCls.instanceOf(hierarchy.lookupClass(Values.SLASHED_JAVA_LANG_THROWABLE))) {
                 int numParms = SignatureUtils.getNumParameters(sig);
                 if (stack.getStackDepth() >= numParms) {
                     for (int p = 0; p < numParms; p++) {
@@ -29,6 +29,7 @@ import org.apache.bcel.Repository;
 import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.JavaClass;
 
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.CodeByteUtils;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
@@ -63,16 +64,6 @@ public class MapUsageIssues extends BytecodeScanningDetector {
 
     private static final Set<String> COLLECTION_ACCESSORS = UnmodifiableSet.create("keySet", "entrySet", "values");
 
-    private static JavaClass mapClass;
-
-    static {
-        try {
-            mapClass = Repository.lookupClass("java/util/Map");
-        } catch (ClassNotFoundException cnfe) {
-            mapClass = null;
-        }
-    }
-
     private BugReporter bugReporter;
     private OpcodeStack stack;
     private Map<MapRef, ContainsKey> mapContainsKeyUsed;
@@ -137,11 +128,11 @@ public class MapUsageIssues extends BytecodeScanningDetector {
                 if (stack.getStackDepth() > 0) {
                     OpcodeStack.Item itm = stack.getStackItem(0);
                     XMethod method = itm.getReturnValueOf();
-                    if ((method != null) && (mapClass != null)) {
+                    if (method != null) {
                         if (COLLECTION_ACCESSORS.contains(method.getName())) {
 
                             JavaClass cls = Repository.lookupClass(method.getClassName());
-                            if (cls.implementationOf(mapClass)) {
+                            if (cls.implementationOf(ClassHierarchy.getInstance().lookupClass(Values.SLASHED_JAVA_UTIL_MAP))) {
                                 bugReporter.reportBug(new BugInstance(this, BugType.MUI_NULL_CHECK_ON_MAP_SUBSET_ACCESSOR.name(), NORMAL_PRIORITY)
                                         .addClass(this).addMethod(this).addSourceLine(this));
                             }
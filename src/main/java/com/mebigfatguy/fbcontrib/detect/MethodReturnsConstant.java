@@ -52,6 +52,7 @@ public class MethodReturnsConstant extends BytecodeScanningDetector {
 
     private final BugReporter bugReporter;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private Integer returnRegister;
     private Map<Integer, Object> registerConstants;
     private Set<Method> overloadedMethods;
@@ -222,9 +223,9 @@ public class MethodReturnsConstant extends BytecodeScanningDetector {
             }
 
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if (sawSBToString && (stack.getStackDepth() > 0)) {
                 OpcodeStack.Item item = stack.getStackItem(0);
                 item.setUserValue(Boolean.TRUE);
@@ -25,7 +25,6 @@ import java.util.Map;
 import org.apache.bcel.classfile.Code;
 
 import com.mebigfatguy.fbcontrib.collect.ImmutabilityType;
-import com.mebigfatguy.fbcontrib.collect.MethodInfo;
 import com.mebigfatguy.fbcontrib.collect.Statistics;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.CollectionUtils;
@@ -131,8 +130,8 @@ public class ModifyingUnmodifiableCollection extends BytecodeScanningDetector {
                     String methodName = getNameConstantOperand();
                     String signature = getSigConstantOperand();
 
-                    MethodInfo mi = Statistics.getStatistics().getMethodStatistics(className, methodName, signature);
-                    imType = mi.getImmutabilityType();
+                    Statistics statistics = Statistics.getStatistics();
+                    imType = statistics.getImmutabilityType(statistics.findMethod(className, methodName, signature));
 
                     if (seen == INVOKEINTERFACE) {
                         Integer collectionOffset = MODIFYING_METHODS.get(new QMethod(methodName, signature));
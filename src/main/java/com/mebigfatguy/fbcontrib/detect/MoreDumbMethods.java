@@ -26,6 +26,8 @@ import java.util.Set;
 import org.apache.bcel.Const;
 import org.apache.bcel.classfile.Code;
 
+import com.mebigfatguy.fbcontrib.engine.MethodMatcher;
+import com.mebigfatguy.fbcontrib.engine.MethodTable;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
@@ -37,12 +39,14 @@ import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
 import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 
 /**
  * looks for method calls that are unsafe or might indicate bugs.
  */
 public class MoreDumbMethods extends BytecodeScanningDetector {
-    private final static Map<FQMethod, ReportInfo> dumbMethods = new HashMap<>();
+    private static final MethodTable<ReportInfo> DUMB_METHODS;
+    private static final MethodTable<ReportInfo> PRE_1_6_DUMB_METHODS;
 
     private static final Set<ReportInfo> assertableReports = UnmodifiableSet.create(new ReportInfo("MDM_LOCK_ISLOCKED", LOW_PRIORITY));
 
@@ -51,6 +55,7 @@ public class MoreDumbMethods extends BytecodeScanningDetector {
             .toString();
 
     static {
+        Map<FQMethod, ReportInfo> dumbMethods = new HashMap<>();
         dumbMethods.put(new FQMethod("java/lang/Runtime", "exit", SignatureBuilder.SIG_INT_TO_VOID), new ReportInfo("MDM_RUNTIME_EXIT_OR_HALT", LOW_PRIORITY));
         dumbMethods.put(new FQMethod("java/lang/Runtime", "halt", SignatureBuilder.SIG_INT_TO_VOID), new ReportInfo("MDM_RUNTIME_EXIT_OR_HALT", HIGH_PRIORITY));
 
@@ -140,10 +145,20 @@ public class MoreDumbMethods extends BytecodeScanningDetector {
                 new ReportInfo("MDM_STRING_BYTES_ENCODING", NORMAL_PRIORITY));
         dumbMethods.put(new FQMethod("java/util/Locale", "setDefault", new SignatureBuilder().withParamTypes("java/util/Locale").toString()),
                 new ReportInfo("MDM_SETDEFAULTLOCALE", NORMAL_PRIORITY));
+        DUMB_METHODS = new MethodTable<>(dumbMethods);
+
+        Map<FQMethod, ReportInfo> pre16DumbMethods = new HashMap<>();
+        pre16DumbMethods.put(new FQMethod("java/security/SecureRandom", Values.CONSTRUCTOR, SignatureBuilder.SIG_VOID_TO_VOID),
+                new ReportInfo("MDM_SECURERANDOM", LOW_PRIORITY));
+        pre16DumbMethods.put(new FQMethod("java/security/SecureRandom", Values.CONSTRUCTOR, byteArrayToVoid), new ReportInfo("MDM_SECURERANDOM", LOW_PRIORITY));
+        pre16DumbMethods.put(new FQMethod("java/security/SecureRandom", "getSeed", intToByteArray), new ReportInfo("MDM_SECURERANDOM", LOW_PRIORITY));
+        PRE_1_6_DUMB_METHODS = new MethodTable<>(pre16DumbMethods);
     }
 
     private final BugReporter bugReporter;
 
+    private MethodMatcher<ReportInfo> dumbMethods;
+    private MethodMatcher<ReportInfo> pre16DumbMethods;
     private boolean sawAssertionDisabled;
     private int assertionEnd;
 
@@ -159,18 +174,19 @@ public class MoreDumbMethods extends BytecodeScanningDetector {
 
     @Override
     public void visitClassContext(ClassContext classContext) {
-        if (classContext.getJavaClass().getMajor() <= MAJOR_1_5) {
-            dumbMethods.put(new FQMethod("java/security/SecureRandom", Values.CONSTRUCTOR, SignatureBuilder.SIG_VOID_TO_VOID),
-                    new ReportInfo("MDM_SECURERANDOM", LOW_PRIORITY));
-            dumbMethods.put(new FQMethod("java/security/SecureRandom", Values.CONSTRUCTOR, byteArrayToVoid), new ReportInfo("MDM_SECURERANDOM", LOW_PRIORITY));
-            dumbMethods.put(new FQMethod("java/security/SecureRandom", "getSeed", intToByteArray), new ReportInfo("MDM_SECURERANDOM", LOW_PRIORITY));
-        } else {
-            dumbMethods.remove(new FQMethod("java/security/SecureRandom", Values.CONSTRUCTOR, SignatureBuilder.SIG_VOID_TO_VOID));
-            dumbMethods.remove(new FQMethod("java/security/SecureRandom", Values.CONSTRUCTOR, byteArrayToVoid));
-            dumbMethods.remove(new FQMethod("java/security/SecureRandom", "getSeed", intToByteArray));
-        }
+        try {
+            dumbMethods = DUMB_METHODS.resolve(classContext);
+            if (classContext.getJavaClass().getMajor() <= MAJOR_1_5) {
+                pre16DumbMethods = PRE_1_6_DUMB_METHODS.resolve(classContext);
+            }
 
-        super.visitClassContext(classContext);
+            super.visitClassContext(classContext);
+        } catch (CheckedAnalysisException e) {
+            bugReporter.logError("Failed to resolve dumb methods for " + classContext.getJavaClass().getClassName(), e);
+        } finally {
+            dumbMethods = null;
+            pre16DumbMethods = null;
+        }
     }
 
     @Override
@@ -184,7 +200,10 @@ public class MoreDumbMethods extends BytecodeScanningDetector {
     public void sawOpcode(int seen) {
 
         if (OpcodeUtils.isStandardInvoke(seen)) {
-            final ReportInfo info = dumbMethods.get(getFQMethod());
+            ReportInfo info = dumbMethods.get(this);
+            if ((info == null) && (pre16DumbMethods != null)) {
+                info = pre16DumbMethods.get(this);
+            }
             if ((info != null) && ((assertionEnd < getPC()) || !assertableReports.contains(info))) {
                 reportBug(info);
             }
@@ -200,13 +219,6 @@ public class MoreDumbMethods extends BytecodeScanningDetector {
         sawAssertionDisabled = false;
     }
 
-    private FQMethod getFQMethod() {
-        final String className = getClassConstantOperand();
-        final String methodName = getNameConstantOperand();
-        final String methodSig = getSigConstantOperand();
-        return new FQMethod(className, methodName, methodSig);
-    }
-
     private void reportBug(ReportInfo info) {
         bugReporter.reportBug(
                 new BugInstance(this, info.getPattern(), info.getPriority()).addClass(this).addMethod(this).addCalledMethod(this).addSourceLine(this));
@@ -28,6 +28,7 @@ import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.Field;
 import org.apache.bcel.classfile.JavaClass;
 
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
 import com.mebigfatguy.fbcontrib.utils.TernaryPatcher;
@@ -50,26 +51,6 @@ import edu.umd.cs.findbugs.ba.XField;
  */
 @CustomUserValue
 public class NeedlessMemberCollectionSynchronization extends BytecodeScanningDetector {
-    private static JavaClass collectionClass;
-
-    static {
-        try {
-            collectionClass = Repository.lookupClass(Values.SLASHED_JAVA_UTIL_COLLECTION);
-        } catch (ClassNotFoundException cnfe) {
-            collectionClass = null;
-        }
-    }
-
-    private static JavaClass mapClass;
-
-    static {
-        try {
-            mapClass = Repository.lookupClass(Values.SLASHED_JAVA_UTIL_MAP);
-        } catch (ClassNotFoundException cnfe) {
-            mapClass = null;
-        }
-    }
-
     private static Set<String> syncCollections = UnmodifiableSet.create("java/util/Vector", "java/util/Hashtable");
 
     private static Set<String> modifyingMethods = UnmodifiableSet.create("add", "addAll", "addFirst", "addElement", "addLast", "clear", "insertElementAt",
@@ -84,6 +65,7 @@ public class NeedlessMemberCollectionSynchronization extends BytecodeScanningDet
     private Map<String, FieldInfo> collectionFields;
     private Map<Integer, String> aliases;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private State state;
     private String className;
 
@@ -106,18 +88,16 @@ public class NeedlessMemberCollectionSynchronization extends BytecodeScanningDet
     @Override
     public void visitClassContext(ClassContext classContext) {
         try {
-            if ((collectionClass != null) && (mapClass != null)) {
-                collectionFields = new HashMap<>();
-                aliases = new HashMap<>();
-                stack = new OpcodeStack();
-                JavaClass cls = classContext.getJavaClass();
-                className = cls.getClassName();
-                super.visitClassContext(classContext);
-                for (FieldInfo fi : collectionFields.values()) {
-                    if (fi.isSynchronized()) {
-                        bugReporter.reportBug(new BugInstance(this, BugType.NMCS_NEEDLESS_MEMBER_COLLECTION_SYNCHRONIZATION.name(), NORMAL_PRIORITY)
-                                .addClass(this).addField(fi.getFieldAnnotation()));
-                    }
+            collectionFields = new HashMap<>();
+            aliases = new HashMap<>();
+            stack = new OpcodeStack();
+            JavaClass cls = classContext.getJavaClass();
+            className = cls.getClassName();
+            super.visitClassContext(classContext);
+            for (FieldInfo fi : collectionFields.values()) {
+                if (fi.isSynchronized()) {
+                    bugReporter.reportBug(new BugInstance(this, BugType.NMCS_NEEDLESS_MEMBER_COLLECTION_SYNCHRONIZATION.name(), NORMAL_PRIORITY)
+                            .addClass(this).addField(fi.getFieldAnnotation()));
                 }
             }
         } finally {
@@ -140,7 +120,9 @@ public class NeedlessMemberCollectionSynchronization extends BytecodeScanningDet
             if (signature.startsWith(Values.SIG_QUALIFIED_CLASS_PREFIX)) {
                 try {
                     JavaClass cls = Repository.lookupClass(SignatureUtils.stripSignature(signature));
-                    if (cls.implementationOf(collectionClass) || cls.implementationOf(mapClass)) {
+                    ClassHierarchy hierarchy = ClassHierarchy.getInstance();
+                    if (cls.implementationOf(hierarchy.lookupClass(Values.SLASHED_JAVA_UTIL_COLLECTION))
+                            || cls.implementationOf(hierarchy.lookupClass(Values.SLASHED_JAVA_UTIL_MAP))) {
                         FieldAnnotation fa = FieldAnnotation.fromVisitedField(this);
                         collectionFields.put(fa.getFieldName(), new FieldInfo(fa));
                     }
@@ -320,9 +302,9 @@ public class NeedlessMemberCollectionSynchronization extends BytecodeScanningDet
                 break;
             }
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if (isSyncCollection && (stack.getStackDepth() > 0)) {
                 OpcodeStack.Item item = stack.getStackItem(0);
                 item.setUserValue(Boolean.TRUE);
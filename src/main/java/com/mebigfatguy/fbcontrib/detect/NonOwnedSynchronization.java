@@ -49,6 +49,7 @@ public class NonOwnedSynchronization extends BytecodeScanningDetector {
     private static final Integer OWNED = Integer.valueOf(Integer.MAX_VALUE);
     private final BugReporter bugReporter;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private Map<Integer, Integer> regPriorities;
 
     /**
@@ -212,9 +213,9 @@ public class NonOwnedSynchronization extends BytecodeScanningDetector {
                 break;
             }
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if ((tosIsPriority != null) && (stack.getStackDepth() > 0)) {
                 OpcodeStack.Item itm = stack.getStackItem(0);
                 itm.setUserValue(tosIsPriority);
@@ -37,11 +37,13 @@ import org.apache.bcel.classfile.LocalVariable;
 import org.apache.bcel.classfile.LocalVariableTable;
 import org.apache.bcel.classfile.Method;
 import org.apache.bcel.classfile.ParameterAnnotationEntry;
-import org.apache.bcel.generic.Type;
 
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
+import com.mebigfatguy.fbcontrib.utils.AnalysisBudget;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.CollectionUtils;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
+import com.mebigfatguy.fbcontrib.utils.ParsedSignature;
 import com.mebigfatguy.fbcontrib.utils.RegisterUtils;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
@@ -68,6 +70,7 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
             "com.fasterxml.jackson.databind.JsonDeserializer");
 
     private final BugReporter bugReporter;
+    private final AnalysisBudget budget = new AnalysisBudget(this);
     private JavaClass[] constrainingClasses;
     private Map<Integer, Map<JavaClass, List<MethodInfo>>> parameterDefiners;
     private BitSet usedParameters;
@@ -114,6 +117,7 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
                 parameterDefiners = new HashMap<>();
                 usedParameters = new BitSet();
                 stack = new OpcodeStack();
+                budget.startClass(classContext);
                 super.visitClassContext(classContext);
             }
         } catch (ClassNotFoundException cnfe) {
@@ -196,9 +200,9 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
             }
 
             methodIsStatic = m.isStatic();
-            parmCount = m.getArgumentTypes().length;
+            parmCount = ParsedSignature.of(m.getSignature()).getNumParameters();
 
-            if (parmCount == 0) {
+            if ((parmCount == 0) || !budget.startMethod(this, obj)) {
                 return;
             }
 
@@ -211,7 +215,7 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
                     super.visitCode(obj);
                     reportBugs();
                 } catch (StopOpcodeParsingException e) {
-                    // no more possible parameter definers
+                    // no more possible parameter definers, or over the analysis budget
                 }
             }
         } catch (ClassNotFoundException cnfe) {
@@ -228,25 +232,26 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
      */
     @Override
     public void sawOpcode(final int seen) {
+        budget.sawOpcode(this);
 
         try {
             stack.precomputation(this);
 
             if (OpcodeUtils.isInvoke(seen)) {
-                String methodSig = getSigConstantOperand();
-                List<String> parmTypes = SignatureUtils.getParameterSignatures(methodSig);
+                ParsedSignature methodSig = ParsedSignature.of(getSigConstantOperand());
+                int numParms = methodSig.getNumParameters();
                 int stackDepth = stack.getStackDepth();
-                if (stackDepth >= parmTypes.size()) {
-                    for (int i = 0; i < parmTypes.size(); i++) {
+                if (stackDepth >= numParms) {
+                    for (int i = 0; i < numParms; i++) {
                         OpcodeStack.Item itm = stack.getStackItem(i);
                         int reg = itm.getRegisterNumber();
-                        removeUselessDefiners(parmTypes.get(parmTypes.size() - i - 1), reg);
+                        removeUselessDefiners(methodSig.getParameterSignature(numParms - i - 1), reg);
                     }
                 }
 
                 if ((seen != Const.INVOKESPECIAL) && (seen != Const.INVOKESTATIC)) {
-                    if (stackDepth > parmTypes.size()) {
-                        OpcodeStack.Item itm = stack.getStackItem(parmTypes.size());
+                    if (stackDepth > numParms) {
+                        OpcodeStack.Item itm = stack.getStackItem(numParms);
                         int reg = itm.getRegisterNumber();
                         int parm = reg;
                         if (!methodIsStatic) {
@@ -433,11 +438,11 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
         Method thisMethod = getMethod();
         String name = thisMethod.getName();
         String sig = thisMethod.getSignature();
-        int numArgs = SignatureUtils.getNumParameters(sig);
+        int numArgs = ParsedSignature.of(sig).getNumParameters();
 
         for (Method m : cls.getMethods()) {
             if (m.getName().equals(name)) {
-                if (!m.getSignature().equals(sig) && (numArgs == SignatureUtils.getNumParameters(m.getSignature()))) {
+                if (!m.getSignature().equals(sig) && (numArgs == ParsedSignature.of(m.getSignature()).getNumParameters())) {
                     return true;
                 }
             }
@@ -500,8 +505,9 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
 
         Method m = getMethod();
 
-        Type[] parms = m.getArgumentTypes();
-        if (parms.length == 0) {
+        ParsedSignature parms = ParsedSignature.of(m.getSignature());
+        int numParms = parms.getNumParameters();
+        if (numParms == 0) {
             return false;
         }
 
@@ -509,9 +515,9 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
 
         boolean hasPossiblyOverlyConcreteParm = false;
 
-        for (int i = 0; i < parms.length; i++) {
+        for (int i = 0; i < numParms; i++) {
             if ((annotations.length <= i) || (annotations[i] == null) || (annotations[i].getAnnotationEntries().length == 0)) {
-                String parm = parms[i].getSignature();
+                String parm = parms.getParameterSignature(i);
                 if (parm.startsWith(Values.SIG_QUALIFIED_CLASS_PREFIX)) {
                     String clsName = SignatureUtils.stripSignature(parm);
                     if (clsName.startsWith("java.lang.")) {
@@ -547,7 +553,7 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
     private static Map<JavaClass, List<MethodInfo>> getClassDefiners(final JavaClass cls) throws ClassNotFoundException {
         Map<JavaClass, List<MethodInfo>> definers = new HashMap<>();
 
-        for (JavaClass ci : cls.getAllInterfaces()) {
+        for (JavaClass ci : ClassHierarchy.getInstance().getAllInterfaces(cls.getClassName())) {
             if ("java.lang.Comparable".equals(ci.getClassName())) {
                 continue;
             }
@@ -634,14 +640,13 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
      */
     private boolean isExceptionHandled(String ex) {
         try {
-            JavaClass thrownEx = Repository.lookupClass(ex);
+            ClassHierarchy hierarchy = ClassHierarchy.getInstance();
             // First look at the throws clause
             ExceptionTable et = getMethod().getExceptionTable();
             if (et != null) {
                 String[] throwClauseExNames = et.getExceptionNames();
                 for (String throwClauseExName : throwClauseExNames) {
-                    JavaClass throwClauseEx = Repository.lookupClass(throwClauseExName);
-                    if (thrownEx.instanceOf(throwClauseEx)) {
+                    if (hierarchy.isInstanceOf(ex, throwClauseExName)) {
                         return true;
                     }
                 }
@@ -655,8 +660,7 @@ public class OverlyConcreteParameter extends BytecodeScanningDetector {
                         int type = catchEx.getCatchType();
                         if (type != 0) {
                             String catchExName = getConstantPool().getConstantString(type, Const.CONSTANT_Class);
-                            JavaClass catchException = Repository.lookupClass(catchExName);
-                            if (thrownEx.instanceOf(catchException)) {
+                            if (hierarchy.isInstanceOf(ex, catchExName)) {
                                 return true;
                             }
                         }
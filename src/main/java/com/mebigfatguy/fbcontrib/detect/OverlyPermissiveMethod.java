@@ -18,9 +18,14 @@
  */
 package com.mebigfatguy.fbcontrib.detect;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import javax.annotation.Nullable;
 
@@ -44,9 +49,11 @@ import org.apache.bcel.classfile.Method;
 
 import com.mebigfatguy.fbcontrib.collect.MethodInfo;
 import com.mebigfatguy.fbcontrib.collect.Statistics;
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
+import com.mebigfatguy.fbcontrib.utils.ToString;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
 import edu.umd.cs.findbugs.BugInstance;
@@ -62,6 +69,9 @@ import edu.umd.cs.findbugs.classfile.ClassDescriptor;
  */
 public class OverlyPermissiveMethod extends BytecodeScanningDetector {
 
+    private static final String REPORT_THREADS = "fb-contrib.report.threads";
+    private static final int CHECKS_PER_TASK = 16;
+
     private static Map<Integer, String> DECLARED_ACCESS = new HashMap<>();
 
     static {
@@ -253,10 +263,15 @@ public class OverlyPermissiveMethod extends BytecodeScanningDetector {
     }
 
     /**
-     * after collecting all method calls, build a report of all methods that have been called, but in a way that is less permissive then is defined.
+     * after collecting all method calls, build a report of all methods that have been called, but in a way that is less permissive then is defined. The
+     * methods are gathered by class, and the super types of each class are looked up on the calling thread, as SpotBugs' caches are not thread safe, and the
+     * hierarchy would serialize the checks. Whether each method is constrained by, or derived from, one of those super types is then checked on a fork join
+     * pool, and bugs built and reported on the calling thread, in the order of the statistics.
      */
     @Override
     public void report() {
+        List<Candidate> candidates = new ArrayList<>();
+        Map<String, List<Candidate>> candidatesByClass = new LinkedHashMap<>();
         for (Map.Entry<FQMethod, MethodInfo> entry : Statistics.getStatistics()) {
             MethodInfo mi = entry.getValue();
 
@@ -276,25 +291,75 @@ public class OverlyPermissiveMethod extends BytecodeScanningDetector {
                 continue;
             }
 
-            if (isOverlyPermissive(declaredAccess) && !isConstrainedByInterface(key)) {
-                try {
-                    String clsName = key.getClassName();
-                    if (!isDerived(Repository.lookupClass(clsName), key)) {
-
-                        BugInstance bi = new BugInstance(this, BugType.OPM_OVERLY_PERMISSIVE_METHOD.name(), LOW_PRIORITY).addClass(clsName).addMethod(clsName,
-                                key.getMethodName(), key.getSignature(), (declaredAccess & Const.ACC_STATIC) != 0);
+            if (isOverlyPermissive(declaredAccess)) {
+                Candidate candidate = new Candidate(key, declaredAccess, getRequiredAccessValue(mi));
+                candidates.add(candidate);
+                List<Candidate> classCandidates = candidatesByClass.get(key.getClassName());
+                if (classCandidates == null) {
+                    classCandidates = new ArrayList<>();
+                    candidatesByClass.put(key.getClassName(), classCandidates);
+                }
+                classCandidates.add(candidate);
+            }
+        }
 
-                        String descr = String.format("- Method declared %s but could be declared %s", getDeclaredAccessValue(declaredAccess),
-                                getRequiredAccessValue(mi));
-                        bi.addString(descr);
+        if (candidates.isEmpty()) {
+            return;
+        }
 
-                        bugReporter.reportBug(bi);
-                    }
-                } catch (ClassNotFoundException cnfe) {
-                    bugReporter.reportMissingClass(cnfe);
+        ClassHierarchy hierarchy = ClassHierarchy.getInstance();
+        List<ClassCheck> checks = new ArrayList<>(candidatesByClass.size());
+        for (Map.Entry<String, List<Candidate>> entry : candidatesByClass.entrySet()) {
+            try {
+                checks.add(new ClassCheck(Repository.lookupClass(entry.getKey()), entry.getValue(), hierarchy));
+            } catch (ClassNotFoundException cnfe) {
+                for (Candidate candidate : entry.getValue()) {
+                    candidate.missingClass = cnfe;
                 }
             }
         }
+        runChecks(checks);
+
+        for (Candidate candidate : candidates) {
+            if (candidate.missingClass != null) {
+                bugReporter.reportMissingClass(candidate.missingClass);
+            } else if (candidate.overlyPermissive) {
+                FQMethod key = candidate.key;
+                String clsName = key.getClassName();
+                BugInstance bi = new BugInstance(this, BugType.OPM_OVERLY_PERMISSIVE_METHOD.name(), LOW_PRIORITY).addClass(clsName).addMethod(clsName,
+                        key.getMethodName(), key.getSignature(), (candidate.declaredAccess & Const.ACC_STATIC) != 0);
+
+                String descr = String.format("- Method declared %s but could be declared %s", getDeclaredAccessValue(candidate.declaredAccess),
+                        candidate.requiredAccess);
+                bi.addString(descr);
+
+                bugReporter.reportBug(bi);
+            }
+        }
+    }
+
+    /**
+     * runs the checks of each class, on a fork join pool of fb-contrib.report.threads threads, the number of processors by default, when there is more than
+     * one class to check
+     *
+     * @param checks
+     *            the checks of each class
+     */
+    private static void runChecks(List<ClassCheck> checks) {
+        int threads = Math.min(Integer.getInteger(REPORT_THREADS, Runtime.getRuntime().availableProcessors()).intValue(), checks.size());
+        if (threads <= 1) {
+            for (ClassCheck check : checks) {
+                check.run();
+            }
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new ChecksTask(checks, 0, checks.size()));
+        } finally {
+            pool.shutdown();
+        }
     }
 
     private static boolean isOverlyPermissive(int declaredAccess) {
@@ -302,21 +367,188 @@ public class OverlyPermissiveMethod extends BytecodeScanningDetector {
     }
 
     /**
-     * looks to see if this method is an implementation of a method in an interface, including generic specified interface methods.
+     * looks to see if a class declares the method described by key, allowing for generic parameters
      *
-     * @param fqMethod
-     *            the method to check
-     * @return if this method is constrained by an interface method
+     * @param cls
+     *            the class to check
+     * @param key
+     *            the information about the method
+     * @return whether the class declares the method
      */
-    private boolean isConstrainedByInterface(FQMethod fqMethod) {
+    private static boolean declaresMethod(JavaClass cls, FQMethod key) {
+        for (Method m : cls.getMethods()) {
+            if (key.getMethodName().equals(m.getName())) {
+                if (m.getGenericSignature() != null) {
+                    if (SignatureUtils.compareGenericSignature(m.getGenericSignature(), key.getSignature())) {
+                        return true;
+                    }
+                } else if (m.getSignature().equals(key.getSignature())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 
-        try {
-            JavaClass fqCls = Repository.lookupClass(fqMethod.getClassName());
-            if (fqCls.isInterface()) {
+    private static String getDeclaredAccessValue(int declaredAccess) {
+        return DECLARED_ACCESS.get(Integer.valueOf(declaredAccess & (Const.ACC_PRIVATE | Const.ACC_PROTECTED | Const.ACC_PUBLIC)));
+    }
+
+    private static String getRequiredAccessValue(MethodInfo mi) {
+        if (mi.wasCalledProtectedly()) {
+            return "protected";
+        }
+        if (mi.wasCalledPackagely()) {
+            return "package private";
+        }
+        return "private";
+    }
+
+    @Nullable
+    private BootstrapMethod getBootstrapMethod(int bootstrapIndex) {
+        for (Attribute a : cls.getAttributes()) {
+            if ("BootstrapMethods".equals(a.getName())) {
+                if (a instanceof BootstrapMethods) {
+                    BootstrapMethods bma = (BootstrapMethods) a;
+                    BootstrapMethod[] methods = bma.getBootstrapMethods();
+                    if (bootstrapIndex >= methods.length) {
+                        return null;
+                    }
+
+                    return methods[bootstrapIndex];
+                }
+                throw new RuntimeException("Incompatible bcel version, the bcel that is in use, is too old and doesn't have attribute 'BootstrapMethods'");
+            }
+        }
+
+        return null;
+    }
+
+    private ConstantMethodHandle getFirstMethodHandle(ConstantPool pool, BootstrapMethod bm) {
+        for (int arg : bm.getBootstrapArguments()) {
+            @Nullable
+            Constant c = pool.getConstant(arg);
+            if (c instanceof ConstantMethodHandle) {
+                return ((ConstantMethodHandle) c);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * a method that may be overly permissive, and, once its class has been checked, whether it is
+     */
+    private static final class Candidate {
+        final FQMethod key;
+        final int declaredAccess;
+        final String requiredAccess;
+        boolean overlyPermissive;
+        @Nullable
+        ClassNotFoundException missingClass;
+
+        Candidate(FQMethod key, int declaredAccess, String requiredAccess) {
+            this.key = key;
+            this.declaredAccess = declaredAccess;
+            this.requiredAccess = requiredAccess;
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+
+    /**
+     * checks the candidate methods of one class against the super types of the class. The super types, and the parameter types of the candidates, are
+     * resolved when the check is built, so running it only compares names and signatures, and checks of different classes can run at once. A class that
+     * could not be loaded is remembered, and thrown when the check reaches it, as a walk of the hierarchy would have.
+     */
+    private static final class ClassCheck implements Runnable {
+        private final JavaClass cls;
+        private final List<Candidate> candidates;
+        private List<JavaClass> allInterfaces = Collections.emptyList();
+        @Nullable
+        private ClassNotFoundException allInterfacesMissing;
+        private final List<JavaClass> derivedFrom = new ArrayList<>();
+        @Nullable
+        private ClassNotFoundException derivedFromMissing;
+        private final Map<String, ClassNotFoundException> missingTypes = new HashMap<>();
+
+        ClassCheck(JavaClass cls, List<Candidate> candidates, ClassHierarchy hierarchy) {
+            this.cls = cls;
+            this.candidates = candidates;
+            if (cls.isInterface()) {
+                return;
+            }
+
+            String clsName = cls.getClassName();
+            try {
+                allInterfaces = hierarchy.getAllInterfaces(clsName);
+            } catch (ClassNotFoundException cnfe) {
+                allInterfacesMissing = cnfe;
+            }
+
+            try {
+                derivedFrom.addAll(hierarchy.getInterfaces(clsName));
+                for (JavaClass superClass : hierarchy.getSuperClasses(clsName)) {
+                    if (Values.DOTTED_JAVA_LANG_OBJECT.equals(superClass.getClassName())) {
+                        break;
+                    }
+                    derivedFrom.add(superClass);
+                    derivedFrom.addAll(hierarchy.getInterfaces(superClass.getClassName()));
+                }
+            } catch (ClassNotFoundException cnfe) {
+                derivedFromMissing = cnfe;
+            }
+
+            for (Candidate candidate : candidates) {
+                for (String parmType : SignatureUtils.getParameterSignatures(candidate.key.getSignature())) {
+                    if (parmType.charAt(0) == 'L') {
+                        String parmClsName = SignatureUtils.stripSignature(parmType);
+                        if (!missingTypes.containsKey(parmClsName)) {
+                            try {
+                                hierarchy.lookupClass(parmClsName);
+                                missingTypes.put(parmClsName, null);
+                            } catch (ClassNotFoundException cnfe) {
+                                missingTypes.put(parmClsName, cnfe);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            for (Candidate candidate : candidates) {
+                try {
+                    candidate.overlyPermissive = !isConstrainedByInterface(candidate.key) && !isDerived(candidate.key);
+                } catch (ClassNotFoundException cnfe) {
+                    candidate.missingClass = cnfe;
+                }
+            }
+        }
+
+        /**
+         * looks to see if this method is an implementation of a method in an interface, including generic specified interface methods.
+         *
+         * @param fqMethod
+         *            the method to check
+         * @return if this method is constrained by an interface method
+         * @throws ClassNotFoundException
+         *             if a class in the hierarchy can't be loaded
+         */
+        private boolean isConstrainedByInterface(FQMethod fqMethod) throws ClassNotFoundException {
+            if (cls.isInterface()) {
                 return true;
             }
 
-            for (JavaClass inf : fqCls.getAllInterfaces()) {
+            if (allInterfacesMissing != null) {
+                throw allInterfacesMissing;
+            }
+
+            for (JavaClass inf : allInterfaces) {
                 for (Method infMethod : inf.getMethods()) {
                     if (infMethod.getName().equals(fqMethod.getMethodName())) {
                         String infMethodSig = infMethod.getSignature();
@@ -339,11 +571,9 @@ public class OverlyPermissiveMethod extends BytecodeScanningDetector {
                                         break;
                                     }
 
-                                    JavaClass infParmClass = Repository.lookupClass(SignatureUtils.stripSignature(infParmType));
-                                    JavaClass fqParmClass = Repository.lookupClass(SignatureUtils.stripSignature(fqParmType));
-                                    if (!fqParmClass.instanceOf(infParmClass)) {
-                                        matches = false;
-                                        break;
+                                    ClassNotFoundException missingType = missingTypes.get(SignatureUtils.stripSignature(fqParmType));
+                                    if (missingType != null) {
+                                        throw missingType;
                                     }
                                 }
                             }
@@ -357,104 +587,68 @@ public class OverlyPermissiveMethod extends BytecodeScanningDetector {
             }
 
             return false;
-        } catch (ClassNotFoundException cnfe) {
-            bugReporter.reportMissingClass(cnfe);
-            return true;
         }
-    }
 
-    /**
-     * looks to see if this method described by key is derived from a superclass or interface
-     *
-     * @param fqCls
-     *            the class that the method is defined in
-     * @param key
-     *            the information about the method
-     * @return whether this method derives from something or not
-     */
-    private boolean isDerived(JavaClass fqCls, FQMethod key) {
-        try {
-            for (JavaClass infCls : fqCls.getInterfaces()) {
-                for (Method infMethod : infCls.getMethods()) {
-                    if (key.getMethodName().equals(infMethod.getName())) {
-                        if (infMethod.getGenericSignature() != null) {
-                            if (SignatureUtils.compareGenericSignature(infMethod.getGenericSignature(), key.getSignature())) {
-                                return true;
-                            }
-                        } else if (infMethod.getSignature().equals(key.getSignature())) {
-                            return true;
-                        }
-                    }
+        /**
+         * looks to see if this method described by key is derived from a superclass or interface
+         *
+         * @param key
+         *            the information about the method
+         * @return whether this method derives from something or not
+         * @throws ClassNotFoundException
+         *             if a class in the hierarchy can't be loaded
+         */
+        private boolean isDerived(FQMethod key) throws ClassNotFoundException {
+            for (JavaClass superType : derivedFrom) {
+                if (declaresMethod(superType, key)) {
+                    return true;
                 }
             }
 
-            JavaClass superClass = fqCls.getSuperClass();
-            if ((superClass == null) || Values.DOTTED_JAVA_LANG_OBJECT.equals(superClass.getClassName())) {
-                return false;
+            if (derivedFromMissing != null) {
+                throw derivedFromMissing;
             }
 
-            for (Method superMethod : superClass.getMethods()) {
-                if (key.getMethodName().equals(superMethod.getName())) {
-                    if (superMethod.getGenericSignature() != null) {
-                        if (SignatureUtils.compareGenericSignature(superMethod.getGenericSignature(), key.getSignature())) {
-                            return true;
-                        }
-                    } else if (superMethod.getSignature().equals(key.getSignature())) {
-                        return true;
-                    }
-                }
-            }
+            return false;
+        }
 
-            return isDerived(superClass, key);
-        } catch (ClassNotFoundException cnfe) {
-            bugReporter.reportMissingClass(cnfe);
-            return true;
+        @Override
+        public String toString() {
+            return ToString.build(this);
         }
     }
 
-    private static String getDeclaredAccessValue(int declaredAccess) {
-        return DECLARED_ACCESS.get(Integer.valueOf(declaredAccess & (Const.ACC_PRIVATE | Const.ACC_PROTECTED | Const.ACC_PUBLIC)));
-    }
+    /**
+     * runs a range of class checks, splitting it in half until it is small enough to run directly
+     */
+    private static final class ChecksTask extends RecursiveAction {
+        private static final long serialVersionUID = -2650353218093621787L;
 
-    private static Object getRequiredAccessValue(MethodInfo mi) {
-        if (mi.wasCalledProtectedly()) {
-            return "protected";
-        }
-        if (mi.wasCalledPackagely()) {
-            return "package private";
-        }
-        return "private";
-    }
+        private final transient List<ClassCheck> checks;
+        private final int from;
+        private final int to;
 
-    @Nullable
-    private BootstrapMethod getBootstrapMethod(int bootstrapIndex) {
-        for (Attribute a : cls.getAttributes()) {
-            if ("BootstrapMethods".equals(a.getName())) {
-                if (a instanceof BootstrapMethods) {
-                    BootstrapMethods bma = (BootstrapMethods) a;
-                    BootstrapMethod[] methods = bma.getBootstrapMethods();
-                    if (bootstrapIndex >= methods.length) {
-                        return null;
-                    }
+        ChecksTask(List<ClassCheck> checks, int from, int to) {
+            this.checks = checks;
+            this.from = from;
+            this.to = to;
+        }
 
-                    return methods[bootstrapIndex];
+        @Override
+        protected void compute() {
+            if ((to - from) <= CHECKS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    checks.get(i).run();
                 }
-                throw new RuntimeException("Incompatible bcel version, the bcel that is in use, is too old and doesn't have attribute 'BootstrapMethods'");
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ChecksTask(checks, from, mid), new ChecksTask(checks, mid, to));
             }
         }
 
-        return null;
-    }
-
-    private ConstantMethodHandle getFirstMethodHandle(ConstantPool pool, BootstrapMethod bm) {
-        for (int arg : bm.getBootstrapArguments()) {
-            @Nullable
-            Constant c = pool.getConstant(arg);
-            if (c instanceof ConstantMethodHandle) {
-                return ((ConstantMethodHandle) c);
-            }
+        @Override
+        public String toString() {
+            return ToString.build(this);
         }
-
-        return null;
     }
 }
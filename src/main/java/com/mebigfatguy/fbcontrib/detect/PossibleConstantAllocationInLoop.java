@@ -57,6 +57,7 @@ public class PossibleConstantAllocationInLoop extends BytecodeScanningDetector {
 
     private final BugReporter bugReporter;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     /** allocation number, info where allocated */
     private Map<Integer, AllocationInfo> allocations;
     /** reg, allocation number */
@@ -272,9 +273,9 @@ public class PossibleConstantAllocationInLoop extends BytecodeScanningDetector {
                 break;
             }
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if (sawAllocation) {
                 if (stack.getStackDepth() > 0) {
                     OpcodeStack.Item item = stack.getStackItem(0);
@@ -324,8 +324,8 @@ public class PossiblyRedundantMethodCalls extends BytecodeScanningDetector {
 
                     if (reg >= 0) {
                         mc = localMethodCalls.get(Integer.valueOf(reg));
-                        MethodInfo mi = Statistics.getStatistics().getMethodStatistics(className, getNameConstantOperand(), signature);
-                        if ((mi != null) && mi.getModifiesState()) {
+                        Statistics statistics = Statistics.getStatistics();
+                        if (statistics.getModifiesState(statistics.findMethod(className, getNameConstantOperand(), signature))) {
                             clearFieldMethods(String.valueOf(reg));
                             return;
                         }
@@ -335,8 +335,8 @@ public class PossiblyRedundantMethodCalls extends BytecodeScanningDetector {
                             fieldSource = "";
                         }
                         mc = fieldMethodCalls.get(new FieldInfo(fieldSource, field.getName()));
-                        MethodInfo mi = Statistics.getStatistics().getMethodStatistics(className, getNameConstantOperand(), signature);
-                        if ((mi != null) && mi.getModifiesState()) {
+                        Statistics statistics = Statistics.getStatistics();
+                        if (statistics.getModifiesState(statistics.findMethod(className, getNameConstantOperand(), signature))) {
                             clearFieldMethods(fieldSource);
                             return;
                         }
@@ -34,11 +34,13 @@ import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.CodeException;
 import org.apache.bcel.classfile.JavaClass;
 
+import com.mebigfatguy.fbcontrib.utils.AnalysisBudget;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 import com.mebigfatguy.fbcontrib.utils.QMethod;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
+import com.mebigfatguy.fbcontrib.utils.StopOpcodeParsingException;
 import com.mebigfatguy.fbcontrib.utils.ToString;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
 import com.mebigfatguy.fbcontrib.utils.Values;
@@ -88,6 +90,7 @@ public class PresizeCollections extends BytecodeScanningDetector {
     private static final FQMethod HASHSET_SIZED_CTOR = new FQMethod("java/util/HashSet", "<init>", SignatureBuilder.SIG_INT_TO_VOID);
 
     private BugReporter bugReporter;
+    private final AnalysisBudget budget = new AnalysisBudget(this);
     private JavaClass collectionClass;
     private boolean guavaOnPath;
     private OpcodeStack stack;
@@ -129,6 +132,7 @@ public class PresizeCollections extends BytecodeScanningDetector {
             allocLocation = new HashMap<>();
             allocToAddPCs = new HashMap<>();
             optionalRanges = new ArrayList<>();
+            budget.startClass(classContext);
             super.visitClassContext(classContext);
         } finally {
             stack = null;
@@ -147,6 +151,10 @@ public class PresizeCollections extends BytecodeScanningDetector {
      */
     @Override
     public void visitCode(Code obj) {
+        if (!budget.startMethod(this, obj)) {
+            return;
+        }
+
         stack.resetForMethodEntry(this);
         nextAllocNumber = 1;
         storeToUserValue.clear();
@@ -156,7 +164,12 @@ public class PresizeCollections extends BytecodeScanningDetector {
 
         addExceptionRanges(obj);
 
-        super.visitCode(obj);
+        try {
+            super.visitCode(obj);
+        } catch (StopOpcodeParsingException e) {
+            // over the analysis budget, so the add counts are incomplete
+            return;
+        }
 
         for (List<Integer> pcs : allocToAddPCs.values()) {
             if (pcs.size() > 16) {
@@ -176,6 +189,7 @@ public class PresizeCollections extends BytecodeScanningDetector {
     @edu.umd.cs.findbugs.annotations.SuppressFBWarnings(value = "CLI_CONSTANT_LIST_INDEX", justification = "Constrained by FindBugs API")
     @Override
     public void sawOpcode(int seen) {
+        budget.sawOpcode(this);
 
         PSCUserValue userValue = null;
         boolean sawAlloc = false;
@@ -24,6 +24,7 @@ import java.lang.reflect.AccessibleObject;
 import org.apache.bcel.Repository;
 import org.apache.bcel.classfile.JavaClass;
 
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 import com.mebigfatguy.fbcontrib.utils.QMethod;
@@ -32,38 +33,20 @@ import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
-import edu.umd.cs.findbugs.ba.ClassContext;
 
 public class ReflectionIssues extends BytecodeScanningDetector {
 
     private static final QMethod SETACCESSIBLE = new QMethod("setAccessible", SignatureBuilder.SIG_BOOLEAN_TO_VOID);
     private static final FQMethod SETACCESSIBLE_ARRAY = new FQMethod("java/lang/reflect/AccessibleObject", "setAccessible",
             new SignatureBuilder().withParamTypes(AccessibleObject.class).build());
-    private static final JavaClass ACCESSIBLE_OBJECT_CLASS;
+    private static final String ACCESSIBLE_OBJECT_CLASS = "java/lang/reflect/AccessibleObject";
 
-    static {
-        JavaClass cls = null;
-        try {
-            cls = Repository.lookupClass("java/lang/reflect/AccessibleObject");
-        } catch (ClassNotFoundException e) {
-            cls = null;
-        }
-        ACCESSIBLE_OBJECT_CLASS = cls;
-
-    }
     private BugReporter bugReporter;
 
     public ReflectionIssues(BugReporter bugReporter) {
         this.bugReporter = bugReporter;
     }
 
-    @Override
-    public void visitClassContext(ClassContext clsContext) {
-        if (ACCESSIBLE_OBJECT_CLASS != null) {
-            super.visitClassContext(clsContext);
-        }
-    }
-
     @Override
     public void sawOpcode(int seen) {
 
@@ -73,7 +56,7 @@ public class ReflectionIssues extends BytecodeScanningDetector {
                 if (SETACCESSIBLE.equals(m)) {
 
                     JavaClass clz = Repository.lookupClass(getClassConstantOperand());
-                    if (clz.instanceOf(ACCESSIBLE_OBJECT_CLASS)) {
+                    if (clz.instanceOf(ClassHierarchy.getInstance().lookupClass(ACCESSIBLE_OBJECT_CLASS))) {
                         bugReporter.reportBug(
                                 new BugInstance(this, BugType.RFI_SET_ACCESSIBLE.name(), NORMAL_PRIORITY).addClass(this).addMethod(this).addSourceLine(this));
                     }
@@ -60,6 +60,7 @@ public class ReflectionOnObjectMethods extends BytecodeScanningDetector {
 
     private final BugReporter bugReporter;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private Map<Integer, String[]> localClassTypes;
     private Map<String, String[]> fieldClassTypes;
     /**
@@ -248,9 +249,9 @@ public class ReflectionOnObjectMethods extends BytecodeScanningDetector {
                 break;
             }
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
 
             if (stack.getStackDepth() >= 1) {
                 if (arraySize != null) {
@@ -26,6 +26,7 @@ import org.apache.bcel.classfile.ExceptionTable;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
@@ -42,16 +43,6 @@ import edu.umd.cs.findbugs.visitclass.PreorderVisitor;
  * code, and not propagated.
  */
 public class RuntimeExceptionDeclared extends PreorderVisitor implements Detector {
-    private static JavaClass runtimeExceptionClass;
-
-    static {
-        try {
-            runtimeExceptionClass = Repository.lookupClass(Values.SLASHED_JAVA_LANG_RUNTIMEEXCEPTION);
-        } catch (ClassNotFoundException cnfe) {
-            runtimeExceptionClass = null;
-        }
-    }
-
     private final BugReporter bugReporter;
     private final Set<String> runtimeExceptions = new HashSet<>();
 
@@ -67,16 +58,14 @@ public class RuntimeExceptionDeclared extends PreorderVisitor implements Detecto
     }
 
     /**
-     * overrides the visitor and accepts if the Exception class was loaded
+     * overrides the visitor to visit the class
      *
      * @param classContext
      *            the context object for the currently parsed class
      */
     @Override
     public void visitClassContext(final ClassContext classContext) {
-        if (runtimeExceptionClass != null) {
-            classContext.getJavaClass().accept(this);
-        }
+        classContext.getJavaClass().accept(this);
     }
 
     /**
@@ -103,7 +92,7 @@ public class RuntimeExceptionDeclared extends PreorderVisitor implements Detecto
                 } else {
                     try {
                         JavaClass exClass = Repository.lookupClass(ex);
-                        if (exClass.instanceOf(runtimeExceptionClass)) {
+                        if (exClass.instanceOf(ClassHierarchy.getInstance().lookupClass(Values.SLASHED_JAVA_LANG_RUNTIMEEXCEPTION))) {
                             runtimeExceptions.add(ex);
                             if (ex.startsWith("java.lang.")) {
                                 priority = NORMAL_PRIORITY;
@@ -23,26 +23,36 @@ import java.util.List;
 import java.util.Set;
 
 import org.apache.bcel.Const;
-import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.engine.ClassFacts;
+import com.mebigfatguy.fbcontrib.engine.MethodFacts;
+import com.mebigfatguy.fbcontrib.engine.ReferenceFilter;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.ToString;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
 
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
-import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.Detector;
+import edu.umd.cs.findbugs.SourceLineAnnotation;
 import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.visitclass.PreorderVisitor;
 
 /**
  * looks for the execution of sql queries inside a loop. This pattern tends to be inefficient, and often can be improved upon, by collecting all the keys needed
- * for the query and issuing just one query using an in clause with all the keys for all the queries previously needed in the loop.
+ * for the query and issuing just one query using an in clause with all the keys for all the queries previously needed in the loop. The query calls and loops are
+ * found from the shared class facts, rather than by walking the bytecode again.
  */
-public class SQLInLoop extends BytecodeScanningDetector {
+public class SQLInLoop extends PreorderVisitor implements Detector {
     private static final Set<String> queryClasses = UnmodifiableSet.create("java/sql/Statement", "java/sql/PreparedStatement", "java/sql/CallableStatement");
 
     private static final Set<String> queryMethods = UnmodifiableSet.create("execute", "executeQuery");
 
+    private static final ReferenceFilter FILTER = new ReferenceFilter().withClasses("java/sql/Statement", "java/sql/PreparedStatement", "java/sql/CallableStatement");
+
     private final BugReporter bugReporter;
     List<Integer> queryLocations;
     List<LoopLocation> loops;
@@ -58,17 +68,30 @@ public class SQLInLoop extends BytecodeScanningDetector {
     }
 
     /**
-     * implements the visitor to create and clear the query locations and loops collections
+     * implements the visitor to create and clear the query locations and loops collections, and look at each method's facts
      *
      * @param classContext
      *            the context object for the currently parsed java class
      */
     @Override
     public void visitClassContext(ClassContext classContext) {
+        if (!FILTER.accepts(classContext)) {
+            return;
+        }
+
+        JavaClass cls = classContext.getJavaClass();
         try {
             queryLocations = new ArrayList<>();
             loops = new ArrayList<>();
-            super.visitClassContext(classContext);
+            ClassFacts classFacts = ClassFacts.getClassFacts(classContext);
+            for (Method m : cls.getMethods()) {
+                MethodFacts methodFacts = classFacts.getMethodFacts(m);
+                if (methodFacts != null) {
+                    checkMethod(classContext, m, methodFacts);
+                }
+            }
+        } catch (CheckedAnalysisException e) {
+            bugReporter.logError("Failed to get class facts for " + cls.getClassName(), e);
         } finally {
             queryLocations = null;
             loops = null;
@@ -76,21 +99,40 @@ public class SQLInLoop extends BytecodeScanningDetector {
     }
 
     /**
-     * implements the visitor to clear the collections, and report the query locations that are in loops
+     * collects the positions of queries and loops of a method, and reports the query locations that are in loops
      *
-     * @param obj
-     *            the context object for the currently parsed code block
+     * @param classContext
+     *            the context object for the currently parsed java class
+     * @param m
+     *            the method being checked
+     * @param methodFacts
+     *            the shared facts of the method
      */
-    @Override
-    public void visitCode(Code obj) {
+    private void checkMethod(ClassContext classContext, Method m, MethodFacts methodFacts) {
         queryLocations.clear();
         loops.clear();
-        super.visitCode(obj);
+
+        MethodFacts.ReferenceSites invokes = methodFacts.getInvokes();
+        for (int i = 0; i < invokes.size(); i++) {
+            if ((invokes.getOpcode(i) == Const.INVOKEINTERFACE) && queryClasses.contains(invokes.getClassName(i)) && queryMethods.contains(invokes.getName(i))) {
+                queryLocations.add(Integer.valueOf(invokes.getPC(i)));
+            }
+        }
+
+        MethodFacts.BranchSites branches = methodFacts.getBranches();
+        for (int i = 0; i < branches.size(); i++) {
+            int seen = branches.getOpcode(i);
+            if (((seen == Const.GOTO) || (seen == Const.GOTO_W)) && (branches.getTarget(i) < branches.getPC(i))) {
+                loops.add(new LoopLocation(branches.getTarget(i), branches.getPC(i)));
+            }
+        }
+
         for (Integer qLoc : queryLocations) {
             for (LoopLocation lLoc : loops) {
                 if (lLoc.isInLoop(qLoc.intValue())) {
-                    bugReporter.reportBug(new BugInstance(this, BugType.SIL_SQL_IN_LOOP.name(), NORMAL_PRIORITY).addClass(this).addMethod(this)
-                            .addSourceLine(this, qLoc.intValue()));
+                    JavaClass cls = classContext.getJavaClass();
+                    bugReporter.reportBug(new BugInstance(this, BugType.SIL_SQL_IN_LOOP.name(), NORMAL_PRIORITY).addClass(cls).addMethod(cls, m)
+                            .addSourceLine(SourceLineAnnotation.fromVisitedInstruction(classContext, m, qLoc.intValue())));
                     break;
                 }
             }
@@ -98,27 +140,11 @@ public class SQLInLoop extends BytecodeScanningDetector {
     }
 
     /**
-     * implements the visitor to collect positions of queries and loops
-     *
-     * @param seen
-     *            the opcode of the currently parsed instruction
+     * implements the Detector interface, but not used
      */
     @Override
-    public void sawOpcode(int seen) {
-        if (seen == Const.INVOKEINTERFACE) {
-            String clsName = getClassConstantOperand();
-            String methodName = getNameConstantOperand();
-
-            if (queryClasses.contains(clsName) && queryMethods.contains(methodName)) {
-                queryLocations.add(Integer.valueOf(getPC()));
-            }
-        } else if ((seen == Const.GOTO) || (seen == Const.GOTO_W)) {
-            int branchTarget = getBranchTarget();
-            int pc = getPC();
-            if (branchTarget < pc) {
-                loops.add(new LoopLocation(branchTarget, pc));
-            }
-        }
+    public void report() {
+        // bugs are reported in visitClassContext
     }
 
     /**
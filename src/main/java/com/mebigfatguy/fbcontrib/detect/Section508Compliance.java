@@ -23,11 +23,16 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-import org.apache.bcel.Repository;
+import javax.annotation.Nullable;
+
 import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.Field;
 import org.apache.bcel.classfile.JavaClass;
 
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
+import com.mebigfatguy.fbcontrib.engine.MethodMatcher;
+import com.mebigfatguy.fbcontrib.engine.MethodTable;
+import com.mebigfatguy.fbcontrib.engine.ReferenceFilter;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
@@ -47,6 +52,7 @@ import edu.umd.cs.findbugs.SourceLineAnnotation;
 import edu.umd.cs.findbugs.ba.ClassContext;
 import edu.umd.cs.findbugs.ba.XFactory;
 import edu.umd.cs.findbugs.ba.XField;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 
 /**
  * looks for interfaces that ignore 508 compliance, including not using JLabel.setLabelFor, Using null layouts,
@@ -58,42 +64,15 @@ public class Section508Compliance extends BytecodeScanningDetector {
         SAW_TEXT_LABEL, FROM_UIMANAGER, APPENDED_STRING
     };
 
-    private static JavaClass windowClass;
-    private static JavaClass componentClass;
-    private static JavaClass jcomponentClass;
-    private static JavaClass accessibleClass;
-    private static ClassNotFoundException clsNFException;
-
-    static {
-        try {
-            windowClass = Repository.lookupClass("java/awt/Window");
-        } catch (ClassNotFoundException cnfe) {
-            windowClass = null;
-            clsNFException = cnfe;
-        }
-        try {
-            componentClass = Repository.lookupClass("java/awt/Component");
-        } catch (ClassNotFoundException cnfe) {
-            componentClass = null;
-            clsNFException = cnfe;
-        }
-        try {
-            jcomponentClass = Repository.lookupClass("javax/swing/JComponent");
-        } catch (ClassNotFoundException cnfe) {
-            jcomponentClass = null;
-            clsNFException = cnfe;
-        }
-        try {
-            accessibleClass = Repository.lookupClass("javax/accessibility/Accessible");
-        } catch (ClassNotFoundException cnfe) {
-            accessibleClass = null;
-            clsNFException = cnfe;
-        }
-    }
+    private static final String WINDOW_CLASS = "java/awt/Window";
+    private static final String COMPONENT_CLASS = "java/awt/Component";
+    private static final String JCOMPONENT_CLASS = "javax/swing/JComponent";
+    private static final String ACCESSIBLE_CLASS = "javax/accessibility/Accessible";
 
-    private static final Map<FQMethod, Integer> displayTextMethods = new HashMap<>();
+    private static final MethodTable<Integer> DISPLAY_TEXT_METHODS;
 
     static {
+        Map<FQMethod, Integer> displayTextMethods = new HashMap<>();
         String awtDialog = "java/awt/Dialog";
         String awtFrame = "java/awt/Frame";
         String awtGraphics = "java/awt/GraphicsConfiguration";
@@ -136,10 +115,18 @@ public class Section508Compliance extends BytecodeScanningDetector {
                 new SignatureBuilder().withParamTypes(Values.SLASHED_JAVA_LANG_STRING, swingIcon).toString()), Values.ONE);
         displayTextMethods.put(new FQMethod("javax/swing/JMenuItem", Values.CONSTRUCTOR,
                 new SignatureBuilder().withParamTypes(Values.SLASHED_JAVA_LANG_STRING, Values.SIG_PRIMITIVE_INT).toString()), Values.ONE);
+        DISPLAY_TEXT_METHODS = new MethodTable<>(displayTextMethods);
     }
 
+    /**
+     * the gui checks look at awt and swing types, other than setSize, which may be called on a subclass of a window without referring to either package
+     */
+    private static final ReferenceFilter FILTER = new ReferenceFilter().withPackages("java/awt/", "javax/swing/").withMethods("setSize");
+
     private final BugReporter bugReporter;
     private OpcodeStack stack;
+    private MethodMatcher<Integer> displayTextMethods;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private Set<XField> fieldLabels;
     private Map<Integer, SourceLineAnnotation> localLabels;
 
@@ -151,9 +138,6 @@ public class Section508Compliance extends BytecodeScanningDetector {
      */
     public Section508Compliance(BugReporter bugReporter) {
         this.bugReporter = bugReporter;
-        if (clsNFException != null) {
-            bugReporter.reportMissingClass(clsNFException);
-        }
     }
 
     /**
@@ -165,6 +149,8 @@ public class Section508Compliance extends BytecodeScanningDetector {
     @Override
     public void visitClassContext(ClassContext classContext) {
         try {
+            JavaClass jcomponentClass = lookupGuiClass(JCOMPONENT_CLASS);
+            JavaClass accessibleClass = lookupGuiClass(ACCESSIBLE_CLASS);
             if ((jcomponentClass != null) && (accessibleClass != null)) {
                 JavaClass cls = classContext.getJavaClass();
                 if (cls.instanceOf(jcomponentClass) && !cls.implementationOf(accessibleClass)) {
@@ -172,6 +158,11 @@ public class Section508Compliance extends BytecodeScanningDetector {
                 }
             }
 
+            if (!FILTER.accepts(classContext)) {
+                return;
+            }
+
+            displayTextMethods = DISPLAY_TEXT_METHODS.resolve(classContext);
             stack = new OpcodeStack();
             fieldLabels = new HashSet<>();
             localLabels = new HashMap<>();
@@ -181,8 +172,11 @@ public class Section508Compliance extends BytecodeScanningDetector {
             }
         } catch (ClassNotFoundException cnfe) {
             bugReporter.reportMissingClass(cnfe);
+        } catch (CheckedAnalysisException e) {
+            bugReporter.logError("Failed to resolve display text methods for " + classContext.getJavaClass().getClassName(), e);
         } finally {
             stack = null;
+            displayTextMethods = null;
             fieldLabels = null;
             localLabels = null;
         }
@@ -315,9 +309,9 @@ public class Section508Compliance extends BytecodeScanningDetector {
         } catch (ClassNotFoundException cnfe) {
             bugReporter.reportMissingClass(cnfe);
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if (sawTextLabel) {
                 if (stack.getStackDepth() > 0) {
                     OpcodeStack.Item item = stack.getStackItem(0);
@@ -340,8 +334,7 @@ public class Section508Compliance extends BytecodeScanningDetector {
      * strings that are appended together. This is likely not to be internationalizable.
      */
     private void processFaultyGuiStrings() {
-        FQMethod methodInfo = new FQMethod(getClassConstantOperand(), getNameConstantOperand(), getSigConstantOperand());
-        Integer parmIndex = displayTextMethods.get(methodInfo);
+        Integer parmIndex = displayTextMethods.get(this);
         if ((parmIndex != null) && (stack.getStackDepth() > parmIndex.intValue())) {
             OpcodeStack.Item item = stack.getStackItem(parmIndex.intValue());
             if (item.getConstant() != null) {
@@ -386,6 +379,8 @@ public class Section508Compliance extends BytecodeScanningDetector {
                 if (S508UserValue.FROM_UIMANAGER != item.getUserValue()) {
                     item = stack.getStackItem(argCount);
                     JavaClass cls = item.getJavaClass();
+                    JavaClass jcomponentClass = lookupGuiClass(JCOMPONENT_CLASS);
+                    JavaClass componentClass = lookupGuiClass(COMPONENT_CLASS);
                     if (((jcomponentClass != null) && cls.instanceOf(jcomponentClass)) || ((componentClass != null) && cls.instanceOf(componentClass))) {
                         bugReporter.reportBug(
                                 new BugInstance(this, BugType.S508C_SET_COMP_COLOR.name(), NORMAL_PRIORITY).addClass(this).addMethod(this).addSourceLine(this));
@@ -407,6 +402,7 @@ public class Section508Compliance extends BytecodeScanningDetector {
     private void processSetSizeOps(String methodName) throws ClassNotFoundException {
         if ("setSize".equals(methodName)) {
             int argCount = SignatureUtils.getNumParameters(getSigConstantOperand());
+            JavaClass windowClass = lookupGuiClass(WINDOW_CLASS);
             if ((windowClass != null) && (stack.getStackDepth() > argCount)) {
                 OpcodeStack.Item item = stack.getStackItem(argCount);
                 JavaClass cls = item.getJavaClass();
@@ -417,4 +413,21 @@ public class Section508Compliance extends BytecodeScanningDetector {
             }
         }
     }
+
+    /**
+     * returns a gui class that components are checked against, loading it the first time it is needed in the analysis
+     *
+     * @param clsName
+     *            the name of the gui class
+     * @return the class, or null if it isn't available, which is reported as a missing class
+     */
+    @Nullable
+    private JavaClass lookupGuiClass(String clsName) {
+        try {
+            return ClassHierarchy.getInstance().lookupClass(clsName);
+        } catch (ClassNotFoundException cnfe) {
+            bugReporter.reportMissingClass(cnfe);
+            return null;
+        }
+    }
 }
@@ -46,6 +46,7 @@ import org.apache.bcel.classfile.LocalVariable;
 import org.apache.bcel.classfile.LocalVariableTable;
 import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.CodeByteUtils;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
@@ -83,16 +84,6 @@ public class SillynessPotPourri extends BytecodeScanningDetector {
     private static final String LITERAL = "literal";
     private static final Pattern APPEND_PATTERN = Pattern.compile("([0-9]+):(.*)");
 
-    private static JavaClass calendarClass;
-
-    static {
-        try {
-            calendarClass = Repository.lookupClass("java/util/Calendar");
-        } catch (ClassNotFoundException cnfe) {
-            calendarClass = null;
-        }
-    }
-
     private static Map<QMethod, Integer> methodsThatAreSillyOnStringLiterals = new HashMap<>();
 
     static {
@@ -108,6 +99,7 @@ public class SillynessPotPourri extends BytecodeScanningDetector {
     private final BugReporter bugReporter;
     private final Set<String> toStringClasses;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private int lastPCs[];
     private int lastOpcode;
     private int lastReg;
@@ -303,9 +295,9 @@ public class SillynessPotPourri extends BytecodeScanningDetector {
         } catch (ClassNotFoundException cnfe) {
             bugReporter.reportMissingClass(cnfe);
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if ((stack.getStackDepth() > 0)) {
                 OpcodeStack.Item item = stack.getStackItem(0);
                 if (userValue != null) {
@@ -880,7 +872,7 @@ public class SillynessPotPourri extends BytecodeScanningDetector {
             if (!Values.SIG_JAVA_LANG_OBJECT.equals(itemSig) && !"Ljava/util/Calendar;".equals(itemSig) && !"Ljava/util/GregorianCalendar;".equals(itemSig)) {
                 try {
                     JavaClass cls = Repository.lookupClass(SignatureUtils.stripSignature(itemSig));
-                    if (!cls.instanceOf(calendarClass)) {
+                    if (!cls.instanceOf(ClassHierarchy.getInstance().lookupClass("java/util/Calendar"))) {
                         bugReporter.reportBug(new BugInstance(this, BugType.SPP_INVALID_CALENDAR_COMPARE.name(), NORMAL_PRIORITY).addClass(this).addMethod(this)
                                 .addSourceLine(this));
                     }
@@ -27,6 +27,7 @@ import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.engine.ReferenceFilter;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.StopOpcodeParsingException;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
@@ -53,6 +54,11 @@ public class SluggishGui extends BytecodeScanningDetector {
             "javax/sql/DataSource:getConnection", "javax/xml/parsers/DocumentBuilder:parse", "javax/xml/parsers/DocumentBuilder:parse",
             "javax/xml/parsers/SAXParser:parse", "javax/xml/transform/Transformer:transform");
 
+    /**
+     * listener methods take an event from these packages, so a class that refers to neither can't implement one
+     */
+    private static final ReferenceFilter FILTER = new ReferenceFilter().withPackages("java/awt/", "javax/swing/");
+
     private BugReporter bugReporter;
     private Set<String> expensiveThisCalls;
     private Set<JavaClass> guiInterfaces;
@@ -79,6 +85,10 @@ public class SluggishGui extends BytecodeScanningDetector {
      */
     @Override
     public void visitClassContext(ClassContext classContext) {
+        if (!FILTER.accepts(classContext)) {
+            return;
+        }
+
         try {
             guiInterfaces = new HashSet<>();
             JavaClass cls = classContext.getJavaClass();
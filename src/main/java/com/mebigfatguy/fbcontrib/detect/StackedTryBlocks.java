@@ -18,6 +18,7 @@ import org.apache.bcel.classfile.ConstantClass;
 import org.apache.bcel.classfile.ConstantPool;
 import org.apache.bcel.classfile.JavaClass;
 
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
@@ -40,16 +41,6 @@ import edu.umd.cs.findbugs.ba.XMethod;
 @CustomUserValue
 public class StackedTryBlocks extends BytecodeScanningDetector {
 
-    private static JavaClass THROWABLE_CLASS;
-
-    static {
-        try {
-            THROWABLE_CLASS = Repository.lookupClass(Values.SLASHED_JAVA_LANG_THROWABLE);
-        } catch (ClassNotFoundException cnfe) {
-            THROWABLE_CLASS = null;
-        }
-    }
-
     private final BugReporter bugReporter;
     private List<TryBlock> blocks;
     private List<TryBlock> inBlocks;
@@ -69,10 +60,8 @@ public class StackedTryBlocks extends BytecodeScanningDetector {
     @Override
     public void visitClassContext(ClassContext classContext) {
         try {
-            if (THROWABLE_CLASS != null) {
-                stack = new OpcodeStack();
-                super.visitClassContext(classContext);
-            }
+            stack = new OpcodeStack();
+            super.visitClassContext(classContext);
         } finally {
             stack = null;
         }
@@ -236,7 +225,7 @@ public class StackedTryBlocks extends BytecodeScanningDetector {
                 } else if ((seen == Const.INVOKESPECIAL) && Values.CONSTRUCTOR.equals(getNameConstantOperand())) {
                     String cls = getClassConstantOperand();
                     JavaClass exCls = Repository.lookupClass(cls);
-                    if (exCls.instanceOf(THROWABLE_CLASS)) {
+                    if (exCls.instanceOf(ClassHierarchy.getInstance().lookupClass(Values.SLASHED_JAVA_LANG_THROWABLE))) {
                         String signature = getSigConstantOperand();
                         List<String> types = SignatureUtils.getParameterSignatures(signature);
                         if (!types.isEmpty()) {
@@ -25,6 +25,8 @@ import java.util.Map;
 import org.apache.bcel.Const;
 import org.apache.bcel.classfile.Code;
 
+import com.mebigfatguy.fbcontrib.engine.MethodMatcher;
+import com.mebigfatguy.fbcontrib.engine.MethodTable;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 import com.mebigfatguy.fbcontrib.utils.RegisterUtils;
@@ -39,6 +41,7 @@ import edu.umd.cs.findbugs.OpcodeStack;
 import edu.umd.cs.findbugs.OpcodeStack.CustomUserValue;
 import edu.umd.cs.findbugs.ba.ClassContext;
 import edu.umd.cs.findbugs.ba.XMethod;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 
 /**
  * looks for string fields that appear to be built with parsing or calling toString() on another object, or from objects that are fields.
@@ -46,36 +49,38 @@ import edu.umd.cs.findbugs.ba.XMethod;
 @CustomUserValue
 public class StringifiedTypes extends BytecodeScanningDetector {
 
-    private static Map<FQMethod, int[]> COLLECTION_PARMS = new HashMap<>();
+    private static final MethodTable<int[]> COLLECTION_PARMS;
 
     static {
+        Map<FQMethod, int[]> collectionParms = new HashMap<>();
         int[] parm0 = new int[] { 0 };
         int[] parm0N1 = new int[] { -1, 0 };
         int[] parm01N1 = new int[] { -1, 0, 1 };
 
         String objectToInt = new SignatureBuilder().withParamTypes(Values.SLASHED_JAVA_LANG_OBJECT).withReturnType(Values.SIG_PRIMITIVE_INT).toString();
 
-        COLLECTION_PARMS.put(new FQMethod(Values.SLASHED_JAVA_UTIL_LIST, "contains", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN), parm0);
-        COLLECTION_PARMS.put(new FQMethod(Values.SLASHED_JAVA_UTIL_LIST, "add", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN), parm0);
-        COLLECTION_PARMS.put(new FQMethod(Values.SLASHED_JAVA_UTIL_LIST, "remove", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN), parm0);
-        COLLECTION_PARMS.put(
+        collectionParms.put(new FQMethod(Values.SLASHED_JAVA_UTIL_LIST, "contains", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN), parm0);
+        collectionParms.put(new FQMethod(Values.SLASHED_JAVA_UTIL_LIST, "add", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN), parm0);
+        collectionParms.put(new FQMethod(Values.SLASHED_JAVA_UTIL_LIST, "remove", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN), parm0);
+        collectionParms.put(
                 new FQMethod(Values.SLASHED_JAVA_UTIL_LIST, "set", new SignatureBuilder()
                         .withParamTypes(Values.SIG_PRIMITIVE_INT, Values.SLASHED_JAVA_LANG_OBJECT).withReturnType(Values.SLASHED_JAVA_LANG_OBJECT).toString()),
                 parm0N1);
-        COLLECTION_PARMS.put(new FQMethod(Values.SLASHED_JAVA_UTIL_LIST, "add",
+        collectionParms.put(new FQMethod(Values.SLASHED_JAVA_UTIL_LIST, "add",
                 new SignatureBuilder().withParamTypes(Values.SIG_PRIMITIVE_INT, Values.SLASHED_JAVA_LANG_OBJECT).toString()), parm0);
-        COLLECTION_PARMS.put(new FQMethod(Values.SLASHED_JAVA_UTIL_LIST, "indexOf", objectToInt), parm0);
-        COLLECTION_PARMS.put(new FQMethod(Values.SLASHED_JAVA_UTIL_LIST, "lastIndexOf", objectToInt), parm0);
+        collectionParms.put(new FQMethod(Values.SLASHED_JAVA_UTIL_LIST, "indexOf", objectToInt), parm0);
+        collectionParms.put(new FQMethod(Values.SLASHED_JAVA_UTIL_LIST, "lastIndexOf", objectToInt), parm0);
 
-        COLLECTION_PARMS.put(new FQMethod(Values.SLASHED_JAVA_UTIL_SET, "contains", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN), parm0);
-        COLLECTION_PARMS.put(new FQMethod(Values.SLASHED_JAVA_UTIL_SET, "add", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN), parm0);
-        COLLECTION_PARMS.put(new FQMethod(Values.SLASHED_JAVA_UTIL_SET, "remove", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN), parm0);
+        collectionParms.put(new FQMethod(Values.SLASHED_JAVA_UTIL_SET, "contains", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN), parm0);
+        collectionParms.put(new FQMethod(Values.SLASHED_JAVA_UTIL_SET, "add", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN), parm0);
+        collectionParms.put(new FQMethod(Values.SLASHED_JAVA_UTIL_SET, "remove", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN), parm0);
 
-        COLLECTION_PARMS.put(new FQMethod(Values.SLASHED_JAVA_UTIL_MAP, "containsKey", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN), parm0);
-        COLLECTION_PARMS.put(new FQMethod(Values.SLASHED_JAVA_UTIL_MAP, "containsValue", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN), parm0);
-        COLLECTION_PARMS.put(new FQMethod(Values.SLASHED_JAVA_UTIL_MAP, "get", SignatureBuilder.SIG_OBJECT_TO_OBJECT), parm0N1);
-        COLLECTION_PARMS.put(new FQMethod(Values.SLASHED_JAVA_UTIL_MAP, "put", SignatureBuilder.SIG_TWO_OBJECTS_TO_OBJECT), parm01N1);
-        COLLECTION_PARMS.put(new FQMethod(Values.SLASHED_JAVA_UTIL_MAP, "remove", SignatureBuilder.SIG_OBJECT_TO_OBJECT), parm0N1);
+        collectionParms.put(new FQMethod(Values.SLASHED_JAVA_UTIL_MAP, "containsKey", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN), parm0);
+        collectionParms.put(new FQMethod(Values.SLASHED_JAVA_UTIL_MAP, "containsValue", SignatureBuilder.SIG_OBJECT_TO_BOOLEAN), parm0);
+        collectionParms.put(new FQMethod(Values.SLASHED_JAVA_UTIL_MAP, "get", SignatureBuilder.SIG_OBJECT_TO_OBJECT), parm0N1);
+        collectionParms.put(new FQMethod(Values.SLASHED_JAVA_UTIL_MAP, "put", SignatureBuilder.SIG_TWO_OBJECTS_TO_OBJECT), parm01N1);
+        collectionParms.put(new FQMethod(Values.SLASHED_JAVA_UTIL_MAP, "remove", SignatureBuilder.SIG_OBJECT_TO_OBJECT), parm0N1);
+        COLLECTION_PARMS = new MethodTable<>(collectionParms);
     }
 
     private static final Map<String, Integer> STRING_PARSE_METHODS = new HashMap<>();
@@ -94,6 +99,7 @@ public class StringifiedTypes extends BytecodeScanningDetector {
 
     private BugReporter bugReporter;
     private OpcodeStack stack;
+    private MethodMatcher<int[]> collectionParms;
     private BitSet toStringStringBuilders;
 
     public StringifiedTypes(BugReporter reporter) {
@@ -103,11 +109,15 @@ public class StringifiedTypes extends BytecodeScanningDetector {
     @Override
     public void visitClassContext(ClassContext classContext) {
         try {
+            collectionParms = COLLECTION_PARMS.resolve(classContext);
             stack = new OpcodeStack();
             toStringStringBuilders = new BitSet();
             super.visitClassContext(classContext);
+        } catch (CheckedAnalysisException e) {
+            bugReporter.logError("Failed to resolve collection methods for " + classContext.getJavaClass().getClassName(), e);
         } finally {
             stack = null;
+            collectionParms = null;
             toStringStringBuilders = null;
         }
     }
@@ -183,18 +193,13 @@ public class StringifiedTypes extends BytecodeScanningDetector {
                 break;
 
                 case Const.INVOKEINTERFACE: {
-                    String clsName = getClassConstantOperand();
-                    String methodName = getNameConstantOperand();
-                    String sig = getSigConstantOperand();
-
-                    int numParameters = SignatureUtils.getNumParameters(sig);
+                    int numParameters = SignatureUtils.getNumParameters(getSigConstantOperand());
                     if (stackDepth > numParameters) {
-                        FQMethod cm = new FQMethod(clsName, methodName, sig);
-                        checkParms = COLLECTION_PARMS.get(cm);
+                        checkParms = collectionParms.get(this);
                         if (checkParms != null) {
                             OpcodeStack.Item item = stack.getStackItem(numParameters);
                             if (item.getXField() == null) {
-                                if (MAP_PUT.equals(cm)) {
+                                if (MAP_PUT.equals(collectionParms.getMethod(this))) {
                                     OpcodeStack.Item itm = stack.getStackItem(1);
                                     XMethod xm = itm.getReturnValueOf();
                                     if (xm != null) {
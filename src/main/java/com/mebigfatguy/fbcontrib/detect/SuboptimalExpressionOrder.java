@@ -21,7 +21,6 @@ package com.mebigfatguy.fbcontrib.detect;
 import org.apache.bcel.Const;
 import org.apache.bcel.classfile.Code;
 
-import com.mebigfatguy.fbcontrib.collect.MethodInfo;
 import com.mebigfatguy.fbcontrib.collect.Statistics;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
@@ -117,11 +116,12 @@ public class SuboptimalExpressionOrder extends BytecodeScanningDetector {
                     }
 
                     String clsName = getClassConstantOperand();
-                    MethodInfo mi = Statistics.getStatistics().getMethodStatistics(clsName, getNameConstantOperand(), signature);
-                    if ((mi == null) || (mi.getNumBytes() == 0)) {
+                    Statistics statistics = Statistics.getStatistics();
+                    int numBytes = statistics.getNumBytes(statistics.findMethod(clsName, getNameConstantOperand(), signature));
+                    if (numBytes == 0) {
                         userValue = Values.ONE;
                     } else {
-                        userValue = Integer.valueOf(mi.getNumBytes());
+                        userValue = Integer.valueOf(numBytes);
                     }
                 break;
 
@@ -22,11 +22,11 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.bcel.Const;
-import org.apache.bcel.Repository;
 import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
@@ -48,27 +48,22 @@ public class SuspiciousCloneAlgorithm extends BytecodeScanningDetector {
 
     public static final String SIG_VOID_TO_OBJECT = new SignatureBuilder().withReturnType(Values.SLASHED_JAVA_LANG_OBJECT).toString();
 
-    private static JavaClass cloneableClass;
+    private static final String CLONEABLE_CLASS = "java/lang/Cloneable";
     private static Map<String, Integer> changingMethods;
 
     static {
-        try {
-            cloneableClass = Repository.lookupClass("java/lang/Cloneable");
-            changingMethods = new HashMap<>();
-            changingMethods.put("add", Values.NORMAL_BUG_PRIORITY);
-            changingMethods.put("addAll", Values.NORMAL_BUG_PRIORITY);
-            changingMethods.put("put", Values.NORMAL_BUG_PRIORITY);
-            changingMethods.put("putAll", Values.NORMAL_BUG_PRIORITY);
-            changingMethods.put("insert", Values.LOW_BUG_PRIORITY);
-            changingMethods.put("set", Values.LOW_BUG_PRIORITY);
-
-        } catch (ClassNotFoundException cnfe) {
-            cloneableClass = null;
-        }
+        changingMethods = new HashMap<>();
+        changingMethods.put("add", Values.NORMAL_BUG_PRIORITY);
+        changingMethods.put("addAll", Values.NORMAL_BUG_PRIORITY);
+        changingMethods.put("put", Values.NORMAL_BUG_PRIORITY);
+        changingMethods.put("putAll", Values.NORMAL_BUG_PRIORITY);
+        changingMethods.put("insert", Values.LOW_BUG_PRIORITY);
+        changingMethods.put("set", Values.LOW_BUG_PRIORITY);
     }
 
     private BugReporter bugReporter;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
 
     /**
      * constructs a SCA detector given the reporter to report bugs on
@@ -88,13 +83,9 @@ public class SuspiciousCloneAlgorithm extends BytecodeScanningDetector {
      */
     @Override
     public void visitClassContext(ClassContext classContext) {
-        if (cloneableClass == null) {
-            return;
-        }
-
         try {
             JavaClass cls = classContext.getJavaClass();
-            if (cls.implementationOf(cloneableClass)) {
+            if (cls.implementationOf(ClassHierarchy.getInstance().lookupClass(CLONEABLE_CLASS))) {
                 stack = new OpcodeStack();
                 super.visitClassContext(classContext);
             }
@@ -186,9 +177,9 @@ public class SuspiciousCloneAlgorithm extends BytecodeScanningDetector {
                 break;
             }
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if (srcField && (stack.getStackDepth() > 0)) {
                 OpcodeStack.Item item = stack.getStackItem(0);
                 item.setUserValue(Boolean.TRUE);
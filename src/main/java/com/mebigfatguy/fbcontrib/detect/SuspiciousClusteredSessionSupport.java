@@ -50,6 +50,7 @@ public class SuspiciousClusteredSessionSupport extends BytecodeScanningDetector
 
     private BugReporter bugReporter;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private Map<String, Integer> changedAttributes;
     private Map<Integer, String> savedAttributes;
 
@@ -164,9 +165,9 @@ public class SuspiciousClusteredSessionSupport extends BytecodeScanningDetector
                 }
             }
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if (sawGetAttribute && (stack.getStackDepth() > 0)) {
                 OpcodeStack.Item item = stack.getStackItem(0);
                 item.setUserValue(attributeName);
@@ -18,7 +18,6 @@
  */
 package com.mebigfatguy.fbcontrib.detect;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -26,23 +25,24 @@ import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import javax.annotation.Nullable;
 import org.apache.bcel.Const;
 
 import org.apache.bcel.Repository;
-import org.apache.bcel.classfile.ClassParser;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.jdkapi.JDKApiIndex;
+import com.mebigfatguy.fbcontrib.jdkapi.JDKApiIndexBuilder;
+import com.mebigfatguy.fbcontrib.jdkapi.JDKApiIndexGenerator;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
 import com.mebigfatguy.fbcontrib.utils.Values;
@@ -55,6 +55,13 @@ import edu.umd.cs.findbugs.ba.ClassContext;
 /**
  * looks for calls to classes and methods that do not exist in the JDK for which this class is compiled. This can happen if you specify the -source and -target
  * options of the javac compiler, and specify a target that is less than the jdk version of the javac compiler.
+ * <p>
+ * The api of the target JDK is read from a prebuilt {@link JDKApiIndex}, found from the fb-contrib.sjvu.index.<i>version</i> property, as jdk-<i>version</i>.idx
+ * in the directory named by the fb-contrib.sjvu.indexdir property, or bundled under /jdkindex/. Failing that, an index is built from an rt.jar found next to
+ * the running JDK, from the JDK named by the fb-contrib.sjvu.jdkhome.<i>version</i> property, or, when fb-contrib.sjvu.ctsym is set to true, from the
+ * running JDK's ct.sym, and is saved to the index directory when one is set. Without any of these, as on a java 9 or later JDK by default, nothing is
+ * reported.
+ * </p>
  */
 public class SuspiciousJDKVersionUse extends BytecodeScanningDetector {
     private static final Map<Integer, String> VER_REG_EX = new HashMap<>();
@@ -70,19 +77,6 @@ public class SuspiciousJDKVersionUse extends BytecodeScanningDetector {
         VER_REG_EX.put(Integer.valueOf(Const.MAJOR_1_8), "((jdk|j2?re)1.8)|(java-8)");
     }
 
-    private static final Map<Integer, Integer> HUMAN_VERSIONS = new HashMap<>();
-
-    static {
-        HUMAN_VERSIONS.put(Integer.valueOf(Const.MAJOR_1_1), Values.ONE);
-        HUMAN_VERSIONS.put(Integer.valueOf(Const.MAJOR_1_2), Values.TWO);
-        HUMAN_VERSIONS.put(Integer.valueOf(Const.MAJOR_1_3), Values.THREE);
-        HUMAN_VERSIONS.put(Integer.valueOf(Const.MAJOR_1_4), Values.FOUR);
-        HUMAN_VERSIONS.put(Values.JAVA_5, Values.FIVE);
-        HUMAN_VERSIONS.put(Integer.valueOf(Const.MAJOR_1_6), Values.SIX);
-        HUMAN_VERSIONS.put(Integer.valueOf(Const.MAJOR_1_7), Values.SEVEN);
-        HUMAN_VERSIONS.put(Integer.valueOf(Const.MAJOR_1_8), Values.EIGHT);
-    }
-
     private static Set<String> knownJDKJavaxPackageRoots = UnmodifiableSet.create(
     // @formatter:off
         "javax/accessibility/",
@@ -111,6 +105,11 @@ public class SuspiciousJDKVersionUse extends BytecodeScanningDetector {
 
     private static final Pattern jarPattern;
     private static final String SJVU_JDKHOME = "fb-contrib.sjvu.jdkhome";
+    private static final String SJVU_INDEX = "fb-contrib.sjvu.index";
+    private static final String SJVU_INDEXDIR = "fb-contrib.sjvu.indexdir";
+    private static final String SJVU_CTSYM = "fb-contrib.sjvu.ctsym";
+    private static final String INDEX_RESOURCE_DIR = "/jdkindex/";
+    private static final ConcurrentMap<Integer, JDKApiIndex> PREBUILT_INDEXES = new ConcurrentHashMap<>();
 
     static {
         String os = System.getProperty("os.name");
@@ -123,82 +122,58 @@ public class SuspiciousJDKVersionUse extends BytecodeScanningDetector {
     }
 
     private final Map<String, File> versionPaths;
-    private final Map<Integer, Map<String, Set<String>>> validMethodsByVersion;
-    private final Map<String, String> superNames;
-    private final Map<Integer, ZipFile> jdkZips;
+    private final Map<Integer, JDKApiIndex> jdkIndexes;
     private File jdksRoot = null;
     private Integer clsMajorVersion;
-    private ZipFile jdkZip;
+    private JDKApiIndex jdkIndex;
     private final BugReporter bugReporter;
 
     public SuspiciousJDKVersionUse(BugReporter bugReporter) {
         this.bugReporter = bugReporter;
         versionPaths = new HashMap<>();
-        jdkZips = new HashMap<>();
-        validMethodsByVersion = new HashMap<>();
-        superNames = new HashMap<>();
+        jdkIndexes = new HashMap<>();
     }
 
     @Override
     public void visitClassContext(ClassContext classContext) {
         try {
             clsMajorVersion = Integer.valueOf(classContext.getJavaClass().getMajor());
-            jdkZip = jdkZips.get(clsMajorVersion);
-            if (jdkZip == null) {
-                File rtJar = getRTJarFile();
-                if (rtJar == null) {
-                    rtJar = getRTJarFromProperty(clsMajorVersion);
-                }
-                if (rtJar != null) {
-                    jdkZip = new ZipFile(rtJar);
-                    jdkZips.put(clsMajorVersion, jdkZip);
-                }
+            if (jdkIndexes.containsKey(clsMajorVersion)) {
+                jdkIndex = jdkIndexes.get(clsMajorVersion);
+            } else {
+                jdkIndex = findIndex(getHumanVersion(clsMajorVersion.intValue()));
+                jdkIndexes.put(clsMajorVersion, jdkIndex);
             }
 
-            if (jdkZip == null) {
+            if (jdkIndex == null) {
                 return;
             }
 
             super.visitClassContext(classContext);
-        } catch (IOException ioe) {
-            // Hmm What to do
         } finally {
             clsMajorVersion = null;
-            jdkZip = null;
+            jdkIndex = null;
         }
     }
 
     @Override
     public void sawOpcode(int seen) {
 
-        String clsName;
-        try {
-            if ((seen == INVOKEVIRTUAL) // Interfaces are more difficult, ignore
-                                        // for now
-                    || (seen == INVOKESTATIC) || (seen == INVOKESPECIAL)) {
-                clsName = getClassConstantOperand();
-                if ((clsName.startsWith("java/")) || (clsName.startsWith("javax/"))) {
-                    Method m = findCalledMethod();
-                    if (m == null) {
-                        return;
-                    }
-
-                    Map<String, Set<String>> validMethods = validMethodsByVersion.get(clsMajorVersion);
-                    if (validMethods == null) {
-                        validMethods = new HashMap<>();
-                        validMethodsByVersion.put(clsMajorVersion, validMethods);
-                    }
+        if ((seen == INVOKEVIRTUAL) // Interfaces are more difficult, ignore
+                                    // for now
+                || (seen == INVOKESTATIC) || (seen == INVOKESPECIAL)) {
+            String clsName = getClassConstantOperand();
+            if ((clsName.startsWith("java/")) || (clsName.startsWith("javax/"))) {
+                Method m = findCalledMethod();
+                if (m == null) {
+                    return;
+                }
 
-                    if (!isValid(validMethods, clsName)) {
-                        bugReporter.reportBug(new BugInstance(this, BugType.SJVU_SUSPICIOUS_JDK_VERSION_USE.name(), HIGH_PRIORITY).addClass(this)
-                                .addMethod(this).addSourceLine(this).addCalledMethod(this));
-                    }
+                if (!isValid(clsName)) {
+                    bugReporter.reportBug(new BugInstance(this, BugType.SJVU_SUSPICIOUS_JDK_VERSION_USE.name(), HIGH_PRIORITY).addClass(this).addMethod(this)
+                            .addSourceLine(this).addCalledMethod(this));
                 }
             }
-        } catch (ClassNotFoundException cnfe) {
-            bugReporter.reportMissingClass(cnfe);
-        } catch (IOException ioe) {
-            // Hmm what do do.
         }
     }
 
@@ -222,49 +197,34 @@ public class SuspiciousJDKVersionUse extends BytecodeScanningDetector {
         }
     }
 
-    private boolean isValid(Map<String, Set<String>> validMethods, String clsName) throws IOException, ClassNotFoundException {
-
-        Set<String> methodInfos = validMethods.get(clsName);
-        if (methodInfos == null) {
-
-            ZipEntry ze = jdkZip.getEntry(clsName + ".class");
-            if (ze == null) {
-                if (isJavaXExternal(clsName)) {
-                    return true;
-                }
+    private boolean isValid(String clsName) {
 
+        int clsSlot = jdkIndex.findClass(clsName);
+        if (clsSlot < 0) {
+            if (!isJavaXExternal(clsName)) {
                 bugReporter.reportBug(new BugInstance(this, BugType.SJVU_SUSPICIOUS_JDK_VERSION_USE.name(), HIGH_PRIORITY).addClass(this).addMethod(this)
                         .addSourceLine(this).addClass(clsName));
-            } else if (clsName.startsWith("java/")) {
-                JavaClass calledClass = null;
-                try (InputStream is = new BufferedInputStream(jdkZip.getInputStream(ze))) {
-                    ClassParser parser = new ClassParser(is, clsName);
-                    calledClass = parser.parse();
-                }
-
-                superNames.put(clsName, calledClass.getSuperclassName().replace('.', '/'));
-                Method[] methods = calledClass.getMethods();
-
-                methodInfos = new HashSet<>(methods.length);
-                validMethods.put(clsName, methodInfos);
-
-                for (Method m : methods) {
-                    methodInfos.add(m.getName() + m.getSignature());
-                }
             }
+            return true;
         }
 
-        if (methodInfos == null) {
+        if (!clsName.startsWith("java/")) {
             return true;
         }
-        String wantedMethod = getNameConstantOperand() + getSigConstantOperand();
-        if (methodInfos.contains(wantedMethod)) {
-            return true;
-        } else if (Values.SLASHED_JAVA_LANG_OBJECT.equals(clsName)) {
-            return false;
-        } else {
-            return isValid(validMethods, superNames.get(clsName));
+
+        String methodName = getNameConstantOperand();
+        String signature = getSigConstantOperand();
+        while (!jdkIndex.hasMethod(clsSlot, methodName, signature)) {
+            clsSlot = jdkIndex.getSuperClass(clsSlot);
+            if (clsSlot == JDKApiIndex.NO_SUPER) {
+                return false;
+            }
+            if (clsSlot == JDKApiIndex.UNKNOWN_SUPER) {
+                return true;
+            }
         }
+
+        return true;
     }
 
     /**
@@ -284,10 +244,7 @@ public class SuspiciousJDKVersionUse extends BytecodeScanningDetector {
             return true;
         }
 
-        int lastSlashPos = className.lastIndexOf('/');
-        String packageName = className.substring(0, lastSlashPos);
-        ZipEntry ze = jdkZip.getEntry(packageName);
-        if (ze != null) {
+        if (jdkIndex.hasPackageOf(className)) {
             return false;
         }
 
@@ -300,6 +257,130 @@ public class SuspiciousJDKVersionUse extends BytecodeScanningDetector {
         return true;
     }
 
+    /**
+     * converts a class file major version to the human jdk version, such as 52 to 8
+     *
+     * @param majorVersion
+     *            the class file major version
+     * @return the human jdk version
+     */
+    private static int getHumanVersion(int majorVersion) {
+        return Math.max(1, majorVersion - (Const.MAJOR_1_1 - 1));
+    }
+
+    /**
+     * finds the api index of a jdk version, preferring a prebuilt index, and otherwise building one from a JDK found on this machine
+     *
+     * @param version
+     *            the human jdk version
+     * @return the index, or null if no api of that version can be found
+     */
+    @Nullable
+    private JDKApiIndex findIndex(int version) {
+        try {
+            JDKApiIndex index = loadPrebuiltIndex(version);
+            if (index != null) {
+                return index;
+            }
+
+            JDKApiIndexBuilder builder = new JDKApiIndexBuilder(version);
+            File rtJar = getRTJarFile();
+            if (rtJar != null) {
+                builder.addJar(rtJar);
+            } else {
+                String jdkHome = System.getProperty(SJVU_JDKHOME + '.' + version);
+                if ((jdkHome == null) || !builder.addJDKHome(new File(jdkHome))) {
+                    File ctSym = new File(System.getProperty("java.home"), "lib/ct.sym");
+                    if (Boolean.getBoolean(SJVU_CTSYM) && (version < getHumanVersion(getRunningMajorVersion())) && ctSym.isFile()) {
+                        builder.addCtSym(ctSym, version);
+                    }
+                }
+            }
+
+            if (builder.isEmpty()) {
+                return null;
+            }
+
+            String indexDir = System.getProperty(SJVU_INDEXDIR);
+            if (indexDir != null) {
+                File indexFile = new File(indexDir, JDKApiIndexGenerator.indexFileName(version));
+                try {
+                    builder.write(indexFile);
+                } catch (IOException ioe) {
+                    bugReporter.logError("Failed to write the api index of jdk " + version + " to " + indexFile, ioe);
+                }
+            }
+            return builder.build();
+        } catch (IOException ioe) {
+            bugReporter.logError("Failed to read the api of jdk " + version, ioe);
+            return null;
+        }
+    }
+
+    /**
+     * returns the prebuilt index of a jdk version, which is loaded once per jvm, so that hosts that run many analyses, such as the analysis daemon, keep it
+     *
+     * @param version
+     *            the human jdk version
+     * @return the index, or null if there is no prebuilt index for the version
+     * @throws IOException
+     *             if a prebuilt index exists but can not be read
+     */
+    @Nullable
+    private static JDKApiIndex loadPrebuiltIndex(int version) throws IOException {
+        Integer key = Integer.valueOf(version);
+        JDKApiIndex index = PREBUILT_INDEXES.get(key);
+        if (index == null) {
+            index = readPrebuiltIndex(version);
+            if (index != null) {
+                JDKApiIndex loadedIndex = PREBUILT_INDEXES.putIfAbsent(key, index);
+                if (loadedIndex != null) {
+                    index = loadedIndex;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * reads a prebuilt index named by property, found in the index directory, or bundled with fb-contrib
+     *
+     * @param version
+     *            the human jdk version
+     * @return the index, or null if there is no prebuilt index for the version
+     * @throws IOException
+     *             if a prebuilt index exists but can not be read
+     */
+    @Nullable
+    private static JDKApiIndex readPrebuiltIndex(int version) throws IOException {
+        String indexPath = System.getProperty(SJVU_INDEX + '.' + version);
+        if (indexPath != null) {
+            return JDKApiIndex.load(new File(indexPath));
+        }
+
+        String indexFileName = JDKApiIndexGenerator.indexFileName(version);
+        String indexDir = System.getProperty(SJVU_INDEXDIR);
+        if (indexDir != null) {
+            File indexFile = new File(indexDir, indexFileName);
+            if (indexFile.isFile()) {
+                return JDKApiIndex.load(indexFile);
+            }
+        }
+
+        try (InputStream is = SuspiciousJDKVersionUse.class.getResourceAsStream(INDEX_RESOURCE_DIR + indexFileName)) {
+            return (is == null) ? null : JDKApiIndex.load(is);
+        }
+    }
+
+    /**
+     * returns the class file major version of the running JDK
+     *
+     * @return the class file major version
+     */
+    private static int getRunningMajorVersion() {
+        return (int) Double.parseDouble(System.getProperty("java.class.version"));
+    }
+
     @Nullable
     private File getRTJarFile() {
         String versionStr = VER_REG_EX.get(clsMajorVersion);
@@ -372,23 +453,4 @@ public class SuspiciousJDKVersionUse extends BytecodeScanningDetector {
 
         return null;
     }
-
-    @Nullable
-    private static File getRTJarFromProperty(Integer requestedVersion) {
-        String jdkHome = System.getProperty(SJVU_JDKHOME + '.' + HUMAN_VERSIONS.get(requestedVersion));
-        if (jdkHome == null) {
-            return null;
-        }
-
-        File rtJar = new File(jdkHome, "lib/rt.jar");
-        if (rtJar.exists()) {
-            return rtJar;
-        }
-        rtJar = new File(jdkHome, "jre/lib/rt.jar");
-        if (rtJar.exists()) {
-            return rtJar;
-        }
-
-        return null;
-    }
 }
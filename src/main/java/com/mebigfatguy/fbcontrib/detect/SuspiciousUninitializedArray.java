@@ -26,11 +26,10 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.bcel.Const;
-import org.apache.bcel.Repository;
 import org.apache.bcel.classfile.Code;
-import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.RegisterUtils;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
@@ -53,20 +52,13 @@ import edu.umd.cs.findbugs.ba.ClassContext;
 @CustomUserValue
 public class SuspiciousUninitializedArray extends BytecodeScanningDetector {
 
-    private static JavaClass THREAD_LOCAL_CLASS;
+    private static final String THREAD_LOCAL_CLASS = "java/lang/ThreadLocal";
     private static final String INITIAL_VALUE = "initialValue";
 
-    static {
-        try {
-            THREAD_LOCAL_CLASS = Repository.lookupClass(ThreadLocal.class);
-        } catch (ClassNotFoundException e) {
-            THREAD_LOCAL_CLASS = null;
-        }
-    }
-
     private final BugReporter bugReporter;
     private boolean isEnum;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private String returnArraySig;
     private BitSet uninitializedRegs;
     private Map<Integer, Integer> arrayAliases;
@@ -130,7 +122,7 @@ public class SuspiciousUninitializedArray extends BytecodeScanningDetector {
         }
         if (INITIAL_VALUE.equals(m.getName())) {
             try {
-                if ((THREAD_LOCAL_CLASS == null) || getClassContext().getJavaClass().instanceOf(THREAD_LOCAL_CLASS)) {
+                if (getClassContext().getJavaClass().instanceOf(ClassHierarchy.getInstance().lookupClass(THREAD_LOCAL_CLASS))) {
                     return;
                 }
             } catch (ClassNotFoundException e) {
@@ -341,9 +333,9 @@ public class SuspiciousUninitializedArray extends BytecodeScanningDetector {
                 break;
             }
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if ((Const.getProduceStack(seen) > 0) && (stack.getStackDepth() > 0)) {
                 OpcodeStack.Item item = stack.getStackItem(0);
                 item.setUserValue(userValue);
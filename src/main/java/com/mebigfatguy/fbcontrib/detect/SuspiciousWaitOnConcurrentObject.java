@@ -22,7 +22,6 @@ import java.util.Set;
 
 import org.apache.bcel.Const;
 import org.apache.bcel.classfile.JavaClass;
-import org.apache.bcel.classfile.Method;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.UnmodifiableSet;
@@ -36,13 +35,10 @@ import edu.umd.cs.findbugs.ba.ClassContext;
 /**
  * looks for calls to the wait method on mutexes defined in the java.util.concurrent package where it is likely that await was intended.
  */
-public class SuspiciousWaitOnConcurrentObject extends BytecodeScanningDetector {
+public class SuspiciousWaitOnConcurrentObject extends AbstractSharedStackDetector {
     private static final Set<String> concurrentAwaitClasses = UnmodifiableSet.create("java.util.concurrent.CountDownLatch",
             "java.util.concurrent.CyclicBarrier");
 
-    private BugReporter bugReporter;
-    private OpcodeStack stack;
-
     /**
      * constructs a SWCO detector given the reporter to report bugs on
      *
@@ -50,66 +46,47 @@ public class SuspiciousWaitOnConcurrentObject extends BytecodeScanningDetector {
      *            the sync of bug reports
      */
     public SuspiciousWaitOnConcurrentObject(BugReporter bugReporter) {
-        this.bugReporter = bugReporter;
+        super(bugReporter);
     }
 
     /**
-     * implements the visitor to check for class file version 1.5 or better
+     * implements the participant to only look at classes with class file version 1.5 or better
      *
      * @param classContext
      *            the context object of the currently parsed class
+     * @return whether the class is 1.5 or better
      */
     @Override
-    public void visitClassContext(ClassContext classContext) {
-        try {
-            JavaClass cls = classContext.getJavaClass();
-            int major = cls.getMajor();
-            if (major >= Const.MAJOR_1_5) {
-                stack = new OpcodeStack();
-                super.visitClassContext(classContext);
-            }
-        } finally {
-            stack = null;
-        }
-    }
-
-    /**
-     * implements the visitor to reset the opcode stack
-     *
-     * @param obj
-     *            the context object for the currently parsed method
-     */
-    @Override
-    public void visitMethod(Method obj) {
-        stack.resetForMethodEntry(this);
+    public boolean beginClass(ClassContext classContext) {
+        return classContext.getJavaClass().getMajor() >= Const.MAJOR_1_5;
     }
 
     /**
      * implements the visitor to look for calls to wait, on java.util.concurrent classes that define await.
      *
+     * @param dbc
+     *            the shared visitor, positioned on the opcode
+     * @param stack
+     *            the shared stack, before the opcode executes
      * @param seen
      *            the opcode of the currently visited instruction
      */
     @Override
-    public void sawOpcode(int seen) {
+    public void sawOpcode(BytecodeScanningDetector dbc, OpcodeStack stack, int seen) {
         try {
-            stack.precomputation(this);
-
-            if ((seen != INVOKEVIRTUAL) || !"wait".equals(getNameConstantOperand()) || stack.getStackDepth() == 0) {
+            if ((seen != Const.INVOKEVIRTUAL) || !"wait".equals(dbc.getNameConstantOperand()) || stack.getStackDepth() == 0) {
                 return;
             }
             JavaClass cls = stack.getStackItem(0).getJavaClass();
             if (cls != null) {
                 String clsName = cls.getClassName();
                 if (concurrentAwaitClasses.contains(clsName)) {
-                    bugReporter.reportBug(new BugInstance(this, BugType.SWCO_SUSPICIOUS_WAIT_ON_CONCURRENT_OBJECT.name(), NORMAL_PRIORITY).addClass(this)
-                            .addMethod(this).addSourceLine(this));
+                    bugReporter.reportBug(new BugInstance(this, BugType.SWCO_SUSPICIOUS_WAIT_ON_CONCURRENT_OBJECT.name(), NORMAL_PRIORITY).addClass(dbc)
+                            .addMethod(dbc).addSourceLine(dbc));
                 }
             }
         } catch (ClassNotFoundException cnfe) {
             bugReporter.reportMissingClass(cnfe);
-        } finally {
-            stack.sawOpcode(this, seen);
         }
     }
 }
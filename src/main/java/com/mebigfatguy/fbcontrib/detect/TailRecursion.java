@@ -18,31 +18,32 @@
  */
 package com.mebigfatguy.fbcontrib.detect;
 
-import org.apache.bcel.classfile.Code;
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.cache.ClassLocalDetector;
+import com.mebigfatguy.fbcontrib.cache.ClassResultCache;
+import com.mebigfatguy.fbcontrib.engine.ClassFacts;
+import com.mebigfatguy.fbcontrib.engine.MethodFacts;
 import com.mebigfatguy.fbcontrib.utils.BugType;
-import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
-import edu.umd.cs.findbugs.BytecodeScanningDetector;
-import edu.umd.cs.findbugs.OpcodeStack;
+import edu.umd.cs.findbugs.SourceLineAnnotation;
 import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.visitclass.PreorderVisitor;
 
 /**
  * looks for methods that make a recursive call to itself as the last statement in the method. This tail recursion could be converted into a simple loop which
- * would improve the performance and stack requirements.
+ * would improve the performance and stack requirements. The virtual calls, and the register their receiver was loaded from, are taken from the shared class facts.
  */
-public class TailRecursion extends BytecodeScanningDetector {
+public class TailRecursion extends PreorderVisitor implements ClassLocalDetector {
     public static final int TAILRECURSIONFUDGE = 6;
 
     private BugReporter bugReporter;
-    private OpcodeStack stack;
-    private int trPCPos;
-    private boolean possibleTailRecursion;
-    private boolean isStatic;
 
     /**
      * constructs a TR detector given the reporter to report bugs on
@@ -51,86 +52,86 @@ public class TailRecursion extends BytecodeScanningDetector {
      *            the sync of bug reports
      */
     public TailRecursion(BugReporter bugReporter) {
-        this.bugReporter = bugReporter;
+        this.bugReporter = ClassResultCache.record(this, bugReporter);
     }
 
     /**
-     * implements the visitor to create and clear the stack
+     * implements the visitor to look for tail recursion in each method of the class
      *
      * @param classContext
      *            the context object of the currently parsed class
      */
     @Override
     public void visitClassContext(ClassContext classContext) {
-        try {
-            stack = new OpcodeStack();
-            super.visitClassContext(classContext);
-        } finally {
-            stack = null;
+        if (ClassResultCache.replay(classContext, bugReporter)) {
+            return;
         }
-    }
 
-    /**
-     * implements the visitor to figure the pc where the method call must occur depending on whether the method returns a value, or not.
-     *
-     * @param obj
-     *            the context object of the currently parsed method
-     */
-    @Override
-    public void visitMethod(Method obj) {
-        Code c = obj.getCode();
-        if (c != null) {
-            byte[] opcodes = c.getCode();
-            if (opcodes != null) {
-                trPCPos = opcodes.length - 1;
-                if (!obj.getSignature().endsWith(Values.SIG_VOID)) {
-                    trPCPos -= 1;
+        JavaClass cls = classContext.getJavaClass();
+        try {
+            ClassFacts classFacts = ClassFacts.getClassFacts(classContext);
+            for (Method m : cls.getMethods()) {
+                MethodFacts methodFacts = classFacts.getMethodFacts(m);
+                if (methodFacts != null) {
+                    checkMethod(classContext, m, methodFacts);
                 }
-                trPCPos -= TAILRECURSIONFUDGE;
-                possibleTailRecursion = true;
-                isStatic = obj.isStatic();
-                stack.resetForMethodEntry(this);
-                super.visitMethod(obj);
             }
+        } catch (CheckedAnalysisException e) {
+            bugReporter.logError("Failed to get class facts for " + cls.getClassName(), e);
         }
+        ClassResultCache.recorded(bugReporter);
     }
 
     /**
-     * implements the visitor to find methods that employ tail recursion
+     * figures the pc where the method call must occur depending on whether the method returns a value, or not, and then looks at the virtual calls made to find
+     * a recursive one at that position
      *
-     * @param seen
-     *            the opcode of the currently parsed instruction
+     * @param classContext
+     *            the context object of the currently parsed class
+     * @param m
+     *            the method being checked
+     * @param methodFacts
+     *            the shared facts of the method
      */
-    @Override
-    public void sawOpcode(int seen) {
-        try {
-            stack.precomputation(this);
+    private void checkMethod(ClassContext classContext, Method m, MethodFacts methodFacts) {
+        int trPCPos = methodFacts.getCodeLength() - 1;
+        if (!m.getSignature().endsWith(Values.SIG_VOID)) {
+            trPCPos -= 1;
+        }
+        trPCPos -= TAILRECURSIONFUDGE;
+
+        JavaClass cls = classContext.getJavaClass();
+        String clsName = cls.getClassName().replace('.', '/');
+        boolean possibleTailRecursion = true;
 
-            if (seen == INVOKEVIRTUAL) {
-                checkForTailRecursion();
+        MethodFacts.ReferenceSites invokes = methodFacts.getInvokes();
+        for (int i = 0; i < invokes.size(); i++) {
+            if (invokes.getOpcode(i) != Const.INVOKEVIRTUAL) {
+                continue;
             }
-        } finally {
-            stack.sawOpcode(this, seen);
-        }
-    }
 
-    private void checkForTailRecursion() {
-        boolean isRecursion = getMethodName().equals(getNameConstantOperand()) && getMethodSig().equals(getSigConstantOperand())
-                && getClassName().equals(getClassConstantOperand());
+            boolean isRecursion = m.getName().equals(invokes.getName(i)) && m.getSignature().equals(invokes.getSignature(i))
+                    && clsName.equals(invokes.getClassName(i));
 
-        if (isRecursion && !isStatic) {
-            int numParms = SignatureUtils.getNumParameters(getMethodSig());
-            if (stack.getStackDepth() > numParms) {
-                OpcodeStack.Item itm = stack.getStackItem(numParms);
-                isRecursion = (itm.getRegisterNumber() == 0);
+            if (isRecursion && !m.isStatic()) {
+                isRecursion = (invokes.getReceiverRegister(i) == 0);
             }
-        }
 
-        if (isRecursion && possibleTailRecursion && (getPC() >= trPCPos)) {
-            bugReporter.reportBug(new BugInstance(this, BugType.TR_TAIL_RECURSION.name(), NORMAL_PRIORITY).addClass(this).addMethod(this).addSourceLine(this));
-        } else {
-            possibleTailRecursion = false;
+            int pc = invokes.getPC(i);
+            if (isRecursion && possibleTailRecursion && (pc >= trPCPos)) {
+                bugReporter.reportBug(new BugInstance(this, BugType.TR_TAIL_RECURSION.name(), NORMAL_PRIORITY).addClass(cls).addMethod(cls, m)
+                        .addSourceLine(SourceLineAnnotation.fromVisitedInstruction(classContext, m, pc)));
+            } else {
+                possibleTailRecursion = false;
+            }
         }
     }
 
+    /**
+     * implements the Detector interface, only to save the results of this run, as bugs are reported in visitClassContext
+     */
+    @Override
+    public void report() {
+        ClassResultCache.save(bugReporter);
+    }
 }
@@ -89,6 +89,7 @@ public class UnitTestAssertionOddities extends BytecodeScanningDetector {
     private JavaClass testAnnotationClass;
     private JavaClass testNGAnnotationClass;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private boolean isTestCaseDerived;
     private boolean isAnnotationCapable;
     private @SlashedClassName String className;
@@ -385,9 +386,9 @@ public class UnitTestAssertionOddities extends BytecodeScanningDetector {
             }
 
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if ((userValue != null) && (stack.getStackDepth() > 0)) {
                 OpcodeStack.Item item = stack.getStackItem(0);
                 item.setUserValue(userValue);
@@ -22,64 +22,60 @@ import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.cache.ClassLocalDetector;
+import com.mebigfatguy.fbcontrib.cache.ClassResultCache;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
-import edu.umd.cs.findbugs.Detector;
 import edu.umd.cs.findbugs.ba.ClassContext;
 import edu.umd.cs.findbugs.visitclass.PreorderVisitor;
 
 /**
  * looks for methods that are bigger than 8000 bytes, as these methods are ignored by the jit for compilation, causing them to always be interpreted.
  */
-public class Unjitable extends PreorderVisitor implements Detector {
+public class Unjitable extends PreorderVisitor implements ClassLocalDetector {
 
     private static final int UNJITABLE_CODE_LENGTH = 8000;
 
     private BugReporter bugReporter;
 
     public Unjitable(BugReporter bugReporter) {
-        this.bugReporter = bugReporter;
+        this.bugReporter = ClassResultCache.record(this, bugReporter);
     }
 
     /**
-     * implements the visitor to accept the class for visiting
+     * implements the visitor to look at the size of each method. static initializer are ignored as these will only be executed once anyway.
      *
      * @param classContext
      *            the context object of the currently parsed class
      */
     @Override
     public void visitClassContext(ClassContext classContext) {
-        JavaClass cls = classContext.getJavaClass();
-        cls.accept(this);
-    }
-
-    /**
-     * implements the visitor to look at the size of the method. static initializer are ignored as these will only be executed once anyway.
-     *
-     * @param obj
-     *            the context object of the currently parsed method
-     */
-    @Override
-    public void visitCode(Code obj) {
+        if (ClassResultCache.replay(classContext, bugReporter)) {
+            return;
+        }
 
-        Method m = getMethod();
-        if ((!m.isStatic() || !Values.STATIC_INITIALIZER.equals(m.getName())) && (!m.getName().contains("enum constant"))) { // a findbugs thing!!
-            byte[] code = obj.getCode();
-            if (code.length >= UNJITABLE_CODE_LENGTH) {
-                bugReporter.reportBug(new BugInstance(this, BugType.UJM_UNJITABLE_METHOD.name(), NORMAL_PRIORITY).addClass(this).addMethod(this)
-                        .addString("Code Bytes: " + code.length));
+        JavaClass cls = classContext.getJavaClass();
+        for (Method m : cls.getMethods()) {
+            Code code = m.getCode();
+            if ((code != null) && (!m.isStatic() || !Values.STATIC_INITIALIZER.equals(m.getName())) && (!m.getName().contains("enum constant"))) { // a findbugs thing!!
+                int codeLength = code.getCode().length;
+                if (codeLength >= UNJITABLE_CODE_LENGTH) {
+                    bugReporter.reportBug(new BugInstance(this, BugType.UJM_UNJITABLE_METHOD.name(), NORMAL_PRIORITY).addClass(cls).addMethod(cls, m)
+                            .addString("Code Bytes: " + codeLength));
+                }
             }
         }
+        ClassResultCache.recorded(bugReporter);
     }
 
     /**
-     * overrides the visitor, but not used.
+     * overrides the visitor, only to save the results of this run, as bugs are reported in visitClassContext
      */
     @Override
     public void report() {
-        // bugs are reported in visitCode
+        ClassResultCache.save(bugReporter);
     }
 }
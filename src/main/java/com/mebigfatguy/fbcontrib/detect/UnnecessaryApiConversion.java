@@ -23,6 +23,8 @@ import java.util.Map;
 
 import org.apache.bcel.classfile.Code;
 
+import com.mebigfatguy.fbcontrib.engine.MethodMatcher;
+import com.mebigfatguy.fbcontrib.engine.MethodTable;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 
@@ -32,6 +34,7 @@ import edu.umd.cs.findbugs.BytecodeScanningDetector;
 import edu.umd.cs.findbugs.OpcodeStack;
 import edu.umd.cs.findbugs.ba.ClassContext;
 import edu.umd.cs.findbugs.ba.XMethod;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 
 /**
  * looks for code that appears to be using two forms of similar apis, an older one, and a new one. It finds code that creates newer api objects by first
@@ -39,18 +42,20 @@ import edu.umd.cs.findbugs.ba.XMethod;
  */
 public class UnnecessaryApiConversion extends BytecodeScanningDetector {
 
-    private static Map<FQMethod, LegacyInfo> conversions = new HashMap<>();
+    private static final MethodTable<LegacyInfo> CONVERSIONS;
 
     static {
+        Map<FQMethod, LegacyInfo> conversions = new HashMap<>();
         conversions.put(new FQMethod("java/util/Date", "toInstant", "()Ljava/time/Instant;"),
                 new LegacyInfo("<init>", BugType.UAC_UNNECESSARY_API_CONVERSION_DATE_TO_INSTANT));
         conversions.put(new FQMethod("java/io/File", "toPath", "()Ljava/nio/file/Path;"),
                 new LegacyInfo("<init>", BugType.UAC_UNNECESSARY_API_CONVERSION_FILE_TO_PATH));
-
+        CONVERSIONS = new MethodTable<>(conversions);
     }
 
     private BugReporter bugReporter;
     private OpcodeStack stack;
+    private MethodMatcher<LegacyInfo> conversions;
 
     public UnnecessaryApiConversion(BugReporter bugReporter) {
         this.bugReporter = bugReporter;
@@ -59,10 +64,14 @@ public class UnnecessaryApiConversion extends BytecodeScanningDetector {
     @Override
     public void visitClassContext(ClassContext classContext) {
         try {
+            conversions = CONVERSIONS.resolve(classContext);
             stack = new OpcodeStack();
             super.visitClassContext(classContext);
+        } catch (CheckedAnalysisException e) {
+            bugReporter.logError("Failed to resolve api conversions for " + classContext.getJavaClass().getClassName(), e);
         } finally {
             stack = null;
+            conversions = null;
         }
     }
 
@@ -78,13 +87,12 @@ public class UnnecessaryApiConversion extends BytecodeScanningDetector {
         try {
             switch (seen) {
                 case INVOKEVIRTUAL:
-                    FQMethod conversionMethod = new FQMethod(getClassConstantOperand(), getNameConstantOperand(), getSigConstantOperand());
-                    LegacyInfo legacyInfo = conversions.get(conversionMethod);
+                    LegacyInfo legacyInfo = conversions.get(this);
                     if ((legacyInfo != null) && (stack.getStackDepth() > 0)) {
                         OpcodeStack.Item itm = stack.getStackItem(0);
                         XMethod xm = itm.getReturnValueOf();
                         if ((xm != null) && (xm.getName().equals(legacyInfo.methodName)
-                                && (xm.getClassName().equals(conversionMethod.getClassName().replace('/', '.'))))) {
+                                && (xm.getClassName().equals(getDottedClassConstantOperand())))) {
                             bugReporter.reportBug(
                                     new BugInstance(this, legacyInfo.bugType.name(), NORMAL_PRIORITY).addClass(this).addMethod(this).addSourceLine(this));
                         }
@@ -45,6 +45,7 @@ import edu.umd.cs.findbugs.ba.ClassContext;
 public class UnnecessaryNewNullCheck extends BytecodeScanningDetector {
     private final BugReporter bugReporter;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private BitSet allocationRegs;
     private BitSet transitionPoints;
 
@@ -184,9 +185,9 @@ public class UnnecessaryNewNullCheck extends BytecodeScanningDetector {
                 break;
             }
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
 
             if (stack.getStackDepth() > 0) {
                 OpcodeStack.Item item = stack.getStackItem(0);
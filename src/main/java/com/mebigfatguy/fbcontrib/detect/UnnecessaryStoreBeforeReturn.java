@@ -109,6 +109,7 @@ public class UnnecessaryStoreBeforeReturn extends BytecodeScanningDetector {
     private BitSet branchTargets;
     private BitSet catchTargets;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private State state;
     private int storeReg;
 
@@ -215,9 +216,9 @@ public class UnnecessaryStoreBeforeReturn extends BytecodeScanningDetector {
             lhsReg = processBinOp(seen);
 
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if ((lhsReg > -1) && (stack.getStackDepth() >= 1)) {
                 OpcodeStack.Item item = stack.getStackItem(0);
                 item.setUserValue(Integer.valueOf(lhsReg));
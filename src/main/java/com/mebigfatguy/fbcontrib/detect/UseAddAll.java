@@ -50,6 +50,7 @@ import edu.umd.cs.findbugs.ba.XField;
 @CustomUserValue
 public class UseAddAll extends AbstractCollectionScanningDetector {
 
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     /** register/field to alias register/field */
     private Map<Comparable<?>, Comparable<?>> userValues;
     /** alias register to loop info */
@@ -237,9 +238,9 @@ public class UseAddAll extends AbstractCollectionScanningDetector {
         } catch (ClassNotFoundException cnfe) {
             bugReporter.reportMissingClass(cnfe);
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if (sawAlias) {
                 if (stack.getStackDepth() > 0) {
                     OpcodeStack.Item itm = stack.getStackItem(0);
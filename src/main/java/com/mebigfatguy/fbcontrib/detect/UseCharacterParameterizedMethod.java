@@ -19,7 +19,6 @@
 package com.mebigfatguy.fbcontrib.detect;
 
 import java.util.BitSet;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -29,6 +28,8 @@ import org.apache.bcel.Const;
 import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.engine.MethodMatcher;
+import com.mebigfatguy.fbcontrib.engine.MethodTable;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.FQMethod;
 import com.mebigfatguy.fbcontrib.utils.OpcodeUtils;
@@ -43,6 +44,7 @@ import edu.umd.cs.findbugs.BytecodeScanningDetector;
 import edu.umd.cs.findbugs.OpcodeStack;
 import edu.umd.cs.findbugs.OpcodeStack.CustomUserValue;
 import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 
 /**
  * looks for methods that pass single character string Const as parameters to methods that alternatively have an overridden method that accepts a character
@@ -51,10 +53,11 @@ import edu.umd.cs.findbugs.ba.ClassContext;
 @CustomUserValue
 public class UseCharacterParameterizedMethod extends BytecodeScanningDetector {
 
-    private final static Map<FQMethod, Object> characterMethods;
+    private final static MethodTable<Object> CHARACTER_METHODS;
 
     private final BugReporter bugReporter;
     private OpcodeStack stack;
+    private MethodMatcher<Object> characterMethods;
 
     /**
      * holds a user value for a StringBuilder or StringBuffer on the stack that is an online append ideally there would be an UNKNOWN option, rather than null,
@@ -95,7 +98,7 @@ public class UseCharacterParameterizedMethod extends BytecodeScanningDetector {
                         .withParamTypes("java/lang/CharSequence", "java/lang/CharSequence").withReturnType(Values.SLASHED_JAVA_LANG_STRING).toString()),
                 new IntPair(0, 1));
 
-        characterMethods = Collections.unmodifiableMap(methodsMap);
+        CHARACTER_METHODS = new MethodTable<>(methodsMap);
     }
 
     /**
@@ -117,10 +120,14 @@ public class UseCharacterParameterizedMethod extends BytecodeScanningDetector {
     @Override
     public void visitClassContext(final ClassContext context) {
         try {
+            characterMethods = CHARACTER_METHODS.resolve(context);
             stack = new OpcodeStack();
             super.visitClassContext(context);
+        } catch (CheckedAnalysisException e) {
+            bugReporter.logError("Failed to resolve character methods for " + context.getJavaClass().getClassName(), e);
         } finally {
             stack = null;
+            characterMethods = null;
         }
     }
 
@@ -162,11 +169,9 @@ public class UseCharacterParameterizedMethod extends BytecodeScanningDetector {
             stack.precomputation(this);
 
             if ((seen == Const.INVOKEVIRTUAL) || (seen == Const.INVOKEINTERFACE)) {
-                FQMethod key = new FQMethod(getClassConstantOperand(), getNameConstantOperand(), getSigConstantOperand());
-
-                Object posObject = characterMethods.get(key);
+                Object posObject = characterMethods.get(this);
                 if (posObject instanceof Integer) {
-                    if (checkSingleParamMethod(((Integer) posObject).intValue()) && !isInlineAppend(key)) {
+                    if (checkSingleParamMethod(((Integer) posObject).intValue()) && !isInlineAppend(characterMethods.getMethod(this))) {
                         reportBug();
                     }
                 } else if ((posObject instanceof IntPair) && checkDoubleParamMethod((IntPair) posObject)) {
@@ -43,6 +43,7 @@ import edu.umd.cs.findbugs.OpcodeStack.CustomUserValue;
 @CustomUserValue
 public class UseToArray extends AbstractCollectionScanningDetector {
 
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
     private Map<Integer, Object> userValues;
 
     /**
@@ -162,9 +163,9 @@ public class UseToArray extends AbstractCollectionScanningDetector {
         } catch (ClassNotFoundException cnfe) {
             bugReporter.reportMissingClass(cnfe);
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if (sawAlias) {
                 if (stack.getStackDepth() > 0) {
                     OpcodeStack.Item itm = stack.getStackItem(0);
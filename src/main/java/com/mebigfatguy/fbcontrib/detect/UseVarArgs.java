@@ -18,15 +18,14 @@
  */
 package com.mebigfatguy.fbcontrib.detect;
 
-import java.util.List;
 
 import org.apache.bcel.Const;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
 import com.mebigfatguy.fbcontrib.utils.BugType;
+import com.mebigfatguy.fbcontrib.utils.ParsedSignature;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
-import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
 import com.mebigfatguy.fbcontrib.utils.Values;
 
 import edu.umd.cs.findbugs.BugInstance;
@@ -82,8 +81,9 @@ public class UseVarArgs extends PreorderVisitor implements Detector {
                 return;
             }
 
-            List<String> types = SignatureUtils.getParameterSignatures(obj.getSignature());
-            if ((types.isEmpty()) || (types.size() > 2)) {
+            ParsedSignature types = ParsedSignature.of(obj.getSignature());
+            int numTypes = types.getNumParameters();
+            if ((numTypes == 0) || (numTypes > 2)) {
                 return;
             }
 
@@ -91,7 +91,7 @@ public class UseVarArgs extends PreorderVisitor implements Detector {
                 return;
             }
 
-            String lastParmSig = types.get(types.size() - 1);
+            String lastParmSig = types.getParameterSignature(numTypes - 1);
             if (!lastParmSig.startsWith(Values.SIG_ARRAY_PREFIX) || lastParmSig.startsWith(Values.SIG_ARRAY_OF_ARRAYS_PREFIX)) {
                 return;
             }
@@ -132,25 +132,25 @@ public class UseVarArgs extends PreorderVisitor implements Detector {
      * determines whether a bunch of types are similar and thus would be confusing to have one be a varargs.
      *
      * @param argTypes
-     *            the parameter signatures to check
+     *            the parsed signature of the method to check
      * @return whether the parameter are similar
      */
-    @edu.umd.cs.findbugs.annotations.SuppressFBWarnings(value = "LII_LIST_INDEXED_ITERATING", justification = "this doesn't iterate over every element, so we can't use a for-each loop")
-    private static boolean hasSimilarParms(List<String> argTypes) {
+    private static boolean hasSimilarParms(ParsedSignature argTypes) {
 
-        for (int i = 0; i < (argTypes.size() - 1); i++) {
-            if (argTypes.get(i).startsWith(Values.SIG_ARRAY_PREFIX)) {
+        int lastParm = argTypes.getNumParameters() - 1;
+        for (int i = 0; i < lastParm; i++) {
+            if (argTypes.getParameterSignature(i).startsWith(Values.SIG_ARRAY_PREFIX)) {
                 return true;
             }
         }
 
-        String baseType = argTypes.get(argTypes.size() - 1);
+        String baseType = argTypes.getParameterSignature(lastParm);
         while (baseType.startsWith(Values.SIG_ARRAY_PREFIX)) {
             baseType = baseType.substring(1);
         }
 
-        for (int i = 0; i < (argTypes.size() - 1); i++) {
-            if (argTypes.get(i).equals(baseType)) {
+        for (int i = 0; i < lastParm; i++) {
+            if (argTypes.getParameterSignature(i).equals(baseType)) {
                 return true;
             }
         }
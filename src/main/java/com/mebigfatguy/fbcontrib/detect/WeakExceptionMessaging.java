@@ -29,6 +29,7 @@ import org.apache.bcel.classfile.ConstantString;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
 import com.mebigfatguy.fbcontrib.utils.BugType;
 import com.mebigfatguy.fbcontrib.utils.SignatureBuilder;
 import com.mebigfatguy.fbcontrib.utils.SignatureUtils;
@@ -50,19 +51,11 @@ import edu.umd.cs.findbugs.ba.ClassContext;
 @CustomUserValue
 public class WeakExceptionMessaging extends BytecodeScanningDetector {
 
-    private static JavaClass exceptionClass;
     private static final Set<String> ignorableExceptionTypes = UnmodifiableSet.create("java.lang.UnsupportedOperationException");
 
-    static {
-        try {
-            exceptionClass = Repository.lookupClass(Values.SLASHED_JAVA_LANG_EXCEPTION);
-        } catch (ClassNotFoundException cnfe) {
-            exceptionClass = null;
-        }
-    }
-
     private final BugReporter bugReporter;
     private OpcodeStack stack;
+    private final TernaryPatcher ternaryPatcher = new TernaryPatcher();
 
     /**
      * constructs a WEM detector given the reporter to report bugs on
@@ -83,10 +76,8 @@ public class WeakExceptionMessaging extends BytecodeScanningDetector {
     @Override
     public void visitClassContext(ClassContext classContext) {
         try {
-            if (exceptionClass != null) {
-                stack = new OpcodeStack();
-                super.visitClassContext(classContext);
-            }
+            stack = new OpcodeStack();
+            super.visitClassContext(classContext);
         } finally {
             stack = null;
         }
@@ -148,7 +139,7 @@ public class WeakExceptionMessaging extends BytecodeScanningDetector {
                     return;
                 }
                 JavaClass exCls = Repository.lookupClass(clsName);
-                if (!exCls.instanceOf(exceptionClass)) {
+                if (!exCls.instanceOf(ClassHierarchy.getInstance().lookupClass(Values.SLASHED_JAVA_LANG_EXCEPTION))) {
                     return;
                 }
                 String sig = getSigConstantOperand();
@@ -173,9 +164,9 @@ public class WeakExceptionMessaging extends BytecodeScanningDetector {
         } catch (ClassNotFoundException cnfe) {
             bugReporter.reportMissingClass(cnfe);
         } finally {
-            TernaryPatcher.pre(stack, seen);
+            ternaryPatcher.pre(stack, seen);
             stack.sawOpcode(this, seen);
-            TernaryPatcher.post(stack, seen);
+            ternaryPatcher.post(stack, seen);
             if ((sawConstant || allConstantStrings) && (stack.getStackDepth() > 0)) {
                 OpcodeStack.Item item = stack.getStackItem(0);
                 item.setUserValue(Boolean.TRUE);
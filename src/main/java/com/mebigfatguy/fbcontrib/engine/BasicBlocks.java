@@ -0,0 +1,291 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.CodeException;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+/**
+ * splits the bytecode of a method into basic blocks, without building a BCEL InstructionList or FindBugs CFG. A block starts at the start of the method, at
+ * each branch target and exception handler, after each branch, return, athrow or switch, and at the start and end of each try range, so that every block is
+ * either wholly inside or wholly outside any try range. Blocks are numbered in pc order, block 0 being the entry.
+ * <p>
+ * Each block has normal successors, the blocks control may fall through or branch to, and handler successors, the exception handlers that cover it. A jsr is
+ * treated as a branch to the subroutine that may also fall through to the following instruction, and a ret as leaving the method.
+ */
+public final class BasicBlocks {
+
+    private final int[] starts;
+    private final int codeLength;
+    private final int[] successorOffsets;
+    private final int[] successors;
+    private final int[] handlerOffsets;
+    private final int[] handlers;
+
+    private BasicBlocks(int[] starts, int codeLength, int[] successorOffsets, int[] successors, int[] handlerOffsets, int[] handlers) {
+        this.starts = starts;
+        this.codeLength = codeLength;
+        this.successorOffsets = successorOffsets;
+        this.successors = successors;
+        this.handlerOffsets = handlerOffsets;
+        this.handlers = handlers;
+    }
+
+    /**
+     * splits the code of a method into basic blocks
+     *
+     * @param codeAttribute
+     *            the code of the method
+     * @return the basic blocks of the method
+     */
+    public static BasicBlocks build(Code codeAttribute) {
+        byte[] code = codeAttribute.getCode();
+        CodeException[] exceptions = codeAttribute.getExceptionTable();
+        if (exceptions == null) {
+            exceptions = new CodeException[0];
+        }
+
+        BitSet leaders = new BitSet(code.length + 1);
+        leaders.set(0);
+        for (CodeException ex : exceptions) {
+            leaders.set(ex.getStartPC());
+            leaders.set(ex.getEndPC());
+            leaders.set(ex.getHandlerPC());
+        }
+
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc] & 0xFF;
+            int length = length(code, pc, opcode);
+            int[] targets = branchTargets(code, pc, opcode);
+            if (targets != null) {
+                for (int target : targets) {
+                    leaders.set(target);
+                }
+                leaders.set(pc + length);
+            } else if (endsFlow(opcode)) {
+                leaders.set(pc + length);
+            }
+            pc += length;
+        }
+        leaders.clear(code.length, leaders.length());
+
+        int numBlocks = leaders.cardinality();
+        int[] starts = new int[numBlocks];
+        int b = 0;
+        for (int leader = leaders.nextSetBit(0); leader >= 0; leader = leaders.nextSetBit(leader + 1)) {
+            starts[b++] = leader;
+        }
+
+        int[] successorOffsets = new int[numBlocks + 1];
+        int[] successors = new int[numBlocks * 2];
+        int numSuccessors = 0;
+        for (b = 0; b < numBlocks; b++) {
+            int end = (b + 1 < numBlocks) ? starts[b + 1] : code.length;
+            int lastPC = starts[b];
+            pc = starts[b];
+            while (pc < end) {
+                lastPC = pc;
+                pc += length(code, pc, code[pc] & 0xFF);
+            }
+
+            int opcode = code[lastPC] & 0xFF;
+            int[] targets = branchTargets(code, lastPC, opcode);
+            int[] blockSuccessors;
+            if (targets != null) {
+                boolean fallsThrough = (opcode != Const.GOTO) && (opcode != Const.GOTO_W) && (opcode != Const.TABLESWITCH) && (opcode != Const.LOOKUPSWITCH);
+                blockSuccessors = Arrays.copyOf(targets, targets.length + ((fallsThrough && (end < code.length)) ? 1 : 0));
+                if (blockSuccessors.length > targets.length) {
+                    blockSuccessors[targets.length] = end;
+                }
+            } else if (endsFlow(opcode) || (end >= code.length)) {
+                blockSuccessors = new int[0];
+            } else {
+                blockSuccessors = new int[] { end };
+            }
+
+            for (int i = 0; i < blockSuccessors.length; i++) {
+                blockSuccessors[i] = Arrays.binarySearch(starts, blockSuccessors[i]);
+            }
+            Arrays.sort(blockSuccessors);
+            for (int i = 0; i < blockSuccessors.length; i++) {
+                if ((i == 0) || (blockSuccessors[i] != blockSuccessors[i - 1])) {
+                    if (numSuccessors == successors.length) {
+                        successors = Arrays.copyOf(successors, numSuccessors << 1);
+                    }
+                    successors[numSuccessors++] = blockSuccessors[i];
+                }
+            }
+            successorOffsets[b + 1] = numSuccessors;
+        }
+
+        int[] handlerOffsets = new int[numBlocks + 1];
+        int[] handlers = new int[Math.max(exceptions.length, 1)];
+        int numHandlers = 0;
+        BitSet blockHandlers = new BitSet();
+        for (b = 0; b < numBlocks; b++) {
+            blockHandlers.clear();
+            for (CodeException ex : exceptions) {
+                if ((starts[b] >= ex.getStartPC()) && (starts[b] < ex.getEndPC())) {
+                    blockHandlers.set(Arrays.binarySearch(starts, ex.getHandlerPC()));
+                }
+            }
+            for (int h = blockHandlers.nextSetBit(0); h >= 0; h = blockHandlers.nextSetBit(h + 1)) {
+                if (numHandlers == handlers.length) {
+                    handlers = Arrays.copyOf(handlers, numHandlers << 1);
+                }
+                handlers[numHandlers++] = h;
+            }
+            handlerOffsets[b + 1] = numHandlers;
+        }
+
+        return new BasicBlocks(starts, code.length, successorOffsets, Arrays.copyOf(successors, numSuccessors), handlerOffsets,
+                Arrays.copyOf(handlers, numHandlers));
+    }
+
+    public int getNumBlocks() {
+        return starts.length;
+    }
+
+    /**
+     * returns the pc of the first instruction of a block
+     *
+     * @param block
+     *            the block number
+     * @return the start pc of the block
+     */
+    public int getStart(int block) {
+        return starts[block];
+    }
+
+    /**
+     * returns the pc just past the last instruction of a block
+     *
+     * @param block
+     *            the block number
+     * @return the end pc of the block
+     */
+    public int getEnd(int block) {
+        return (block + 1 < starts.length) ? starts[block + 1] : codeLength;
+    }
+
+    /**
+     * returns the block that holds an instruction
+     *
+     * @param pc
+     *            the pc of the instruction
+     * @return the block number
+     */
+    public int getBlockAt(int pc) {
+        int block = Arrays.binarySearch(starts, pc);
+        return (block >= 0) ? block : (-block - 2);
+    }
+
+    public int getNumSuccessors(int block) {
+        return successorOffsets[block + 1] - successorOffsets[block];
+    }
+
+    /**
+     * returns one of the blocks that control can flow to normally from the end of a block
+     *
+     * @param block
+     *            the block number
+     * @param index
+     *            which successor, from 0 to getNumSuccessors(block) - 1
+     * @return the successor block number
+     */
+    public int getSuccessor(int block, int index) {
+        return successors[successorOffsets[block] + index];
+    }
+
+    public int getNumHandlers(int block) {
+        return handlerOffsets[block + 1] - handlerOffsets[block];
+    }
+
+    /**
+     * returns the block of one of the exception handlers that cover a block
+     *
+     * @param block
+     *            the block number
+     * @param index
+     *            which handler, from 0 to getNumHandlers(block) - 1
+     * @return the handler block number
+     */
+    public int getHandler(int block, int index) {
+        return handlers[handlerOffsets[block] + index];
+    }
+
+    /**
+     * returns the length of the instruction at a pc, including the wide prefix if there is one
+     *
+     * @param code
+     *            the bytecode of the method
+     * @param pc
+     *            the pc of the instruction
+     * @param opcode
+     *            the opcode at pc
+     * @return the length of the instruction in bytes
+     */
+    public static int length(byte[] code, int pc, int opcode) {
+        if (opcode == Const.WIDE) {
+            return ((code[pc + 1] & 0xFF) == Const.IINC) ? 6 : 4;
+        }
+        return MethodScanner.instructionLength(code, pc, opcode);
+    }
+
+    private static boolean endsFlow(int opcode) {
+        return ((opcode >= Const.IRETURN) && (opcode <= Const.RETURN)) || (opcode == Const.ATHROW) || (opcode == Const.RET);
+    }
+
+    /**
+     * returns the pcs an instruction branches to, or null if it doesn't branch
+     */
+    private static int[] branchTargets(byte[] code, int pc, int opcode) {
+        if (((opcode >= Const.IFEQ) && (opcode <= Const.JSR)) || (opcode == Const.IFNULL) || (opcode == Const.IFNONNULL)) {
+            return new int[] { pc + (short) (((code[pc + 1] & 0xFF) << 8) | (code[pc + 2] & 0xFF)) };
+        }
+        if ((opcode == Const.GOTO_W) || (opcode == Const.JSR_W)) {
+            return new int[] { pc + MethodScanner.readInt(code, pc + 1) };
+        }
+        if ((opcode == Const.TABLESWITCH) || (opcode == Const.LOOKUPSWITCH)) {
+            int base = (pc + 4) & ~3;
+            int numTargets = (opcode == Const.TABLESWITCH) ? ((MethodScanner.readInt(code, base + 8) - MethodScanner.readInt(code, base + 4)) + 1)
+                    : MethodScanner.readInt(code, base + 4);
+            int stride = (opcode == Const.TABLESWITCH) ? 4 : 8;
+            int[] targets = new int[numTargets + 1];
+            for (int i = 0; i < numTargets; i++) {
+                targets[i] = pc + MethodScanner.readInt(code, base + 12 + (i * stride));
+            }
+            targets[numTargets] = pc + MethodScanner.readInt(code, base);
+            return targets;
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
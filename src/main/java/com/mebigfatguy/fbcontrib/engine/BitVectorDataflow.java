@@ -0,0 +1,186 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import java.util.BitSet;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+/**
+ * solves a forward dataflow problem over the basic blocks of a method, where the facts are bits, such as one per field of a class, and each block's effect is
+ * given as gen and kill masks: out = (in - kill) + gen. The facts flowing into a block are the union of its predecessors' facts for a may problem, or their
+ * intersection for a must problem. Facts flow along exception handler edges as they were at the start of the covered block, as the exception may be thrown
+ * before anything in the block has happened.
+ * <p>
+ * Blocks are iterated in pc order until nothing changes, which for the loops javac produces takes few passes. Unreachable blocks are never solved, and are
+ * reported as such by {@link #isReachable(int)}.
+ */
+public final class BitVectorDataflow {
+
+    private final BasicBlocks blocks;
+    private final boolean must;
+    private final BitSet[] gens;
+    private final BitSet[] kills;
+    private final BitSet[] ins;
+    private final BitSet[] outs;
+    private final BitSet reachable;
+
+    /**
+     * creates a dataflow problem over the blocks of a method, with empty gen and kill masks
+     *
+     * @param blocks
+     *            the basic blocks of the method
+     * @param must
+     *            whether facts must hold on all incoming paths, rather than any
+     */
+    public BitVectorDataflow(BasicBlocks blocks, boolean must) {
+        this.blocks = blocks;
+        this.must = must;
+        int numBlocks = blocks.getNumBlocks();
+        gens = new BitSet[numBlocks];
+        kills = new BitSet[numBlocks];
+        ins = new BitSet[numBlocks];
+        outs = new BitSet[numBlocks];
+        for (int b = 0; b < numBlocks; b++) {
+            gens[b] = new BitSet();
+            kills[b] = new BitSet();
+        }
+        reachable = new BitSet(numBlocks);
+    }
+
+    /**
+     * returns the mask of facts a block makes true, to be filled in before solving
+     *
+     * @param block
+     *            the block number
+     * @return the gen mask of the block
+     */
+    public BitSet getGen(int block) {
+        return gens[block];
+    }
+
+    /**
+     * returns the mask of facts a block makes false, to be filled in before solving
+     *
+     * @param block
+     *            the block number
+     * @return the kill mask of the block
+     */
+    public BitSet getKill(int block) {
+        return kills[block];
+    }
+
+    /**
+     * solves the problem to a fixpoint
+     *
+     * @param entryFacts
+     *            the facts that hold on entry to the method
+     */
+    public void solve(BitSet entryFacts) {
+        int numBlocks = blocks.getNumBlocks();
+        if (numBlocks == 0) {
+            return;
+        }
+
+        ins[0] = (BitSet) entryFacts.clone();
+        reachable.set(0);
+        BitSet pending = new BitSet(numBlocks);
+        pending.set(0);
+
+        int b = 0;
+        while (!pending.isEmpty()) {
+            b = pending.nextSetBit(b);
+            if (b < 0) {
+                b = pending.nextSetBit(0);
+            }
+            pending.clear(b);
+
+            BitSet out = (BitSet) ins[b].clone();
+            out.andNot(kills[b]);
+            out.or(gens[b]);
+            outs[b] = out;
+
+            for (int s = 0; s < blocks.getNumSuccessors(b); s++) {
+                int successor = blocks.getSuccessor(b, s);
+                if (flowInto(successor, out)) {
+                    pending.set(successor);
+                }
+            }
+            for (int h = 0; h < blocks.getNumHandlers(b); h++) {
+                int handler = blocks.getHandler(b, h);
+                if (flowInto(handler, ins[b])) {
+                    pending.set(handler);
+                }
+            }
+        }
+    }
+
+    public boolean isReachable(int block) {
+        return reachable.get(block);
+    }
+
+    /**
+     * returns the facts that hold at the start of a block, once solved
+     *
+     * @param block
+     *            the block number
+     * @return the facts at the start of the block, or null if the block is unreachable
+     */
+    public BitSet getIn(int block) {
+        return ins[block];
+    }
+
+    /**
+     * returns the facts that hold at the end of a block, once solved
+     *
+     * @param block
+     *            the block number
+     * @return the facts at the end of the block, or null if the block is unreachable
+     */
+    public BitSet getOut(int block) {
+        return outs[block];
+    }
+
+    /**
+     * merges facts into the start of a block
+     *
+     * @return whether the facts at the start of the block changed
+     */
+    private boolean flowInto(int block, BitSet facts) {
+        if (!reachable.get(block)) {
+            reachable.set(block);
+            ins[block] = (BitSet) facts.clone();
+            return true;
+        }
+
+        BitSet in = ins[block];
+        int before = in.cardinality();
+        if (must) {
+            in.and(facts);
+        } else {
+            in.or(facts);
+        }
+        return in.cardinality() != before;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.ConstantPool;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.Global;
+
+/**
+ * the bytecode facts of every method of one class, scanned once and shared by all detectors that ask for them through the analysis cache
+ */
+public final class ClassFacts {
+
+    private final Map<String, MethodFacts> methodFacts;
+
+    /**
+     * scans all methods with code in a class
+     *
+     * @param cls
+     *            the class to scan
+     */
+    ClassFacts(JavaClass cls) {
+        Method[] methods = cls.getMethods();
+        methodFacts = new HashMap<>(methods.length);
+        ConstantPool cp = cls.getConstantPool();
+        for (Method m : methods) {
+            Code code = m.getCode();
+            if ((code != null) && (code.getCode() != null)) {
+                methodFacts.put(m.getName() + m.getSignature(), MethodScanner.scan(cp, code));
+            }
+        }
+    }
+
+    /**
+     * retrieves the shared facts for the class being visited
+     *
+     * @param classContext
+     *            the context object of the class
+     * @return the facts of the class
+     * @throws CheckedAnalysisException
+     *             if the class could not be scanned
+     */
+    public static ClassFacts getClassFacts(ClassContext classContext) throws CheckedAnalysisException {
+        return Global.getAnalysisCache().getClassAnalysis(ClassFacts.class, classContext.getClassDescriptor());
+    }
+
+    /**
+     * returns the facts of a method of this class
+     *
+     * @param m
+     *            the method
+     * @return the facts, or null if the method has no code
+     */
+    public MethodFacts getMethodFacts(Method m) {
+        return getMethodFacts(m.getName(), m.getSignature());
+    }
+
+    /**
+     * returns the facts of a method of this class
+     *
+     * @param methodName
+     *            the name of the method
+     * @param signature
+     *            the signature of the method
+     * @return the facts, or null if there is no such method with code
+     */
+    public MethodFacts getMethodFacts(String methodName, String signature) {
+        return methodFacts.get(methodName + signature);
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
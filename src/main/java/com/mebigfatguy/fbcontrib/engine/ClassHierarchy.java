@@ -0,0 +1,324 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.bcel.Repository;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+import com.mebigfatguy.fbcontrib.utils.Values;
+
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.Global;
+
+/**
+ * answers questions about the class hierarchy, remembering the answers for the rest of the analysis. Each class seen is given an int id, and its super classes
+ * and all of its interfaces are held as bitsets of those ids, built once from the closures of its direct super types. Results hold the same classes as the
+ * equivalent {@link JavaClass} methods, although not always in the same order, and as with those, a {@link ClassNotFoundException} is thrown when a class
+ * in the hierarchy can't be loaded.
+ */
+public final class ClassHierarchy {
+
+    private final Map<String, Node> nodesByName = new HashMap<>();
+    private final List<Node> nodes = new ArrayList<>();
+
+    /**
+     * creates an empty hierarchy, use {@link #getInstance()} to get the one shared by the current analysis
+     */
+    public ClassHierarchy() {
+        // filled lazily
+    }
+
+    /**
+     * returns the hierarchy shared by the current analysis, or a new one if no analysis is running
+     *
+     * @return the class hierarchy
+     */
+    public static ClassHierarchy getInstance() {
+        IAnalysisCache analysisCache = Global.getAnalysisCache();
+        if (analysisCache == null) {
+            return new ClassHierarchy();
+        }
+        return analysisCache.getDatabase(ClassHierarchy.class);
+    }
+
+    /**
+     * returns a class, loading it the first time it is asked for in this analysis. Detectors use this for the well known classes they compare against, so that
+     * these are loaded when first needed, rather than by static initializers when the plugin is loaded, where they would also outlive the analysis.
+     *
+     * @param clsName
+     *            the dotted or slashed name of the class
+     * @return the class
+     * @throws ClassNotFoundException
+     *             if the class can't be loaded
+     */
+    public synchronized JavaClass lookupClass(String clsName) throws ClassNotFoundException {
+        return getNode(clsName).cls;
+    }
+
+    /**
+     * returns the super classes of a class, nearest first, as {@link JavaClass#getSuperClasses()} does
+     *
+     * @param clsName
+     *            the dotted or slashed name of the class
+     * @return the super classes of the class
+     * @throws ClassNotFoundException
+     *             if a class in the hierarchy can't be loaded
+     */
+    public synchronized List<JavaClass> getSuperClasses(String clsName) throws ClassNotFoundException {
+        return getSuperClasses(getNode(clsName));
+    }
+
+    /**
+     * returns the interfaces a class directly implements, or an interface directly extends
+     *
+     * @param clsName
+     *            the dotted or slashed name of the class
+     * @return the direct interfaces of the class
+     * @throws ClassNotFoundException
+     *             if an interface can't be loaded
+     */
+    public synchronized List<JavaClass> getInterfaces(String clsName) throws ClassNotFoundException {
+        Node node = getNode(clsName);
+        Node[] infNodes = getInterfaceNodes(node);
+        List<JavaClass> infs = new ArrayList<>(infNodes.length);
+        for (Node infNode : infNodes) {
+            infs.add(infNode.cls);
+        }
+        return infs;
+    }
+
+    /**
+     * returns all interfaces of a class, including the class itself if it is an interface, as {@link JavaClass#getAllInterfaces()} does. Unlike that
+     * method, the order of the interfaces is unspecified.
+     *
+     * @param clsName
+     *            the dotted or slashed name of the class
+     * @return all interfaces of the class
+     * @throws ClassNotFoundException
+     *             if a class in the hierarchy can't be loaded
+     */
+    public synchronized List<JavaClass> getAllInterfaces(String clsName) throws ClassNotFoundException {
+        Node node = getNode(clsName);
+        if (node.allInterfaceList == null) {
+            node.allInterfaceList = Collections.unmodifiableList(toClasses(getAllInterfaceIds(node)));
+        }
+        return node.allInterfaceList;
+    }
+
+    /**
+     * returns whether a class is, extends or implements another, as {@link JavaClass#instanceOf(JavaClass)} does
+     *
+     * @param clsName
+     *            the dotted or slashed name of the class
+     * @param superName
+     *            the dotted or slashed name of the possible super type
+     * @return if the class is a subtype of the super type
+     * @throws ClassNotFoundException
+     *             if a class in the hierarchy can't be loaded
+     */
+    public synchronized boolean isInstanceOf(String clsName, String superName) throws ClassNotFoundException {
+        Node node = getNode(clsName);
+        Node superNode = getNode(superName);
+        if (node == superNode) {
+            return true;
+        }
+        if (superNode.cls.isInterface()) {
+            return getAllInterfaceIds(node).get(superNode.id);
+        }
+        if (node.cls.isInterface()) {
+            return false;
+        }
+        return getSuperClassIds(node).get(superNode.id);
+    }
+
+    /**
+     * returns the interfaces and super classes, other than java.lang.Object, of a class that declare a non private method with the given name and signature.
+     * As with {@link #getAllInterfaces(String)}, an interface is included among its own interfaces.
+     *
+     * @param clsName
+     *            the dotted or slashed name of the class
+     * @param methodName
+     *            the name of the method
+     * @param signature
+     *            the signature of the method
+     * @return the super types declaring the method
+     * @throws ClassNotFoundException
+     *             if a class in the hierarchy can't be loaded
+     */
+    public synchronized List<JavaClass> getSuperTypesDeclaring(String clsName, String methodName, String signature) throws ClassNotFoundException {
+        Node node = getNode(clsName);
+        String methodKey = methodName + signature;
+        List<JavaClass> declarers = new ArrayList<>();
+        addDeclarers(getAllInterfaceIds(node), methodKey, declarers);
+        addDeclarers(getSuperClassIds(node), methodKey, declarers);
+        return declarers;
+    }
+
+    private void addDeclarers(BitSet ids, String methodKey, List<JavaClass> declarers) {
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            Node node = nodes.get(id);
+            if (!Values.DOTTED_JAVA_LANG_OBJECT.equals(node.cls.getClassName()) && getDeclaredMethods(node).contains(methodKey)) {
+                declarers.add(node.cls);
+            }
+        }
+    }
+
+    private Node getNode(String clsName) throws ClassNotFoundException {
+        String dottedName = clsName.replace('/', '.');
+        Node node = nodesByName.get(dottedName);
+        if (node == null) {
+            JavaClass cls = Repository.lookupClass(dottedName);
+            node = new Node(nodes.size(), cls);
+            nodes.add(node);
+            nodesByName.put(dottedName, node);
+        }
+        return node;
+    }
+
+    private Node getSuperNode(Node node) throws ClassNotFoundException {
+        if (!node.superResolved) {
+            if (!Values.DOTTED_JAVA_LANG_OBJECT.equals(node.cls.getClassName())) {
+                node.superNode = getNode(node.cls.getSuperclassName());
+            }
+            node.superResolved = true;
+        }
+        return node.superNode;
+    }
+
+    private Node[] getInterfaceNodes(Node node) throws ClassNotFoundException {
+        if (node.interfaceNodes == null) {
+            String[] infNames = node.cls.getInterfaceNames();
+            Node[] infNodes = new Node[infNames.length];
+            for (int i = 0; i < infNames.length; i++) {
+                infNodes[i] = getNode(infNames[i]);
+            }
+            node.interfaceNodes = infNodes;
+        }
+        return node.interfaceNodes;
+    }
+
+    private List<JavaClass> getSuperClasses(Node node) throws ClassNotFoundException {
+        if (node.superClassList == null) {
+            List<JavaClass> supers = new ArrayList<>();
+            Node superNode = getSuperNode(node);
+            if (superNode != null) {
+                supers.add(superNode.cls);
+                supers.addAll(getSuperClasses(superNode));
+            }
+            node.superClassList = Collections.unmodifiableList(supers);
+        }
+        return node.superClassList;
+    }
+
+    private BitSet getSuperClassIds(Node node) throws ClassNotFoundException {
+        if (node.superClassIds == null) {
+            BitSet ids = new BitSet();
+            Node superNode = getSuperNode(node);
+            if (superNode != null) {
+                ids.set(superNode.id);
+                ids.or(getSuperClassIds(superNode));
+            }
+            node.superClassIds = ids;
+        }
+        return node.superClassIds;
+    }
+
+    private BitSet getAllInterfaceIds(Node node) throws ClassNotFoundException {
+        if (node.allInterfaceIds == null) {
+            BitSet ids = new BitSet();
+            if (node.cls.isInterface()) {
+                ids.set(node.id);
+            } else {
+                Node superNode = getSuperNode(node);
+                if (superNode != null) {
+                    ids.or(getAllInterfaceIds(superNode));
+                }
+            }
+            for (Node infNode : getInterfaceNodes(node)) {
+                ids.or(getAllInterfaceIds(infNode));
+            }
+            node.allInterfaceIds = ids;
+        }
+        return node.allInterfaceIds;
+    }
+
+    private static Set<String> getDeclaredMethods(Node node) {
+        if (node.declaredMethods == null) {
+            Method[] methods = node.cls.getMethods();
+            Set<String> declared = new HashSet<>(methods.length * 2);
+            for (Method m : methods) {
+                if (!m.isPrivate()) {
+                    declared.add(m.getName() + m.getSignature());
+                }
+            }
+            node.declaredMethods = declared;
+        }
+        return node.declaredMethods;
+    }
+
+    private List<JavaClass> toClasses(BitSet ids) {
+        List<JavaClass> classes = new ArrayList<>(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            classes.add(nodes.get(id).cls);
+        }
+        return classes;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+
+    /**
+     * the memoized hierarchy information of one class, filled in as it is asked for
+     */
+    private static final class Node {
+        final int id;
+        final JavaClass cls;
+        boolean superResolved;
+        Node superNode;
+        Node[] interfaceNodes;
+        List<JavaClass> superClassList;
+        BitSet superClassIds;
+        BitSet allInterfaceIds;
+        List<JavaClass> allInterfaceList;
+        Set<String> declaredMethods;
+
+        Node(int id, JavaClass cls) {
+            this.id = id;
+            this.cls = cls;
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Constant;
+import org.apache.bcel.classfile.ConstantCP;
+import org.apache.bcel.classfile.ConstantInterfaceMethodref;
+import org.apache.bcel.classfile.ConstantMethodref;
+import org.apache.bcel.classfile.ConstantNameAndType;
+import org.apache.bcel.classfile.ConstantPool;
+import org.apache.bcel.classfile.JavaClass;
+
+import com.mebigfatguy.fbcontrib.utils.FQMethod;
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.Global;
+
+/**
+ * the methods a class calls, read once from the method and interface method references of its constant pool, and the {@link MethodMatcher}s built from them
+ * for each {@link MethodTable} that detectors have asked about
+ */
+public final class ClassMethodRefs {
+
+    private final FQMethod[] methodRefs;
+    private final Map<MethodTable<?>, MethodMatcher<?>> matchers = new IdentityHashMap<>();
+
+    /**
+     * reads the method references of a class from its constant pool
+     *
+     * @param cls
+     *            the class to read
+     */
+    ClassMethodRefs(JavaClass cls) {
+        ConstantPool cp = cls.getConstantPool();
+        Constant[] constants = cp.getConstantPool();
+        methodRefs = new FQMethod[constants.length];
+        for (int i = 1; i < constants.length; i++) {
+            Constant c = constants[i];
+            if ((c instanceof ConstantMethodref) || (c instanceof ConstantInterfaceMethodref)) {
+                ConstantCP ref = (ConstantCP) c;
+                ConstantNameAndType nat = (ConstantNameAndType) cp.getConstant(ref.getNameAndTypeIndex());
+                methodRefs[i] = new FQMethod(cp.getConstantString(ref.getClassIndex(), Const.CONSTANT_Class), nat.getName(cp), nat.getSignature(cp));
+            }
+        }
+    }
+
+    /**
+     * retrieves the shared method references for the class being visited
+     *
+     * @param classContext
+     *            the context object of the class
+     * @return the method references of the class
+     * @throws CheckedAnalysisException
+     *             if the class could not be read
+     */
+    public static ClassMethodRefs getClassMethodRefs(ClassContext classContext) throws CheckedAnalysisException {
+        return Global.getAnalysisCache().getClassAnalysis(ClassMethodRefs.class, classContext.getClassDescriptor());
+    }
+
+    /**
+     * returns the matcher of a table for this class, looking up each method reference in the table the first time the table is asked for
+     *
+     * @param table
+     *            the table of methods to match
+     * @return the matcher of the table's methods called by this class
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <V> MethodMatcher<V> resolve(MethodTable<V> table) {
+        MethodMatcher<V> matcher = (MethodMatcher<V>) matchers.get(table);
+        if (matcher == null) {
+            Object[] values = null;
+            for (int i = 1; i < methodRefs.length; i++) {
+                if (methodRefs[i] != null) {
+                    V value = table.get(methodRefs[i]);
+                    if (value != null) {
+                        if (values == null) {
+                            values = new Object[methodRefs.length];
+                        }
+                        values[i] = value;
+                    }
+                }
+            }
+            matcher = new MethodMatcher<>(methodRefs, values);
+            matchers.put(table, matcher);
+        }
+        return matcher;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
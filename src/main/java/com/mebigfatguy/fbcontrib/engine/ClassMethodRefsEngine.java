@@ -0,0 +1,51 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import org.apache.bcel.classfile.JavaClass;
+
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.IClassAnalysisEngine;
+
+/**
+ * computes the {@link ClassMethodRefs} of a class on first request
+ */
+public class ClassMethodRefsEngine implements IClassAnalysisEngine<ClassMethodRefs> {
+
+    @Override
+    public ClassMethodRefs analyze(IAnalysisCache analysisCache, ClassDescriptor descriptor) throws CheckedAnalysisException {
+        JavaClass cls = analysisCache.getClassAnalysis(JavaClass.class, descriptor);
+        return new ClassMethodRefs(cls);
+    }
+
+    @Override
+    public void registerWith(IAnalysisCache analysisCache) {
+        analysisCache.registerClassAnalysisEngine(ClassMethodRefs.class, this);
+    }
+
+    /**
+     * the method references are derived only from the constant pool, so can always be rebuilt if evicted
+     */
+    @Override
+    public boolean canRecompute() {
+        return true;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.bcel.classfile.Constant;
+import org.apache.bcel.classfile.ConstantCP;
+import org.apache.bcel.classfile.ConstantClass;
+import org.apache.bcel.classfile.ConstantFieldref;
+import org.apache.bcel.classfile.ConstantNameAndType;
+import org.apache.bcel.classfile.ConstantPool;
+import org.apache.bcel.classfile.ConstantUtf8;
+import org.apache.bcel.classfile.JavaClass;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.Global;
+
+/**
+ * the classes, packages and method names a class refers to, read once from its constant pool. Classes are found both from class constants and from the
+ * descriptors and generic signatures of fields, methods and annotations, so a type that is only used as a field type or annotation is still seen. Strings that
+ * merely look like descriptors may add extra entries, which at worst means a class is not filtered out.
+ */
+public final class ClassReferences {
+
+    private static final String DESCRIPTOR_STARTS = "(L[<";
+    private static final String CLASS_PRECEDERS = "([)<>;:+-*^";
+
+    private final Set<String> classes = new HashSet<>();
+    private final Set<String> packages = new HashSet<>();
+    private final Set<String> methods = new HashSet<>();
+
+    /**
+     * reads the references of a class from its constant pool
+     *
+     * @param cls
+     *            the class to read
+     */
+    ClassReferences(JavaClass cls) {
+        ConstantPool cp = cls.getConstantPool();
+        for (Constant c : cp.getConstantPool()) {
+            if (c instanceof ConstantClass) {
+                String clsName = (String) ((ConstantClass) c).getConstantValue(cp);
+                if (clsName.startsWith("[")) {
+                    addDescriptorClasses(clsName);
+                } else {
+                    addClass(clsName);
+                }
+            } else if (c instanceof ConstantUtf8) {
+                String value = ((ConstantUtf8) c).getBytes();
+                if (!value.isEmpty() && (DESCRIPTOR_STARTS.indexOf(value.charAt(0)) >= 0)) {
+                    addDescriptorClasses(value);
+                }
+            } else if ((c instanceof ConstantCP) && !(c instanceof ConstantFieldref)) {
+                ConstantNameAndType nat = (ConstantNameAndType) cp.getConstant(((ConstantCP) c).getNameAndTypeIndex());
+                methods.add(nat.getName(cp));
+            }
+        }
+    }
+
+    /**
+     * retrieves the shared references for the class being visited
+     *
+     * @param classContext
+     *            the context object of the class
+     * @return the references of the class
+     * @throws CheckedAnalysisException
+     *             if the class could not be read
+     */
+    public static ClassReferences getClassReferences(ClassContext classContext) throws CheckedAnalysisException {
+        return Global.getAnalysisCache().getClassAnalysis(ClassReferences.class, classContext.getClassDescriptor());
+    }
+
+    /**
+     * returns whether the class refers to a given class
+     *
+     * @param clsName
+     *            the slashed name of the class
+     * @return if the class is referenced
+     */
+    public boolean referencesClass(String clsName) {
+        return classes.contains(clsName);
+    }
+
+    /**
+     * returns whether the class refers to any class in a package, or its sub packages
+     *
+     * @param packageName
+     *            the slashed name of the package, ending with a slash, such as "javax/swing/"
+     * @return if a class of the package is referenced
+     */
+    public boolean referencesPackage(String packageName) {
+        return packages.contains(packageName);
+    }
+
+    /**
+     * returns whether the class calls, or creates a method handle to, a method of a given name
+     *
+     * @param methodName
+     *            the name of the method
+     * @return if a method with that name is referenced
+     */
+    public boolean referencesMethod(String methodName) {
+        return methods.contains(methodName);
+    }
+
+    private void addClass(String clsName) {
+        if (classes.add(clsName)) {
+            int slashPos = clsName.indexOf('/');
+            while (slashPos >= 0) {
+                packages.add(clsName.substring(0, slashPos + 1));
+                slashPos = clsName.indexOf('/', slashPos + 1);
+            }
+        }
+    }
+
+    /**
+     * adds the class of each L...; type found in a descriptor or generic signature
+     *
+     * @param descriptor
+     *            the descriptor or signature to parse
+     */
+    private void addDescriptorClasses(String descriptor) {
+        int length = descriptor.length();
+        for (int i = 0; i < length; i++) {
+            if ((descriptor.charAt(i) == 'L') && ((i == 0) || (CLASS_PRECEDERS.indexOf(descriptor.charAt(i - 1)) >= 0))) {
+                int end = i + 1;
+                while ((end < length) && (descriptor.charAt(end) != ';') && (descriptor.charAt(end) != '<')) {
+                    end++;
+                }
+                if (end > (i + 1)) {
+                    addClass(descriptor.substring(i + 1, end));
+                }
+                i = end;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.IAnalysisEngineRegistrar;
+import edu.umd.cs.findbugs.classfile.ReflectionDatabaseFactory;
+
+/**
+ * registers fb-contrib's shared analyses with the analysis cache, as declared in findbugs.xml
+ */
+public class EngineRegistrar implements IAnalysisEngineRegistrar {
+
+    @Override
+    public void registerAnalysisEngines(IAnalysisCache analysisCache) {
+        new ClassFactsEngine().registerWith(analysisCache);
+        new ClassReferencesEngine().registerWith(analysisCache);
+        new ClassMethodRefsEngine().registerWith(analysisCache);
+        new ReflectionDatabaseFactory<>(ClassHierarchy.class).registerWith(analysisCache);
+        new ReflectionDatabaseFactory<>(SharedStackScanner.class).registerWith(analysisCache);
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import java.util.Arrays;
+
+import org.apache.bcel.Const;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+/**
+ * the facts about one method's bytecode, as found by a single pass over its instructions: the methods it invokes, the fields it accesses, the objects and
+ * arrays it allocates, the classes it loads as constants, its branches and the registers it loads and stores. Each kind of fact is held as parallel arrays in
+ * the order the instructions appear, and is never changed once built, so it can be shared by any number of detectors.
+ */
+public final class MethodFacts {
+
+    /** the register number reported for a receiver that was not loaded directly from a register */
+    public static final int NO_REGISTER = -1;
+
+    private final int codeLength;
+    private final ReferenceSites invokes;
+    private final ReferenceSites fieldAccesses;
+    private final ReferenceSites allocations;
+    private final ReferenceSites classConstants;
+    private final BranchSites branches;
+    private final RegisterSites registerAccesses;
+
+    MethodFacts(int codeLength, ReferenceSites invokes, ReferenceSites fieldAccesses, ReferenceSites allocations, ReferenceSites classConstants,
+            BranchSites branches, RegisterSites registerAccesses) {
+        this.codeLength = codeLength;
+        this.invokes = invokes.freeze();
+        this.fieldAccesses = fieldAccesses.freeze();
+        this.allocations = allocations.freeze();
+        this.classConstants = classConstants.freeze();
+        this.branches = branches.freeze();
+        this.registerAccesses = registerAccesses.freeze();
+    }
+
+    /**
+     * returns the number of bytes of bytecode in the method
+     *
+     * @return the code length
+     */
+    public int getCodeLength() {
+        return codeLength;
+    }
+
+    /**
+     * returns the invoke instructions, with the slashed owning class (null for invokedynamic), name and signature of the method called, and for instance
+     * calls the register the receiver was loaded from
+     *
+     * @return the invoke sites
+     */
+    public ReferenceSites getInvokes() {
+        return invokes;
+    }
+
+    /**
+     * returns the get and put field and static instructions, with the slashed owning class, name and signature of the field, and for instance fields the
+     * register the object was loaded from
+     *
+     * @return the field access sites
+     */
+    public ReferenceSites getFieldAccesses() {
+        return fieldAccesses;
+    }
+
+    /**
+     * returns the new, newarray, anewarray and multianewarray instructions, with the slashed class name for new, or the array signature otherwise
+     *
+     * @return the allocation sites
+     */
+    public ReferenceSites getAllocations() {
+        return allocations;
+    }
+
+    /**
+     * returns the ldc and ldc_w instructions that load a class constant, with the slashed name of the class
+     *
+     * @return the class constant sites
+     */
+    public ReferenceSites getClassConstants() {
+        return classConstants;
+    }
+
+    /**
+     * returns the branch instructions with their targets, a switch appearing once for each of its targets
+     *
+     * @return the branch sites
+     */
+    public BranchSites getBranches() {
+        return branches;
+    }
+
+    /**
+     * returns the instructions that load, store or increment a register
+     *
+     * @return the register access sites
+     */
+    public RegisterSites getRegisterAccesses() {
+        return registerAccesses;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+
+    /**
+     * instructions that refer to a class or member through the constant pool
+     */
+    public static final class ReferenceSites {
+        private int size;
+        private int[] pcs = new int[4];
+        private int[] opcodes = new int[4];
+        private String[] classNames = new String[4];
+        private String[] names = new String[4];
+        private String[] signatures = new String[4];
+        private int[] registers = new int[4];
+
+        ReferenceSites() {
+        }
+
+        void add(int pc, int opcode, String className, String name, String signature, int register) {
+            if (size == pcs.length) {
+                int capacity = size << 1;
+                pcs = Arrays.copyOf(pcs, capacity);
+                opcodes = Arrays.copyOf(opcodes, capacity);
+                classNames = Arrays.copyOf(classNames, capacity);
+                names = Arrays.copyOf(names, capacity);
+                signatures = Arrays.copyOf(signatures, capacity);
+                registers = Arrays.copyOf(registers, capacity);
+            }
+            pcs[size] = pc;
+            opcodes[size] = opcode;
+            classNames[size] = className;
+            names[size] = name;
+            signatures[size] = signature;
+            registers[size] = register;
+            size++;
+        }
+
+        ReferenceSites freeze() {
+            pcs = Arrays.copyOf(pcs, size);
+            opcodes = Arrays.copyOf(opcodes, size);
+            classNames = Arrays.copyOf(classNames, size);
+            names = Arrays.copyOf(names, size);
+            signatures = Arrays.copyOf(signatures, size);
+            registers = Arrays.copyOf(registers, size);
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getPC(int site) {
+            return pcs[site];
+        }
+
+        public int getOpcode(int site) {
+            return opcodes[site];
+        }
+
+        public String getClassName(int site) {
+            return classNames[site];
+        }
+
+        public String getName(int site) {
+            return names[site];
+        }
+
+        public String getSignature(int site) {
+            return signatures[site];
+        }
+
+        /**
+         * returns the register the receiver of an instance invoke or field access was loaded from, looking through dups and casts
+         *
+         * @param site
+         *            the index of the site
+         * @return the register, or {@link MethodFacts#NO_REGISTER}
+         */
+        public int getReceiverRegister(int site) {
+            return registers[site];
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+
+    /**
+     * instructions that transfer control to another instruction
+     */
+    public static final class BranchSites {
+        private int size;
+        private int[] pcs = new int[4];
+        private int[] opcodes = new int[4];
+        private int[] targets = new int[4];
+
+        BranchSites() {
+        }
+
+        void add(int pc, int opcode, int target) {
+            if (size == pcs.length) {
+                int capacity = size << 1;
+                pcs = Arrays.copyOf(pcs, capacity);
+                opcodes = Arrays.copyOf(opcodes, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+            }
+            pcs[size] = pc;
+            opcodes[size] = opcode;
+            targets[size] = target;
+            size++;
+        }
+
+        BranchSites freeze() {
+            pcs = Arrays.copyOf(pcs, size);
+            opcodes = Arrays.copyOf(opcodes, size);
+            targets = Arrays.copyOf(targets, size);
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getPC(int site) {
+            return pcs[site];
+        }
+
+        public int getOpcode(int site) {
+            return opcodes[site];
+        }
+
+        public int getTarget(int site) {
+            return targets[site];
+        }
+
+        /**
+         * returns whether the branch jumps backwards, closing a loop
+         *
+         * @param site
+         *            the index of the site
+         * @return whether the target is at or before the branch
+         */
+        public boolean isBackEdge(int site) {
+            return targets[site] <= pcs[site];
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+
+    /**
+     * instructions that load, store or increment a local register
+     */
+    public static final class RegisterSites {
+        private int size;
+        private int[] pcs = new int[8];
+        private int[] opcodes = new int[8];
+        private int[] registers = new int[8];
+
+        RegisterSites() {
+        }
+
+        void add(int pc, int opcode, int register) {
+            if (size == pcs.length) {
+                int capacity = size << 1;
+                pcs = Arrays.copyOf(pcs, capacity);
+                opcodes = Arrays.copyOf(opcodes, capacity);
+                registers = Arrays.copyOf(registers, capacity);
+            }
+            pcs[size] = pc;
+            opcodes[size] = opcode;
+            registers[size] = register;
+            size++;
+        }
+
+        RegisterSites freeze() {
+            pcs = Arrays.copyOf(pcs, size);
+            opcodes = Arrays.copyOf(opcodes, size);
+            registers = Arrays.copyOf(registers, size);
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getPC(int site) {
+            return pcs[site];
+        }
+
+        public int getOpcode(int site) {
+            return opcodes[site];
+        }
+
+        public int getRegister(int site) {
+            return registers[site];
+        }
+
+        /**
+         * returns whether the instruction writes the register, which includes iinc
+         *
+         * @param site
+         *            the index of the site
+         * @return whether the register is stored to
+         */
+        public boolean isStore(int site) {
+            int opcode = opcodes[site];
+            return ((opcode >= Const.ISTORE) && (opcode <= Const.ASTORE_3)) || (opcode == Const.IINC);
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+}
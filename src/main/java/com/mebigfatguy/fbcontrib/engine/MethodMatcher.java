@@ -0,0 +1,124 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import com.mebigfatguy.fbcontrib.utils.FQMethod;
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+import edu.umd.cs.findbugs.visitclass.DismantleBytecode;
+
+/**
+ * the entries of a {@link MethodTable} that one class calls, indexed by the constant pool index of the class's method references, so that looking up a call
+ * is an array read
+ *
+ * @param <V>
+ *            the type of value associated with each method
+ */
+public final class MethodMatcher<V> {
+
+    private final FQMethod[] methodRefs;
+    private final Object[] values;
+
+    /**
+     * creates a matcher for a class
+     *
+     * @param methodRefs
+     *            the method referenced by each constant pool index, or null
+     * @param values
+     *            the table's value for each constant pool index, or null if no table entry is called by the class
+     */
+    MethodMatcher(FQMethod[] methodRefs, Object[] values) {
+        this.methodRefs = methodRefs;
+        this.values = values;
+    }
+
+    /**
+     * returns the table value of the method called by the current invoke instruction of a visitor. The visitor must be visiting the class this matcher was
+     * resolved for, and be positioned on an INVOKEVIRTUAL, INVOKESPECIAL, INVOKESTATIC or INVOKEINTERFACE opcode.
+     *
+     * @param dbc
+     *            the visitor that is looking at an invoke
+     * @return the value of the called method, or null if it is not in the table
+     */
+    public V get(DismantleBytecode dbc) {
+        return (values == null) ? null : get(getMethodRefIndex(dbc));
+    }
+
+    /**
+     * returns the table value of the method referenced at a constant pool index
+     *
+     * @param cpIndex
+     *            the constant pool index of a method reference
+     * @return the value of the method, or null if it is not in the table
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int cpIndex) {
+        if ((values == null) || (cpIndex <= 0) || (cpIndex >= values.length)) {
+            return null;
+        }
+        return (V) values[cpIndex];
+    }
+
+    /**
+     * returns whether the method called by the current invoke instruction of a visitor is in the table
+     *
+     * @param dbc
+     *            the visitor that is looking at an invoke
+     * @return if the called method is in the table
+     */
+    public boolean matches(DismantleBytecode dbc) {
+        return get(dbc) != null;
+    }
+
+    /**
+     * returns the method called by the current invoke instruction of a visitor, if it is in the table
+     *
+     * @param dbc
+     *            the visitor that is looking at an invoke
+     * @return the called method, or null if it is not in the table
+     */
+    public FQMethod getMethod(DismantleBytecode dbc) {
+        if (values == null) {
+            return null;
+        }
+        int cpIndex = getMethodRefIndex(dbc);
+        return (get(cpIndex) == null) ? null : methodRefs[cpIndex];
+    }
+
+    /**
+     * reads the constant pool index operand of the current invoke instruction straight from the code, as DismantleBytecode only exposes the resolved constant
+     *
+     * @param dbc
+     *            the visitor that is looking at an invoke
+     * @return the constant pool index of the called method
+     */
+    private static int getMethodRefIndex(DismantleBytecode dbc) {
+        byte[] code = dbc.getCode().getCode();
+        int pc = dbc.getPC();
+        if ((pc + 2) >= code.length) {
+            return 0;
+        }
+        return ((code[pc + 1] & 0xFF) << 8) | (code[pc + 2] & 0xFF);
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.CodeException;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+/**
+ * size independent measures of how complex a method is, found in one pass over its instructions and exception table, without building a control flow graph.
+ * <ul>
+ * <li>the cyclomatic complexity is counted as the edges of the control flow graph that aren't fall throughs or returns, that is entering the method, each
+ * conditional branch, goto and jsr count once, a switch counts its distinct targets, and each distinct exception handler counts once, as does leaving the
+ * method by an exception, when the method has an instruction that can throw one</li>
+ * <li>the nesting depth is the most conditional branches, loops and switches that any one instruction is inside</li>
+ * <li>a loop is counted for each distinct target of a backwards branch</li>
+ * <li>the npath estimate treats each conditional branch and loop as adding one path to the code it jumps over, and each switch as adding a path per extra
+ * target, with the paths of consecutive constructs multiplied, saturating at Long.MAX_VALUE</li>
+ * </ul>
+ */
+public final class MethodMetrics {
+
+    private static final int IF_REGION = 1;
+    private static final int LOOP_REGION = 1;
+    private static final int MAX_CODE_BITS = 16;
+    private static final int INDEX_BITS = 20;
+
+    private final int cyclomaticComplexity;
+    private final int maxNestingDepth;
+    private final int loopCount;
+    private final long npath;
+    private final int exceptionHandlerCount;
+
+    public MethodMetrics(int cyclomaticComplexity, int maxNestingDepth, int loopCount, long npath, int exceptionHandlerCount) {
+        this.cyclomaticComplexity = cyclomaticComplexity;
+        this.maxNestingDepth = maxNestingDepth;
+        this.loopCount = loopCount;
+        this.npath = npath;
+        this.exceptionHandlerCount = exceptionHandlerCount;
+    }
+
+    /**
+     * measures the code of a method
+     *
+     * @param codeAttribute
+     *            the code of the method
+     * @return the metrics of the method
+     */
+    public static MethodMetrics compute(Code codeAttribute) {
+        return new Builder(codeAttribute).build();
+    }
+
+    public int getCyclomaticComplexity() {
+        return cyclomaticComplexity;
+    }
+
+    public int getMaxNestingDepth() {
+        return maxNestingDepth;
+    }
+
+    public int getLoopCount() {
+        return loopCount;
+    }
+
+    public long getNPath() {
+        return npath;
+    }
+
+    public int getExceptionHandlerCount() {
+        return exceptionHandlerCount;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+
+    /**
+     * the state of one pass over a method. Conditional branches, loops and switches are gathered as regions of the code, the pcs they jump over, to find the
+     * nesting depth and npath once the pass is done.
+     */
+    private static final class Builder {
+        private final byte[] code;
+        private final CodeException[] exceptions;
+        private int edges;
+        private boolean canThrow;
+        private int[] loopEnds;
+        private int numRegions;
+        private int[] regionStarts = new int[8];
+        private int[] regionEnds = new int[8];
+        private int[] regionPaths = new int[8];
+
+        Builder(Code codeAttribute) {
+            code = codeAttribute.getCode();
+            exceptions = codeAttribute.getExceptionTable();
+        }
+
+        MethodMetrics build() {
+            int pc = 0;
+            while (pc < code.length) {
+                int opcode = code[pc] & 0xFF;
+                if (opcode == Const.WIDE) {
+                    pc += ((code[pc + 1] & 0xFF) == Const.IINC) ? 6 : 4;
+                    continue;
+                }
+
+                int length = MethodScanner.instructionLength(code, pc, opcode);
+                if (((opcode >= Const.IFEQ) && (opcode <= Const.IF_ACMPNE)) || (opcode == Const.IFNULL) || (opcode == Const.IFNONNULL)) {
+                    edges++;
+                    int target = pc + (short) (((code[pc + 1] & 0xFF) << 8) | (code[pc + 2] & 0xFF));
+                    if (target > pc) {
+                        addRegion(pc, target, IF_REGION);
+                    } else {
+                        addLoop(target, pc + length);
+                    }
+                } else if ((opcode == Const.GOTO) || (opcode == Const.GOTO_W) || (opcode == Const.JSR) || (opcode == Const.JSR_W)) {
+                    edges++;
+                    int offset = ((opcode == Const.GOTO) || (opcode == Const.JSR)) ? (short) (((code[pc + 1] & 0xFF) << 8) | (code[pc + 2] & 0xFF))
+                            : MethodScanner.readInt(code, pc + 1);
+                    if ((offset <= 0) && ((opcode == Const.GOTO) || (opcode == Const.GOTO_W))) {
+                        addLoop(pc + offset, pc + length);
+                    }
+                } else if ((opcode == Const.TABLESWITCH) || (opcode == Const.LOOKUPSWITCH)) {
+                    addSwitch(pc, opcode);
+                } else if (!canThrow) {
+                    canThrow = canThrow(opcode);
+                }
+                pc += length;
+            }
+
+            if (loopEnds != null) {
+                for (int head = 0; head < loopEnds.length; head++) {
+                    if (loopEnds[head] > 0) {
+                        addRegion(head, loopEnds[head], LOOP_REGION);
+                    }
+                }
+            }
+
+            BitSet handlers = new BitSet();
+            if (exceptions != null) {
+                for (CodeException ex : exceptions) {
+                    handlers.set(ex.getHandlerPC());
+                }
+            }
+            int handlerCount = handlers.cardinality();
+            int loopCount = 0;
+            if (loopEnds != null) {
+                for (int end : loopEnds) {
+                    if (end > 0) {
+                        loopCount++;
+                    }
+                }
+            }
+
+            return new MethodMetrics(1 + edges + handlerCount + (canThrow ? 1 : 0), getMaxNestingDepth(), loopCount, getNPath(), handlerCount);
+        }
+
+        private void addLoop(int head, int end) {
+            if ((head < 0) || (head >= code.length)) {
+                return;
+            }
+            if (loopEnds == null) {
+                loopEnds = new int[code.length];
+            }
+            loopEnds[head] = Math.max(loopEnds[head], end);
+        }
+
+        private void addSwitch(int pc, int opcode) {
+            int base = (pc + 4) & ~3;
+            int numTargets;
+            int[] targets;
+            if (opcode == Const.TABLESWITCH) {
+                numTargets = (MethodScanner.readInt(code, base + 8) - MethodScanner.readInt(code, base + 4)) + 1;
+                targets = new int[numTargets + 1];
+                for (int i = 0; i < numTargets; i++) {
+                    targets[i] = pc + MethodScanner.readInt(code, base + 12 + (i * 4));
+                }
+            } else {
+                numTargets = MethodScanner.readInt(code, base + 4);
+                targets = new int[numTargets + 1];
+                for (int i = 0; i < numTargets; i++) {
+                    targets[i] = pc + MethodScanner.readInt(code, base + 12 + (i * 8));
+                }
+            }
+            targets[numTargets] = pc + MethodScanner.readInt(code, base);
+
+            Arrays.sort(targets);
+            int distinct = 1;
+            for (int i = 1; i < targets.length; i++) {
+                if (targets[i] != targets[i - 1]) {
+                    distinct++;
+                }
+            }
+            edges += distinct;
+            addRegion(pc, targets[targets.length - 1], distinct - 1);
+        }
+
+        private void addRegion(int start, int end, int paths) {
+            if (end <= start) {
+                return;
+            }
+            if (numRegions == regionStarts.length) {
+                int capacity = numRegions << 1;
+                regionStarts = Arrays.copyOf(regionStarts, capacity);
+                regionEnds = Arrays.copyOf(regionEnds, capacity);
+                regionPaths = Arrays.copyOf(regionPaths, capacity);
+            }
+            regionStarts[numRegions] = start;
+            regionEnds[numRegions] = Math.min(end, code.length);
+            regionPaths[numRegions] = paths;
+            numRegions++;
+        }
+
+        private int getMaxNestingDepth() {
+            int[] deltas = new int[code.length + 1];
+            for (int r = 0; r < numRegions; r++) {
+                deltas[regionStarts[r]]++;
+                deltas[regionEnds[r]]--;
+            }
+            int depth = 0;
+            int maxDepth = 0;
+            for (int delta : deltas) {
+                depth += delta;
+                maxDepth = Math.max(maxDepth, depth);
+            }
+            return maxDepth;
+        }
+
+        /**
+         * walks the regions outermost first, in pc order, keeping a stack of the regions that enclose the current one. When a region is left, its paths,
+         * those of its contents plus the ones it adds, multiply the paths of the region that encloses it.
+         */
+        private long getNPath() {
+            long[] order = new long[numRegions];
+            long maxEnd = (1L << MAX_CODE_BITS) - 1;
+            for (int r = 0; r < numRegions; r++) {
+                order[r] = ((long) regionStarts[r] << (MAX_CODE_BITS + INDEX_BITS)) | ((maxEnd - regionEnds[r]) << INDEX_BITS) | r;
+            }
+            Arrays.sort(order);
+
+            int[] stackEnds = new int[numRegions + 1];
+            long[] stackPaths = new long[numRegions + 1];
+            int[] stackAdded = new int[numRegions + 1];
+            int top = 0;
+            stackEnds[0] = Integer.MAX_VALUE;
+            stackPaths[0] = 1;
+            for (long key : order) {
+                int r = (int) (key & ((1 << INDEX_BITS) - 1));
+                while (regionStarts[r] >= stackEnds[top]) {
+                    top = close(top, stackPaths, stackAdded);
+                }
+                top++;
+                stackEnds[top] = regionEnds[r];
+                stackPaths[top] = 1;
+                stackAdded[top] = regionPaths[r];
+            }
+            while (top > 0) {
+                top = close(top, stackPaths, stackAdded);
+            }
+            return stackPaths[0];
+        }
+
+        private static int close(int top, long[] stackPaths, int[] stackAdded) {
+            long paths = stackPaths[top] + stackAdded[top];
+            if (paths < 0) {
+                paths = Long.MAX_VALUE;
+            }
+            long enclosing = stackPaths[top - 1];
+            stackPaths[top - 1] = (enclosing > (Long.MAX_VALUE / paths)) ? Long.MAX_VALUE : enclosing * paths;
+            return top - 1;
+        }
+
+        private static boolean canThrow(int opcode) {
+            switch (opcode) {
+                case Const.IALOAD:
+                case Const.LALOAD:
+                case Const.FALOAD:
+                case Const.DALOAD:
+                case Const.AALOAD:
+                case Const.BALOAD:
+                case Const.CALOAD:
+                case Const.SALOAD:
+                case Const.IASTORE:
+                case Const.LASTORE:
+                case Const.FASTORE:
+                case Const.DASTORE:
+                case Const.AASTORE:
+                case Const.BASTORE:
+                case Const.CASTORE:
+                case Const.SASTORE:
+                case Const.IDIV:
+                case Const.LDIV:
+                case Const.IREM:
+                case Const.LREM:
+                case Const.GETSTATIC:
+                case Const.PUTSTATIC:
+                case Const.GETFIELD:
+                case Const.PUTFIELD:
+                case Const.INVOKEVIRTUAL:
+                case Const.INVOKESPECIAL:
+                case Const.INVOKESTATIC:
+                case Const.INVOKEINTERFACE:
+                case Const.INVOKEDYNAMIC:
+                case Const.NEW:
+                case Const.NEWARRAY:
+                case Const.ANEWARRAY:
+                case Const.MULTIANEWARRAY:
+                case Const.ARRAYLENGTH:
+                case Const.ATHROW:
+                case Const.CHECKCAST:
+                case Const.MONITORENTER:
+                case Const.MONITOREXIT:
+                case Const.LDC:
+                case Const.LDC_W:
+                    return true;
+
+                default:
+                    return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,769 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.CodeException;
+import org.apache.bcel.classfile.Constant;
+import org.apache.bcel.classfile.ConstantCP;
+import org.apache.bcel.classfile.ConstantClass;
+import org.apache.bcel.classfile.ConstantInvokeDynamic;
+import org.apache.bcel.classfile.ConstantNameAndType;
+import org.apache.bcel.classfile.ConstantPool;
+
+/**
+ * decodes a method's bytecode once, collecting the facts held by {@link MethodFacts}. To find the register an instance call's receiver came from, the stack is
+ * simulated in slots, tracking only which register (if any) each slot was loaded from. The state is carried forward to branch targets, merged where paths
+ * meet, and reset at the start of exception handlers and unreachable code.
+ */
+final class MethodScanner {
+
+    private static final int UNKNOWN = MethodFacts.NO_REGISTER;
+
+    private final ConstantPool cp;
+    private final byte[] code;
+    private final BitSet handlerStarts = new BitSet();
+    private int[][] jumpStates;
+
+    private int[] slots;
+    private int depth;
+
+    private final ReferenceSitesHolder sites = new ReferenceSitesHolder();
+
+    private MethodScanner(ConstantPool cp, Code codeAttribute) {
+        this.cp = cp;
+        code = codeAttribute.getCode();
+        slots = new int[Math.max(codeAttribute.getMaxStack(), 1)];
+        CodeException[] exceptions = codeAttribute.getExceptionTable();
+        if (exceptions != null) {
+            for (CodeException ce : exceptions) {
+                handlerStarts.set(ce.getHandlerPC());
+            }
+        }
+    }
+
+    /**
+     * scans the code of a method
+     *
+     * @param cp
+     *            the constant pool of the class that holds the method
+     * @param codeAttribute
+     *            the code of the method
+     * @return the facts found
+     */
+    static MethodFacts scan(ConstantPool cp, Code codeAttribute) {
+        MethodScanner scanner = new MethodScanner(cp, codeAttribute);
+        scanner.scan();
+        ReferenceSitesHolder s = scanner.sites;
+        return new MethodFacts(scanner.code.length, s.invokes, s.fieldAccesses, s.allocations, s.classConstants, s.branches, s.registerAccesses);
+    }
+
+    private void scan() {
+        boolean reachable = true;
+        int pc = 0;
+        while (pc < code.length) {
+            if (handlerStarts.get(pc)) {
+                depth = 0;
+                push(UNKNOWN);
+            } else if ((jumpStates != null) && (jumpStates[pc] != null)) {
+                if (reachable) {
+                    merge(jumpStates[pc]);
+                } else {
+                    restore(jumpStates[pc]);
+                }
+                jumpStates[pc] = null;
+            } else if (!reachable) {
+                depth = 0;
+            }
+
+            int opcode = code[pc] & 0xFF;
+            int nextPC;
+            if (opcode == Const.WIDE) {
+                nextPC = scanWide(pc);
+                reachable = true;
+            } else {
+                nextPC = pc + instructionLength(pc, opcode);
+                reachable = scanInstruction(pc, opcode);
+            }
+            pc = nextPC;
+        }
+    }
+
+    private int scanWide(int pc) {
+        int opcode = code[pc + 1] & 0xFF;
+        int register = readUnsignedShort(pc + 2);
+        sites.registerAccesses.add(pc, opcode, register);
+        if (opcode == Const.IINC) {
+            return pc + 6;
+        }
+        if (opcode != Const.RET) {
+            applyRegisterOpcode(opcode, register);
+        }
+        return pc + 4;
+    }
+
+    /**
+     * applies the effect of one instruction, other than wide
+     *
+     * @return whether the next instruction can be reached by falling through
+     */
+    private boolean scanInstruction(int pc, int opcode) {
+        switch (opcode) {
+            case Const.NOP:
+            case Const.BREAKPOINT:
+            case Const.IMPDEP1:
+            case Const.IMPDEP2:
+            break;
+
+            case Const.ACONST_NULL:
+            case Const.ICONST_M1:
+            case Const.ICONST_0:
+            case Const.ICONST_1:
+            case Const.ICONST_2:
+            case Const.ICONST_3:
+            case Const.ICONST_4:
+            case Const.ICONST_5:
+            case Const.FCONST_0:
+            case Const.FCONST_1:
+            case Const.FCONST_2:
+            case Const.BIPUSH:
+            case Const.SIPUSH:
+                push(UNKNOWN);
+            break;
+
+            case Const.LCONST_0:
+            case Const.LCONST_1:
+            case Const.DCONST_0:
+            case Const.DCONST_1:
+            case Const.LDC2_W:
+                pushWide();
+            break;
+
+            case Const.LDC:
+            case Const.LDC_W: {
+                int index = (opcode == Const.LDC) ? (code[pc + 1] & 0xFF) : readUnsignedShort(pc + 1);
+                Constant c = cp.getConstant(index);
+                if (c instanceof ConstantClass) {
+                    String clsName = (String) ((ConstantClass) c).getConstantValue(cp);
+                    sites.classConstants.add(pc, opcode, clsName, null, null, UNKNOWN);
+                }
+                push(UNKNOWN);
+            }
+            break;
+
+            case Const.ILOAD:
+            case Const.LLOAD:
+            case Const.FLOAD:
+            case Const.DLOAD:
+            case Const.ALOAD:
+            case Const.ISTORE:
+            case Const.LSTORE:
+            case Const.FSTORE:
+            case Const.DSTORE:
+            case Const.ASTORE: {
+                int register = code[pc + 1] & 0xFF;
+                sites.registerAccesses.add(pc, opcode, register);
+                applyRegisterOpcode(opcode, register);
+            }
+            break;
+
+            case Const.IINC:
+                sites.registerAccesses.add(pc, opcode, code[pc + 1] & 0xFF);
+            break;
+
+            case Const.RET:
+                sites.registerAccesses.add(pc, opcode, code[pc + 1] & 0xFF);
+            return false;
+
+            case Const.IALOAD:
+            case Const.FALOAD:
+            case Const.AALOAD:
+            case Const.BALOAD:
+            case Const.CALOAD:
+            case Const.SALOAD:
+            case Const.FCMPL:
+            case Const.FCMPG:
+                pop(2);
+                push(UNKNOWN);
+            break;
+
+            case Const.LALOAD:
+            case Const.DALOAD:
+                pop(2);
+                pushWide();
+            break;
+
+            case Const.IASTORE:
+            case Const.FASTORE:
+            case Const.AASTORE:
+            case Const.BASTORE:
+            case Const.CASTORE:
+            case Const.SASTORE:
+                pop(3);
+            break;
+
+            case Const.LASTORE:
+            case Const.DASTORE:
+                pop(4);
+            break;
+
+            case Const.POP:
+            case Const.MONITORENTER:
+            case Const.MONITOREXIT:
+                pop(1);
+            break;
+
+            case Const.POP2:
+                pop(2);
+            break;
+
+            case Const.DUP:
+                dup(1, 0);
+            break;
+            case Const.DUP_X1:
+                dup(1, 1);
+            break;
+            case Const.DUP_X2:
+                dup(1, 2);
+            break;
+            case Const.DUP2:
+                dup(2, 0);
+            break;
+            case Const.DUP2_X1:
+                dup(2, 1);
+            break;
+            case Const.DUP2_X2:
+                dup(2, 2);
+            break;
+
+            case Const.SWAP:
+                if (depth >= 2) {
+                    int top = slots[depth - 1];
+                    slots[depth - 1] = slots[depth - 2];
+                    slots[depth - 2] = top;
+                }
+            break;
+
+            case Const.INEG:
+            case Const.FNEG:
+            case Const.I2F:
+            case Const.F2I:
+            case Const.I2B:
+            case Const.I2C:
+            case Const.I2S:
+            case Const.ARRAYLENGTH:
+            case Const.INSTANCEOF:
+            case Const.NEWARRAY:
+                if (opcode == Const.NEWARRAY) {
+                    sites.allocations.add(pc, opcode, "[" + Const.getShortTypeName(code[pc + 1]), null, null, UNKNOWN);
+                }
+                pop(1);
+                push(UNKNOWN);
+            break;
+
+            case Const.LNEG:
+            case Const.DNEG:
+            case Const.L2D:
+            case Const.D2L:
+                pop(2);
+                pushWide();
+            break;
+
+            case Const.I2L:
+            case Const.I2D:
+            case Const.F2L:
+            case Const.F2D:
+                pop(1);
+                pushWide();
+            break;
+
+            case Const.L2I:
+            case Const.L2F:
+            case Const.D2I:
+            case Const.D2F:
+                pop(2);
+                push(UNKNOWN);
+            break;
+
+            case Const.LCMP:
+            case Const.DCMPL:
+            case Const.DCMPG:
+                pop(4);
+                push(UNKNOWN);
+            break;
+
+            case Const.ISHL:
+            case Const.ISHR:
+            case Const.IUSHR:
+            case Const.IAND:
+            case Const.IOR:
+            case Const.IXOR:
+                pop(2);
+                push(UNKNOWN);
+            break;
+
+            case Const.LSHL:
+            case Const.LSHR:
+            case Const.LUSHR:
+                pop(3);
+                pushWide();
+            break;
+
+            case Const.LAND:
+            case Const.LOR:
+            case Const.LXOR:
+                pop(4);
+                pushWide();
+            break;
+
+            case Const.IFEQ:
+            case Const.IFNE:
+            case Const.IFLT:
+            case Const.IFGE:
+            case Const.IFGT:
+            case Const.IFLE:
+            case Const.IFNULL:
+            case Const.IFNONNULL:
+                pop(1);
+                branch(pc, opcode, pc + readShort(pc + 1));
+            break;
+
+            case Const.IF_ICMPEQ:
+            case Const.IF_ICMPNE:
+            case Const.IF_ICMPLT:
+            case Const.IF_ICMPGE:
+            case Const.IF_ICMPGT:
+            case Const.IF_ICMPLE:
+            case Const.IF_ACMPEQ:
+            case Const.IF_ACMPNE:
+                pop(2);
+                branch(pc, opcode, pc + readShort(pc + 1));
+            break;
+
+            case Const.GOTO:
+                branch(pc, opcode, pc + readShort(pc + 1));
+            return false;
+
+            case Const.GOTO_W:
+                branch(pc, opcode, pc + readInt(pc + 1));
+            return false;
+
+            case Const.JSR:
+            case Const.JSR_W:
+                push(UNKNOWN);
+                branch(pc, opcode, pc + ((opcode == Const.JSR) ? readShort(pc + 1) : readInt(pc + 1)));
+                pop(1);
+            break;
+
+            case Const.TABLESWITCH:
+            case Const.LOOKUPSWITCH:
+                pop(1);
+                scanSwitch(pc, opcode);
+            return false;
+
+            case Const.IRETURN:
+            case Const.LRETURN:
+            case Const.FRETURN:
+            case Const.DRETURN:
+            case Const.ARETURN:
+            case Const.RETURN:
+            case Const.ATHROW:
+            return false;
+
+            case Const.GETSTATIC:
+            case Const.PUTSTATIC:
+            case Const.GETFIELD:
+            case Const.PUTFIELD:
+                scanFieldAccess(pc, opcode);
+            break;
+
+            case Const.INVOKEVIRTUAL:
+            case Const.INVOKESPECIAL:
+            case Const.INVOKESTATIC:
+            case Const.INVOKEINTERFACE:
+            case Const.INVOKEDYNAMIC:
+                scanInvoke(pc, opcode);
+            break;
+
+            case Const.NEW:
+                sites.allocations.add(pc, opcode, getClassName(readUnsignedShort(pc + 1)), null, null, UNKNOWN);
+                push(UNKNOWN);
+            break;
+
+            case Const.ANEWARRAY: {
+                String clsName = getClassName(readUnsignedShort(pc + 1));
+                String arraySig = clsName.startsWith("[") ? "[" + clsName : "[L" + clsName + ';';
+                sites.allocations.add(pc, opcode, arraySig, null, null, UNKNOWN);
+                pop(1);
+                push(UNKNOWN);
+            }
+            break;
+
+            case Const.MULTIANEWARRAY:
+                sites.allocations.add(pc, opcode, getClassName(readUnsignedShort(pc + 1)), null, null, UNKNOWN);
+                pop(code[pc + 3] & 0xFF);
+                push(UNKNOWN);
+            break;
+
+            case Const.CHECKCAST:
+                // the value is the same object, so it keeps the register it came from
+            break;
+
+            default:
+                if ((opcode >= Const.ILOAD_0) && (opcode <= Const.ALOAD_3)) {
+                    int register = (opcode - Const.ILOAD_0) & 3;
+                    int loadOpcode = Const.ILOAD + ((opcode - Const.ILOAD_0) >> 2);
+                    sites.registerAccesses.add(pc, opcode, register);
+                    applyRegisterOpcode(loadOpcode, register);
+                } else if ((opcode >= Const.ISTORE_0) && (opcode <= Const.ASTORE_3)) {
+                    int register = (opcode - Const.ISTORE_0) & 3;
+                    int storeOpcode = Const.ISTORE + ((opcode - Const.ISTORE_0) >> 2);
+                    sites.registerAccesses.add(pc, opcode, register);
+                    applyRegisterOpcode(storeOpcode, register);
+                } else if ((opcode >= Const.IADD) && (opcode <= Const.DREM)) {
+                    // iadd, ladd, fadd, dadd repeat for sub, mul, div and rem
+                    int type = (opcode - Const.IADD) & 3;
+                    if ((type == 1) || (type == 3)) {
+                        pop(4);
+                        pushWide();
+                    } else {
+                        pop(2);
+                        push(UNKNOWN);
+                    }
+                }
+            break;
+        }
+        return true;
+    }
+
+    private void applyRegisterOpcode(int opcode, int register) {
+        switch (opcode) {
+            case Const.ILOAD:
+            case Const.FLOAD:
+            case Const.ALOAD:
+                push(register);
+            break;
+            case Const.LLOAD:
+            case Const.DLOAD:
+                pushWide();
+            break;
+            case Const.ISTORE:
+            case Const.FSTORE:
+            case Const.ASTORE:
+                pop(1);
+            break;
+            case Const.LSTORE:
+            case Const.DSTORE:
+                pop(2);
+            break;
+            default:
+            break;
+        }
+    }
+
+    private void scanFieldAccess(int pc, int opcode) {
+        ConstantCP ref = (ConstantCP) cp.getConstant(readUnsignedShort(pc + 1));
+        ConstantNameAndType nat = (ConstantNameAndType) cp.getConstant(ref.getNameAndTypeIndex());
+        String signature = nat.getSignature(cp);
+        int size = slotSize(signature, 0);
+
+        int receiver = UNKNOWN;
+        switch (opcode) {
+            case Const.GETSTATIC:
+                pushSlots(size);
+            break;
+            case Const.PUTSTATIC:
+                pop(size);
+            break;
+            case Const.GETFIELD:
+                receiver = peek(0);
+                pop(1);
+                pushSlots(size);
+            break;
+            default:
+                receiver = peek(size);
+                pop(size + 1);
+            break;
+        }
+        sites.fieldAccesses.add(pc, opcode, ref.getClass(cp).replace('.', '/'), nat.getName(cp), signature, receiver);
+    }
+
+    private void scanInvoke(int pc, int opcode) {
+        String clsName;
+        ConstantNameAndType nat;
+        Constant c = cp.getConstant(readUnsignedShort(pc + 1));
+        if (c instanceof ConstantInvokeDynamic) {
+            clsName = null;
+            nat = (ConstantNameAndType) cp.getConstant(((ConstantInvokeDynamic) c).getNameAndTypeIndex());
+        } else {
+            ConstantCP ref = (ConstantCP) c;
+            clsName = ref.getClass(cp).replace('.', '/');
+            nat = (ConstantNameAndType) cp.getConstant(ref.getNameAndTypeIndex());
+        }
+        String signature = nat.getSignature(cp);
+
+        int argSlots = 0;
+        int closeParen = signature.indexOf(')');
+        int i = 1;
+        while (i < closeParen) {
+            argSlots += slotSize(signature, i);
+            i = skipType(signature, i);
+        }
+
+        int receiver = UNKNOWN;
+        if ((opcode != Const.INVOKESTATIC) && (opcode != Const.INVOKEDYNAMIC)) {
+            receiver = peek(argSlots);
+            argSlots++;
+        }
+        pop(argSlots);
+        pushSlots(slotSize(signature, closeParen + 1));
+
+        sites.invokes.add(pc, opcode, clsName, nat.getName(cp), signature, receiver);
+    }
+
+    private void scanSwitch(int pc, int opcode) {
+        int base = (pc + 4) & ~3;
+        int defaultTarget = pc + readInt(base);
+        if (opcode == Const.TABLESWITCH) {
+            int low = readInt(base + 4);
+            int high = readInt(base + 8);
+            for (int i = 0; i <= (high - low); i++) {
+                branch(pc, opcode, pc + readInt(base + 12 + (i * 4)));
+            }
+        } else {
+            int npairs = readInt(base + 4);
+            for (int i = 0; i < npairs; i++) {
+                branch(pc, opcode, pc + readInt(base + 12 + (i * 8)));
+            }
+        }
+        branch(pc, opcode, defaultTarget);
+    }
+
+    private int instructionLength(int pc, int opcode) {
+        return instructionLength(code, pc, opcode);
+    }
+
+    /**
+     * returns the length of an instruction, other than wide
+     *
+     * @param code
+     *            the bytecode of the method
+     * @param pc
+     *            the pc of the instruction
+     * @param opcode
+     *            the opcode at the pc
+     * @return the number of bytes the instruction takes, including its operands and any switch padding
+     */
+    static int instructionLength(byte[] code, int pc, int opcode) {
+        switch (opcode) {
+            case Const.BIPUSH:
+            case Const.LDC:
+            case Const.ILOAD:
+            case Const.LLOAD:
+            case Const.FLOAD:
+            case Const.DLOAD:
+            case Const.ALOAD:
+            case Const.ISTORE:
+            case Const.LSTORE:
+            case Const.FSTORE:
+            case Const.DSTORE:
+            case Const.ASTORE:
+            case Const.RET:
+            case Const.NEWARRAY:
+                return 2;
+
+            case Const.MULTIANEWARRAY:
+                return 4;
+
+            case Const.INVOKEINTERFACE:
+            case Const.INVOKEDYNAMIC:
+            case Const.GOTO_W:
+            case Const.JSR_W:
+                return 5;
+
+            case Const.TABLESWITCH: {
+                int base = (pc + 4) & ~3;
+                return (base - pc) + 12 + ((readInt(code, base + 8) - readInt(code, base + 4) + 1) * 4);
+            }
+
+            case Const.LOOKUPSWITCH: {
+                int base = (pc + 4) & ~3;
+                return (base - pc) + 8 + (readInt(code, base + 4) * 8);
+            }
+
+            default:
+                if ((opcode == Const.SIPUSH) || (opcode == Const.LDC_W) || (opcode == Const.LDC2_W) || (opcode == Const.IINC)
+                        || ((opcode >= Const.IFEQ) && (opcode <= Const.JSR)) || ((opcode >= Const.GETSTATIC) && (opcode <= Const.INVOKESTATIC))
+                        || (opcode == Const.NEW) || (opcode == Const.ANEWARRAY) || (opcode == Const.CHECKCAST) || (opcode == Const.INSTANCEOF)
+                        || (opcode == Const.IFNULL) || (opcode == Const.IFNONNULL)) {
+                    return 3;
+                }
+                return 1;
+        }
+    }
+
+    private void branch(int pc, int opcode, int target) {
+        sites.branches.add(pc, opcode, target);
+        if ((target > pc) && (target < code.length)) {
+            if (jumpStates == null) {
+                jumpStates = new int[code.length][];
+            }
+            int[] state = Arrays.copyOf(slots, depth);
+            if (jumpStates[target] == null) {
+                jumpStates[target] = state;
+            } else {
+                jumpStates[target] = mergeStates(jumpStates[target], state);
+            }
+        }
+    }
+
+    private void merge(int[] state) {
+        if (state.length != depth) {
+            Arrays.fill(slots, 0, depth, UNKNOWN);
+            return;
+        }
+        for (int i = 0; i < depth; i++) {
+            if (slots[i] != state[i]) {
+                slots[i] = UNKNOWN;
+            }
+        }
+    }
+
+    private static int[] mergeStates(int[] state1, int[] state2) {
+        if (state1.length != state2.length) {
+            int[] merged = new int[Math.min(state1.length, state2.length)];
+            Arrays.fill(merged, UNKNOWN);
+            return merged;
+        }
+        for (int i = 0; i < state1.length; i++) {
+            if (state1[i] != state2[i]) {
+                state1[i] = UNKNOWN;
+            }
+        }
+        return state1;
+    }
+
+    private void restore(int[] state) {
+        ensureCapacity(state.length);
+        System.arraycopy(state, 0, slots, 0, state.length);
+        depth = state.length;
+    }
+
+    private void push(int origin) {
+        ensureCapacity(depth + 1);
+        slots[depth++] = origin;
+    }
+
+    private void pushWide() {
+        push(UNKNOWN);
+        push(UNKNOWN);
+    }
+
+    private void pushSlots(int count) {
+        for (int i = 0; i < count; i++) {
+            push(UNKNOWN);
+        }
+    }
+
+    private void pop(int count) {
+        depth = Math.max(depth - count, 0);
+    }
+
+    private int peek(int fromTop) {
+        int index = depth - 1 - fromTop;
+        return (index >= 0) ? slots[index] : UNKNOWN;
+    }
+
+    /**
+     * duplicates the top count slots, inserting them below the skip slots beneath them
+     */
+    private void dup(int count, int skip) {
+        if (depth < (count + skip)) {
+            pushSlots(count);
+            return;
+        }
+        ensureCapacity(depth + count);
+        int start = depth - count - skip;
+        int[] copied = Arrays.copyOfRange(slots, depth - count, depth);
+        System.arraycopy(slots, start, slots, start + count, count + skip);
+        System.arraycopy(copied, 0, slots, start, count);
+        depth += count;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(capacity, slots.length << 1));
+        }
+    }
+
+    private String getClassName(int index) {
+        return (String) ((ConstantClass) cp.getConstant(index)).getConstantValue(cp);
+    }
+
+    private int readUnsignedShort(int offset) {
+        return ((code[offset] & 0xFF) << 8) | (code[offset + 1] & 0xFF);
+    }
+
+    private int readShort(int offset) {
+        return (short) readUnsignedShort(offset);
+    }
+
+    private int readInt(int offset) {
+        return readInt(code, offset);
+    }
+
+    static int readInt(byte[] code, int offset) {
+        return ((code[offset] & 0xFF) << 24) | ((code[offset + 1] & 0xFF) << 16) | ((code[offset + 2] & 0xFF) << 8) | (code[offset + 3] & 0xFF);
+    }
+
+    private static int slotSize(String signature, int offset) {
+        char c = signature.charAt(offset);
+        if (c == 'V') {
+            return 0;
+        }
+        return ((c == 'J') || (c == 'D')) ? 2 : 1;
+    }
+
+    private static int skipType(String signature, int offset) {
+        int i = offset;
+        while (signature.charAt(i) == '[') {
+            i++;
+        }
+        if (signature.charAt(i) == 'L') {
+            i = signature.indexOf(';', i);
+        }
+        return i + 1;
+    }
+
+    /**
+     * the tables being filled for the method being scanned
+     */
+    private static final class ReferenceSitesHolder {
+        final MethodFacts.ReferenceSites invokes = new MethodFacts.ReferenceSites();
+        final MethodFacts.ReferenceSites fieldAccesses = new MethodFacts.ReferenceSites();
+        final MethodFacts.ReferenceSites allocations = new MethodFacts.ReferenceSites();
+        final MethodFacts.ReferenceSites classConstants = new MethodFacts.ReferenceSites();
+        final MethodFacts.BranchSites branches = new MethodFacts.BranchSites();
+        final MethodFacts.RegisterSites registerAccesses = new MethodFacts.RegisterSites();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.mebigfatguy.fbcontrib.utils.FQMethod;
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+
+/**
+ * an immutable table of methods, each mapped to a value, that a detector looks for in the calls it visits. Instead of building an {@link FQMethod} for each
+ * invoke, a detector resolves the table once per class with {@link #resolve(ClassContext)}, and then looks up each call by its constant pool index using the
+ * returned {@link MethodMatcher}.
+ *
+ * @param <V>
+ *            the type of value associated with each method
+ */
+public final class MethodTable<V> {
+
+    private final Map<FQMethod, V> methods;
+
+    /**
+     * creates a table from a map of methods to their values
+     *
+     * @param methods
+     *            the methods to look for, and the non null value of each
+     */
+    public MethodTable(Map<FQMethod, ? extends V> methods) {
+        this.methods = new HashMap<>(methods);
+    }
+
+    /**
+     * creates a table that only records whether a method is one of a set
+     *
+     * @param methods
+     *            the methods to look for
+     * @return a table mapping each method to Boolean.TRUE
+     */
+    public static MethodTable<Boolean> of(Collection<FQMethod> methods) {
+        Map<FQMethod, Boolean> table = new HashMap<>();
+        for (FQMethod m : methods) {
+            table.put(m, Boolean.TRUE);
+        }
+        return new MethodTable<>(table);
+    }
+
+    /**
+     * returns the value of a method in this table
+     *
+     * @param method
+     *            the method to look up
+     * @return the value of the method, or null if it is not in the table
+     */
+    public V get(FQMethod method) {
+        return methods.get(method);
+    }
+
+    /**
+     * matches this table against the method references of the class being visited
+     *
+     * @param classContext
+     *            the context object of the class
+     * @return a matcher for the calls of the class
+     * @throws CheckedAnalysisException
+     *             if the class could not be read
+     */
+    public MethodMatcher<V> resolve(ClassContext classContext) throws CheckedAnalysisException {
+        return ClassMethodRefs.getClassMethodRefs(classContext).resolve(this);
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
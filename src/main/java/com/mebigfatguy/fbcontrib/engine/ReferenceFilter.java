@@ -0,0 +1,118 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+
+/**
+ * declares the constant pool references a detector needs to find anything in a class, so that classes without any of them can be skipped without being
+ * scanned. A class is accepted if it refers to any of the classes, packages or method names given. Build one as a constant of the detector, as in
+ *
+ * <pre>
+ * private static final ReferenceFilter FILTER = new ReferenceFilter().withClasses("java/sql/Statement").withPackages("javax/persistence/");
+ * </pre>
+ *
+ * and check it at the start of visitClassContext.
+ */
+public final class ReferenceFilter {
+
+    private final Set<String> classes = new HashSet<>();
+    private final Set<String> packages = new HashSet<>();
+    private final Set<String> methods = new HashSet<>();
+
+    /**
+     * adds classes that, if referenced, make a class worth scanning
+     *
+     * @param clsNames
+     *            the slashed names of the classes
+     * @return this filter
+     */
+    public ReferenceFilter withClasses(String... clsNames) {
+        classes.addAll(Arrays.asList(clsNames));
+        return this;
+    }
+
+    /**
+     * adds packages that, if any of their classes or sub package classes are referenced, make a class worth scanning
+     *
+     * @param packageNames
+     *            the slashed names of the packages, ending with a slash
+     * @return this filter
+     */
+    public ReferenceFilter withPackages(String... packageNames) {
+        packages.addAll(Arrays.asList(packageNames));
+        return this;
+    }
+
+    /**
+     * adds method names that, if called, make a class worth scanning
+     *
+     * @param methodNames
+     *            the names of the methods
+     * @return this filter
+     */
+    public ReferenceFilter withMethods(String... methodNames) {
+        methods.addAll(Arrays.asList(methodNames));
+        return this;
+    }
+
+    /**
+     * returns whether a class refers to anything this filter asks for. If the references of the class can't be read, the class is accepted, so that the
+     * detector behaves as it would without a filter.
+     *
+     * @param classContext
+     *            the context object of the class
+     * @return whether the class should be scanned
+     */
+    public boolean accepts(ClassContext classContext) {
+        try {
+            ClassReferences references = ClassReferences.getClassReferences(classContext);
+            for (String clsName : classes) {
+                if (references.referencesClass(clsName)) {
+                    return true;
+                }
+            }
+            for (String packageName : packages) {
+                if (references.referencesPackage(packageName)) {
+                    return true;
+                }
+            }
+            for (String methodName : methods) {
+                if (references.referencesMethod(methodName)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (CheckedAnalysisException e) {
+            return true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import com.mebigfatguy.fbcontrib.utils.StopOpcodeParsingException;
+
+import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.Detector;
+import edu.umd.cs.findbugs.OpcodeStack;
+import edu.umd.cs.findbugs.ba.ClassContext;
+
+/**
+ * a detector that looks at opcodes along with an OpcodeStack that it only reads, and so can share the one stack simulation that {@link SharedStackScanner}
+ * runs for all such detectors. The stack is shared, so a participant must never set user values on its items, and detectors marked with CustomUserValue
+ * can't take part.
+ */
+public interface SharedStackParticipant extends Detector {
+
+    /**
+     * called before the methods of a class are scanned
+     *
+     * @param classContext
+     *            the context object of the class about to be scanned
+     * @return whether to look at the opcodes of this class
+     */
+    boolean beginClass(ClassContext classContext);
+
+    /**
+     * called before the opcodes of a method are scanned
+     *
+     * @param dbc
+     *            the shared visitor, positioned on the method about to be scanned
+     * @return whether to look at the opcodes of this method
+     */
+    boolean beginMethod(BytecodeScanningDetector dbc);
+
+    /**
+     * looks at one opcode. Throw {@link StopOpcodeParsingException} to not see the rest of the method.
+     *
+     * @param dbc
+     *            the shared visitor, positioned on the opcode
+     * @param stack
+     *            the shared stack, as it is before the opcode executes
+     * @param seen
+     *            the opcode
+     */
+    void sawOpcode(BytecodeScanningDetector dbc, OpcodeStack stack, int seen);
+
+    /**
+     * called after all the methods of a class have been scanned
+     *
+     * @param classContext
+     *            the context object of the class that was scanned
+     */
+    void endClass(ClassContext classContext);
+}
@@ -0,0 +1,223 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.bcel.classfile.Code;
+
+import com.mebigfatguy.fbcontrib.utils.StopOpcodeParsingException;
+
+import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.OpcodeStack;
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+
+/**
+ * scans the opcodes of a class once for all the {@link SharedStackParticipant}s of an analysis, keeping one OpcodeStack that each participant is shown before
+ * each opcode, rather than each of them simulating the stack on its own. Whichever participant is visited first for a class runs the scan for all of them, so
+ * its time includes theirs, and the others' visits of that class do nothing.
+ * <p>
+ * Participants must run in the same pass, as is the case for detectors with no ordering constraints. An exception thrown by a participant is logged, and only
+ * stops that participant from seeing the rest of the class. An exception thrown by the scan itself, such as by the OpcodeStack, is logged for each participant
+ * that was still scanning the class, as it would have been had each simulated the stack on its own.
+ */
+public class SharedStackScanner extends BytecodeScanningDetector {
+
+    private final List<SharedStackParticipant> participants = new ArrayList<>();
+    private BugReporter bugReporter;
+    private ClassDescriptor scannedClass;
+    private List<SharedStackParticipant> classParticipants;
+    private List<SharedStackParticipant> methodParticipants;
+    private OpcodeStack stack;
+
+    /**
+     * creates a scanner with no participants, use {@link #getInstance()} to get the one shared by the current analysis
+     */
+    public SharedStackScanner() {
+        // participants register themselves
+    }
+
+    /**
+     * returns the scanner shared by the current analysis, or a new one if no analysis is running
+     *
+     * @return the scanner
+     */
+    public static SharedStackScanner getInstance() {
+        IAnalysisCache analysisCache = Global.getAnalysisCache();
+        if (analysisCache == null) {
+            return new SharedStackScanner();
+        }
+        return analysisCache.getDatabase(SharedStackScanner.class);
+    }
+
+    /**
+     * adds a participant to the scans of this scanner
+     *
+     * @param participant
+     *            the detector to show each opcode to
+     * @param reporter
+     *            the reporter to log participant failures to
+     */
+    public void register(SharedStackParticipant participant, BugReporter reporter) {
+        participants.add(participant);
+        if (bugReporter == null) {
+            bugReporter = reporter;
+        }
+    }
+
+    /**
+     * scans a class for all participants, unless it is the class that was just scanned
+     *
+     * @param classContext
+     *            the context object of the class to scan
+     */
+    public void scan(ClassContext classContext) {
+        ClassDescriptor descriptor = classContext.getClassDescriptor();
+        if (descriptor.equals(scannedClass)) {
+            return;
+        }
+        scannedClass = descriptor;
+
+        String clsName = classContext.getJavaClass().getClassName();
+        try {
+            classParticipants = new ArrayList<>(participants.size());
+            for (SharedStackParticipant participant : participants) {
+                try {
+                    if (participant.beginClass(classContext)) {
+                        classParticipants.add(participant);
+                    }
+                } catch (RuntimeException e) {
+                    logFailure(clsName, participant, e);
+                }
+            }
+
+            if (!classParticipants.isEmpty()) {
+                stack = new OpcodeStack();
+                methodParticipants = new ArrayList<>(classParticipants.size());
+                try {
+                    super.visitClassContext(classContext);
+                } catch (RuntimeException e) {
+                    for (SharedStackParticipant participant : classParticipants) {
+                        logFailure(clsName, participant, e);
+                    }
+                    return;
+                }
+
+                for (SharedStackParticipant participant : classParticipants) {
+                    try {
+                        participant.endClass(classContext);
+                    } catch (RuntimeException e) {
+                        logFailure(clsName, participant, e);
+                    }
+                }
+            }
+        } finally {
+            classParticipants = null;
+            methodParticipants = null;
+            stack = null;
+        }
+    }
+
+    /**
+     * implements the visitor to find the participants that want to see this method, and only simulate the stack if there are any
+     *
+     * @param obj
+     *            the context object of the currently parsed code block
+     */
+    @Override
+    public void visitCode(Code obj) {
+        methodParticipants.clear();
+        Iterator<SharedStackParticipant> it = classParticipants.iterator();
+        while (it.hasNext()) {
+            SharedStackParticipant participant = it.next();
+            try {
+                if (participant.beginMethod(this)) {
+                    methodParticipants.add(participant);
+                }
+            } catch (RuntimeException e) {
+                logFailure(getDottedClassName(), participant, e);
+                it.remove();
+            }
+        }
+
+        if (methodParticipants.isEmpty()) {
+            return;
+        }
+
+        try {
+            stack.resetForMethodEntry(this);
+            super.visitCode(obj);
+        } catch (StopOpcodeParsingException e) {
+            // all participants are done with this method
+        }
+    }
+
+    /**
+     * implements the visitor to show each interested participant the opcode with the stack as it is before the opcode, and then to move the stack past it
+     *
+     * @param seen
+     *            the currently parsed opcode
+     */
+    @Override
+    public void sawOpcode(int seen) {
+        try {
+            stack.precomputation(this);
+
+            Iterator<SharedStackParticipant> it = methodParticipants.iterator();
+            while (it.hasNext()) {
+                SharedStackParticipant participant = it.next();
+                try {
+                    participant.sawOpcode(this, stack, seen);
+                } catch (StopOpcodeParsingException e) {
+                    it.remove();
+                } catch (RuntimeException e) {
+                    logFailure(getDottedClassName(), participant, e);
+                    it.remove();
+                    classParticipants.remove(participant);
+                }
+            }
+
+            if (methodParticipants.isEmpty()) {
+                throw new StopOpcodeParsingException();
+            }
+        } finally {
+            stack.sawOpcode(this, seen);
+        }
+    }
+
+    /**
+     * logs an exception thrown while a participant analyzed a class, as SpotBugs logs one thrown by a detector
+     *
+     * @param clsName
+     *            the dotted name of the class being analyzed
+     * @param participant
+     *            the participant that failed, or whose scan failed
+     * @param e
+     *            the exception
+     */
+    private void logFailure(String clsName, SharedStackParticipant participant, RuntimeException e) {
+        bugReporter.logError("Exception analyzing " + clsName + " using detector " + participant.getClass().getName(), e);
+    }
+}
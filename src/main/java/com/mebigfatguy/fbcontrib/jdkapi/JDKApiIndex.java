@@ -0,0 +1,297 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.jdkapi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+/**
+ * a read only index of the classes, methods and packages of one JDK release, as written by {@link JDKApiIndexBuilder}. The index is a set of open addressed
+ * hash tables of 64 bit keys held in a (usually memory mapped) buffer, so loading it costs no parsing, and looking up a class, method or package is a few
+ * probes that allocate nothing. Names are only kept as hashes, so a lookup can in theory match something that does not exist; with 64 bit keys this is
+ * vanishingly rare, and errs on the side of not reporting.
+ * <p>
+ * The file layout, all big endian, is a header of six ints: magic, format version, jdk version, and the class, method and package table capacities. It is
+ * followed by the class key table, the method key table, the package key table (all longs), and finally the super class slot of each class table slot (ints).
+ * Capacities are powers of two, and a key of 0 marks an empty table slot.
+ * </p>
+ */
+public final class JDKApiIndex {
+
+    /** the super slot of a class without a super class, that is, java/lang/Object */
+    public static final int NO_SUPER = -1;
+    /** the super slot of a class whose super class is not in the index */
+    public static final int UNKNOWN_SUPER = -2;
+
+    static final int MAGIC = 0x464A4149;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 6 * 4;
+
+    private static final long MIX_1 = 0xFF51AFD7ED558CCDL;
+    private static final long MIX_2 = 0xC4CEB9FE1A85EC53L;
+    private static final long METHOD_SEED = 0x9E3779B97F4A7C15L;
+
+    private final ByteBuffer buffer;
+    private final int jdkVersion;
+    private final int classMask;
+    private final int methodMask;
+    private final int packageMask;
+    private final int methodOffset;
+    private final int packageOffset;
+    private final int superOffset;
+
+    /**
+     * wraps an index held in a buffer, checking that the header describes the buffer
+     *
+     * @param buffer
+     *            the buffer holding the index
+     * @throws IOException
+     *             if the buffer does not hold an index of this format
+     */
+    JDKApiIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if ((buffer.capacity() < HEADER_SIZE) || (buffer.getInt(0) != MAGIC)) {
+            throw new IOException("Not a JDK API index");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported JDK API index format: " + buffer.getInt(4));
+        }
+        jdkVersion = buffer.getInt(8);
+        int classCapacity = buffer.getInt(12);
+        int methodCapacity = buffer.getInt(16);
+        int packageCapacity = buffer.getInt(20);
+        if (!isPowerOfTwo(classCapacity) || !isPowerOfTwo(methodCapacity) || !isPowerOfTwo(packageCapacity)) {
+            throw new IOException("Corrupt JDK API index table sizes");
+        }
+
+        classMask = classCapacity - 1;
+        methodMask = methodCapacity - 1;
+        packageMask = packageCapacity - 1;
+        methodOffset = HEADER_SIZE + (classCapacity * 8);
+        packageOffset = methodOffset + (methodCapacity * 8);
+        superOffset = packageOffset + (packageCapacity * 8);
+        if (buffer.capacity() != (superOffset + (classCapacity * 4))) {
+            throw new IOException("Truncated JDK API index");
+        }
+    }
+
+    /**
+     * maps an index file into memory
+     *
+     * @param indexFile
+     *            the index file
+     * @return the index
+     * @throws IOException
+     *             if the file can not be read, or is not an index
+     */
+    public static JDKApiIndex load(File indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            return new JDKApiIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * reads an index from a stream, such as a class path resource, that can not be mapped
+     *
+     * @param is
+     *            the stream holding the index, which is not closed
+     * @return the index
+     * @throws IOException
+     *             if the stream can not be read, or is not an index
+     */
+    public static JDKApiIndex load(InputStream is) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] data = new byte[8192];
+        int len = is.read(data);
+        while (len >= 0) {
+            baos.write(data, 0, len);
+            len = is.read(data);
+        }
+        return new JDKApiIndex(ByteBuffer.wrap(baos.toByteArray()));
+    }
+
+    /**
+     * returns the human jdk version, such as 8, this index describes
+     *
+     * @return the jdk version
+     */
+    public int getJdkVersion() {
+        return jdkVersion;
+    }
+
+    /**
+     * looks up a class in the index
+     *
+     * @param clsName
+     *            the slashed class name
+     * @return the slot of the class, or -1 if the class is not in the index
+     */
+    public int findClass(String clsName) {
+        long key = nameKey(clsName.hashCode(), clsName.length());
+        int slot = (int) key & classMask;
+        long probe = buffer.getLong(HEADER_SIZE + (slot * 8));
+        while (probe != 0) {
+            if (probe == key) {
+                return slot;
+            }
+            slot = (slot + 1) & classMask;
+            probe = buffer.getLong(HEADER_SIZE + (slot * 8));
+        }
+        return -1;
+    }
+
+    /**
+     * returns the super class of a class in the index
+     *
+     * @param classSlot
+     *            the slot of the class, as returned by {@link #findClass(String)}
+     * @return the slot of the super class, or {@link #NO_SUPER} or {@link #UNKNOWN_SUPER}
+     */
+    public int getSuperClass(int classSlot) {
+        return buffer.getInt(superOffset + (classSlot * 4));
+    }
+
+    /**
+     * returns whether a class declares a method, not counting inherited methods
+     *
+     * @param classSlot
+     *            the slot of the class, as returned by {@link #findClass(String)}
+     * @param methodName
+     *            the name of the method
+     * @param signature
+     *            the signature of the method
+     * @return whether the class declares the method
+     */
+    public boolean hasMethod(int classSlot, String methodName, String signature) {
+        long key = methodKey(classSlot, methodName, signature);
+        int slot = (int) key & methodMask;
+        long probe = buffer.getLong(methodOffset + (slot * 8));
+        while (probe != 0) {
+            if (probe == key) {
+                return true;
+            }
+            slot = (slot + 1) & methodMask;
+            probe = buffer.getLong(methodOffset + (slot * 8));
+        }
+        return false;
+    }
+
+    /**
+     * returns whether the package of a class exists in the jdk, whether or not the class itself does
+     *
+     * @param clsName
+     *            the slashed class name
+     * @return whether the package of the class is in the index
+     */
+    public boolean hasPackageOf(String clsName) {
+        int packageLength = clsName.lastIndexOf('/');
+        if (packageLength < 0) {
+            return false;
+        }
+
+        long key = nameKey(hash(clsName, packageLength), packageLength);
+        int slot = (int) key & packageMask;
+        long probe = buffer.getLong(packageOffset + (slot * 8));
+        while (probe != 0) {
+            if (probe == key) {
+                return true;
+            }
+            slot = (slot + 1) & packageMask;
+            probe = buffer.getLong(packageOffset + (slot * 8));
+        }
+        return false;
+    }
+
+    /**
+     * computes the {@link String#hashCode()} of the first characters of a string, without creating the substring
+     *
+     * @param s
+     *            the string
+     * @param length
+     *            the number of leading characters to hash
+     * @return the hash code of the leading characters
+     */
+    static int hash(String s, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = (31 * h) + s.charAt(i);
+        }
+        return h;
+    }
+
+    /**
+     * builds the key of a class or package name from the name's hash code and length
+     *
+     * @param hash
+     *            the hash code of the name
+     * @param length
+     *            the length of the name
+     * @return the key, which is never 0
+     */
+    static long nameKey(int hash, int length) {
+        return nonZero(mix((((long) hash) << 32) ^ length));
+    }
+
+    /**
+     * builds the key of a method from the slot of its class and its name and signature
+     *
+     * @param classSlot
+     *            the slot of the declaring class
+     * @param methodName
+     *            the name of the method
+     * @param signature
+     *            the signature of the method
+     * @return the key, which is never 0
+     */
+    static long methodKey(int classSlot, String methodName, String signature) {
+        long key = mix(METHOD_SEED ^ ((((long) classSlot) << 32) | (methodName.hashCode() & 0xFFFFFFFFL)));
+        key = mix(key ^ ((((long) signature.hashCode()) << 32) | (((long) methodName.length() << 16) ^ signature.length())));
+        return nonZero(key);
+    }
+
+    private static long mix(long value) {
+        long k = value;
+        k ^= k >>> 33;
+        k *= MIX_1;
+        k ^= k >>> 33;
+        k *= MIX_2;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static long nonZero(long key) {
+        return key == 0 ? 1 : key;
+    }
+
+    private static boolean isPowerOfTwo(int value) {
+        return (value > 0) && ((value & (value - 1)) == 0);
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.jdkapi;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.bcel.classfile.ClassParser;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+
+import com.mebigfatguy.fbcontrib.utils.ToString;
+
+/**
+ * collects the java/ and javax/ classes of one JDK release, from an rt.jar, a ct.sym or a modular runtime image, and builds a {@link JDKApiIndex} of them.
+ */
+public final class JDKApiIndexBuilder {
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String SIG_SUFFIX = ".sig";
+
+    private final int jdkVersion;
+    private final Map<String, ClassInfo> classes = new TreeMap<>();
+    private final Set<String> packages = new TreeSet<>();
+
+    /**
+     * creates a builder for the index of a JDK release
+     *
+     * @param jdkVersion
+     *            the human jdk version, such as 8
+     */
+    public JDKApiIndexBuilder(int jdkVersion) {
+        this.jdkVersion = jdkVersion;
+    }
+
+    /**
+     * adds a class to the index, if it is a java/ or javax/ class
+     *
+     * @param cls
+     *            the class to add
+     */
+    public void addClass(JavaClass cls) {
+        String clsName = cls.getClassName().replace('.', '/');
+        if (!isIndexed(clsName)) {
+            return;
+        }
+
+        Method[] methods = cls.getMethods();
+        Set<String> methodInfos = new TreeSet<>();
+        for (Method m : methods) {
+            methodInfos.add(m.getName() + m.getSignature());
+        }
+
+        String superName = "java/lang/Object".equals(clsName) ? null : cls.getSuperclassName().replace('.', '/');
+        classes.put(clsName, new ClassInfo(superName, methodInfos));
+
+        int slashPos = clsName.lastIndexOf('/');
+        while (slashPos > 0) {
+            packages.add(clsName.substring(0, slashPos));
+            slashPos = clsName.lastIndexOf('/', slashPos - 1);
+        }
+    }
+
+    /**
+     * adds the classes of a jar, such as a pre java 9 rt.jar
+     *
+     * @param jar
+     *            the jar file
+     * @throws IOException
+     *             if the jar can not be read
+     */
+    public void addJar(File jar) throws IOException {
+        try (ZipFile zip = new ZipFile(jar)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry ze = entries.nextElement();
+                String name = ze.getName();
+                if (name.endsWith(CLASS_SUFFIX) && isIndexed(name)) {
+                    try (InputStream is = new BufferedInputStream(zip.getInputStream(ze))) {
+                        addClass(new ClassParser(is, name).parse());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * adds the classes of one release from a java 9 or later lib/ct.sym, which holds the public api of each release javac can target with --release. Entries
+     * are named <i>releases</i>/[<i>module</i>/]<i>class</i>.sig, where <i>releases</i> holds one character per release sharing that entry: the digit for
+     * releases below 10, and 'A' onwards for 10 and up.
+     *
+     * @param ctSym
+     *            the ct.sym file
+     * @param release
+     *            the human jdk version to add
+     * @throws IOException
+     *             if the ct.sym can not be read
+     */
+    public void addCtSym(File ctSym, int release) throws IOException {
+        char releaseChar = (char) ((release < 10) ? ('0' + release) : (('A' + release) - 10));
+        try (ZipFile zip = new ZipFile(ctSym)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry ze = entries.nextElement();
+                String name = ze.getName();
+                int slashPos = name.indexOf('/');
+                if ((slashPos < 0) || !name.endsWith(SIG_SUFFIX) || (name.lastIndexOf(releaseChar, slashPos) < 0)) {
+                    continue;
+                }
+
+                String clsPath = name.substring(slashPos + 1);
+                int moduleEnd = clsPath.indexOf('/');
+                if ((moduleEnd >= 0) && (clsPath.lastIndexOf('.', moduleEnd) >= 0)) {
+                    clsPath = clsPath.substring(moduleEnd + 1);
+                }
+
+                if (isIndexed(clsPath)) {
+                    try (InputStream is = new BufferedInputStream(zip.getInputStream(ze))) {
+                        addClass(new ClassParser(is, clsPath).parse());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * adds the classes of a JDK installation, either from its rt.jar, or for java 9 and later, from its modular runtime image, read through the jrt file system
+     * that ships with that JDK, so it works from any running JDK.
+     *
+     * @param jdkHome
+     *            the home directory of the JDK or JRE
+     * @return whether the home directory held a recognized JDK
+     * @throws IOException
+     *             if the classes can not be read
+     */
+    public boolean addJDKHome(File jdkHome) throws IOException {
+        File rtJar = new File(jdkHome, "lib/rt.jar");
+        if (!rtJar.isFile()) {
+            rtJar = new File(jdkHome, "jre/lib/rt.jar");
+        }
+        if (rtJar.isFile()) {
+            addJar(rtJar);
+            return true;
+        }
+
+        File jrtFs = new File(jdkHome, "lib/jrt-fs.jar");
+        if (!jrtFs.isFile() || !new File(jdkHome, "lib/modules").isFile()) {
+            return false;
+        }
+
+        try (URLClassLoader jrtLoader = new URLClassLoader(new URL[] { jrtFs.toURI().toURL() });
+                FileSystem jrt = FileSystems.newFileSystem(URI.create("jrt:/"), Collections.singletonMap("java.home", jdkHome.getPath()), jrtLoader)) {
+            try (DirectoryStream<Path> modules = Files.newDirectoryStream(jrt.getPath("/modules"))) {
+                for (final Path module : modules) {
+                    Files.walkFileTree(module, new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                            String clsPath = module.relativize(file).toString();
+                            if (clsPath.endsWith(CLASS_SUFFIX) && isIndexed(clsPath)) {
+                                try (InputStream is = new BufferedInputStream(Files.newInputStream(file))) {
+                                    addClass(new ClassParser(is, clsPath).parse());
+                                }
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Failed to open the runtime image of " + jdkHome, e);
+        }
+        return true;
+    }
+
+    /**
+     * returns whether no classes have been added
+     *
+     * @return whether the builder is empty
+     */
+    public boolean isEmpty() {
+        return classes.isEmpty();
+    }
+
+    /**
+     * builds the index of the classes added so far
+     *
+     * @return the index
+     */
+    public JDKApiIndex build() {
+        try {
+            return new JDKApiIndex(ByteBuffer.wrap(toBytes()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Built an unreadable JDK API index", e);
+        }
+    }
+
+    /**
+     * writes the index of the classes added so far to a file, removing what was written if that fails, so that a truncated index isn't left behind
+     *
+     * @param indexFile
+     *            the file to write
+     * @throws IOException
+     *             if the file can not be written
+     */
+    public void write(File indexFile) throws IOException {
+        File dir = indexFile.getParentFile();
+        if ((dir != null) && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create directory " + dir);
+        }
+        byte[] data = toBytes();
+        try (OutputStream os = new FileOutputStream(indexFile)) {
+            os.write(data);
+        } catch (IOException e) {
+            if (indexFile.exists() && !indexFile.delete()) {
+                e.addSuppressed(new IOException("Failed to remove " + indexFile));
+            }
+            throw e;
+        }
+    }
+
+    private byte[] toBytes() {
+        int methodCount = 0;
+        for (ClassInfo info : classes.values()) {
+            methodCount += info.methods.size();
+        }
+
+        long[] classKeys = new long[tableCapacity(classes.size())];
+        long[] methodKeys = new long[tableCapacity(methodCount)];
+        long[] packageKeys = new long[tableCapacity(packages.size())];
+        int[] superSlots = new int[classKeys.length];
+
+        for (Map.Entry<String, ClassInfo> entry : classes.entrySet()) {
+            String clsName = entry.getKey();
+            entry.getValue().slot = insert(classKeys, JDKApiIndex.nameKey(clsName.hashCode(), clsName.length()));
+        }
+
+        for (ClassInfo info : classes.values()) {
+            int superSlot = JDKApiIndex.NO_SUPER;
+            if (info.superName != null) {
+                ClassInfo superInfo = classes.get(info.superName);
+                superSlot = (superInfo == null) ? JDKApiIndex.UNKNOWN_SUPER : superInfo.slot;
+            }
+            superSlots[info.slot] = superSlot;
+
+            for (String method : info.methods) {
+                int sigStart = method.indexOf('(');
+                insert(methodKeys, JDKApiIndex.methodKey(info.slot, method.substring(0, sigStart), method.substring(sigStart)));
+            }
+        }
+
+        for (String pkg : packages) {
+            insert(packageKeys, JDKApiIndex.nameKey(pkg.hashCode(), pkg.length()));
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(
+                JDKApiIndex.HEADER_SIZE + ((classKeys.length + methodKeys.length + packageKeys.length) * 8) + (superSlots.length * 4));
+        try (DataOutputStream dos = new DataOutputStream(baos)) {
+            dos.writeInt(JDKApiIndex.MAGIC);
+            dos.writeInt(JDKApiIndex.FORMAT_VERSION);
+            dos.writeInt(jdkVersion);
+            dos.writeInt(classKeys.length);
+            dos.writeInt(methodKeys.length);
+            dos.writeInt(packageKeys.length);
+            writeLongs(dos, classKeys);
+            writeLongs(dos, methodKeys);
+            writeLongs(dos, packageKeys);
+            for (int superSlot : superSlots) {
+                dos.writeInt(superSlot);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write a JDK API index to memory", e);
+        }
+        return baos.toByteArray();
+    }
+
+    private static void writeLongs(DataOutputStream dos, long[] values) throws IOException {
+        for (long value : values) {
+            dos.writeLong(value);
+        }
+    }
+
+    /**
+     * sizes a table to at most half full, so probe sequences stay short
+     *
+     * @param entries
+     *            the number of entries to hold
+     * @return a power of two capacity
+     */
+    private static int tableCapacity(int entries) {
+        int capacity = 16;
+        while (capacity < (entries * 2)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int insert(long[] table, long key) {
+        int mask = table.length - 1;
+        int slot = (int) key & mask;
+        while ((table[slot] != 0) && (table[slot] != key)) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = key;
+        return slot;
+    }
+
+    private static boolean isIndexed(String clsPath) {
+        return clsPath.startsWith("java/") || clsPath.startsWith("javax/");
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+
+    /**
+     * the super class and declared methods of a class being added to the index
+     */
+    static final class ClassInfo {
+        final String superName;
+        final Set<String> methods;
+        int slot;
+
+        ClassInfo(String superName, Set<String> methods) {
+            this.superName = superName;
+            this.methods = methods;
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.jdkapi;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * writes {@link JDKApiIndex} files, one per requested release, named jdk-<i>version</i>.idx, for bundling under /jdkindex/ or for pointing the
+ * fb-contrib.sjvu.indexdir property at. The source is either a ct.sym, which can produce every release it covers, or a single JDK, given as its home
+ * directory or its rt.jar.
+ *
+ * <pre>
+ * java -cp fb-contrib.jar:spotbugs.jar com.mebigfatguy.fbcontrib.jdkapi.JDKApiIndexGenerator outputDir (ct.sym | jdkHome | rt.jar) version...
+ * </pre>
+ */
+public final class JDKApiIndexGenerator {
+
+    private JDKApiIndexGenerator() {
+    }
+
+    /**
+     * the entry point for generating index files
+     *
+     * @param args
+     *            the output directory, the source, and the versions to write
+     * @throws IOException
+     *             if the source can not be read, or an index can not be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: JDKApiIndexGenerator outputDir (ct.sym | jdkHome | rt.jar) version...");
+            System.exit(1);
+            return;
+        }
+
+        File outputDir = new File(args[0]);
+        File source = new File(args[1]);
+        for (int i = 2; i < args.length; i++) {
+            int version = Integer.parseInt(args[i]);
+            JDKApiIndexBuilder builder = new JDKApiIndexBuilder(version);
+            if (source.isDirectory()) {
+                if (!builder.addJDKHome(source)) {
+                    throw new IOException("No rt.jar or runtime image found in " + source);
+                }
+            } else if ("ct.sym".equals(source.getName())) {
+                builder.addCtSym(source, version);
+            } else {
+                builder.addJar(source);
+            }
+
+            if (builder.isEmpty()) {
+                throw new IOException("No java classes found for version " + version + " in " + source);
+            }
+
+            File indexFile = new File(outputDir, indexFileName(version));
+            builder.write(indexFile);
+            System.out.println("Wrote " + indexFile);
+        }
+    }
+
+    /**
+     * returns the name of the index file of a release
+     *
+     * @param version
+     *            the human jdk version
+     * @return the index file name
+     */
+    public static String indexFileName(int version) {
+        return "jdk-" + version + ".idx";
+    }
+}
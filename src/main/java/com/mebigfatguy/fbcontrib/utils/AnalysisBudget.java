@@ -0,0 +1,190 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.bcel.classfile.Code;
+
+import com.mebigfatguy.fbcontrib.debug.DetectorProfiler;
+
+import edu.umd.cs.findbugs.Detector;
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.visitclass.DismantleBytecode;
+
+/**
+ * bounds the work a detector does on one method, and on one class, so that huge generated methods can't dominate a run. Each limit is set with a system
+ * property, and is off unless set to a positive number:
+ * <ul>
+ * <li>fb-contrib.budget.method.bytes - the longest method, in bytes of code, that is analyzed at all</li>
+ * <li>fb-contrib.budget.method.opcodes - the number of opcodes after which a method's analysis is abandoned</li>
+ * <li>fb-contrib.budget.method.millis - the elapsed time after which a method's analysis is abandoned</li>
+ * <li>fb-contrib.budget.class.opcodes - the number of opcodes, over all methods, after which the rest of a class is skipped</li>
+ * <li>fb-contrib.budget.class.millis - the elapsed time after which the rest of a class is skipped</li>
+ * </ul>
+ * A detector calls {@link #startClass(ClassContext)} from visitClassContext, {@link #startMethod(DismantleBytecode, Code)} from visitCode, and
+ * {@link #sawOpcode(DismantleBytecode)} at the start of sawOpcode, which throws {@link StopOpcodeParsingException} once a limit is passed. The detector then
+ * drops what it gathered for that method, rather than reporting on part of it. Each skipped method is recorded with {@link DetectorProfiler}.
+ */
+public final class AnalysisBudget {
+
+    public static final String METHOD_BYTES = "fb-contrib.budget.method.bytes";
+    public static final String METHOD_OPCODES = "fb-contrib.budget.method.opcodes";
+    public static final String METHOD_MILLIS = "fb-contrib.budget.method.millis";
+    public static final String CLASS_OPCODES = "fb-contrib.budget.class.opcodes";
+    public static final String CLASS_MILLIS = "fb-contrib.budget.class.millis";
+
+    private static final long MAX_METHOD_BYTES = getLimit(METHOD_BYTES);
+    private static final long MAX_METHOD_OPCODES = getLimit(METHOD_OPCODES);
+    private static final long MAX_METHOD_NANOS = TimeUnit.MILLISECONDS.toNanos(getLimit(METHOD_MILLIS));
+    private static final long MAX_CLASS_OPCODES = getLimit(CLASS_OPCODES);
+    private static final long MAX_CLASS_NANOS = TimeUnit.MILLISECONDS.toNanos(getLimit(CLASS_MILLIS));
+    private static final boolean TIMED = (MAX_METHOD_NANOS > 0) || (MAX_CLASS_NANOS > 0);
+    private static final boolean ENABLED = TIMED || (MAX_METHOD_BYTES > 0) || (MAX_METHOD_OPCODES > 0) || (MAX_CLASS_OPCODES > 0);
+
+    /** the clock is only read every this many opcodes, as opcodes are visited far more often than the limits need checking */
+    private static final int CLOCK_INTERVAL = 256;
+
+    private final Detector detector;
+    private long classStartNanos;
+    private long classOpcodes;
+    private boolean classExhausted;
+    private long methodStartNanos;
+    private long methodOpcodes;
+
+    /**
+     * creates a budget for a detector, which is charged per class and method the detector visits
+     *
+     * @param detector
+     *            the detector that is bounded
+     */
+    public AnalysisBudget(Detector detector) {
+        this.detector = detector;
+    }
+
+    /**
+     * returns whether any limit was set for this run
+     *
+     * @return if a budget property is set
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * resets the class limits for a new class
+     *
+     * @param classContext
+     *            the context object of the class about to be visited
+     */
+    public void startClass(ClassContext classContext) {
+        if (!ENABLED) {
+            return;
+        }
+
+        classStartNanos = TIMED ? System.nanoTime() : 0L;
+        classOpcodes = 0;
+        classExhausted = false;
+    }
+
+    /**
+     * resets the method limits for a new method, or returns that the method should not be analyzed at all
+     *
+     * @param dbc
+     *            the visitor, positioned on the method
+     * @param obj
+     *            the code of the method
+     * @return whether to analyze the method
+     */
+    public boolean startMethod(DismantleBytecode dbc, Code obj) {
+        if (!ENABLED) {
+            return true;
+        }
+
+        if (!classExhausted && (MAX_CLASS_NANOS > 0) && ((System.nanoTime() - classStartNanos) > MAX_CLASS_NANOS)) {
+            classExhausted = true;
+        }
+        if (classExhausted) {
+            skip(dbc, "class budget exhausted");
+            return false;
+        }
+        if ((MAX_METHOD_BYTES > 0) && (obj.getLength() > MAX_METHOD_BYTES)) {
+            skip(dbc, "code length " + obj.getLength() + " > " + MAX_METHOD_BYTES + " bytes");
+            return false;
+        }
+
+        methodStartNanos = TIMED ? System.nanoTime() : 0L;
+        methodOpcodes = 0;
+        return true;
+    }
+
+    /**
+     * charges one opcode to the method and class, and abandons the method if that passes a limit
+     *
+     * @param dbc
+     *            the visitor, positioned on the opcode
+     * @throws StopOpcodeParsingException
+     *             if the method or class is over budget
+     */
+    public void sawOpcode(DismantleBytecode dbc) {
+        if (!ENABLED) {
+            return;
+        }
+
+        methodOpcodes++;
+        classOpcodes++;
+        if ((MAX_METHOD_OPCODES > 0) && (methodOpcodes > MAX_METHOD_OPCODES)) {
+            abandon(dbc, "more than " + MAX_METHOD_OPCODES + " opcodes");
+        }
+        if ((MAX_CLASS_OPCODES > 0) && (classOpcodes > MAX_CLASS_OPCODES)) {
+            classExhausted = true;
+            abandon(dbc, "class over " + MAX_CLASS_OPCODES + " opcodes");
+        }
+
+        if (TIMED && ((methodOpcodes % CLOCK_INTERVAL) == 0)) {
+            long now = System.nanoTime();
+            if ((MAX_METHOD_NANOS > 0) && ((now - methodStartNanos) > MAX_METHOD_NANOS)) {
+                abandon(dbc, "more than " + TimeUnit.NANOSECONDS.toMillis(MAX_METHOD_NANOS) + " ms");
+            }
+            if ((MAX_CLASS_NANOS > 0) && ((now - classStartNanos) > MAX_CLASS_NANOS)) {
+                classExhausted = true;
+                abandon(dbc, "class over " + TimeUnit.NANOSECONDS.toMillis(MAX_CLASS_NANOS) + " ms");
+            }
+        }
+    }
+
+    private void abandon(DismantleBytecode dbc, String reason) {
+        skip(dbc, reason);
+        throw new StopOpcodeParsingException();
+    }
+
+    private void skip(DismantleBytecode dbc, String reason) {
+        DetectorProfiler.recordSkip(detector, dbc.getDottedClassName() + '.' + dbc.getMethodName() + dbc.getMethodSig(), reason);
+    }
+
+    private static long getLimit(String property) {
+        Long limit = Long.getLong(property);
+        return ((limit == null) || (limit.longValue() < 0)) ? 0L : limit.longValue();
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
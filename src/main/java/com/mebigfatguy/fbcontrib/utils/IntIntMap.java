@@ -0,0 +1,179 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * a small map from int keys to int values, such as registers to the pcs that used them, held as parallel arrays sorted by key. Lookups are binary searches,
+ * and no Integer boxes are created, which suits the many small maps a detector may keep per method.
+ */
+public final class IntIntMap {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    public IntIntMap() {
+        keys = new int[INITIAL_CAPACITY];
+        values = new int[INITIAL_CAPACITY];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * returns the key at a position, keys being in ascending order
+     *
+     * @param index
+     *            the position, from 0 to size() - 1
+     * @return the key
+     */
+    public int keyAt(int index) {
+        return keys[index];
+    }
+
+    /**
+     * returns the value at a position, in the order of the keys
+     *
+     * @param index
+     *            the position, from 0 to size() - 1
+     * @return the value
+     */
+    public int valueAt(int index) {
+        return values[index];
+    }
+
+    public boolean containsKey(int key) {
+        return Arrays.binarySearch(keys, 0, size, key) >= 0;
+    }
+
+    /**
+     * adds or replaces the value of a key
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     */
+    public void put(int key, int value) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            values[index] = value;
+            return;
+        }
+
+        index = -index - 1;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size << 1);
+            values = Arrays.copyOf(values, size << 1);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    /**
+     * adds or replaces the values of all the keys of another map
+     *
+     * @param other
+     *            the map to copy from
+     */
+    public void putAll(IntIntMap other) {
+        for (int i = 0; i < other.size; i++) {
+            put(other.keys[i], other.values[i]);
+        }
+    }
+
+    public void remove(int key) {
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            removeAt(index);
+        }
+    }
+
+    /**
+     * removes all the keys that are set in a bit set
+     *
+     * @param keySet
+     *            the keys to remove
+     */
+    public void removeAll(BitSet keySet) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if ((keys[i] < 0) || !keySet.get(keys[i])) {
+                keys[kept] = keys[i];
+                values[kept] = values[i];
+                kept++;
+            }
+        }
+        size = kept;
+    }
+
+    /**
+     * removes all the keys of another map
+     *
+     * @param other
+     *            the map whose keys are removed
+     */
+    public void removeAll(IntIntMap other) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!other.containsKey(keys[i])) {
+                keys[kept] = keys[i];
+                values[kept] = values[i];
+                kept++;
+            }
+        }
+        size = kept;
+    }
+
+    /**
+     * sets the bits of all the keys of this map, which must not be negative
+     *
+     * @param keySet
+     *            the bit set to add the keys to
+     */
+    public void addKeysTo(BitSet keySet) {
+        for (int i = 0; i < size; i++) {
+            keySet.set(keys[i]);
+        }
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
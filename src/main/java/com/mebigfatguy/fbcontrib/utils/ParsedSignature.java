@@ -0,0 +1,187 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * a method signature parsed once into its parameter signatures, the register slot of each parameter, and its return signature. Parsed signatures are
+ * immutable and shared, so detectors that look at the signature of every invoke can ask for the parts they need by index without creating substrings,
+ * lists or boxed slot numbers each time.
+ */
+public final class ParsedSignature {
+
+    private static final int MAX_CACHED_SIGNATURES = 50000;
+    private static final ConcurrentMap<String, ParsedSignature> SIGNATURES = new ConcurrentHashMap<>();
+
+    private final String signature;
+    private final String[] parameterSignatures;
+    private final int[] parameterSlots;
+    private final int parameterSlotCount;
+    private final String returnSignature;
+
+    private ParsedSignature(String methodSignature) {
+        signature = methodSignature;
+
+        int start = methodSignature.indexOf('(') + 1;
+        int limit = methodSignature.lastIndexOf(')');
+
+        String[] parms = new String[Math.max(0, limit - start)];
+        int[] slots = new int[parms.length];
+        int numParms = 0;
+        int slot = 0;
+        int sigStart = start;
+        for (int i = start; i < limit; i++) {
+            if (!methodSignature.startsWith(Values.SIG_ARRAY_PREFIX, i)) {
+                String parmSignature;
+                if (methodSignature.startsWith(Values.SIG_QUALIFIED_CLASS_PREFIX, i)) {
+                    int semiPos = methodSignature.indexOf(Values.SIG_QUALIFIED_CLASS_SUFFIX_CHAR, i + 1);
+                    parmSignature = methodSignature.substring(sigStart, semiPos + 1);
+                    i = semiPos;
+                } else if (SignatureUtils.isWonkyEclipseSignature(methodSignature, i)) {
+                    sigStart++;
+                    continue;
+                } else {
+                    parmSignature = methodSignature.substring(sigStart, i + 1);
+                }
+                parms[numParms] = parmSignature;
+                slots[numParms++] = slot;
+                sigStart = i + 1;
+                slot += SignatureUtils.getSignatureSize(parmSignature);
+            }
+        }
+
+        parameterSignatures = Arrays.copyOf(parms, numParms);
+        parameterSlots = Arrays.copyOf(slots, numParms);
+        parameterSlotCount = slot;
+
+        int parenPos = methodSignature.indexOf(')');
+        returnSignature = (parenPos < 0) ? "?" : methodSignature.substring(parenPos + 1);
+    }
+
+    /**
+     * returns the parsed form of a method signature, parsing it only the first time it is seen
+     *
+     * @param methodSignature
+     *            the method signature, such as (ILjava/lang/String;)V
+     * @return the parsed signature
+     */
+    public static ParsedSignature of(String methodSignature) {
+        ParsedSignature parsed = SIGNATURES.get(methodSignature);
+        if (parsed == null) {
+            if (SIGNATURES.size() >= MAX_CACHED_SIGNATURES) {
+                SIGNATURES.clear();
+            }
+            parsed = new ParsedSignature(methodSignature);
+            ParsedSignature existing = SIGNATURES.putIfAbsent(methodSignature, parsed);
+            if (existing != null) {
+                parsed = existing;
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * returns the method signature this was parsed from
+     *
+     * @return the method signature
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * returns the number of parameters, which is also the number of stack items an invoke of this signature pops, not counting the receiver
+     *
+     * @return the number of parameters
+     */
+    public int getNumParameters() {
+        return parameterSignatures.length;
+    }
+
+    /**
+     * returns the signature of a parameter
+     *
+     * @param index
+     *            the index of the parameter, from 0
+     * @return the signature of the parameter
+     */
+    public String getParameterSignature(int index) {
+        return parameterSignatures[index];
+    }
+
+    /**
+     * returns the register slot of a parameter, counted from the first parameter, so a receiver, if any, must be added
+     *
+     * @param index
+     *            the index of the parameter, from 0
+     * @return the slot of the parameter
+     */
+    public int getParameterSlot(int index) {
+        return parameterSlots[index];
+    }
+
+    /**
+     * returns the index of the parameter that starts at a register slot, counted from the first parameter
+     *
+     * @param slot
+     *            the slot, not counting the receiver, if any
+     * @return the index of the parameter, or -1 if no parameter starts at that slot
+     */
+    public int getParameterIndexAtSlot(int slot) {
+        int index = Arrays.binarySearch(parameterSlots, slot);
+        return (index >= 0) ? index : -1;
+    }
+
+    /**
+     * returns the number of register slots the parameters take, counting longs and doubles as two
+     *
+     * @return the number of parameter slots
+     */
+    public int getParameterSlotCount() {
+        return parameterSlotCount;
+    }
+
+    /**
+     * returns the return signature
+     *
+     * @return the signature of the return type, or ? if the method signature is bogus
+     */
+    public String getReturnSignature() {
+        return returnSignature;
+    }
+
+    /**
+     * returns the parameter signatures as an unmodifiable list
+     *
+     * @return the parameter signatures
+     */
+    public List<String> getParameterSignatures() {
+        return Collections.unmodifiableList(Arrays.asList(parameterSignatures));
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+}
@@ -34,6 +34,8 @@ import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 import org.apache.bcel.generic.Type;
 
+import com.mebigfatguy.fbcontrib.engine.ClassHierarchy;
+
 import edu.umd.cs.findbugs.ba.generic.GenericSignatureParser;
 import edu.umd.cs.findbugs.internalAnnotations.DottedClassName;
 import edu.umd.cs.findbugs.internalAnnotations.SlashedClassName;
@@ -71,19 +73,21 @@ public final class SignatureUtils {
     private SignatureUtils() {
     }
 
+    /**
+     * returns whether a method is declared, non privately, by any interface or super class, other than java.lang.Object, of a class
+     *
+     * @param cls
+     *            the class that declares the method
+     * @param methodName
+     *            the name of the method
+     * @param signature
+     *            the signature of the method
+     * @return if the method is inherited
+     * @throws ClassNotFoundException
+     *             if a class in the hierarchy can't be loaded
+     */
     public static boolean isInheritedMethod(JavaClass cls, String methodName, String signature) throws ClassNotFoundException {
-        JavaClass[] infs = cls.getAllInterfaces();
-        if (findInheritedMethod(infs, methodName, signature) != null) {
-            return true;
-        }
-
-        JavaClass[] supers = cls.getSuperClasses();
-        for (int i = 0; i < supers.length; i++) {
-            if (Values.DOTTED_JAVA_LANG_OBJECT.equals(supers[i].getClassName())) {
-                supers[i] = null;
-            }
-        }
-        return findInheritedMethod(supers, methodName, signature) != null;
+        return !ClassHierarchy.getInstance().getSuperTypesDeclaring(cls.getClassName(), methodName, signature).isEmpty();
     }
 
     /**
@@ -152,21 +156,6 @@ public final class SignatureUtils {
         return signature == null ? Values.SIG_JAVA_LANG_OBJECT : signature;
     }
 
-    @Nullable
-    private static JavaClass findInheritedMethod(JavaClass[] classes, String methodName, String signature) {
-        for (JavaClass cls : classes) {
-            if (cls != null) {
-                Method[] methods = cls.getMethods();
-                for (Method m : methods) {
-                    if (!m.isPrivate() && m.getName().equals(methodName) && m.getSignature().equals(signature)) {
-                        return cls;
-                    }
-                }
-            }
-        }
-        return null;
-    }
-
     /**
      * returns a Map that represents the type of the parameter in slot x
      *
@@ -178,34 +167,16 @@ public final class SignatureUtils {
      */
     public static Map<Integer, String> getParameterSlotAndSignatures(boolean methodIsStatic, String methodSignature) {
 
-        int start = methodSignature.indexOf('(') + 1;
-        int limit = methodSignature.lastIndexOf(')');
-
-        if ((limit - start) == 0) {
+        ParsedSignature parsed = ParsedSignature.of(methodSignature);
+        int numParms = parsed.getNumParameters();
+        if (numParms == 0) {
             return Collections.emptyMap();
         }
 
         Map<Integer, String> slotIndexToParms = new LinkedHashMap<>();
-        int slot = methodIsStatic ? 0 : 1;
-        int sigStart = start;
-        for (int i = start; i < limit; i++) {
-            if (!methodSignature.startsWith(Values.SIG_ARRAY_PREFIX, i)) {
-                String parmSignature = null;
-                if (methodSignature.startsWith(Values.SIG_QUALIFIED_CLASS_PREFIX, i)) {
-                    int semiPos = methodSignature.indexOf(Values.SIG_QUALIFIED_CLASS_SUFFIX_CHAR, i + 1);
-                    parmSignature = methodSignature.substring(sigStart, semiPos + 1);
-                    slotIndexToParms.put(Integer.valueOf(slot), parmSignature);
-                    i = semiPos;
-                } else if (isWonkyEclipseSignature(methodSignature, i)) {
-                    sigStart++;
-                    continue;
-                } else {
-                    parmSignature = methodSignature.substring(sigStart, i + 1);
-                    slotIndexToParms.put(Integer.valueOf(slot), parmSignature);
-                }
-                sigStart = i + 1;
-                slot += getSignatureSize(parmSignature);
-            }
+        int firstSlot = methodIsStatic ? 0 : 1;
+        for (int i = 0; i < numParms; i++) {
+            slotIndexToParms.put(Integer.valueOf(firstSlot + parsed.getParameterSlot(i)), parsed.getParameterSignature(i));
         }
 
         return slotIndexToParms;
@@ -220,29 +191,12 @@ public final class SignatureUtils {
      */
     public static List<String> getParameterSignatures(String methodSignature) {
 
-        int start = methodSignature.indexOf('(') + 1;
-        int limit = methodSignature.lastIndexOf(')');
-
-        if ((limit - start) == 0) {
+        ParsedSignature parsed = ParsedSignature.of(methodSignature);
+        if (parsed.getNumParameters() == 0) {
             return Collections.emptyList();
         }
 
-        List<String> parmSignatures = new ArrayList<>();
-        int sigStart = start;
-        for (int i = start; i < limit; i++) {
-            if (!methodSignature.startsWith(Values.SIG_ARRAY_PREFIX, i)) {
-                if (methodSignature.startsWith(Values.SIG_QUALIFIED_CLASS_PREFIX, i)) {
-                    int semiPos = methodSignature.indexOf(Values.SIG_QUALIFIED_CLASS_SUFFIX_CHAR, i + 1);
-                    parmSignatures.add(methodSignature.substring(sigStart, semiPos + 1));
-                    i = semiPos;
-                } else if (!isWonkyEclipseSignature(methodSignature, i)) {
-                    parmSignatures.add(methodSignature.substring(sigStart, i + 1));
-                }
-                sigStart = i + 1;
-            }
-        }
-
-        return parmSignatures;
+        return new ArrayList<>(parsed.getParameterSignatures());
     }
 
     /**
@@ -255,12 +209,7 @@ public final class SignatureUtils {
      *
      */
     public static String getReturnSignature(String methodSig) {
-        int parenPos = methodSig.indexOf(')');
-        if (parenPos < 0) {
-            return "?";
-        }
-
-        return methodSig.substring(parenPos + 1);
+        return ParsedSignature.of(methodSig).getReturnSignature();
     }
 
     /**
@@ -271,26 +220,7 @@ public final class SignatureUtils {
      * @return the number of parameters
      */
     public static int getNumParameters(String methodSignature) {
-        int start = methodSignature.indexOf('(') + 1;
-        int limit = methodSignature.lastIndexOf(')');
-
-        if ((limit - start) == 0) {
-            return 0;
-        }
-
-        int numParms = 0;
-        for (int i = start; i < limit; i++) {
-            if (!methodSignature.startsWith(Values.SIG_ARRAY_PREFIX, i)) {
-                if (methodSignature.startsWith(Values.SIG_QUALIFIED_CLASS_PREFIX, i)) {
-                    i = methodSignature.indexOf(Values.SIG_QUALIFIED_CLASS_SUFFIX_CHAR, i + 1);
-                } else if (isWonkyEclipseSignature(methodSignature, i)) {
-                    continue;
-                }
-                numParms++;
-            }
-        }
-
-        return numParms;
+        return ParsedSignature.of(methodSignature).getNumParameters();
     }
 
     /**
@@ -301,14 +231,7 @@ public final class SignatureUtils {
      * @return the first available register slot
      */
     public static int getFirstRegisterSlot(Method m) {
-        Type[] parms = m.getArgumentTypes();
-
-        int first = m.isStatic() ? 0 : 1;
-        for (Type t : parms) {
-            first += getSignatureSize(t.getSignature());
-        }
-
-        return first;
+        return (m.isStatic() ? 0 : 1) + ParsedSignature.of(m.getSignature()).getParameterSlotCount();
     }
 
     public static boolean compareGenericSignature(String genericSignature, String regularSignature) {
@@ -452,7 +375,7 @@ public final class SignatureUtils {
      *
      * @return if this signature has eclipse meta chars
      */
-    private static boolean isWonkyEclipseSignature(String sig, int startIndex) {
+    static boolean isWonkyEclipseSignature(String sig, int startIndex) {
         return (sig.length() > startIndex) && (ECLIPSE_WEIRD_SIG_CHARS.indexOf(sig.charAt(startIndex)) >= 0);
     }
 
@@ -0,0 +1,479 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * gathers whole program facts that are encoded as longs, such as edges between two int ids, in a buffer of bounded size, and hands them back sorted, without
+ * duplicates, once all have been added. The buffer starts small and grows as facts are added; when it is full, it is sorted and written to a run file on
+ * local disk, and the runs are merged when the facts are read back, so the heap used while a program is visited doesn't grow with the size of the program.
+ * Edges can also be read back as a compressed adjacency array, which is mapped from disk rather than read onto the heap if the edges were spilled. The
+ * buffer and the spill directory are set with system properties:
+ * <ul>
+ * <li>fb-contrib.spill.records - the most longs held in memory before they are spilled, 1M by default</li>
+ * <li>fb-contrib.spill.dir - the directory run files are written to, java.io.tmpdir by default</li>
+ * </ul>
+ * A sorter is used by one detector at a time, and should be closed once read, to remove its run files.
+ */
+public final class SpillingLongSorter implements Closeable {
+
+    public static final String SPILL_RECORDS = "fb-contrib.spill.records";
+    public static final String SPILL_DIR = "fb-contrib.spill.dir";
+
+    private static final int DEFAULT_RECORDS = 1 << 20;
+    private static final int MIN_RECORDS = 16;
+    private static final int INITIAL_RECORDS = 1024;
+    private static final long[] NO_RECORDS = new long[0];
+
+    private final String name;
+    private final int maxRecords;
+    private long[] buffer;
+    private final List<Path> runs;
+    private Path adjacencyFile;
+    private MappedByteBuffer adjacencyMap;
+    private int size;
+
+    /**
+     * creates a sorter with the buffer size set by fb-contrib.spill.records
+     *
+     * @param name
+     *            a name for the sorter, used to name its run files
+     */
+    public SpillingLongSorter(String name) {
+        this(name, Integer.getInteger(SPILL_RECORDS, DEFAULT_RECORDS).intValue());
+    }
+
+    /**
+     * creates a sorter with a given buffer size
+     *
+     * @param name
+     *            a name for the sorter, used to name its run files
+     * @param bufferRecords
+     *            the most longs held in memory before they are spilled
+     */
+    public SpillingLongSorter(String name, int bufferRecords) {
+        this.name = name;
+        maxRecords = Math.max(bufferRecords, MIN_RECORDS);
+        buffer = new long[Math.min(maxRecords, INITIAL_RECORDS)];
+        runs = new ArrayList<>();
+    }
+
+    /**
+     * adds a fact, growing the buffer, or spilling it to disk once it can't grow any more, if it is full
+     *
+     * @param value
+     *            the fact to add
+     * @throws IOException
+     *             if the buffer can't be spilled
+     */
+    public void add(long value) throws IOException {
+        if ((size == buffer.length) && (size < maxRecords)) {
+            buffer = Arrays.copyOf(buffer, Math.min(size << 1, maxRecords));
+        } else if (size == buffer.length) {
+            size = sortDistinct();
+            // only spill if removing duplicates didn't free a good part of the buffer
+            if (size > (buffer.length >> 1)) {
+                spill();
+            }
+        }
+        buffer[size++] = value;
+    }
+
+    /**
+     * returns whether facts were spilled to disk
+     *
+     * @return if any run files were written
+     */
+    public boolean hasSpilled() {
+        return !runs.isEmpty();
+    }
+
+    /**
+     * returns a cursor over all the facts added, in ascending order, each only once. No facts may be added once this is called.
+     *
+     * @return the cursor over the sorted facts
+     * @throws IOException
+     *             if the run files can't be read
+     */
+    public Cursor sorted() throws IOException {
+        size = sortDistinct();
+        if (runs.isEmpty()) {
+            return new BufferSource(buffer, size);
+        }
+
+        List<Source> sources = new ArrayList<>(runs.size() + 1);
+        MergeCursor cursor = null;
+        try {
+            sources.add(new BufferSource(buffer, size));
+            for (Path run : runs) {
+                sources.add(new RunSource(run));
+            }
+            cursor = new MergeCursor(sources);
+            return cursor;
+        } finally {
+            if (cursor == null) {
+                for (Source source : sources) {
+                    try {
+                        source.close();
+                    } catch (IOException e) {
+                        // already failing with the exception that got here
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * reads the facts back as edges, the high int of each fact being the source id and the low int the target id, into a compressed adjacency array. The
+     * targets of source id are those from offsets[id] up to offsets[id + 1], in ascending order. If facts were spilled, the targets are streamed from the
+     * merged runs to a file that is mapped, rather than read onto the heap, so that only the offsets grow with the size of the program. No facts may be added
+     * once this is called, and the targets may not be used once the sorter is closed.
+     *
+     * @param offsets
+     *            a zeroed array, one longer than the number of source ids, that is filled with the offsets of each source's targets
+     * @return the targets of all sources
+     * @throws IOException
+     *             if the run files can't be read, or the targets can't be written
+     */
+    public IntBuffer toAdjacency(int[] offsets) throws IOException {
+        int numTargets = 0;
+        IntBuffer targets;
+        if (runs.isEmpty()) {
+            size = sortDistinct();
+            int[] values = new int[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = (int) buffer[i];
+                offsets[(int) (buffer[i] >>> 32) + 1]++;
+            }
+            targets = IntBuffer.wrap(values);
+        } else {
+            adjacencyFile = createSpillFile(".adj");
+            try (Cursor cursor = sorted();
+                    DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(adjacencyFile)))) {
+                while (cursor.next()) {
+                    long value = cursor.value();
+                    dos.writeInt((int) value);
+                    offsets[(int) (value >>> 32) + 1]++;
+                    numTargets++;
+                }
+            }
+            try (FileChannel channel = FileChannel.open(adjacencyFile, StandardOpenOption.READ)) {
+                adjacencyMap = channel.map(FileChannel.MapMode.READ_ONLY, 0, numTargets * 4L);
+                targets = adjacencyMap.asIntBuffer();
+            }
+        }
+
+        buffer = NO_RECORDS;
+        size = 0;
+        for (int id = 1; id < offsets.length; id++) {
+            offsets[id] += offsets[id - 1];
+        }
+        return targets;
+    }
+
+    /**
+     * removes the run files and empties the buffer. The mapped targets of {@link #toAdjacency(int[])} are unmapped first, as a mapped file can't be
+     * deleted on all platforms.
+     */
+    @Override
+    public void close() throws IOException {
+        size = 0;
+        IOException failure = null;
+        if (adjacencyMap != null) {
+            unmap(adjacencyMap);
+            adjacencyMap = null;
+        }
+        if (adjacencyFile != null) {
+            runs.add(adjacencyFile);
+            adjacencyFile = null;
+        }
+        for (Path run : runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        runs.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private int sortDistinct() {
+        Arrays.sort(buffer, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if ((distinct == 0) || (buffer[i] != buffer[distinct - 1])) {
+                buffer[distinct++] = buffer[i];
+            }
+        }
+        return distinct;
+    }
+
+    private void spill() throws IOException {
+        Path run = createSpillFile(".run");
+        runs.add(run);
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+            dos.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                dos.writeLong(buffer[i]);
+            }
+        }
+        size = 0;
+    }
+
+    /**
+     * releases a mapping now, rather than when the buffer is collected, using the jvm's cleaner, as there is no public api to do so. If the cleaner
+     * can't be reached, the mapping is left to the garbage collector.
+     *
+     * @param map
+     *            the mapping, which must not be used afterwards
+     */
+    private static void unmap(MappedByteBuffer map) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                // java 9 and later
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                // java 8
+                Method cleanerMethod = map.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(map);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+                return;
+            }
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), map);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // left to the garbage collector
+        }
+    }
+
+    private Path createSpillFile(String suffix) throws IOException {
+        Path dir = Files.createDirectories(Paths.get(System.getProperty(SPILL_DIR, System.getProperty("java.io.tmpdir"))));
+        return Files.createTempFile(dir, "fb-contrib-" + name, suffix);
+    }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
+
+    /**
+     * iterates the sorted facts of a sorter
+     */
+    public interface Cursor extends Closeable {
+
+        /**
+         * moves to the next fact
+         *
+         * @return whether there was another fact
+         * @throws IOException
+         *             if a run file can't be read
+         */
+        boolean next() throws IOException;
+
+        /**
+         * returns the fact the cursor is on
+         *
+         * @return the current fact
+         */
+        long value();
+    }
+
+    /**
+     * one sorted sequence of facts, being merged
+     */
+    abstract static class Source implements Cursor {
+        long current;
+
+        @Override
+        public long value() {
+            return current;
+        }
+    }
+
+    static final class BufferSource extends Source {
+        private final long[] values;
+        private final int size;
+        private int pos;
+
+        BufferSource(long[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        @Override
+        public boolean next() {
+            if (pos >= size) {
+                return false;
+            }
+            current = values[pos++];
+            return true;
+        }
+
+        @Override
+        public void close() {
+            pos = size;
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+
+    static final class RunSource extends Source {
+        private final DataInputStream dis;
+        private int remaining;
+
+        RunSource(Path run) throws IOException {
+            dis = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+            try {
+                remaining = dis.readInt();
+            } catch (IOException e) {
+                dis.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            try {
+                current = dis.readLong();
+            } catch (EOFException e) {
+                throw new IOException("Run file is truncated", e);
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            dis.close();
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+
+    /**
+     * merges the buffer and the run files, each of which is sorted, dropping facts that were seen in more than one of them
+     */
+    static final class MergeCursor implements Cursor {
+        private final List<Source> sources;
+        private final PriorityQueue<Source> heads;
+        private boolean hasLast;
+        private long last;
+
+        MergeCursor(List<Source> sources) throws IOException {
+            this.sources = sources;
+            heads = new PriorityQueue<>(sources.size(), new Comparator<Source>() {
+                @Override
+                public int compare(Source s1, Source s2) {
+                    return Long.compare(s1.current, s2.current);
+                }
+            });
+            for (Source source : sources) {
+                if (source.next()) {
+                    heads.add(source);
+                }
+            }
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            while (!heads.isEmpty()) {
+                Source source = heads.poll();
+                long value = source.current;
+                if (source.next()) {
+                    heads.add(source);
+                }
+                if (!hasLast || (value != last)) {
+                    last = value;
+                    hasLast = true;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public long value() {
+            if (!hasLast) {
+                throw new IllegalStateException("next() has not been called");
+            }
+            return last;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (Source source : sources) {
+                try {
+                    source.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            heads.clear();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return ToString.build(this);
+        }
+    }
+}
@@ -18,8 +18,7 @@
  */
 package com.mebigfatguy.fbcontrib.utils;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import org.apache.bcel.Const;
 
@@ -31,14 +30,17 @@ import edu.umd.cs.findbugs.OpcodeStack;
  * be N items on the stack before what the ternary pushes. Now clearly the uservalue should be stripped for items pushed on by both branches of the ternary, but
  * items that were on the stack before the ternary was executed should be left alone. This is currently not happening in findbugs. So this class saves off user
  * values across a GOTO involved with a ternary and restores them appropriately.
+ * <p>
+ * Each detector owns its own patcher, alongside its OpcodeStack, so that detectors can be run concurrently on different classes. The saved user values are kept
+ * in a buffer that is reused across GOTOs.
  */
 public final class TernaryPatcher {
 
-    private static List<Object> userValues = new ArrayList<Object>();
-    private static boolean sawGOTO = false;
+    private static final int INITIAL_CAPACITY = 16;
 
-    private TernaryPatcher() {
-    }
+    private Object[] userValues = new Object[INITIAL_CAPACITY];
+    private int numUserValues;
+    private boolean sawGOTO;
 
     /**
      * called before the execution of the parent OpcodeStack.sawOpcode() to save user values if the opcode is a GOTO or GOTO_W.
@@ -48,7 +50,7 @@ public final class TernaryPatcher {
      * @param opcode
      *            the opcode currently seen
      */
-    public static void pre(OpcodeStack stack, int opcode) {
+    public void pre(OpcodeStack stack, int opcode) {
         if (sawGOTO) {
             return;
         }
@@ -56,11 +58,14 @@ public final class TernaryPatcher {
         if (sawGOTO) {
             int depth = stack.getStackDepth();
             if (depth > 0) {
-                userValues.clear();
+                if (depth > userValues.length) {
+                    userValues = new Object[Math.max(depth, userValues.length << 1)];
+                }
                 for (int i = 0; i < depth; i++) {
                     OpcodeStack.Item item = stack.getStackItem(i);
-                    userValues.add(item.getUserValue());
+                    userValues[i] = item.getUserValue();
                 }
+                numUserValues = depth;
             }
         }
     }
@@ -73,19 +78,25 @@ public final class TernaryPatcher {
      * @param opcode
      *            the opcode currently seen
      */
-    public static void post(OpcodeStack stack, int opcode) {
+    public void post(OpcodeStack stack, int opcode) {
         if (!sawGOTO || (opcode == Const.GOTO) || (opcode == Const.GOTO_W)) {
             return;
         }
         int depth = stack.getStackDepth();
-        for (int i = 0; i < depth && i < userValues.size(); i++) {
+        for (int i = 0; (i < depth) && (i < numUserValues); i++) {
             OpcodeStack.Item item = stack.getStackItem(i);
             if (item.getUserValue() == null) {
-                item.setUserValue(userValues.get(i));
+                item.setUserValue(userValues[i]);
             }
         }
 
-        userValues.clear();
+        Arrays.fill(userValues, 0, numUserValues, null);
+        numUserValues = 0;
         sawGOTO = false;
     }
+
+    @Override
+    public String toString() {
+        return ToString.build(this);
+    }
 }
@@ -0,0 +1,120 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.collect;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.apache.bcel.Const;
+import org.testng.annotations.Test;
+
+import com.mebigfatguy.fbcontrib.engine.MethodMetrics;
+
+public class MethodTableTest {
+
+    @Test
+    public void shouldFindCreatedRecord() {
+        MethodTable table = new MethodTable();
+        int hash = MethodTable.hash(1, 2, 3);
+        assertEquals(table.find(1, 2, 3, hash), MethodTable.NOT_FOUND);
+
+        int record = table.findOrCreate(1, 2, 3, hash);
+        assertEquals(table.findOrCreate(1, 2, 3, hash), record);
+        assertEquals(table.find(1, 2, 3, hash), record);
+        assertEquals(table.getClassId(record), 1);
+        assertEquals(table.getNameId(record), 2);
+        assertEquals(table.getSigId(record), 3);
+        assertEquals(table.size(), 1);
+    }
+
+    @Test
+    public void shouldDistinguishKeysWithSameHash() {
+        MethodTable table = new MethodTable();
+        int first = table.findOrCreate(1, 2, 3, 7);
+        int second = table.findOrCreate(3, 2, 1, 7);
+
+        assertTrue(first != second);
+        assertEquals(table.find(1, 2, 3, 7), first);
+        assertEquals(table.find(3, 2, 1, 7), second);
+    }
+
+    @Test
+    public void shouldKeepRecordsAcrossGrowth() {
+        MethodTable table = new MethodTable(1);
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            int record = table.findOrCreate(i, i + 1, i + 2, MethodTable.hash(i, i + 1, i + 2));
+            table.setNumBytes(record, i);
+        }
+
+        assertEquals(table.size(), count);
+        for (int i = 0; i < count; i++) {
+            int record = table.find(i, i + 1, i + 2, MethodTable.hash(i, i + 1, i + 2));
+            assertEquals(table.getNumBytes(record), i);
+        }
+    }
+
+    @Test
+    public void shouldStoreStatistics() {
+        MethodTable table = new MethodTable();
+        int record = table.findOrCreate(1, 2, 3, MethodTable.hash(1, 2, 3));
+
+        table.setMethodStatistics(record, Const.ACC_PUBLIC, 40000, 12);
+        table.addCallingAccess(record, Const.ACC_PRIVATE);
+        table.setModifiesState(record, true);
+        table.setImmutabilityOrdinal(record, ImmutabilityType.IMMUTABLE.ordinal());
+
+        assertEquals(table.getDeclaredAccess(record), Const.ACC_PUBLIC);
+        assertEquals(table.getNumBytes(record), 40000);
+        assertEquals(table.getNumMethodCalls(record), 12);
+        assertEquals(table.getCalledType(record), MethodInfo.PRIVATE_USE);
+        assertTrue(table.getModifiesState(record));
+        assertFalse(table.getCanReturnNull(record));
+        assertEquals(table.getImmutabilityOrdinal(record), ImmutabilityType.IMMUTABLE.ordinal());
+
+        table.setModifiesState(record, false);
+        assertFalse(table.getModifiesState(record));
+    }
+
+    @Test
+    public void shouldStoreMetricsAsColumns() {
+        MethodTable table = new MethodTable(1);
+        int record = table.findOrCreate(1, 2, 3, MethodTable.hash(1, 2, 3));
+        assertNull(table.getMethodMetrics(record));
+        assertEquals(table.getCyclomaticComplexity(record), 0);
+
+        table.setMethodMetrics(record, new MethodMetrics(60, 4, 2, Long.MAX_VALUE, 100000));
+        int other = table.findOrCreate(4, 5, 6, MethodTable.hash(4, 5, 6));
+
+        assertEquals(table.getCyclomaticComplexity(record), 60);
+        MethodMetrics metrics = table.getMethodMetrics(record);
+        assertEquals(metrics.getCyclomaticComplexity(), 60);
+        assertEquals(metrics.getMaxNestingDepth(), 4);
+        assertEquals(metrics.getLoopCount(), 2);
+        assertEquals(metrics.getNPath(), Long.MAX_VALUE);
+        assertEquals(metrics.getExceptionHandlerCount(), 0xFFFF);
+        assertNull(table.getMethodMetrics(other));
+
+        table.setMethodMetrics(record, null);
+        assertNull(table.getMethodMetrics(record));
+        assertEquals(table.getCyclomaticComplexity(record), 0);
+    }
+}
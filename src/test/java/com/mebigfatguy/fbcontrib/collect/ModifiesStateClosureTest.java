@@ -0,0 +1,109 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.collect;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.apache.bcel.Const;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import edu.umd.cs.findbugs.BugReporter;
+
+public class ModifiesStateClosureTest {
+
+    @Mock
+    private BugReporter bugReporter;
+
+    private Statistics statistics;
+    private CallGraph callGraph;
+
+    @BeforeMethod
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        statistics = Statistics.getStatistics();
+        callGraph = CallGraph.getCallGraph();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        statistics.clear();
+        callGraph.clear();
+    }
+
+    /**
+     * Object.toString calls the native, and overridable, hashCode on this, which must not make it look like it modifies state, as otherwise PRMC doesn't see
+     * repeated toString calls as redundant (SPP_Sample.testToString)
+     */
+    @Test
+    public void shouldNotMarkCallerOfOverridableUncollectedMethod() {
+        statistics.addMethodStatistics("java/lang/String", "hashCode", "()I", Const.ACC_PUBLIC, 10, 0).setModifiesState(true);
+        statistics.addMethodStatistics("java/lang/Object", "toString", "()Ljava/lang/String;", Const.ACC_PUBLIC, 20, 4);
+
+        addCall("java/lang/Object", "toString", "()Ljava/lang/String;", "java/lang/Object", "hashCode", "()I", Const.INVOKEVIRTUAL, true);
+        ModifiesStateClosure.close(statistics, callGraph, bugReporter);
+
+        assertFalse(statistics.getModifiesState(statistics.findMethod("java/lang/Object", "toString", "()Ljava/lang/String;")));
+    }
+
+    @Test
+    public void shouldMarkCallerOfInheritedMethodThatModifiesState() {
+        statistics.addMethodStatistics("java/util/Vector", "addElement", "(Ljava/lang/Object;)V", Const.ACC_PUBLIC, 20, 1).setModifiesState(true);
+        statistics.addMethodStatistics("java/util/Stack", "push", "(Ljava/lang/Object;)Ljava/lang/Object;", Const.ACC_PUBLIC, 8, 1);
+
+        addCall("java/util/Stack", "push", "(Ljava/lang/Object;)Ljava/lang/Object;", "java/util/Stack", "addElement", "(Ljava/lang/Object;)V",
+                Const.INVOKEVIRTUAL, true);
+        ModifiesStateClosure.close(statistics, callGraph, bugReporter);
+
+        assertTrue(statistics.getModifiesState(statistics.findMethod("java/util/Stack", "push", "(Ljava/lang/Object;)Ljava/lang/Object;")));
+    }
+
+    @Test
+    public void shouldResolveSuperCallFromNamedClass() {
+        statistics.addMethodStatistics("java/util/AbstractList", "clear", "()V", Const.ACC_PUBLIC, 10, 1).setModifiesState(true);
+        statistics.addMethodStatistics("java/util/ArrayList", "clear", "()V", Const.ACC_PUBLIC, 10, 0);
+        statistics.addMethodStatistics("java/util/ArrayList", "reset", "()V", Const.ACC_PUBLIC, 4, 1);
+
+        addCall("java/util/ArrayList", "reset", "()V", "java/util/AbstractList", "clear", "()V", Const.INVOKESPECIAL, true);
+        ModifiesStateClosure.close(statistics, callGraph, bugReporter);
+
+        assertTrue(statistics.getModifiesState(statistics.findMethod("java/util/ArrayList", "reset", "()V")));
+        assertFalse(statistics.getModifiesState(statistics.findMethod("java/util/ArrayList", "clear", "()V")));
+    }
+
+    @Test
+    public void shouldIgnoreCallsOnOtherObjects() {
+        statistics.addMethodStatistics("java/util/Vector", "addElement", "(Ljava/lang/Object;)V", Const.ACC_PUBLIC, 20, 1).setModifiesState(true);
+        statistics.addMethodStatistics("java/util/Stack", "copy", "(Ljava/util/Vector;)V", Const.ACC_PUBLIC, 8, 1);
+
+        addCall("java/util/Stack", "copy", "(Ljava/util/Vector;)V", "java/util/Vector", "addElement", "(Ljava/lang/Object;)V", Const.INVOKEVIRTUAL, false);
+        ModifiesStateClosure.close(statistics, callGraph, bugReporter);
+
+        assertFalse(statistics.getModifiesState(statistics.findMethod("java/util/Stack", "copy", "(Ljava/util/Vector;)V")));
+    }
+
+    private void addCall(String className, String methodName, String signature, String owner, String calleeName, String calleeSignature, int kind,
+            boolean onThis) {
+        callGraph.addCall(callGraph.addMethod(className, methodName, signature), callGraph.addMethod(owner, calleeName, calleeSignature), kind, 0, onThis);
+    }
+}
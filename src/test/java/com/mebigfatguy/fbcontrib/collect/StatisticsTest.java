@@ -0,0 +1,98 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.collect;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.bcel.Const;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.mebigfatguy.fbcontrib.utils.FQMethod;
+
+public class StatisticsTest {
+
+    @AfterMethod
+    public void tearDown() {
+        Statistics.getStatistics().clear();
+    }
+
+    @Test
+    public void shouldReturnNotFoundHandleForUnknownMethod() {
+        Statistics statistics = Statistics.getStatistics();
+        statistics.addMethodStatistics("com/acme/Foo", "bar", "()V", Const.ACC_PUBLIC, 10, 1);
+
+        assertEquals(statistics.findMethod("com/acme/Foo", "baz", "()V"), Statistics.NOT_FOUND);
+        assertEquals(statistics.findMethod("com/acme/Missing", "bar", "()V"), Statistics.NOT_FOUND);
+        assertEquals(statistics.getNumBytes(Statistics.NOT_FOUND), 0);
+    }
+
+    @Test
+    public void shouldReadStatisticsThroughHandle() {
+        Statistics statistics = Statistics.getStatistics();
+        MethodInfo mi = statistics.addMethodStatistics("com/acme/Foo", "bar", "(I)V", Const.ACC_PUBLIC, 42, 3);
+        mi.setModifiesState(false);
+
+        long handle = statistics.findMethod("com/acme/Foo", "bar", "(I)V");
+        assertNotEquals(handle, Statistics.NOT_FOUND);
+        assertEquals(statistics.getNumBytes(handle), 42);
+        assertEquals(statistics.getNumMethodCalls(handle), 3);
+        assertFalse(statistics.getModifiesState(handle));
+
+        statistics.getMethodStatistics("com/acme/Foo", "bar", "(I)V").setModifiesState(true);
+        assertTrue(statistics.getModifiesState(handle));
+    }
+
+    @Test
+    public void shouldShareRecordBetweenViews() {
+        Statistics statistics = Statistics.getStatistics();
+        statistics.addMethodStatistics("com/acme/Foo", "bar", "()V", Const.ACC_PUBLIC, 10, 1);
+        statistics.addImmutabilityStatus("com/acme/Foo", "bar", "()V", ImmutabilityType.IMMUTABLE);
+
+        long handle = statistics.findMethod("com/acme/Foo", "bar", "()V");
+        assertEquals(statistics.getImmutabilityType(handle), ImmutabilityType.IMMUTABLE);
+        assertEquals(statistics.getNumBytes(handle), 10);
+    }
+
+    @Test
+    public void shouldIterateEveryMethodOnce() {
+        Statistics statistics = Statistics.getStatistics();
+        int count = 1000;
+        for (int i = 0; i < count; i++) {
+            statistics.addMethodStatistics("com/acme/C" + (i % 17), "m" + i, "()V", Const.ACC_PUBLIC, i, 0);
+        }
+
+        Set<FQMethod> seen = new HashSet<>();
+        for (Map.Entry<FQMethod, MethodInfo> entry : statistics) {
+            FQMethod fqm = entry.getKey();
+            int i = Integer.parseInt(fqm.getMethodName().substring(1));
+            assertEquals(fqm.getClassName(), "com/acme/C" + (i % 17));
+            assertEquals(entry.getValue().getNumBytes(), i);
+            assertTrue(seen.add(fqm));
+        }
+        assertEquals(seen.size(), count);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.collect;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+public class StringPoolTest {
+
+    @Test
+    public void shouldReturnSameIdForEqualStrings() {
+        StringPool pool = new StringPool();
+        int id = pool.intern("java/lang/String");
+        assertEquals(pool.intern(new String("java/lang/String")), id);
+        assertEquals(pool.find("java/lang/String"), id);
+        assertEquals(pool.get(id), "java/lang/String");
+    }
+
+    @Test
+    public void shouldReturnDistinctIdsForDistinctStrings() {
+        StringPool pool = new StringPool();
+        assertNotEquals(pool.intern("toString"), pool.intern("hashCode"));
+    }
+
+    @Test
+    public void shouldNotAddOnFind() {
+        StringPool pool = new StringPool();
+        assertEquals(pool.find("missing"), StringPool.NOT_FOUND);
+        assertEquals(pool.find("missing"), StringPool.NOT_FOUND);
+    }
+
+    @Test
+    public void shouldKeepIdsStableAcrossGrowth() {
+        StringPool pool = new StringPool();
+        int count = 10000;
+        int[] ids = new int[count];
+        Set<Integer> seen = new HashSet<>();
+        Set<Integer> segments = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            ids[i] = pool.intern("s" + i);
+            seen.add(Integer.valueOf(ids[i]));
+            segments.add(Integer.valueOf(ids[i] & 0x0F));
+        }
+
+        assertEquals(seen.size(), count);
+        assertEquals(segments.size(), 16);
+        for (int i = 0; i < count; i++) {
+            assertEquals(pool.find("s" + i), ids[i]);
+            assertEquals(pool.get(ids[i]), "s" + i);
+        }
+    }
+
+    @Test
+    public void shouldForgetStringsOnClear() {
+        StringPool pool = new StringPool();
+        pool.intern("cleared");
+        pool.clear();
+        assertEquals(pool.find("cleared"), StringPool.NOT_FOUND);
+    }
+}
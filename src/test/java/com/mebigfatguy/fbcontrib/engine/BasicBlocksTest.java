@@ -0,0 +1,118 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import static org.testng.Assert.assertEquals;
+
+import org.apache.bcel.classfile.Attribute;
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.CodeException;
+import org.apache.bcel.classfile.Constant;
+import org.apache.bcel.classfile.ConstantPool;
+import org.testng.annotations.Test;
+
+public class BasicBlocksTest {
+
+    @Test
+    public void shouldKeepStraightLineCodeInOneBlock() {
+        // iconst_0, istore_1, return
+        BasicBlocks blocks = BasicBlocks.build(code(new CodeException[0], 0x03, 0x3C, 0xB1));
+
+        assertEquals(blocks.getNumBlocks(), 1);
+        assertEquals(blocks.getStart(0), 0);
+        assertEquals(blocks.getEnd(0), 3);
+        assertEquals(blocks.getNumSuccessors(0), 0);
+        assertEquals(blocks.getNumHandlers(0), 0);
+    }
+
+    @Test
+    public void shouldSplitAtBranchAndTarget() {
+        // 0: iload_1, 1: ifeq 7, 4: iconst_1, 5: istore_2, 6: return, 7: iconst_0, 8: istore_2, 9: return
+        BasicBlocks blocks = BasicBlocks.build(code(new CodeException[0], 0x1B, 0x99, 0x00, 0x06, 0x04, 0x3D, 0xB1, 0x03, 0x3D, 0xB1));
+
+        assertEquals(blocks.getNumBlocks(), 3);
+        assertEquals(blocks.getStart(1), 4);
+        assertEquals(blocks.getStart(2), 7);
+        assertSuccessors(blocks, 0, 1, 2);
+        assertSuccessors(blocks, 1);
+        assertSuccessors(blocks, 2);
+        assertEquals(blocks.getBlockAt(5), 1);
+    }
+
+    @Test
+    public void shouldSplitAtEverySwitchTarget() {
+        // 0: iload_1, 1: tableswitch 0..1 { 0: 24, 1: 26, default: 28 }, 24: iconst_0, ireturn, 26: iconst_1, ireturn, 28: iconst_2, ireturn
+        BasicBlocks blocks = BasicBlocks.build(code(new CodeException[0], 0x1B, 0xAA, 0x00, 0x00, 0x00, 0x00, 0x00, 0x1B, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+                0x00, 0x01, 0x00, 0x00, 0x00, 0x17, 0x00, 0x00, 0x00, 0x19, 0x03, 0xAC, 0x04, 0xAC, 0x05, 0xAC));
+
+        assertEquals(blocks.getNumBlocks(), 4);
+        assertEquals(blocks.getStart(1), 24);
+        assertEquals(blocks.getStart(2), 26);
+        assertEquals(blocks.getStart(3), 28);
+        assertSuccessors(blocks, 0, 1, 2, 3);
+        assertEquals(blocks.getBlockAt(10), 0);
+    }
+
+    @Test
+    public void shouldSplitAtTryRangesAndHandlers() {
+        // 0: iconst_0, istore_1, 2: iconst_1, istore_2, 4: return, 5: astore_3, return; 2..4 handled at 5
+        BasicBlocks blocks = BasicBlocks.build(code(new CodeException[] { new CodeException(2, 4, 5, 0) }, 0x03, 0x3C, 0x04, 0x3D, 0xB1, 0x4E, 0xB1));
+
+        assertEquals(blocks.getNumBlocks(), 4);
+        assertEquals(blocks.getStart(1), 2);
+        assertEquals(blocks.getStart(2), 4);
+        assertEquals(blocks.getStart(3), 5);
+        assertSuccessors(blocks, 0, 1);
+        assertSuccessors(blocks, 1, 2);
+        assertEquals(blocks.getNumHandlers(0), 0);
+        assertEquals(blocks.getNumHandlers(1), 1);
+        assertEquals(blocks.getHandler(1, 0), 3);
+        assertEquals(blocks.getNumHandlers(2), 0);
+    }
+
+    @Test
+    public void shouldStepOverWideInstructions() {
+        // 0: wide iinc 300 1, 6: wide iload 300, 10: ifeq 0, 13: return
+        BasicBlocks blocks = BasicBlocks.build(code(new CodeException[0], 0xC4, 0x84, 0x01, 0x2C, 0x00, 0x01, 0xC4, 0x15, 0x01, 0x2C, 0x99, 0xFF, 0xF6,
+                0xB1));
+
+        assertEquals(blocks.getNumBlocks(), 2);
+        assertEquals(blocks.getEnd(0), 13);
+        assertEquals(blocks.getBlockAt(6), 0);
+        assertSuccessors(blocks, 0, 0, 1);
+        assertEquals(BasicBlocks.length(new byte[] { (byte) 0xC4, (byte) 0x84 }, 0, 0xC4), 6);
+        assertEquals(BasicBlocks.length(new byte[] { (byte) 0xC4, 0x15 }, 0, 0xC4), 4);
+    }
+
+    static Code code(CodeException[] exceptions, int... bytes) {
+        byte[] code = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            code[i] = (byte) bytes[i];
+        }
+        return new Code(0, 0, 4, 4, code, exceptions, new Attribute[0], new ConstantPool(new Constant[1]));
+    }
+
+    private static void assertSuccessors(BasicBlocks blocks, int block, int... expected) {
+        int[] successors = new int[blocks.getNumSuccessors(block)];
+        for (int i = 0; i < successors.length; i++) {
+            successors[i] = blocks.getSuccessor(block, i);
+        }
+        assertEquals(successors, expected);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.engine;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.BitSet;
+
+import org.apache.bcel.classfile.CodeException;
+import org.testng.annotations.Test;
+
+public class BitVectorDataflowTest {
+
+    /**
+     * 0: iconst_0, istore_1, 2: iload_1, ifne 12, 6: iinc 1 1, goto 2, 12: return, giving the blocks entry, loop header, loop body and exit
+     */
+    private static final BasicBlocks LOOP = BasicBlocks.build(BasicBlocksTest.code(new CodeException[0], 0x03, 0x3C, 0x1B, 0x9A, 0x00, 0x09, 0x84, 0x01,
+            0x01, 0xA7, 0xFF, 0xF9, 0xB1));
+
+    @Test
+    public void shouldIntersectAroundLoopForMustProblem() {
+        BitVectorDataflow dataflow = new BitVectorDataflow(LOOP, true);
+        dataflow.getGen(0).set(1);
+        dataflow.getGen(2).set(0);
+        dataflow.getKill(2).set(1);
+        dataflow.solve(bits(2));
+
+        assertEquals(dataflow.getIn(1), bits(2));
+        assertEquals(dataflow.getIn(2), bits(2));
+        assertEquals(dataflow.getOut(2), bits(0, 2));
+        assertEquals(dataflow.getIn(3), bits(2));
+    }
+
+    @Test
+    public void shouldUnionAroundLoopForMayProblem() {
+        BitVectorDataflow dataflow = new BitVectorDataflow(LOOP, false);
+        dataflow.getGen(0).set(1);
+        dataflow.getGen(2).set(0);
+        dataflow.getKill(2).set(1);
+        dataflow.solve(new BitSet());
+
+        assertEquals(dataflow.getIn(1), bits(0, 1));
+        assertEquals(dataflow.getOut(2), bits(0));
+        assertEquals(dataflow.getIn(3), bits(0, 1));
+    }
+
+    @Test
+    public void shouldFlowStartOfCoveredBlockIntoHandler() {
+        // 0: iconst_0, istore_1, 2: iconst_1, istore_2, 4: return, 5: astore_3, return; 2..4 handled at 5
+        BasicBlocks blocks = BasicBlocks.build(BasicBlocksTest.code(new CodeException[] { new CodeException(2, 4, 5, 0) }, 0x03, 0x3C, 0x04, 0x3D, 0xB1,
+                0x4E, 0xB1));
+        BitVectorDataflow dataflow = new BitVectorDataflow(blocks, true);
+        dataflow.getGen(0).set(0);
+        dataflow.getGen(1).set(1);
+        dataflow.solve(new BitSet());
+
+        assertEquals(dataflow.getIn(2), bits(0, 1));
+        assertEquals(dataflow.getIn(3), bits(0));
+    }
+
+    @Test
+    public void shouldLeaveDeadCodeUnsolved() {
+        // 0: return, 1: return
+        BasicBlocks blocks = BasicBlocks.build(BasicBlocksTest.code(new CodeException[0], 0xB1, 0xB1));
+        BitVectorDataflow dataflow = new BitVectorDataflow(blocks, false);
+        dataflow.solve(bits(0));
+
+        assertTrue(dataflow.isReachable(0));
+        assertFalse(dataflow.isReachable(1));
+        assertNull(dataflow.getIn(1));
+        assertEquals(dataflow.getOut(0), bits(0));
+    }
+
+    private static BitSet bits(int... bits) {
+        BitSet set = new BitSet();
+        for (int bit : bits) {
+            set.set(bit);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.BitSet;
+
+import org.testng.annotations.Test;
+
+public class IntIntMapTest {
+
+    @Test
+    public void shouldStartEmpty() {
+        IntIntMap map = new IntIntMap();
+        assertTrue(map.isEmpty());
+        assertEquals(map.size(), 0);
+        assertFalse(map.containsKey(0));
+    }
+
+    @Test
+    public void shouldKeepKeysSortedWhateverTheInsertOrder() {
+        IntIntMap map = new IntIntMap();
+        map.put(7, 70);
+        map.put(-3, -30);
+        map.put(0, 1);
+        map.put(2, 20);
+
+        assertEquals(map.size(), 4);
+        assertEntries(map, new int[] { -3, 0, 2, 7 }, new int[] { -30, 1, 20, 70 });
+    }
+
+    @Test
+    public void shouldReplaceValueOfExistingKey() {
+        IntIntMap map = new IntIntMap();
+        map.put(0, 1);
+        map.put(0, 2);
+        map.put(Integer.MIN_VALUE, 3);
+        map.put(Integer.MIN_VALUE, 4);
+
+        assertEntries(map, new int[] { Integer.MIN_VALUE, 0 }, new int[] { 4, 2 });
+    }
+
+    @Test
+    public void shouldGrowPastInitialCapacity() {
+        IntIntMap map = new IntIntMap();
+        for (int key = 99; key >= 0; key--) {
+            map.put(key, key * 10);
+        }
+
+        assertEquals(map.size(), 100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(map.keyAt(i), i);
+            assertEquals(map.valueAt(i), i * 10);
+        }
+    }
+
+    @Test
+    public void shouldIgnoreMissingKeys() {
+        IntIntMap map = new IntIntMap();
+        map.put(1, 10);
+        map.put(3, 30);
+
+        assertFalse(map.containsKey(2));
+        assertFalse(map.containsKey(-1));
+        map.remove(2);
+        assertEntries(map, new int[] { 1, 3 }, new int[] { 10, 30 });
+
+        map.remove(1);
+        assertEntries(map, new int[] { 3 }, new int[] { 30 });
+        assertFalse(map.containsKey(1));
+    }
+
+    @Test
+    public void shouldCopyAndRemoveAllOfAnotherMap() {
+        IntIntMap map = new IntIntMap();
+        map.put(0, 1);
+        map.put(4, 5);
+        IntIntMap other = new IntIntMap();
+        other.put(4, 6);
+        other.put(-2, 7);
+
+        map.putAll(other);
+        assertEntries(map, new int[] { -2, 0, 4 }, new int[] { 7, 1, 6 });
+
+        IntIntMap removed = new IntIntMap();
+        removed.put(-2, 0);
+        removed.put(0, 0);
+        map.removeAll(removed);
+        assertEntries(map, new int[] { 4 }, new int[] { 6 });
+    }
+
+    @Test
+    public void shouldRemoveBitSetKeysButKeepNegativeKeys() {
+        IntIntMap map = new IntIntMap();
+        map.put(-1, 1);
+        map.put(0, 2);
+        map.put(1, 3);
+        map.put(2, 4);
+        BitSet keySet = new BitSet();
+        keySet.set(0);
+        keySet.set(2);
+
+        map.removeAll(keySet);
+        assertEntries(map, new int[] { -1, 1 }, new int[] { 1, 3 });
+    }
+
+    @Test
+    public void shouldAddKeysToBitSet() {
+        IntIntMap map = new IntIntMap();
+        map.put(0, 9);
+        map.put(5, 9);
+        BitSet keySet = new BitSet();
+        map.addKeysTo(keySet);
+
+        assertEquals(keySet.cardinality(), 2);
+        assertTrue(keySet.get(0));
+        assertTrue(keySet.get(5));
+    }
+
+    private static void assertEntries(IntIntMap map, int[] keys, int[] values) {
+        assertEquals(map.size(), keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(map.keyAt(i), keys[i]);
+            assertEquals(map.valueAt(i), values[i]);
+            assertTrue(map.containsKey(keys[i]));
+        }
+    }
+}
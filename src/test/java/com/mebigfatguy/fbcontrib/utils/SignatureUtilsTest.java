@@ -19,6 +19,7 @@
 package com.mebigfatguy.fbcontrib.utils;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 
 import java.util.Arrays;
 import java.util.HashMap;
@@ -102,6 +103,28 @@ public class SignatureUtilsTest {
         assertEquals(SignatureUtils.getParameterSignatures("wonky(!Ljava/lang/Object;++)Ljava/lang/Object;"), Arrays.asList("Ljava/lang/Object;"));
     }
 
+    @Test
+    public void shouldParseSignatureSlotsAndReturnType() {
+        ParsedSignature parsed = ParsedSignature.of("(JLjava/lang/String;[DI)Ljava/util/List;");
+        assertEquals(parsed.getNumParameters(), 4);
+        assertEquals(parsed.getParameterSignature(2), "[D");
+        assertEquals(parsed.getParameterSlot(1), 2);
+        assertEquals(parsed.getParameterSlot(3), 4);
+        assertEquals(parsed.getParameterSlotCount(), 5);
+        assertEquals(parsed.getParameterIndexAtSlot(3), 2);
+        assertEquals(parsed.getParameterIndexAtSlot(1), -1);
+        assertEquals(parsed.getReturnSignature(), "Ljava/util/List;");
+        assertSame(ParsedSignature.of("(JLjava/lang/String;[DI)Ljava/util/List;"), parsed);
+    }
+
+    @Test
+    public void shouldParseSignatureWithWonkyEclipseMethod() {
+        ParsedSignature parsed = ParsedSignature.of("add(I!+Ljava/util/List;)V");
+        assertEquals(parsed.getParameterSignatures(), Arrays.asList("I", "Ljava/util/List;"));
+        assertEquals(parsed.getParameterSlot(1), 1);
+        assertEquals(parsed.getReturnSignature(), "V");
+    }
+
     @Test(dataProvider = "namesToSignatures")
     public void shouldConvertClassnamesToSignatures(String input, String expected) {
         assertEquals(SignatureUtils.classToSignature(input), expected);
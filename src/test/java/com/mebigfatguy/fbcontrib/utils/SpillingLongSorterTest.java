@@ -0,0 +1,193 @@
+/*
+ * fb-contrib - Auxiliary detectors for Java programs
+ * Copyright (C) 2005-2018 Dave Brosius
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.mebigfatguy.fbcontrib.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.testng.annotations.Test;
+
+public class SpillingLongSorterTest {
+
+    @Test
+    public void shouldReturnNothingForEmptyInput() throws IOException {
+        try (SpillingLongSorter sorter = new SpillingLongSorter("test", 16); SpillingLongSorter.Cursor cursor = sorter.sorted()) {
+            assertFalse(cursor.next());
+            assertFalse(sorter.hasSpilled());
+        }
+    }
+
+    @Test
+    public void shouldSortAndRemoveDuplicatesInMemory() throws IOException {
+        try (SpillingLongSorter sorter = new SpillingLongSorter("test", 64)) {
+            for (long value : new long[] { 5, 3, 5, -1, 3, 9 }) {
+                sorter.add(value);
+            }
+
+            assertEquals(read(sorter), list(-1, 3, 5, 9));
+            assertFalse(sorter.hasSpilled());
+        }
+    }
+
+    @Test
+    public void shouldMergeSpilledRuns() throws IOException {
+        Random random = new Random(42);
+        TreeSet<Long> expected = new TreeSet<>();
+        try (SpillingLongSorter sorter = new SpillingLongSorter("test", 16)) {
+            for (int i = 0; i < 1000; i++) {
+                long value = random.nextLong();
+                expected.add(Long.valueOf(value));
+                sorter.add(value);
+            }
+
+            assertTrue(sorter.hasSpilled());
+            assertEquals(read(sorter), new ArrayList<>(expected));
+        }
+    }
+
+    @Test
+    public void shouldDropDuplicatesAcrossRuns() throws IOException {
+        try (SpillingLongSorter sorter = new SpillingLongSorter("test", 16)) {
+            for (int pass = 0; pass < 5; pass++) {
+                for (long value = 40; value > 0; value--) {
+                    sorter.add(value);
+                }
+            }
+
+            assertTrue(sorter.hasSpilled());
+            List<Long> expected = new ArrayList<>();
+            for (long value = 1; value <= 40; value++) {
+                expected.add(Long.valueOf(value));
+            }
+            assertEquals(read(sorter), expected);
+        }
+    }
+
+    @Test
+    public void shouldNotSpillWhenDuplicatesFitTheBuffer() throws IOException {
+        try (SpillingLongSorter sorter = new SpillingLongSorter("test", 16)) {
+            for (int i = 0; i < 1000; i++) {
+                sorter.add(i % 4);
+            }
+
+            assertFalse(sorter.hasSpilled());
+            assertEquals(read(sorter), list(0, 1, 2, 3));
+        }
+    }
+
+    @Test
+    public void shouldBuildAdjacencyInMemory() throws IOException {
+        try (SpillingLongSorter sorter = new SpillingLongSorter("test", 64)) {
+            addEdges(sorter);
+            assertFalse(sorter.hasSpilled());
+            assertAdjacency(sorter);
+        }
+    }
+
+    @Test
+    public void shouldBuildAdjacencyFromSpilledRuns() throws IOException {
+        try (SpillingLongSorter sorter = new SpillingLongSorter("test", 16)) {
+            addEdges(sorter);
+            assertTrue(sorter.hasSpilled());
+            assertAdjacency(sorter);
+        }
+    }
+
+    @Test
+    public void shouldRemoveMappedAdjacencyOnClose() throws IOException {
+        Path spillDir = Files.createTempDirectory("spill-test");
+        String oldSpillDir = System.getProperty(SpillingLongSorter.SPILL_DIR);
+        System.setProperty(SpillingLongSorter.SPILL_DIR, spillDir.toString());
+        try {
+            try (SpillingLongSorter sorter = new SpillingLongSorter("test", 16)) {
+                addEdges(sorter);
+                assertAdjacency(sorter);
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(spillDir)) {
+                assertFalse(files.iterator().hasNext());
+            }
+        } finally {
+            if (oldSpillDir == null) {
+                System.clearProperty(SpillingLongSorter.SPILL_DIR);
+            } else {
+                System.setProperty(SpillingLongSorter.SPILL_DIR, oldSpillDir);
+            }
+            Files.delete(spillDir);
+        }
+    }
+
+    /**
+     * adds the edges 0 to every other node, 2 to 1, and 3 to 0, each several times, leaving node 1 and the last node without edges
+     */
+    private static void addEdges(SpillingLongSorter sorter) throws IOException {
+        for (int pass = 0; pass < 3; pass++) {
+            for (int target = 2; target < 20; target++) {
+                sorter.add(target);
+            }
+            sorter.add((2L << 32) | 1);
+            sorter.add(3L << 32);
+        }
+    }
+
+    private static void assertAdjacency(SpillingLongSorter sorter) throws IOException {
+        int[] offsets = new int[21];
+        IntBuffer targets = sorter.toAdjacency(offsets);
+
+        assertEquals(offsets[0], 0);
+        assertEquals(offsets[1], 18);
+        assertEquals(offsets[2], 18);
+        assertEquals(offsets[3], 19);
+        assertEquals(offsets[4], 20);
+        assertEquals(offsets[20], 20);
+        for (int edge = 0; edge < 18; edge++) {
+            assertEquals(targets.get(edge), edge + 2);
+        }
+        assertEquals(targets.get(18), 1);
+        assertEquals(targets.get(19), 0);
+    }
+
+    private static List<Long> read(SpillingLongSorter sorter) throws IOException {
+        List<Long> values = new ArrayList<>();
+        try (SpillingLongSorter.Cursor cursor = sorter.sorted()) {
+            while (cursor.next()) {
+                values.add(Long.valueOf(cursor.value()));
+            }
+        }
+        return values;
+    }
+
+    private static List<Long> list(long... values) {
+        List<Long> list = new ArrayList<>();
+        for (long value : values) {
+            list.add(Long.valueOf(value));
+        }
+        return list;
+    }
+}